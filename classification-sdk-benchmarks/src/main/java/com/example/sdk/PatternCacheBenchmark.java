@@ -0,0 +1,69 @@
+package com.example.sdk;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Lookups through the engine's shared regex pattern cache, which every
+ * ruleset compilation goes through. Lives in the SDK's package because the
+ * cache is package-private. The contended variant shows how lookups scale
+ * when several threads compile rulesets at once.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PatternCacheBenchmark {
+
+    @Param({"50", "100", "200"})
+    public int distinctPatterns;
+
+    private String[] regexes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        regexes = new String[distinctPatterns];
+        for (int i = 0; i < regexes.length; i++) {
+            regexes[i] = "\\bTKN" + i + "-\\d{4}\\b";
+        }
+    }
+
+    /** Per-thread position in the pattern working set. */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        String take(String[] regexes) {
+            String value = regexes[next];
+            next = (next + 1) % regexes.length;
+            return value;
+        }
+    }
+
+    @Benchmark
+    public Pattern lookup(Cursor cursor) {
+        return DetectionEngine.compilePattern(cursor.take(regexes));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Pattern lookupContended(Cursor cursor) {
+        return DetectionEngine.compilePattern(cursor.take(regexes));
+    }
+}
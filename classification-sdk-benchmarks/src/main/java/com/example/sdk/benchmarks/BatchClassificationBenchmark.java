@@ -0,0 +1,88 @@
+package com.example.sdk.benchmarks;
+
+import com.example.sdk.ClassificationSdk;
+import com.example.sdk.DetectionResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link ClassificationSdk#classifyAll} on fork-join pools of
+ * increasing parallelism, in values per millisecond. Comparing the
+ * {@code workers} settings shows how batch classification scales on the
+ * current machine. Uses the bootstrap rules unless a policy service is
+ * reachable.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-bench.xml")
+@State(Scope.Benchmark)
+public class BatchClassificationBenchmark {
+
+    private static final int BATCH_SIZE = 20_000;
+
+    @Param({"1", "2", "4", "8"})
+    public int workers;
+
+    private ForkJoinPool pool;
+    private ClassificationSdk sdk;
+    private List<String> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pool = new ForkJoinPool(workers);
+        sdk = new ClassificationSdk(pool);
+        batch = syntheticBatch(BATCH_SIZE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sdk.close();
+        pool.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<DetectionResult> classifyAll() {
+        return sdk.classifyAll(batch);
+    }
+
+    // One value in ten is a phone number, one an ID card number and the
+    // rest match nothing
+    private static List<String> syntheticBatch(int size) {
+        Random random = new Random(42);
+        List<String> batch = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            switch (random.nextInt(10)) {
+                case 0:
+                    batch.add("phone 138" + (10_000_000 + random.nextInt(89_999_999)));
+                    break;
+                case 1:
+                    batch.add("id 11010519800101" + (1000 + random.nextInt(8999)));
+                    break;
+                default:
+                    batch.add("order-" + random.nextInt(1_000_000) + " status=SHIPPED region=EU");
+            }
+        }
+        return batch;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.sdk.benchmarks;
+
+import com.example.sdk.ClassificationMode;
+import com.example.sdk.CompiledRuleset;
+import com.example.sdk.DetectionEngine;
+import com.example.sdk.DetectionResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-value detection throughput of {@link DetectionEngine#detect} against
+ * a pinned {@link CompiledRuleset}, in both classification modes. The
+ * {@code contended} variants run the same work on several threads sharing one
+ * snapshot, as request threads of a service do. The {@code utf8} variant
+ * classifies the same inputs as UTF-8 encoded bytes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-bench.xml")
+@State(Scope.Benchmark)
+public class DetectionEngineBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int ruleCount;
+
+    @Param({Workload.REGEX, Workload.DICTIONARY, Workload.FUZZY, Workload.MIXED})
+    public String matcherMix;
+
+    @Param({"64", "4096"})
+    public int inputLength;
+
+    @Param({"0.0", "0.1", "0.9"})
+    public double hitRate;
+
+    private final DetectionEngine engine = new DetectionEngine();
+    private CompiledRuleset snapshot;
+    private String[] inputs;
+    private byte[][] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        snapshot = CompiledRuleset.compile(Workload.ruleset(ruleCount, matcherMix));
+        inputs = Workload.inputs(ruleCount, matcherMix, inputLength, hitRate);
+        encoded = new byte[inputs.length][];
+        for (int i = 0; i < inputs.length; i++) {
+            encoded[i] = inputs[i].getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /** Per-thread position in the input pool. */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        String take(String[] inputs) {
+            String value = inputs[next];
+            next = (next + 1) % inputs.length;
+            return value;
+        }
+
+        byte[] take(byte[][] inputs) {
+            byte[] value = inputs[next];
+            next = (next + 1) % inputs.length;
+            return value;
+        }
+    }
+
+    @Benchmark
+    public DetectionResult topMatchOnly(Cursor cursor) {
+        return engine.detect(cursor.take(inputs), ClassificationMode.TOP_MATCH_ONLY, snapshot);
+    }
+
+    @Benchmark
+    public DetectionResult multiMatchAll(Cursor cursor) {
+        return engine.detect(cursor.take(inputs), ClassificationMode.MULTI_MATCH_ALL, snapshot);
+    }
+
+    @Benchmark
+    public DetectionResult topMatchOnlyUtf8(Cursor cursor) {
+        byte[] value = cursor.take(encoded);
+        return engine.detect(value, 0, value.length, ClassificationMode.TOP_MATCH_ONLY, snapshot);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public DetectionResult topMatchOnlyContended(Cursor cursor) {
+        return engine.detect(cursor.take(inputs), ClassificationMode.TOP_MATCH_ONLY, snapshot);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public DetectionResult multiMatchAllContended(Cursor cursor) {
+        return engine.detect(cursor.take(inputs), ClassificationMode.MULTI_MATCH_ALL, snapshot);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.sdk.benchmarks;
+
+import com.example.sdk.DictionaryMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a single dictionary matcher: the per-call path that parses the
+ * pattern string every time, and the path with entries parsed once.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DictionaryMatcherBenchmark {
+
+    @Param({"5", "50", "500"})
+    public int entryCount;
+
+    @Param({"64", "4096"})
+    public int inputLength;
+
+    @Param({"0.0", "0.1", "0.9"})
+    public double hitRate;
+
+    private String pattern;
+    private String[] entries;
+    private String[] inputs;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pattern = Workload.dictionaryPattern(7, entryCount);
+        entries = DictionaryMatcher.parseEntries(pattern);
+        Random random = new Random(7);
+        inputs = new String[Workload.POOL_SIZE];
+        int hits = (int) Math.round(inputs.length * hitRate);
+        for (int i = 0; i < inputs.length; i++) {
+            String token = i < hits ? entries[random.nextInt(entries.length)] : null;
+            inputs[i] = Workload.text(random, inputLength, token);
+        }
+    }
+
+    private String nextInput() {
+        String value = inputs[next];
+        next = (next + 1) % inputs.length;
+        return value;
+    }
+
+    @Benchmark
+    public boolean parsePerCall() {
+        return DictionaryMatcher.matches(nextInput(), pattern);
+    }
+
+    @Benchmark
+    public boolean preParsed() {
+        return DictionaryMatcher.matches(nextInput(), entries);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.sdk.benchmarks;
+
+import com.example.sdk.FuzzyMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link FuzzyMatcher}: whole-value comparison of similar-length
+ * values, and searching for an approximate occurrence in longer text, each
+ * with the static API and with a pre-compiled pattern. Patterns longer than
+ * 64 characters exercise the banded fallback instead of the bit-parallel
+ * algorithm.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FuzzyMatcherBenchmark {
+
+    @Param({"8", "32", "100"})
+    public int patternLength;
+
+    @Param({"64", "4096"})
+    public int inputLength;
+
+    @Param({"0.0", "0.1", "0.9"})
+    public double hitRate;
+
+    private String pattern;
+    private FuzzyMatcher.Compiled compiled;
+    private String[] values;
+    private String[] texts;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(11);
+        pattern = word(random, patternLength);
+        compiled = FuzzyMatcher.compile(pattern);
+        values = new String[Workload.POOL_SIZE];
+        texts = new String[Workload.POOL_SIZE];
+        int hits = (int) Math.round(values.length * hitRate);
+        for (int i = 0; i < values.length; i++) {
+            boolean hit = i < hits;
+            // Whole values: one edit away on a hit, otherwise a different word
+            // of the same length so the length check cannot reject it
+            values[i] = hit ? edit(random, pattern) : word(random, patternLength);
+            texts[i] = Workload.text(random, inputLength, hit ? edit(random, pattern) : null);
+        }
+    }
+
+    private int advance() {
+        int i = next;
+        next = (next + 1) % values.length;
+        return i;
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return FuzzyMatcher.matches(pattern, values[advance()]);
+    }
+
+    @Benchmark
+    public boolean matchesCompiled() {
+        return compiled.matches(values[advance()]);
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return FuzzyMatcher.contains(pattern, texts[advance()]);
+    }
+
+    @Benchmark
+    public boolean containsCompiled() {
+        return compiled.containedIn(texts[advance()]);
+    }
+
+    private static String word(Random random, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(26)));
+        }
+        return sb.toString();
+    }
+
+    private static String edit(Random random, String s) {
+        int at = random.nextInt(s.length());
+        return s.substring(0, at) + (char) ('A' + random.nextInt(26)) + s.substring(at + 1);
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.sdk.benchmarks;
+
+import com.example.sdk.model.MatcherDef;
+import com.example.sdk.model.Rule;
+import com.example.sdk.model.Ruleset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic rulesets and inputs shared by the benchmarks. Every
+ * generated rule has a token that makes it match; inputs are random
+ * lower-case words in which, at the requested hit rate, the token of a random
+ * rule is planted. The filler never matches any rule, so the hit rate of the
+ * input pool is exact.
+ */
+public final class Workload {
+
+    /** Matcher mixes accepted by {@link #ruleset}. */
+    public static final String REGEX = "regex";
+    public static final String DICTIONARY = "dictionary";
+    public static final String FUZZY = "fuzzy";
+    public static final String MIXED = "mixed";
+
+    // Number of distinct inputs benchmarks cycle through
+    public static final int POOL_SIZE = 512;
+
+    private static final long SEED = 42L;
+
+    private Workload() {}
+
+    /**
+     * Build a ruleset of {@code count} rules.
+     *
+     * @param count number of rules
+     * @param mix   one of {@link #REGEX}, {@link #DICTIONARY}, {@link #FUZZY}
+     *              or {@link #MIXED}
+     */
+    public static Ruleset ruleset(int count, String mix) {
+        Random random = new Random(SEED);
+        List<Rule> rules = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Rule rule = new Rule();
+            rule.setId("rule-" + i);
+            rule.setName("Benchmark rule " + i);
+            rule.setLevel("CONFIDENTIAL");
+            rule.setPriority(random.nextInt(100));
+            rule.setEnabled(true);
+            rule.setMatchers(Collections.singletonList(matcher(kind(mix, i), i)));
+            rules.add(rule);
+        }
+        Ruleset ruleset = new Ruleset();
+        ruleset.setVersion("bench-" + count + "-" + mix);
+        ruleset.setRules(rules);
+        return ruleset;
+    }
+
+    /**
+     * Build the input pool for a ruleset created with the same count and mix.
+     *
+     * @param count   number of rules in the ruleset
+     * @param mix     matcher mix of the ruleset
+     * @param length  approximate length of each input in characters
+     * @param hitRate fraction of inputs that contain a matching token
+     */
+    public static String[] inputs(int count, String mix, int length, double hitRate) {
+        Random random = new Random(SEED + 1);
+        String[] pool = new String[POOL_SIZE];
+        int hits = (int) Math.round(POOL_SIZE * hitRate);
+        for (int n = 0; n < POOL_SIZE; n++) {
+            String token = null;
+            if (n < hits) {
+                int rule = random.nextInt(count);
+                token = token(kind(mix, rule), rule);
+            }
+            pool[n] = text(random, length, token);
+        }
+        // Spread the hits over the pool
+        Collections.shuffle(Arrays.asList(pool), random);
+        return pool;
+    }
+
+    /**
+     * Random filler text of about the given length, with {@code token}
+     * inserted at a random word boundary if it is not {@code null}.
+     */
+    public static String text(Random random, int length, String token) {
+        StringBuilder sb = new StringBuilder(length + 32);
+        int tokenAt = token != null ? random.nextInt(Math.max(1, length)) : -1;
+        while (sb.length() < length) {
+            if (tokenAt >= 0 && sb.length() >= tokenAt) {
+                sb.append(token).append(' ');
+                tokenAt = -1;
+                continue;
+            }
+            int word = 3 + random.nextInt(7);
+            for (int i = 0; i < word; i++) {
+                sb.append((char) ('a' + random.nextInt(26)));
+            }
+            sb.append(' ');
+        }
+        if (tokenAt >= 0) {
+            sb.append(token);
+        }
+        return sb.toString();
+    }
+
+    /** Dictionary pattern with {@code size} entries, as used by dictionary rules. */
+    public static String dictionaryPattern(int id, int size) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("kw").append(id).append("term").append(i);
+        }
+        return sb.toString();
+    }
+
+    private static String kind(String mix, int i) {
+        if (MIXED.equals(mix)) {
+            return i % 3 == 0 ? REGEX : i % 3 == 1 ? DICTIONARY : FUZZY;
+        }
+        return mix;
+    }
+
+    private static MatcherDef matcher(String kind, int i) {
+        MatcherDef def = new MatcherDef();
+        if (REGEX.equals(kind)) {
+            def.setType("regex");
+            // every fourth pattern needs java.util.regex (look-around)
+            def.setPattern(i % 4 == 3
+                    ? "(?<![A-Z])ACC" + i + "\\d{3}(?!\\d)"
+                    : "\\bTKN" + i + "-\\d{4}\\b");
+        } else if (DICTIONARY.equals(kind)) {
+            def.setType("dictionary");
+            def.setPattern(dictionaryPattern(i, 3));
+        } else if (FUZZY.equals(kind)) {
+            def.setType("fuzzy_contains");
+            def.setPattern("fuzzyterm" + i);
+        } else {
+            throw new IllegalArgumentException("Unknown matcher mix " + kind);
+        }
+        def.setConfidence(0.9);
+        return def;
+    }
+
+    private static String token(String kind, int i) {
+        if (REGEX.equals(kind)) {
+            return i % 4 == 3 ? "ACC" + i + "123" : "TKN" + i + "-1234";
+        } else if (DICTIONARY.equals(kind)) {
+            return "kw" + i + "term1";
+        }
+        // one deletion away from the pattern
+        return "fuzzytrm" + i;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.sdk.benchmarks;
+
+import com.example.sdk.ClassificationMode;
+import com.example.sdk.CompiledRuleset;
+import com.example.sdk.DetectionEngine;
+import com.example.sdk.DetectionResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WorkloadTests {
+
+    private static final String[] MIXES = {Workload.REGEX, Workload.DICTIONARY, Workload.FUZZY, Workload.MIXED};
+
+    @Test
+    @DisplayName("should plant matching tokens in exactly the requested share of inputs")
+    void hitsAtRequestedRate() {
+        DetectionEngine engine = new DetectionEngine();
+        for (String mix : MIXES) {
+            CompiledRuleset compiled = CompiledRuleset.compile(Workload.ruleset(40, mix));
+            for (double hitRate : new double[]{0.0, 0.1, 1.0}) {
+                int hits = 0;
+                for (String input : Workload.inputs(40, mix, 200, hitRate)) {
+                    DetectionResult result = engine.detect(input, ClassificationMode.TOP_MATCH_ONLY, compiled);
+                    if (!result.getMatchedRules().isEmpty()) {
+                        hits++;
+                    }
+                }
+
+                assertThat(hits).as("%s %s", mix, hitRate)
+                        .isEqualTo((int) Math.round(Workload.POOL_SIZE * hitRate));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("should generate the same inputs on every run")
+    void isDeterministic() {
+        assertThat(Workload.inputs(10, Workload.MIXED, 100, 0.5))
+                .containsExactly(Workload.inputs(10, Workload.MIXED, 100, 0.5));
+    }
+
+    @Test
+    @DisplayName("should insert the token into text of about the requested length")
+    void insertsToken() {
+        String text = Workload.text(new Random(1), 100, "TOKEN");
+
+        assertThat(text).contains("TOKEN");
+        assertThat(text.length()).isBetween(100, 120);
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.sdk;
+
+import com.example.sdk.config.SdkConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs classifications off the caller's thread with bounded admission. At most
+ * {@code maxInFlight} requests may be queued or running at any time; further
+ * requests fail immediately with a {@link RejectedExecutionException} instead
+ * of waiting, so a traffic spike turns into fast rejections rather than
+ * unbounded latency.
+ *
+ * <p>Unless an executor is supplied, tasks run on virtual threads when the
+ * JVM provides them (JDK 21+, discovered reflectively since the SDK targets
+ * Java 8) and on a fixed pool of daemon threads sized to the available
+ * processors otherwise. That default executor is created on the first
+ * asynchronous request and shared by all SDK instances of the process.</p>
+ */
+final class AsyncClassifier {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncClassifier.class);
+
+    private final DetectionEngine engine;
+    private final Executor executor; // null for the shared default executor
+    private final int maxInFlight;
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+
+    AsyncClassifier(DetectionEngine engine, Executor executor, int maxInFlight) {
+        this.engine = engine;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Create an async classifier with the executor and admission limit
+     * configured through {@link SdkConfig}.
+     */
+    static AsyncClassifier fromConfig(DetectionEngine engine) {
+        return new AsyncClassifier(engine, null, SdkConfig.getAsyncMaxInFlight());
+    }
+
+    CompletableFuture<DetectionResult> submit(String data, ClassificationMode mode) {
+        if (!permits.tryAcquire()) {
+            rejected.incrementAndGet();
+            return failed(new RejectedExecutionException(
+                    "Classification rejected: too many requests in flight"));
+        }
+        CompletableFuture<DetectionResult> future = new CompletableFuture<>();
+        queued.incrementAndGet();
+        boolean submitted = false;
+        try {
+            Executor target = executor != null ? executor : DefaultExecutor.INSTANCE;
+            target.execute(() -> {
+                queued.decrementAndGet();
+                try {
+                    future.complete(engine.detect(data, mode));
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                } finally {
+                    permits.release();
+                }
+            });
+            submitted = true;
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            future.completeExceptionally(e);
+        } finally {
+            // Any other failure of the executor is rethrown, but must not
+            // leak the request's permit either
+            if (!submitted) {
+                queued.decrementAndGet();
+                permits.release();
+            }
+        }
+        return future;
+    }
+
+    /** Requests accepted but not yet started. */
+    int getQueueDepth() {
+        return queued.get();
+    }
+
+    /** Requests queued or running. */
+    int getInFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    /** Requests rejected since creation. */
+    long getRejectedCount() {
+        return rejected.get();
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable t) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(t);
+        return future;
+    }
+
+    // Holds the default executor, created when first used
+    private static final class DefaultExecutor {
+        static final Executor INSTANCE = create();
+    }
+
+    private static Executor create() {
+        String type = SdkConfig.getAsyncExecutor();
+        if (!"platform".equalsIgnoreCase(type)) {
+            try {
+                Object virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                return (ExecutorService) virtual;
+            } catch (ReflectiveOperationException e) {
+                if ("virtual".equalsIgnoreCase(type)) {
+                    log.warn("Virtual threads unavailable on this JVM, using a platform thread pool");
+                }
+            }
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+            Thread t = new Thread(r, "classification-async-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+}
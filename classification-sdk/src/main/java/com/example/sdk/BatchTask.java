@@ -0,0 +1,49 @@
+package com.example.sdk;
+
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork-join task classifying a slice of a batch. The input range is split in
+ * halves until it is no larger than the sequential threshold; each leaf writes
+ * its results into the shared output array at the inputs' own indices, so the
+ * results come back in input order without any merging step.
+ */
+final class BatchTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final DetectionEngine engine;
+    private final CompiledRuleset snapshot;
+    private final ClassificationMode mode;
+    private final List<String> inputs;
+    private final DetectionResult[] results;
+    private final int from;
+    private final int to;
+    private final int threshold;
+
+    BatchTask(DetectionEngine engine, CompiledRuleset snapshot, ClassificationMode mode,
+              List<String> inputs, DetectionResult[] results, int from, int to, int threshold) {
+        this.engine = engine;
+        this.snapshot = snapshot;
+        this.mode = mode;
+        this.inputs = inputs;
+        this.results = results;
+        this.from = from;
+        this.to = to;
+        this.threshold = threshold;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= threshold) {
+            for (int i = from; i < to; i++) {
+                results[i] = engine.detect(inputs.get(i), mode, snapshot);
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        invokeAll(new BatchTask(engine, snapshot, mode, inputs, results, from, mid, threshold),
+                new BatchTask(engine, snapshot, mode, inputs, results, mid, to, threshold));
+    }
+}
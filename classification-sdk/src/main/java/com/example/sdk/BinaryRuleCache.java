@@ -0,0 +1,388 @@
+package com.example.sdk;
+
+import com.example.sdk.cache.CachePaths;
+import com.example.sdk.config.SdkConfig;
+import com.example.sdk.model.MatcherDef;
+import com.example.sdk.model.Rule;
+import com.example.sdk.model.Ruleset;
+import com.example.sdk.regex.MultiRegex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary cache of the latest compiled ruleset, from which the SDK starts
+ * without parsing JSON or building automata. Next to the ruleset itself the
+ * file holds the keyword automaton of the inline dictionaries, the compiled
+ * multi-regex program, the literal prefilter automaton and the slot each
+ * pattern and dictionary was assigned. On startup the file is memory-mapped,
+ * verified and read back, and the ruleset is compiled against the restored
+ * automata (see {@link CompiledRuleset#ofAutomata}); only the per-rule
+ * matchers are compiled again.
+ *
+ * <p>The file is written next to the JSON cache, which remains the fallback:
+ * a file with another format version, a checksum mismatch or written by
+ * another Java version (whose Unicode tables the automata depend on) is
+ * ignored.</p>
+ *
+ * <p>File layout, big-endian: a 32-byte header of magic, format version,
+ * payload length and CRC-32 of the payload, followed by the payload, in
+ * which strings are stored as UTF-16 so that they are read back in bulk.
+ * {@link #VERSION} must be raised whenever the payload or the layout of the
+ * automata changes.</p>
+ */
+final class BinaryRuleCache {
+
+    private static final Logger log = LoggerFactory.getLogger(BinaryRuleCache.class);
+
+    private static final int MAGIC = 0x43535243; // "CSRC"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 32;
+
+    private BinaryRuleCache() {
+    }
+
+    /**
+     * Load the cached ruleset with its automata. Returns {@code null} if the
+     * binary cache is disabled, missing or unusable, in which case the caller
+     * should fall back to the JSON cache.
+     *
+     * @return a snapshot holding the automata but no compiled rules, to be
+     *         passed to {@link CompiledRuleset#compile(Ruleset, CompiledRuleset)}
+     *         together with its ruleset
+     */
+    static CompiledRuleset load() {
+        if (!SdkConfig.isBinaryCacheEnabled()) {
+            return null;
+        }
+        Path file = Paths.get(CachePaths.getBinaryCacheFile());
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        long started = System.nanoTime();
+        try {
+            ByteBuffer image;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long length = channel.size();
+                if (length < HEADER_BYTES || length > Integer.MAX_VALUE) {
+                    throw new IOException("unexpected size " + length);
+                }
+                image = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            }
+            if (image.getInt(0) != MAGIC || image.getInt(4) != VERSION) {
+                log.info("Ignoring binary rule cache {} of another format version", file);
+                return null;
+            }
+            if (image.getLong(8) != image.capacity() - HEADER_BYTES) {
+                throw new IOException("truncated");
+            }
+            ((Buffer) image).position(HEADER_BYTES);
+            ByteBuffer in = image.slice();
+            CRC32 crc = new CRC32();
+            crc.update(in.duplicate());
+            if (crc.getValue() != image.getLong(16)) {
+                throw new IOException("checksum mismatch");
+            }
+
+            String javaVersion = readString(in);
+            if (!System.getProperty("java.specification.version").equals(javaVersion)) {
+                log.info("Ignoring binary rule cache {} written by Java {}", file, javaVersion);
+                return null;
+            }
+            Ruleset ruleset = readRuleset(in);
+            boolean multiRegex = in.get() != 0;
+            Map<String, Integer> regexSlots = readSlots(in);
+            Map<String, Integer> prefilterSlots = readSlots(in);
+            int dictionaryCount = in.getInt();
+            Map<List<String>, Integer> dictionarySlots = new HashMap<>();
+            for (int i = 0; i < dictionaryCount; i++) {
+                String[] entries = new String[in.getInt()];
+                for (int j = 0; j < entries.length; j++) {
+                    entries[j] = readString(in);
+                }
+                dictionarySlots.put(Arrays.asList(entries), in.getInt());
+            }
+            KeywordAutomaton keywords = in.get() != 0 ? KeywordAutomaton.readFrom(in) : null;
+            MultiRegex regexes = in.get() != 0 ? MultiRegex.readFrom(in) : null;
+            KeywordAutomaton literals = in.get() != 0 ? KeywordAutomaton.readFrom(in) : null;
+            if (in.hasRemaining()) {
+                throw new IOException("trailing data");
+            }
+            log.info("Loaded binary rule cache {} ({} bytes) in {} ms", file, image.capacity(),
+                    (System.nanoTime() - started) / 1_000_000);
+            return CompiledRuleset.ofAutomata(ruleset, multiRegex, regexSlots, prefilterSlots, dictionarySlots,
+                    keywords, regexes, literals);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable binary rule cache {}: {}", file, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Write the given snapshot to the binary cache, replacing the previous
+     * file atomically. IO errors are logged and leave no cache file behind,
+     * so that a stale one is never loaded.
+     */
+    static void save(CompiledRuleset compiled) {
+        if (!SdkConfig.isBinaryCacheEnabled()) {
+            return;
+        }
+        Path file = Paths.get(CachePaths.getBinaryCacheFile());
+        if (compiled.getRuleset() == null || compiled.getRegexSlots() == null) {
+            delete();
+            return;
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try {
+                CRC32 crc = new CRC32();
+                long length;
+                try (OutputStream raw = Files.newOutputStream(tmp)) {
+                    raw.write(new byte[HEADER_BYTES]);
+                    DataOutputStream out = new DataOutputStream(
+                            new BufferedOutputStream(new CheckedOutputStream(raw, crc), 1 << 16));
+                    writePayload(out, compiled);
+                    out.flush();
+                    length = out.size();
+                    if (length < 0 || length > Integer.MAX_VALUE - HEADER_BYTES) {
+                        throw new IOException("Ruleset too large for the binary cache");
+                    }
+                }
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                header.putInt(MAGIC).putInt(VERSION).putLong(length).putLong(crc.getValue());
+                ((Buffer) header).clear();
+                try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                    while (header.hasRemaining()) {
+                        channel.write(header, header.position());
+                    }
+                }
+                try {
+                    Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to write binary rule cache: {}", e.getMessage());
+            delete();
+        }
+    }
+
+    /**
+     * Remove the binary cache, e.g. before the JSON cache is replaced.
+     */
+    static void delete() {
+        try {
+            Files.deleteIfExists(Paths.get(CachePaths.getBinaryCacheFile()));
+        } catch (IOException e) {
+            log.warn("Failed to delete binary rule cache: {}", e.getMessage());
+        }
+    }
+
+    private static void writePayload(DataOutputStream out, CompiledRuleset compiled) throws IOException {
+        writeString(out, System.getProperty("java.specification.version"));
+        writeRuleset(out, compiled.getRuleset());
+        out.writeBoolean(compiled.isMultiRegex());
+        writeSlots(out, compiled.getRegexSlots());
+        writeSlots(out, compiled.getPrefilterSlots());
+        Map<List<String>, Integer> dictionarySlots = compiled.getDictionarySlots();
+        out.writeInt(dictionarySlots.size());
+        for (Map.Entry<List<String>, Integer> e : dictionarySlots.entrySet()) {
+            out.writeInt(e.getKey().size());
+            for (String entry : e.getKey()) {
+                writeString(out, entry);
+            }
+            out.writeInt(e.getValue());
+        }
+        out.writeBoolean(compiled.getKeywords() != null);
+        if (compiled.getKeywords() != null) {
+            compiled.getKeywords().writeTo(out);
+        }
+        out.writeBoolean(compiled.getRegexes() != null);
+        if (compiled.getRegexes() != null) {
+            compiled.getRegexes().writeTo(out);
+        }
+        out.writeBoolean(compiled.getLiterals() != null);
+        if (compiled.getLiterals() != null) {
+            compiled.getLiterals().writeTo(out);
+        }
+    }
+
+    private static void writeRuleset(DataOutputStream out, Ruleset ruleset) throws IOException {
+        writeString(out, ruleset.getVersion());
+        writeString(out, ruleset.getETag());
+        List<Rule> rules = ruleset.getRules();
+        out.writeInt(rules != null ? rules.size() : -1);
+        if (rules == null) {
+            return;
+        }
+        for (Rule rule : rules) {
+            out.writeBoolean(rule != null);
+            if (rule == null) {
+                continue;
+            }
+            writeString(out, rule.getId());
+            writeString(out, rule.getName());
+            writeString(out, rule.getLevel());
+            out.writeBoolean(rule.getPriority() != null);
+            if (rule.getPriority() != null) {
+                out.writeInt(rule.getPriority());
+            }
+            out.writeBoolean(rule.isEnabled());
+            writeStrings(out, rule.getScope());
+            List<MatcherDef> matchers = rule.getMatchers();
+            out.writeInt(matchers != null ? matchers.size() : -1);
+            if (matchers == null) {
+                continue;
+            }
+            for (MatcherDef def : matchers) {
+                out.writeBoolean(def != null);
+                if (def == null) {
+                    continue;
+                }
+                writeString(out, def.getType());
+                writeString(out, def.getPattern());
+                writeString(out, def.getFile());
+                out.writeBoolean(def.getConfidence() != null);
+                if (def.getConfidence() != null) {
+                    out.writeDouble(def.getConfidence());
+                }
+            }
+        }
+    }
+
+    private static Ruleset readRuleset(ByteBuffer in) {
+        Ruleset ruleset = new Ruleset();
+        ruleset.setVersion(readString(in));
+        ruleset.setETag(readString(in));
+        int count = in.getInt();
+        if (count < 0) {
+            return ruleset;
+        }
+        List<Rule> rules = new ArrayList<>(Math.min(count, in.remaining()));
+        for (int i = 0; i < count; i++) {
+            if (in.get() == 0) {
+                rules.add(null);
+                continue;
+            }
+            Rule rule = new Rule();
+            rule.setId(readString(in));
+            rule.setName(readString(in));
+            rule.setLevel(readString(in));
+            if (in.get() != 0) {
+                rule.setPriority(in.getInt());
+            }
+            rule.setEnabled(in.get() != 0);
+            rule.setScope(readStrings(in));
+            int matcherCount = in.getInt();
+            if (matcherCount >= 0) {
+                List<MatcherDef> matchers = new ArrayList<>(Math.min(matcherCount, in.remaining()));
+                for (int j = 0; j < matcherCount; j++) {
+                    if (in.get() == 0) {
+                        matchers.add(null);
+                        continue;
+                    }
+                    MatcherDef def = new MatcherDef();
+                    def.setType(readString(in));
+                    def.setPattern(readString(in));
+                    def.setFile(readString(in));
+                    if (in.get() != 0) {
+                        def.setConfidence(in.getDouble());
+                    }
+                    matchers.add(def);
+                }
+                rule.setMatchers(matchers);
+            }
+            rules.add(rule);
+        }
+        ruleset.setRules(rules);
+        return ruleset;
+    }
+
+    private static void writeSlots(DataOutputStream out, Map<String, Integer> slots) throws IOException {
+        out.writeInt(slots.size());
+        for (Map.Entry<String, Integer> e : slots.entrySet()) {
+            writeString(out, e.getKey());
+            out.writeInt(e.getValue());
+        }
+    }
+
+    private static Map<String, Integer> readSlots(ByteBuffer in) {
+        int count = in.getInt();
+        Map<String, Integer> slots = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            slots.put(readString(in), in.getInt());
+        }
+        return slots;
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values != null ? values.size() : -1);
+        if (values != null) {
+            for (String value : values) {
+                writeString(out, value);
+            }
+        }
+    }
+
+    private static List<String> readStrings(ByteBuffer in) {
+        int count = in.getInt();
+        if (count < 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(Math.min(count, in.remaining()));
+        for (int i = 0; i < count; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    // Length-prefixed UTF-16, which unlike writeUTF is not limited to 64 KB
+    // and keeps unpaired surrogates
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(value.length());
+        out.writeChars(value);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.remaining() / 2) {
+            throw new BufferUnderflowException();
+        }
+        char[] chars = new char[length];
+        in.asCharBuffer().get(chars);
+        ((Buffer) in).position(in.position() + length * 2);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.sdk;
+
+/**
+ * Blocked Bloom filter over 64-bit hashes. Each key sets all of its bits in
+ * one 512-bit block, a single cache line, so a lookup touches one line of
+ * memory however many bits it tests. Blocking concentrates keys unevenly
+ * over the blocks, which is made up for with a little more space than a
+ * classic filter of the same false-positive rate needs.
+ *
+ * <p>Filled once when a ruleset is compiled and only read afterwards;
+ * instances are safe to share between threads once filled.</p>
+ */
+final class BloomFilter {
+
+    private static final int BLOCK_LONGS = 8;
+    private static final int BLOCK_BITS = BLOCK_LONGS * 64;
+    // Extra space that brings a blocked filter back to the target rate
+    private static final double BLOCKING_OVERHEAD = 1.2;
+    private static final int MAX_HASHES = 16;
+
+    private final long[] bits;
+    private final long blocks;
+    private final int hashes;
+
+    private BloomFilter(long blocks, int hashes) {
+        this.bits = new long[(int) (blocks * BLOCK_LONGS)];
+        this.blocks = blocks;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Create a filter for the given number of keys at the given target
+     * false-positive rate.
+     */
+    static BloomFilter create(long expectedKeys, double fpp) {
+        long n = Math.max(1, expectedKeys);
+        double bitsPerKey = -Math.log(fpp) / (Math.log(2) * Math.log(2));
+        int k = (int) Math.max(1, Math.min(MAX_HASHES, Math.round(bitsPerKey * Math.log(2))));
+        double totalBits = n * bitsPerKey * BLOCKING_OVERHEAD;
+        long blocks = (long) Math.min(Math.ceil(totalBits / BLOCK_BITS), (Integer.MAX_VALUE - 8) / BLOCK_LONGS);
+        return new BloomFilter(Math.max(1, blocks), k);
+    }
+
+    void put(long hash) {
+        int base = block(hash);
+        long g = hash * 0x9E3779B97F4A7C15L;
+        int h1 = (int) g;
+        int h2 = (int) (g >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            int bit = (h1 + i * h2) & (BLOCK_BITS - 1);
+            bits[base + (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /**
+     * Whether the key with the given hash may have been added; {@code false}
+     * means it certainly was not.
+     */
+    boolean mightContain(long hash) {
+        int base = block(hash);
+        long g = hash * 0x9E3779B97F4A7C15L;
+        int h1 = (int) g;
+        int h2 = (int) (g >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            int bit = (h1 + i * h2) & (BLOCK_BITS - 1);
+            if ((bits[base + (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // First word of the hash's block, chosen by its high 32 bits
+    private int block(long hash) {
+        return (int) (((hash >>> 32) * blocks) >>> 32) * BLOCK_LONGS;
+    }
+
+    /** Size of the bit array in bytes. */
+    long memoryBytes() {
+        return bits.length * 8L;
+    }
+
+    /**
+     * False-positive rate expected from the fraction of bits set, i.e. the
+     * chance that all bits tested for a key that was not added are set.
+     */
+    double estimatedFpp() {
+        long set = 0;
+        for (long word : bits) {
+            set += Long.bitCount(word);
+        }
+        return Math.pow((double) set / (bits.length * 64L), hashes);
+    }
+}
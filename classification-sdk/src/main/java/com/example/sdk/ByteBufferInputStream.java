@@ -0,0 +1,57 @@
+package com.example.sdk;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+
+/**
+ * Presents a sequence of byte buffers as one input stream. Each buffer is
+ * read through a duplicate, so the caller's buffers keep their position.
+ */
+final class ByteBufferInputStream extends InputStream {
+
+    private final Iterator<ByteBuffer> chunks;
+    private ByteBuffer current;
+
+    ByteBufferInputStream(Iterator<ByteBuffer> chunks) {
+        this.chunks = chunks;
+    }
+
+    @Override
+    public int read() {
+        if (!advance()) {
+            return -1;
+        }
+        return current.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (!advance()) {
+            return -1;
+        }
+        int n = Math.min(len, current.remaining());
+        current.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current != null ? current.remaining() : 0;
+    }
+
+    // Move to the next non-empty buffer; false at the end of the sequence
+    private boolean advance() {
+        while (current == null || !current.hasRemaining()) {
+            if (!chunks.hasNext()) {
+                return false;
+            }
+            ByteBuffer next = chunks.next();
+            current = next != null ? next.duplicate() : null;
+        }
+        return true;
+    }
+}
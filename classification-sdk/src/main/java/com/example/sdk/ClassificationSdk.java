@@ -1,19 +1,95 @@
 package com.example.sdk;
 
+import com.example.sdk.audit.AuditSink;
+import com.example.sdk.audit.AuditStats;
+import com.example.sdk.config.SdkConfig;
+import com.example.sdk.model.Rule;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
 /**
  * Public facing API entry point for performing data classification. Construct
  * this class once per application instance. On creation it initializes the
  * RuleManager which loads rules and schedules periodic refreshes. Client
- * applications then call classify to inspect strings for sensitive content.
+ * applications then call classify to inspect strings, UTF-8 bytes or streamed
+ * documents for sensitive content, classifyRecord to inspect the fields of
+ * structured records, scanColumn to find out which rules apply to a table
+ * column from a sample of it, classifyAll to inspect many values at once on
+ * a fork-join pool, or classifyAsync from non-blocking code. Close it when
+ * the application no longer needs it, to deliver pending match-audit events
+ * and stop the SDK instance's audit thread.
  */
-public class ClassificationSdk {
+public class ClassificationSdk implements AutoCloseable {
+
+    // Batches smaller than this are classified on the calling thread
+    private static final int MIN_PARALLEL_BATCH = 64;
 
-    private final DetectionEngine engine = new DetectionEngine();
+    private final ResultCache resultCache = ResultCache.fromConfig();
+    private final MatchAuditor auditor = MatchAuditor.fromConfig();
+    private final DetectionEngine engine = new DetectionEngine(resultCache, auditor);
+    private final ForkJoinPool batchPool;
+    private final boolean ownsBatchPool; // created here, shut down on close
+    private final AsyncClassifier async;
 
+    /**
+     * Create the SDK. Batch classification runs on a dedicated pool when
+     * 'sdk.batch.parallelism' is set, otherwise on the common pool.
+     */
     public ClassificationSdk() {
+        this(defaultBatchPool(), true);
+    }
+
+    /**
+     * Create the SDK using the given pool for {@link #classifyAll} calls. The
+     * pool remains the caller's to shut down.
+     */
+    public ClassificationSdk(ForkJoinPool batchPool) {
+        this(batchPool, false);
+    }
+
+    private ClassificationSdk(ForkJoinPool batchPool, boolean ownsBatchPool) {
+        this.batchPool = batchPool;
+        this.ownsBatchPool = ownsBatchPool && batchPool != ForkJoinPool.commonPool();
+        this.async = AsyncClassifier.fromConfig(engine);
         RuleManager.init();
     }
 
+    /**
+     * Create the SDK using the given pool for {@link #classifyAll} calls and
+     * the given executor for {@link #classifyAsync} calls, admitting at most
+     * {@code maxInFlight} asynchronous requests at a time. The pool and the
+     * executor remain the caller's to shut down.
+     */
+    public ClassificationSdk(ForkJoinPool batchPool, Executor asyncExecutor, int maxInFlight) {
+        this.batchPool = batchPool;
+        this.ownsBatchPool = false;
+        this.async = new AsyncClassifier(engine, asyncExecutor, maxInFlight);
+        RuleManager.init();
+    }
+
+    private static ForkJoinPool defaultBatchPool() {
+        int parallelism = SdkConfig.getBatchParallelism();
+        return parallelism > 0 ? new ForkJoinPool(parallelism) : ForkJoinPool.commonPool();
+    }
+
     /**
      * Classify the given data and return a detection result using the default
      * mode (TOP_MATCH_ONLY).
@@ -29,4 +105,404 @@ public class ClassificationSdk {
     public DetectionResult classify(String data, ClassificationMode mode) {
         return engine.detect(data, mode);
     }
-}
\ No newline at end of file
+
+    /**
+     * Classify the UTF-8 encoded value {@code buf[off, off + len)} using the
+     * default mode (TOP_MATCH_ONLY).
+     */
+    public DetectionResult classify(byte[] buf, int off, int len) {
+        return classify(buf, off, len, ClassificationMode.TOP_MATCH_ONLY);
+    }
+
+    /**
+     * Classify the UTF-8 encoded value {@code buf[off, off + len)} without
+     * decoding it into a string first. Dictionary, literal and multi-regex
+     * scans read the bytes directly; the value is only decoded if a regex
+     * has to be run by {@code java.util.regex} and the value is not pure
+     * ASCII. The array must not be modified until the call returns. Results
+     * are not cached, and the returned result carries no data.
+     *
+     * @param buf  the encoded value
+     * @param off  index of its first byte
+     * @param len  number of bytes
+     * @param mode the detection mode
+     * @return the detection result
+     */
+    public DetectionResult classify(byte[] buf, int off, int len, ClassificationMode mode) {
+        return engine.detect(buf, off, len, mode, RuleManager.getCompiledRuleset());
+    }
+
+    /**
+     * Classify the UTF-8 encoded value between the buffer's position and
+     * limit using the default mode (TOP_MATCH_ONLY).
+     */
+    public DetectionResult classify(ByteBuffer buf) {
+        return classify(buf, ClassificationMode.TOP_MATCH_ONLY);
+    }
+
+    /**
+     * Classify the UTF-8 encoded value between the buffer's position and
+     * limit without decoding it into a string first. Heap, direct and
+     * read-only buffers are supported; the buffer's position and limit are
+     * not modified.
+     *
+     * @see #classify(byte[], int, int, ClassificationMode)
+     */
+    public DetectionResult classify(ByteBuffer buf, ClassificationMode mode) {
+        return engine.detect(buf, mode, RuleManager.getCompiledRuleset());
+    }
+
+    /**
+     * Classify the given data and record where each matched rule matched,
+     * using the default mode (TOP_MATCH_ONLY).
+     */
+    public DetectionResult classifyWithOffsets(String data) {
+        return classifyWithOffsets(data, ClassificationMode.TOP_MATCH_ONLY);
+    }
+
+    /**
+     * Classify the given data and record the start and end offset of every
+     * match of the matched rules, so that callers do not have to re-run the
+     * rule patterns to locate the sensitive content. Costs an extra pass over
+     * the input compared to {@link #classify(String, ClassificationMode)}.
+     *
+     * @param data the value to inspect
+     * @param mode the detection mode
+     * @return the detection result, with spans
+     */
+    public DetectionResult classifyWithOffsets(String data, ClassificationMode mode) {
+        return engine.detect(data, mode, RuleManager.getCompiledRuleset(), true);
+    }
+
+    /**
+     * Classify a document read from the given reader using the default mode
+     * (TOP_MATCH_ONLY).
+     */
+    public DetectionResult classify(Reader in) throws IOException {
+        return classify(in, ClassificationMode.TOP_MATCH_ONLY);
+    }
+
+    /**
+     * Classify a document read from the given reader in bounded chunks, so
+     * that large documents never have to be materialized as one string.
+     * Reading stops early once the result can no longer change. The reader is
+     * not closed, and the returned result carries no data.
+     *
+     * @param in   the document to inspect
+     * @param mode the detection mode
+     * @return the detection result
+     * @throws IOException if reading fails
+     */
+    public DetectionResult classify(Reader in, ClassificationMode mode) throws IOException {
+        return engine.detect(in, mode);
+    }
+
+    /**
+     * Classify a document read from the given stream, decoded with the given
+     * charset. The stream is not closed.
+     *
+     * @see #classify(Reader, ClassificationMode)
+     */
+    public DetectionResult classify(InputStream in, Charset charset, ClassificationMode mode) throws IOException {
+        return engine.detect(new InputStreamReader(in, charset), mode);
+    }
+
+    /**
+     * Classify a document delivered as a sequence of byte buffers, decoded
+     * with the given charset. Multi-byte characters may be split between
+     * buffers. Each buffer is read from its position to its limit; the
+     * buffers themselves are not modified.
+     *
+     * @see #classify(Reader, ClassificationMode)
+     */
+    public DetectionResult classify(Iterator<ByteBuffer> chunks, Charset charset, ClassificationMode mode) {
+        try {
+            return classify(new ByteBufferInputStream(chunks), charset, mode);
+        } catch (IOException e) {
+            // in-memory buffers cannot fail to read
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Classify the fields of a JSON record using the default mode
+     * (TOP_MATCH_ONLY).
+     */
+    public RecordDetectionResult classifyRecord(InputStream json) throws IOException {
+        return classifyRecord(json, ClassificationMode.TOP_MATCH_ONLY);
+    }
+
+    /**
+     * Classify the fields of a JSON record read from the given stream. The
+     * record is walked as a token stream instead of being parsed into a tree
+     * or flattened into strings, and each string and number is evaluated only
+     * against the rules whose scope covers its field path. The result lists
+     * the matched fields by path. The stream is not closed.
+     *
+     * @param json the record
+     * @param mode whether each field reports its top match or all matches
+     * @return the matched fields and rules
+     * @throws IOException if reading fails or the input is not valid JSON
+     */
+    public RecordDetectionResult classifyRecord(InputStream json, ClassificationMode mode) throws IOException {
+        return engine.detectRecord(json, mode, RuleManager.getCompiledRuleset());
+    }
+
+    /**
+     * Classify the fields of a record held in memory using the default mode
+     * (TOP_MATCH_ONLY).
+     */
+    public RecordDetectionResult classifyRecord(Map<String, ?> record) {
+        return classifyRecord(record, ClassificationMode.TOP_MATCH_ONLY);
+    }
+
+    /**
+     * Classify the fields of a record held in memory, walking nested maps,
+     * collections and arrays.
+     *
+     * @throws IllegalArgumentException if the record is nested more than
+     *                                  1000 levels deep, e.g. because it contains
+     *                                  itself
+     * @see #classifyRecord(InputStream, ClassificationMode)
+     */
+    public RecordDetectionResult classifyRecord(Map<String, ?> record, ClassificationMode mode) {
+        return engine.detectRecord(record, mode, RuleManager.getCompiledRuleset());
+    }
+
+    /**
+     * Scan a column of values with the default {@link ColumnScanOptions}.
+     */
+    public ColumnScanResult scanColumn(Iterator<?> values) {
+        return scanColumn(values, new ColumnScanOptions());
+    }
+
+    /**
+     * Determine which rules apply to a column of values, e.g. of a database
+     * table, by classifying an adaptive sample of it instead of every cell.
+     * The scan stops as soon as every rule's verdict is settled at the
+     * configured confidence and reports each rule's sampled hit ratio. The
+     * iterator is only advanced as far as needed.
+     *
+     * @param values  the column, {@code null} elements are nulls
+     * @param options sample sizes, confidence and threshold
+     * @return per-rule hit ratios and verdicts
+     */
+    public ColumnScanResult scanColumn(Iterator<?> values, ColumnScanOptions options) {
+        return engine.scanColumn(values, options, RuleManager.getCompiledRuleset());
+    }
+
+    /**
+     * Scan a column delivered in array-backed chunks with the default
+     * {@link ColumnScanOptions}.
+     */
+    public ColumnScanResult scanColumnChunks(Iterator<ColumnChunk> chunks) {
+        return scanColumnChunks(chunks, new ColumnScanOptions());
+    }
+
+    /**
+     * Determine which rules apply to a column delivered in array-backed
+     * chunks, such as UTF-8 vectors or primitive arrays. Values that are not
+     * sampled are skipped without being read.
+     *
+     * @see #scanColumn(Iterator, ColumnScanOptions)
+     */
+    public ColumnScanResult scanColumnChunks(Iterator<ColumnChunk> chunks, ColumnScanOptions options) {
+        return engine.scanColumnChunks(chunks, options, RuleManager.getCompiledRuleset());
+    }
+
+    /**
+     * Classify every value of the batch using the default mode
+     * (TOP_MATCH_ONLY).
+     */
+    public List<DetectionResult> classifyAll(List<String> data) {
+        return classifyAll(data, ClassificationMode.TOP_MATCH_ONLY);
+    }
+
+    /**
+     * Classify every value of the batch. All values are evaluated against the
+     * same ruleset snapshot, even if a refresh happens while the batch is
+     * running. Large batches are split across the batch pool; results are
+     * returned in input order.
+     *
+     * @param data the values to inspect
+     * @param mode the detection mode applied to every value
+     * @return one result per input value, in input order
+     */
+    public List<DetectionResult> classifyAll(List<String> data, ClassificationMode mode) {
+        CompiledRuleset snapshot = RuleManager.getCompiledRuleset();
+        List<String> inputs = data instanceof RandomAccess ? data : new ArrayList<>(data);
+        int size = inputs.size();
+        DetectionResult[] results = new DetectionResult[size];
+
+        int parallelism = batchPool.getParallelism();
+        if (size < MIN_PARALLEL_BATCH || parallelism <= 1 || batchPool.isShutdown()) {
+            for (int i = 0; i < size; i++) {
+                results[i] = engine.detect(inputs.get(i), mode, snapshot);
+            }
+        } else {
+            // A few leaves per worker leaves room for work stealing
+            int threshold = Math.max(MIN_PARALLEL_BATCH / 2, size / (parallelism * 8));
+            batchPool.invoke(new BatchTask(engine, snapshot, mode, inputs, results, 0, size, threshold));
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Classify every value of the stream using the default mode
+     * (TOP_MATCH_ONLY).
+     */
+    public List<DetectionResult> classifyAll(Stream<String> data) {
+        return classifyAll(data, ClassificationMode.TOP_MATCH_ONLY);
+    }
+
+    /**
+     * Classify every value of the stream. The stream is drained into a batch
+     * first; see {@link #classifyAll(List, ClassificationMode)}.
+     */
+    public List<DetectionResult> classifyAll(Stream<String> data, ClassificationMode mode) {
+        return classifyAll(data.collect(Collectors.toList()), mode);
+    }
+
+    /**
+     * Classify the given data asynchronously using the default mode
+     * (TOP_MATCH_ONLY).
+     */
+    public CompletableFuture<DetectionResult> classifyAsync(String data) {
+        return classifyAsync(data, ClassificationMode.TOP_MATCH_ONLY);
+    }
+
+    /**
+     * Classify the given data on the SDK's async executor. If the configured
+     * number of requests is already queued or running the returned future
+     * fails immediately with a
+     * {@link java.util.concurrent.RejectedExecutionException}.
+     *
+     * @param data the value to inspect
+     * @param mode the detection mode
+     * @return a future completed with the detection result
+     */
+    public CompletableFuture<DetectionResult> classifyAsync(String data, ClassificationMode mode) {
+        return async.submit(data, mode);
+    }
+
+    /**
+     * Statistics of the result cache enabled by 'sdk.cache.max.bytes'. All
+     * values are zero when the cache is disabled.
+     */
+    public ResultCacheStats getResultCacheStats() {
+        return resultCache != null ? resultCache.stats() : new ResultCacheStats(0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Selectivity of the literal prefilter for regexes evaluated by
+     * {@code java.util.regex}, for the active ruleset.
+     */
+    public PrefilterStats getRegexPrefilterStats() {
+        CompiledRuleset snapshot = RuleManager.getCompiledRuleset();
+        return snapshot != null ? snapshot.getPrefilterStats() : new PrefilterStats(0, 0, 0, 0);
+    }
+
+    /**
+     * False-positive rate, memory and hit counts of the Bloom filter of each
+     * {@code dictionary_token} matcher in the active ruleset.
+     */
+    public List<DictionaryFilterStats> getDictionaryFilterStats() {
+        CompiledRuleset snapshot = RuleManager.getCompiledRuleset();
+        return snapshot != null ? snapshot.getDictionaryFilterStats()
+                : Collections.<DictionaryFilterStats>emptyList();
+    }
+
+    /**
+     * Rules of the active ruleset that are quarantined because their regex
+     * evaluation repeatedly ran past 'sdk.regex.budget.millis'.
+     */
+    public List<Rule> getQuarantinedRules() {
+        CompiledRuleset snapshot = RuleManager.getCompiledRuleset();
+        return snapshot != null ? snapshot.getQuarantinedRules() : Collections.<Rule>emptyList();
+    }
+
+    /**
+     * Compile and warm-up times of the active ruleset, or {@code null}
+     * before the first ruleset has been activated.
+     */
+    public RulesetActivationStats getRulesetActivationStats() {
+        return RuleManager.getLastActivation();
+    }
+
+    /**
+     * Wait until the cached ruleset and the policy service's ruleset have
+     * been loaded. With 'sdk.startup.async' the SDK serves its bootstrap
+     * rules until then, e.g. for a readiness check to wait on; otherwise the
+     * constructor has already waited.
+     *
+     * @return whether they were loaded within the timeout
+     */
+    public boolean awaitRuleset(long timeout, TimeUnit unit) throws InterruptedException {
+        return RuleManager.awaitStartup(timeout, unit);
+    }
+
+    /**
+     * Statistics of the cache of compiled regular expressions shared by
+     * ruleset compilations.
+     */
+    public PatternCacheStats getPatternCacheStats() {
+        return DetectionEngine.patternCache().stats();
+    }
+
+    /**
+     * Replace the sink that receives match events, by default a
+     * {@link com.example.sdk.audit.LoggingAuditSink}. Has no effect when
+     * 'sdk.audit.enabled' is false.
+     */
+    public void setAuditSink(AuditSink sink) {
+        if (auditor != null) {
+            auditor.setSink(sink);
+        }
+    }
+
+    /**
+     * Counters of the match-audit pipeline, including events dropped because
+     * the sink could not keep up.
+     */
+    public AuditStats getAuditStats() {
+        return auditor != null ? auditor.stats() : new AuditStats(0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Number of asynchronous requests accepted but not yet started.
+     */
+    public int getAsyncQueueDepth() {
+        return async.getQueueDepth();
+    }
+
+    /**
+     * Number of asynchronous requests currently queued or running.
+     */
+    public int getAsyncInFlight() {
+        return async.getInFlight();
+    }
+
+    /**
+     * Number of asynchronous requests rejected by admission control.
+     */
+    public long getAsyncRejectedCount() {
+        return async.getRejectedCount();
+    }
+
+    /**
+     * Deliver the match events still buffered, stop this instance's audit
+     * thread and shut down the batch pool if the SDK created it.
+     * Classification keeps working afterwards, without auditing and with
+     * batches classified on the calling thread. The rules, which all
+     * instances share, keep being refreshed.
+     */
+    @Override
+    public void close() {
+        if (auditor != null) {
+            auditor.close();
+        }
+        if (ownsBatchPool) {
+            batchPool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.sdk;
+
+/**
+ * A run of consecutive values of a column, backed by the array the caller
+ * already holds. Values that a column scan does not sample are never turned
+ * into objects: UTF-8 values are only wrapped in a view over the bytes, and
+ * numbers only formatted, when they are sampled.
+ *
+ * <p>The arrays are not copied and must not change while the chunk is
+ * scanned.</p>
+ */
+public abstract class ColumnChunk {
+
+    ColumnChunk() {
+    }
+
+    /** Number of values in the chunk. */
+    public abstract int size();
+
+    /** The value at the given index, or {@code null}. */
+    abstract CharSequence value(int index);
+
+    /**
+     * The first {@code count} values of the array; {@code null} elements are
+     * nulls.
+     */
+    public static ColumnChunk of(CharSequence[] values, int count) {
+        checkCount(count, values.length);
+        return new ColumnChunk() {
+            @Override
+            public int size() { return count; }
+
+            @Override
+            CharSequence value(int index) { return values[index]; }
+        };
+    }
+
+    /**
+     * {@code count} UTF-8 encoded values in the layout of a variable-width
+     * binary vector: value {@code i} is {@code data[offsets[i],
+     * offsets[i + 1])}.
+     *
+     * @param data    the concatenated values
+     * @param offsets {@code count + 1} ascending offsets into {@code data}
+     * @param count   number of values
+     */
+    public static ColumnChunk utf8(byte[] data, int[] offsets, int count) {
+        checkCount(count, offsets.length - 1);
+        return new ColumnChunk() {
+            @Override
+            public int size() { return count; }
+
+            @Override
+            CharSequence value(int index) {
+                return Utf8CharSequence.of(data, offsets[index], offsets[index + 1] - offsets[index]);
+            }
+        };
+    }
+
+    /**
+     * The first {@code count} values of a numeric column, classified in their
+     * decimal form.
+     */
+    public static ColumnChunk ofLongs(long[] values, int count) {
+        checkCount(count, values.length);
+        return new ColumnChunk() {
+            @Override
+            public int size() { return count; }
+
+            @Override
+            CharSequence value(int index) { return Long.toString(values[index]); }
+        };
+    }
+
+    /**
+     * The first {@code count} values of a floating-point column, classified
+     * as formatted by {@link Double#toString(double)}.
+     */
+    public static ColumnChunk ofDoubles(double[] values, int count) {
+        checkCount(count, values.length);
+        return new ColumnChunk() {
+            @Override
+            public int size() { return count; }
+
+            @Override
+            CharSequence value(int index) { return Double.toString(values[index]); }
+        };
+    }
+
+    private static void checkCount(int count, int available) {
+        if (count < 0 || count > available) {
+            throw new IndexOutOfBoundsException("count=" + count + ", available=" + available);
+        }
+    }
+}
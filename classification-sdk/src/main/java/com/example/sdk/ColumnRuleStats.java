@@ -0,0 +1,52 @@
+package com.example.sdk;
+
+import com.example.sdk.model.Rule;
+
+/**
+ * Sampled hit ratio of one rule in a column, with its confidence interval
+ * and verdict. A rule stops being evaluated once its verdict is reached, so
+ * rules of the same scan may have different sample counts.
+ */
+public class ColumnRuleStats {
+    private final Rule rule;
+    private final int sampleCount;
+    private final int hitCount;
+    private final double lowerBound;
+    private final double upperBound;
+    private final ColumnVerdict verdict;
+
+    public ColumnRuleStats(Rule rule, int sampleCount, int hitCount, double lowerBound, double upperBound,
+                           ColumnVerdict verdict) {
+        this.rule = rule;
+        this.sampleCount = sampleCount;
+        this.hitCount = hitCount;
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+        this.verdict = verdict;
+    }
+
+    public Rule getRule() { return rule; }
+    /** Sampled values the rule was evaluated against. */
+    public int getSampleCount() { return sampleCount; }
+    /** Of those, the values the rule matched. */
+    public int getHitCount() { return hitCount; }
+    /** Lower end of the confidence interval of the hit ratio. */
+    public double getLowerBound() { return lowerBound; }
+    /** Upper end of the confidence interval of the hit ratio. */
+    public double getUpperBound() { return upperBound; }
+    public ColumnVerdict getVerdict() { return verdict; }
+
+    /**
+     * Fraction of the sampled values the rule matched, or 0 if none were
+     * sampled.
+     */
+    public double getHitRatio() {
+        return sampleCount == 0 ? 0.0 : (double) hitCount / sampleCount;
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnRuleStats{rule=" + rule.getId() + ", hits=" + hitCount + "/" + sampleCount
+                + ", interval=[" + lowerBound + ", " + upperBound + "], verdict=" + verdict + "}";
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.sdk;
+
+import com.example.sdk.config.SdkConfig;
+
+/**
+ * Parameters of a column scan. A new instance holds the defaults configured
+ * through {@link SdkConfig}; see the 'sdk.column.*' properties.
+ */
+public class ColumnScanOptions {
+    private int minSamples = SdkConfig.getColumnMinSamples();
+    private int maxSamples = SdkConfig.getColumnMaxSamples();
+    private double confidence = SdkConfig.getColumnConfidence();
+    private double threshold = SdkConfig.getColumnThreshold();
+    private long rowCount;
+
+    /** Values sampled before the scan may stop early. */
+    public int getMinSamples() { return minSamples; }
+    public void setMinSamples(int minSamples) { this.minSamples = Math.max(1, minSamples); }
+
+    /** Values sampled at most; 0 samples until the column ends. */
+    public int getMaxSamples() { return maxSamples; }
+    public void setMaxSamples(int maxSamples) { this.maxSamples = Math.max(0, maxSamples); }
+
+    /** Confidence level of the verdicts, e.g. 0.95. */
+    public double getConfidence() { return confidence; }
+    public void setConfidence(double confidence) { this.confidence = Math.min(0.9999, Math.max(0.5, confidence)); }
+
+    /** Hit ratio at or above which a rule is reported as present. */
+    public double getThreshold() { return threshold; }
+    public void setThreshold(double threshold) { this.threshold = Math.min(1.0, Math.max(0.0, threshold)); }
+
+    /**
+     * Number of values in the column if known, e.g. from table statistics,
+     * otherwise 0. When set, up to {@code maxSamples} samples are spread
+     * evenly over the whole column and verdicts are reached at its end, so
+     * that a column sorted or clustered by content is judged correctly.
+     */
+    public long getRowCount() { return rowCount; }
+    public void setRowCount(long rowCount) { this.rowCount = Math.max(0L, rowCount); }
+}
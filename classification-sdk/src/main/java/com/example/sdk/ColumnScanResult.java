@@ -0,0 +1,54 @@
+package com.example.sdk;
+
+import com.example.sdk.model.Rule;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of scanning a column of values: per rule, the sampled hit ratio
+ * and whether the rule is present in the column.
+ */
+public class ColumnScanResult {
+    private final long rowCount;
+    private final long nullCount;
+    private final int sampleCount;
+    private final boolean complete;
+    private final List<ColumnRuleStats> ruleStats;
+
+    public ColumnScanResult(long rowCount, long nullCount, int sampleCount, boolean complete,
+                            List<ColumnRuleStats> ruleStats) {
+        this.rowCount = rowCount;
+        this.nullCount = nullCount;
+        this.sampleCount = sampleCount;
+        this.complete = complete;
+        this.ruleStats = ruleStats;
+    }
+
+    /** Values read from the column, including unsampled ones and nulls. */
+    public long getRowCount() { return rowCount; }
+    /** Of those, the nulls, which are never sampled. */
+    public long getNullCount() { return nullCount; }
+    /** Values classified. */
+    public int getSampleCount() { return sampleCount; }
+
+    /**
+     * Whether the column was read to its end. False if the scan stopped
+     * early because every verdict was reached or the sample limit was hit.
+     */
+    public boolean isComplete() { return complete; }
+
+    /** Statistics of every rule, highest priority first. */
+    public List<ColumnRuleStats> getRuleStats() { return ruleStats; }
+
+    /** The rules with a {@link ColumnVerdict#PRESENT} verdict, highest priority first. */
+    public List<Rule> getPresentRules() {
+        List<Rule> present = new ArrayList<>();
+        for (ColumnRuleStats stats : ruleStats) {
+            if (stats.getVerdict() == ColumnVerdict.PRESENT) {
+                present.add(stats.getRule());
+            }
+        }
+        return present;
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.sdk;
+
+import com.example.sdk.metrics.MetricsRecorder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Estimates, for every rule, the fraction of a column's values the rule
+ * matches, classifying only a sample of the values and stopping as soon as
+ * each rule's verdict is statistically settled.
+ *
+ * <p>Sampling is adaptive because the column length is usually not known up
+ * front. The first {@code minSamples} values are all classified, the next
+ * {@code minSamples} are drawn one from every two values, the next one from
+ * every four and so on, each at a random position within its stride, so the
+ * longer a scan runs the further its sample reaches into the column. Early
+ * verdicts assume the part read so far is representative of the rest. If
+ * the caller knows the row count, the samples are instead drawn at a fixed
+ * stride over the whole column and the verdicts are reached at its end.</p>
+ *
+ * <p>For each rule the Wilson score interval of its hit ratio at the
+ * requested confidence is compared with the threshold: the rule is
+ * {@link ColumnVerdict#PRESENT} once the whole interval is at or above it and
+ * {@link ColumnVerdict#ABSENT} once it is entirely below. Decided rules are no
+ * longer evaluated, and the scan stops once every rule is decided and at
+ * least {@code minSamples} values were classified, or after
+ * {@code maxSamples} values. One instance scans a single column and is not
+ * thread-safe.</p>
+ */
+final class ColumnScanner {
+
+    // Verdicts are re-evaluated every this many samples
+    private static final int CHECK_INTERVAL = 16;
+
+    private final CompiledRuleset compiled;
+    private final CompiledRule[] rules;
+    private final int minSamples;
+    private final int maxSamples;
+    private final boolean spread; // fixed stride over a column of known length
+    private final double z;
+    private final double threshold;
+    private final MetricsRecorder metrics;
+    private final boolean timed;
+
+    private final int[] samples;
+    private final int[] hits;
+    private final ColumnVerdict[] verdicts;
+    private final int[] active; // indices of the undecided rules
+    private int activeCount;
+
+    private long rows;
+    private long nulls;
+    private int sampled;
+    private long windowStart; // first row of the current stride
+    private long stride = 1;
+    private int strideSamples; // samples taken at the current stride
+    private long nextSample;   // row to classify next
+    private boolean done;
+
+    ColumnScanner(CompiledRuleset compiled, ColumnScanOptions options, MetricsRecorder metrics, boolean timed) {
+        this.compiled = compiled;
+        this.rules = compiled.getRules();
+        this.minSamples = options.getMinSamples();
+        this.maxSamples = options.getMaxSamples();
+        this.spread = options.getRowCount() > 0;
+        if (spread && maxSamples > 0) {
+            stride = Math.max(1L, options.getRowCount() / maxSamples);
+            nextSample = stride > 1 ? ThreadLocalRandom.current().nextLong(stride) : 0;
+        }
+        this.z = normalQuantile(1 - (1 - options.getConfidence()) / 2);
+        this.threshold = options.getThreshold();
+        this.metrics = metrics;
+        this.timed = timed;
+        this.samples = new int[rules.length];
+        this.hits = new int[rules.length];
+        this.verdicts = new ColumnVerdict[rules.length];
+        this.active = new int[rules.length];
+        for (int i = 0; i < rules.length; i++) {
+            verdicts[i] = ColumnVerdict.UNDECIDED;
+            active[i] = i;
+        }
+        this.activeCount = rules.length;
+        this.done = rules.length == 0;
+    }
+
+    /** Whether the scan needs no further values. */
+    boolean isDone() {
+        return done;
+    }
+
+    /** Number of values that can be skipped before the next one to classify. */
+    long toSkip() {
+        return nextSample - rows;
+    }
+
+    /** Skip values that are not sampled. */
+    void skip(long count) {
+        rows += count;
+    }
+
+    /**
+     * Classify the value at the next sampled row. A {@code null} is counted
+     * and the following value sampled instead.
+     */
+    void sample(CharSequence value) {
+        rows++;
+        if (value == null) {
+            nulls++;
+            nextSample = rows;
+            return;
+        }
+        sampled++;
+        MatchContext ctx = new MatchContext(value, compiled);
+        for (int k = 0; k < activeCount; k++) {
+            int r = active[k];
+            int overBudget = ctx.getOverBudget().size();
+            boolean hit = DetectionEngine.matches(rules[r], ctx, metrics, timed);
+            if (ctx.getOverBudget().size() == overBudget) {
+                // Evaluations cut short by the regex budget are not counted
+                samples[r]++;
+                if (hit) {
+                    hits[r]++;
+                }
+            }
+        }
+        ctx.recordStats();
+
+        windowStart = Math.max(windowStart + stride, rows);
+        if (!spread && ++strideSamples == minSamples) {
+            stride *= 2;
+            strideSamples = 0;
+        }
+        nextSample = windowStart + (stride > 1 ? ThreadLocalRandom.current().nextLong(stride) : 0);
+
+        if (!spread && sampled % CHECK_INTERVAL == 0 && sampled >= minSamples) {
+            decide();
+        }
+        if ((activeCount == 0 && sampled >= minSamples) || (maxSamples > 0 && sampled >= maxSamples)) {
+            done = true;
+        }
+    }
+
+    /**
+     * The statistics of every rule.
+     *
+     * @param complete whether the whole column was read
+     */
+    ColumnScanResult finish(boolean complete) {
+        decide();
+        List<ColumnRuleStats> stats = new ArrayList<>(rules.length);
+        for (int r = 0; r < rules.length; r++) {
+            double[] interval = interval(hits[r], samples[r]);
+            stats.add(new ColumnRuleStats(rules[r].getRule(), samples[r], hits[r], interval[0], interval[1],
+                    verdicts[r]));
+        }
+        return new ColumnScanResult(rows, nulls, sampled, complete, stats);
+    }
+
+    // Settle the verdict of every undecided rule whose interval is clear of
+    // the threshold
+    private void decide() {
+        int kept = 0;
+        for (int k = 0; k < activeCount; k++) {
+            int r = active[k];
+            double[] interval = interval(hits[r], samples[r]);
+            if (samples[r] > 0 && hits[r] > 0 && interval[0] >= threshold) {
+                verdicts[r] = ColumnVerdict.PRESENT;
+            } else if (samples[r] > 0 && interval[1] < threshold) {
+                verdicts[r] = ColumnVerdict.ABSENT;
+            } else {
+                active[kept++] = r;
+            }
+        }
+        activeCount = kept;
+    }
+
+    // Wilson score interval of hits / n
+    private double[] interval(int hits, int n) {
+        if (n == 0) {
+            return new double[] {0.0, 1.0};
+        }
+        double p = (double) hits / n;
+        double z2 = z * z;
+        double denominator = 1 + z2 / n;
+        double center = (p + z2 / (2.0 * n)) / denominator;
+        double half = z * Math.sqrt(p * (1 - p) / n + z2 / (4.0 * n * n)) / denominator;
+        return new double[] {Math.max(0.0, center - half), Math.min(1.0, center + half)};
+    }
+
+    /**
+     * Inverse of the standard normal distribution function, by Acklam's
+     * rational approximation (relative error below 1.2e-9).
+     */
+    static double normalQuantile(double p) {
+        final double a1 = -3.969683028665376e+01, a2 = 2.209460984245205e+02, a3 = -2.759285104469687e+02,
+                a4 = 1.383577518672690e+02, a5 = -3.066479806614716e+01, a6 = 2.506628277459239e+00;
+        final double b1 = -5.447609879822406e+01, b2 = 1.615858368580409e+02, b3 = -1.556989798598866e+02,
+                b4 = 6.680131188771972e+01, b5 = -1.328068155288572e+01;
+        final double c1 = -7.784894002430293e-03, c2 = -3.223964580411365e-01, c3 = -2.400758277161838e+00,
+                c4 = -2.549732539343734e+00, c5 = 4.374664141464968e+00, c6 = 2.938163982698783e+00;
+        final double d1 = 7.784695709041462e-03, d2 = 3.224671290700398e-01, d3 = 2.445134137142996e+00,
+                d4 = 3.754408661907416e+00;
+        final double low = 0.02425;
+        if (p < low) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((c1 * q + c2) * q + c3) * q + c4) * q + c5) * q + c6)
+                    / ((((d1 * q + d2) * q + d3) * q + d4) * q + 1);
+        }
+        if (p <= 1 - low) {
+            double q = p - 0.5;
+            double r = q * q;
+            return (((((a1 * r + a2) * r + a3) * r + a4) * r + a5) * r + a6) * q
+                    / (((((b1 * r + b2) * r + b3) * r + b4) * r + b5) * r + 1);
+        }
+        double q = Math.sqrt(-2 * Math.log(1 - p));
+        return -(((((c1 * q + c2) * q + c3) * q + c4) * q + c5) * q + c6)
+                / ((((d1 * q + d2) * q + d3) * q + d4) * q + 1);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.sdk;
+
+/**
+ * Outcome of a column scan for one rule.
+ */
+public enum ColumnVerdict {
+    /** The rule matches at least the threshold ratio of the column's values. */
+    PRESENT,
+    /** The rule matches less than the threshold ratio of the column's values. */
+    ABSENT,
+    /**
+     * The sample was too small to decide at the requested confidence, for
+     * example because the true ratio is close to the threshold or the
+     * column was short.
+     */
+    UNDECIDED
+}
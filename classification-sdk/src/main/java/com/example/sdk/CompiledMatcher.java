@@ -0,0 +1,338 @@
+package com.example.sdk;
+
+import com.example.sdk.model.MatcherDef;
+import com.example.sdk.model.Rule;
+import com.example.sdk.regex.MultiRegex;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link MatcherDef} resolved into a ready-to-run matcher. Resolution happens
+ * once when a ruleset is compiled so that the detection hot path no longer
+ * compares type strings, compiles regular expressions or splits dictionary
+ * patterns on every call.
+ */
+abstract class CompiledMatcher {
+
+    /**
+     * Test the input against this matcher.
+     *
+     * @param ctx the evaluation state of the current detection
+     * @return {@code true} if the matcher hits
+     */
+    abstract boolean matches(MatchContext ctx);
+
+    /**
+     * Record the offsets of this matcher's non-empty matches in the input.
+     * Only called for rules that matched, on a context created with offsets
+     * enabled.
+     *
+     * @param ctx the evaluation state of the current detection
+     * @param key the key to record the spans under
+     * @param out receives the spans
+     */
+    abstract void spans(MatchContext ctx, int key, SpanBuffer out);
+
+    /**
+     * Resolve a matcher definition. The matcher type dictates how the pattern
+     * is evaluated:
+     * <ul>
+     *   <li><strong>regex</strong> – the pattern is compiled into a
+     *       {@link java.util.regex.Pattern} and a search is performed on the input.
+     *       Patterns supported by {@link MultiRegex} are evaluated together in
+     *       one scan instead.</li>
+     *   <li><strong>fuzzy</strong> – the pattern is compared against the input
+     *       using a Levenshtein distance algorithm via {@link FuzzyMatcher}.</li>
+     *   <li><strong>fuzzy_contains</strong> – like fuzzy, but the pattern may
+     *       approximately occur anywhere inside the input.</li>
+     *   <li><strong>dictionary</strong> – the pattern is treated as a comma or
+     *       semicolon separated list of keywords. If any keyword appears in the
+     *       input the matcher succeeds. The keywords of all dictionary matchers
+     *       are combined into the ruleset's {@link KeywordAutomaton}. A
+     *       dictionary matcher that names a {@link MatcherDef#getFile() file}
+     *       instead reads its keywords from a {@link MappedDictionary}, and
+     *       its pattern is ignored.</li>
+     *   <li><strong>dictionary_token</strong> – like dictionary, inline or
+     *       from a file, but a keyword must equal a whole {@link Tokens token}
+     *       of the input. Each token is first tested against a Bloom filter
+     *       of the keywords.</li>
+     * </ul>
+     * Definitions without a type or with an unknown type resolve to
+     * {@code null} and are ignored by the engine.
+     *
+     * @throws java.util.regex.PatternSyntaxException if a regex pattern is invalid
+     * @throws UncheckedIOException if a dictionary file cannot be read
+     */
+    static CompiledMatcher compile(MatcherDef def, CompiledRuleset.Builder builder) {
+        if (def == null || def.getType() == null) {
+            return null;
+        }
+        String type = def.getType();
+        boolean tokens = "dictionary_token".equalsIgnoreCase(type);
+        if ((tokens || "dictionary".equalsIgnoreCase(type)) && def.getFile() != null) {
+            MappedDictionary dictionary;
+            try {
+                dictionary = MappedDictionary.open(def.getFile());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return tokens ? new TokenDictionary(dictionary, builder.getBloomFpp()) : new FileDictionary(dictionary);
+        }
+        if (def.getPattern() == null) {
+            return null;
+        }
+        if (tokens) {
+            return new TokenDictionary(DictionaryMatcher.parseEntries(def.getPattern()), builder.getBloomFpp());
+        }
+        if ("regex".equalsIgnoreCase(type)) {
+            Pattern pattern = DetectionEngine.compilePattern(def.getPattern());
+            int slot = builder.addRegex(pattern);
+            return new Regex(pattern, slot, slot < 0 ? builder.addPrefilter(pattern) : -1);
+        } else if ("fuzzy".equalsIgnoreCase(type)) {
+            return new Fuzzy(FuzzyMatcher.compile(def.getPattern()), false);
+        } else if ("fuzzy_contains".equalsIgnoreCase(type)) {
+            return new Fuzzy(FuzzyMatcher.compile(def.getPattern()), true);
+        } else if ("dictionary".equalsIgnoreCase(type)) {
+            String[] entries = DictionaryMatcher.parseEntries(def.getPattern());
+            return new Dictionary(entries, builder.addDictionary(entries));
+        }
+        return null;
+    }
+
+    /**
+     * Regular expression matcher backed by a pre-compiled {@link Pattern}. When
+     * the pattern is part of the ruleset's {@link MultiRegex} the shared scan
+     * result for its slot is used; otherwise the pattern is searched directly,
+     * unless the literal prefilter shows that none of its required literals
+     * occurs in the input.
+     */
+    static final class Regex extends CompiledMatcher {
+        final Pattern pattern;
+        final int slot; // -1 when evaluated by java.util.regex
+        final int prefilterSlot; // -1 when not prefiltered
+
+        Regex(Pattern pattern, int slot, int prefilterSlot) {
+            this.pattern = pattern;
+            this.slot = slot;
+            this.prefilterSlot = prefilterSlot;
+        }
+
+        @Override
+        boolean matches(MatchContext ctx) {
+            if (slot >= 0) {
+                return ctx.regexHit(slot);
+            }
+            if (prefilterSlot >= 0 && !ctx.literalHit(prefilterSlot)) {
+                return false;
+            }
+            return ctx.find(pattern);
+        }
+
+        @Override
+        void spans(MatchContext ctx, int key, SpanBuffer out) {
+            // Positions come from the engine that decided the match, so that
+            // a pattern of the automaton is never searched by java.util.regex
+            if (slot >= 0) {
+                if (ctx.regexHit(slot)) {
+                    ctx.regexSpans(slot, key, out);
+                }
+                return;
+            }
+            if (prefilterSlot >= 0 && !ctx.literalHit(prefilterSlot)) {
+                return;
+            }
+            Matcher m = ctx.matcher(pattern);
+            while (m.find()) {
+                if (m.end() > m.start()) {
+                    out.add(key, m.start(), m.end());
+                }
+            }
+        }
+    }
+
+    /**
+     * Levenshtein based matcher using a pattern pre-compiled by
+     * {@link FuzzyMatcher#compile(String)}. Compares the whole input, or
+     * searches for an approximate occurrence within it when {@code contains}
+     * is set.
+     */
+    static final class Fuzzy extends CompiledMatcher {
+        final FuzzyMatcher.Compiled pattern;
+        final boolean contains;
+
+        Fuzzy(FuzzyMatcher.Compiled pattern, boolean contains) {
+            this.pattern = pattern;
+            this.contains = contains;
+        }
+
+        @Override
+        boolean matches(MatchContext ctx) {
+            if (contains) {
+                return pattern.containedIn(ctx.getData());
+            }
+            // A whole-input comparison cannot be decided on part of a stream
+            return ctx.isComplete() && pattern.matches(ctx.getData());
+        }
+
+        @Override
+        void spans(MatchContext ctx, int key, SpanBuffer out) {
+            CharSequence data = ctx.getData();
+            if (!contains) {
+                if (data.length() > 0 && matches(ctx)) {
+                    out.add(key, 0, data.length());
+                }
+                return;
+            }
+            int end = pattern.find(data, FuzzyMatcher.MAX_DISTANCE);
+            if (end > 0) {
+                int[] bounds = FuzzyMatcher.locate(pattern.getPattern(), data, end, FuzzyMatcher.MAX_DISTANCE);
+                if (bounds != null && bounds[1] > bounds[0]) {
+                    out.add(key, bounds[0], bounds[1]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Keyword matcher holding the already split, trimmed and lower-cased
+     * dictionary entries. Evaluation reads the result of the shared
+     * {@link KeywordAutomaton} scan for this matcher's slot.
+     */
+    static final class Dictionary extends CompiledMatcher {
+        final String[] entries;
+        final int slot;
+
+        Dictionary(String[] entries, int slot) {
+            this.entries = entries;
+            this.slot = slot;
+        }
+
+        @Override
+        boolean matches(MatchContext ctx) {
+            return ctx.dictionaryHit(slot);
+        }
+
+        @Override
+        void spans(MatchContext ctx, int key, SpanBuffer out) {
+            ctx.dictionarySpans(slot, key, out);
+        }
+    }
+
+    /**
+     * Keyword matcher backed by an external, memory-mapped dictionary file.
+     * The file is searched directly rather than through the shared keyword
+     * automaton, so that its terms never have to be held on the heap; on a
+     * streamed document it sees the current window, like the matchers
+     * evaluated by {@code java.util.regex}.
+     */
+    static final class FileDictionary extends CompiledMatcher {
+        final MappedDictionary dictionary;
+
+        FileDictionary(MappedDictionary dictionary) {
+            this.dictionary = dictionary;
+        }
+
+        @Override
+        boolean matches(MatchContext ctx) {
+            return dictionary.containedIn(ctx.getData());
+        }
+
+        @Override
+        void spans(MatchContext ctx, int key, SpanBuffer out) {
+            dictionary.spans(ctx.getData(), key, out);
+        }
+    }
+
+    /**
+     * Whole-token dictionary matcher. The input's tokens are hashed once per
+     * detection by {@link MatchContext#tokens()}; each token is tested
+     * against this matcher's {@link BloomFilter}, and only a token the filter
+     * lets through is looked up in the exact dictionary, a hash set of the
+     * entries or a {@link MappedDictionary}. As most inputs contain no term,
+     * most evaluations never reach the exact lookup.
+     */
+    static final class TokenDictionary extends CompiledMatcher {
+        final Set<String> entries; // null when backed by a file
+        final MappedDictionary dictionary;
+        final BloomFilter filter;
+        final double estimatedFpp;
+        private final LongAdder checks = new LongAdder();
+        private final LongAdder passes = new LongAdder();
+        private final LongAdder hits = new LongAdder();
+
+        TokenDictionary(String[] entries, double fpp) {
+            this.entries = new HashSet<>();
+            for (String entry : entries) {
+                this.entries.add(DictionaryMatcher.fold(entry, 0, entry.length()));
+            }
+            this.dictionary = null;
+            this.filter = BloomFilter.create(this.entries.size(), fpp);
+            for (String entry : this.entries) {
+                filter.put(Tokens.hash(entry, 0, entry.length()));
+            }
+            this.estimatedFpp = filter.estimatedFpp();
+        }
+
+        TokenDictionary(MappedDictionary dictionary, double fpp) {
+            this.entries = null;
+            this.dictionary = dictionary;
+            this.filter = dictionary.bloomFilter(fpp);
+            this.estimatedFpp = filter.estimatedFpp();
+        }
+
+        @Override
+        boolean matches(MatchContext ctx) {
+            Tokens tokens = ctx.tokens();
+            CharSequence data = ctx.getData();
+            int passed = 0;
+            int i = 0;
+            boolean hit = false;
+            while (i < tokens.size() && !hit) {
+                if (filter.mightContain(tokens.hash(i))) {
+                    passed++;
+                    hit = contains(data, tokens.start(i), tokens.end(i));
+                }
+                i++;
+            }
+            if (!ctx.isWarmup()) {
+                checks.add(i);
+                if (passed > 0) {
+                    passes.add(passed);
+                }
+                if (hit) {
+                    hits.increment();
+                }
+            }
+            return hit;
+        }
+
+        @Override
+        void spans(MatchContext ctx, int key, SpanBuffer out) {
+            Tokens tokens = ctx.tokens();
+            for (int i = 0; i < tokens.size(); i++) {
+                if (filter.mightContain(tokens.hash(i))
+                        && contains(ctx.getData(), tokens.start(i), tokens.end(i))) {
+                    out.add(key, tokens.start(i), tokens.end(i));
+                }
+            }
+        }
+
+        private boolean contains(CharSequence data, int start, int end) {
+            return entries != null
+                    ? entries.contains(DictionaryMatcher.fold(data, start, end))
+                    : dictionary.contains(data, start, end);
+        }
+
+        DictionaryFilterStats stats(Rule rule) {
+            long terms = entries != null ? entries.size() : dictionary.size();
+            return new DictionaryFilterStats(rule, terms, filter.memoryBytes(), estimatedFpp,
+                    checks.sum(), passes.sum(), hits.sum());
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.sdk;
+
+import com.example.sdk.metrics.Metrics;
+import com.example.sdk.metrics.MetricsRecorder;
+import com.example.sdk.model.Rule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pairs a {@link Rule} with its resolved matchers. Instances are only ever
+ * created by {@link CompiledRuleset#compile}; apart from the regex budget
+ * health tracked for rules with {@code java.util.regex} matchers they are
+ * immutable.
+ *
+ * <p>A rule whose regex evaluation runs past the budget of its
+ * {@link MatchContext} is treated as not matching and recorded in the
+ * context. After {@code quarantineAfter} such evaluations in a row the rule
+ * is quarantined: it is skipped, and reported as over budget, for the rest of
+ * the snapshot's life. Warm-up detections neither strike nor clear a
+ * rule; a rule over budget is skipped for the rest of the warm-up
+ * instead.</p>
+ */
+final class CompiledRule {
+
+    private static final Logger log = LoggerFactory.getLogger(CompiledRule.class);
+
+    private final Rule rule;
+    private final CompiledMatcher[] matchers;
+    private final FieldScope scope; // null if the rule applies to every field
+    private final boolean budgeted; // has a matcher evaluated by java.util.regex
+    private final int quarantineAfter;
+    private final AtomicInteger strikes = new AtomicInteger();
+    private volatile boolean quarantined;
+
+    CompiledRule(Rule rule, CompiledMatcher[] matchers, int quarantineAfter) {
+        this.rule = rule;
+        this.matchers = matchers;
+        this.scope = FieldScope.compile(rule.getScope());
+        this.quarantineAfter = quarantineAfter;
+        boolean fallback = false;
+        for (CompiledMatcher m : matchers) {
+            fallback |= m instanceof CompiledMatcher.Regex && ((CompiledMatcher.Regex) m).slot < 0;
+        }
+        this.budgeted = fallback;
+    }
+
+    Rule getRule() { return rule; }
+    CompiledMatcher[] getMatchers() { return matchers; }
+
+    /**
+     * Whether the matchers can move to the next snapshot as they are. Those
+     * backed by an external dictionary are compiled again, so that a changed
+     * file is picked up.
+     */
+    boolean canCarryOver() {
+        for (CompiledMatcher m : matchers) {
+            if (m instanceof CompiledMatcher.FileDictionary
+                    || m instanceof CompiledMatcher.TokenDictionary
+                    && ((CompiledMatcher.TokenDictionary) m).dictionary != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean isQuarantined() { return quarantined; }
+
+    /** Whether the rule is limited to certain fields of a record. */
+    boolean isScoped() { return scope != null; }
+
+    /**
+     * Whether the rule applies to the record field with the given keys,
+     * root first.
+     */
+    boolean inScope(String[] keys) {
+        return scope == null || scope.matches(keys);
+    }
+
+    /**
+     * Return true if any matcher of the rule hits the input.
+     */
+    boolean matches(MatchContext ctx) {
+        if (!budgeted) {
+            return anyMatches(ctx);
+        }
+        if (quarantined || ctx.isWarmup() && ctx.overBudgetInWarmup(this)) {
+            ctx.budgetExceeded(rule);
+            return false;
+        }
+        ctx.beginRule();
+        boolean hit;
+        try {
+            hit = anyMatches(ctx);
+        } catch (RegexBudgetExceededException e) {
+            if (ctx.isWarmup()) {
+                ctx.budgetExceededInWarmup(this);
+            } else {
+                strike(ctx);
+            }
+            return false;
+        }
+        if (strikes.get() != 0 && !ctx.isWarmup()) {
+            strikes.set(0);
+        }
+        return hit;
+    }
+
+    /**
+     * Record the offsets of every matcher's matches under {@code key}, sorted
+     * by position and without duplicates. A search that runs out of budget
+     * contributes the matches found until then.
+     */
+    void spans(MatchContext ctx, int key, SpanBuffer out) {
+        if (ctx.isWarmup() && ctx.overBudgetInWarmup(this)) {
+            return;
+        }
+        int from = out.size();
+        ctx.beginRule();
+        try {
+            for (CompiledMatcher m : matchers) {
+                m.spans(ctx, key, out);
+            }
+        } catch (RegexBudgetExceededException e) {
+            if (ctx.isWarmup()) {
+                ctx.budgetExceededInWarmup(this);
+            } else {
+                ctx.budgetExceeded(rule);
+            }
+        }
+        out.sortTail(from);
+    }
+
+    private boolean anyMatches(MatchContext ctx) {
+        for (CompiledMatcher m : matchers) {
+            if (m.matches(ctx)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void strike(MatchContext ctx) {
+        ctx.budgetExceeded(rule);
+        MetricsRecorder metrics = Metrics.recorder();
+        if (metrics != null) {
+            metrics.ruleBudgetExceeded(rule);
+        }
+        if (quarantineAfter > 0 && strikes.incrementAndGet() == quarantineAfter) {
+            quarantined = true;
+            log.warn("Quarantined rule {} after {} regex evaluation(s) over the time budget",
+                    rule.getId(), quarantineAfter);
+            if (metrics != null) {
+                metrics.ruleQuarantined(rule);
+            }
+        }
+    }
+}
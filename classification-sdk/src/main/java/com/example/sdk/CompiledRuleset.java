@@ -0,0 +1,631 @@
+package com.example.sdk;
+
+import com.example.sdk.config.SdkConfig;
+import com.example.sdk.model.MatcherDef;
+import com.example.sdk.model.Rule;
+import com.example.sdk.model.Ruleset;
+import com.example.sdk.regex.MultiRegex;
+import com.example.sdk.regex.RequiredLiterals;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Immutable evaluation snapshot of a {@link Ruleset}. The snapshot is built by
+ * the {@link RuleManager} whenever the active ruleset is replaced and contains
+ * only the enabled rules, ordered by descending priority, with all matchers
+ * resolved. The keywords of every inline dictionary matcher are merged into
+ * one {@link KeywordAutomaton} so that a single pass over the input evaluates
+ * all of them, while dictionaries kept in external files are searched in
+ * their shared {@link MappedDictionary}. Supported regular expressions are
+ * combined into one {@link MultiRegex}. The remaining regular expressions are
+ * guarded by a literal prefilter: the literals each of them requires (see
+ * {@link RequiredLiterals}) form a second keyword automaton, and a regex is
+ * only searched if one of its literals occurs in the input. The
+ * {@link DetectionEngine} reads a single snapshot per call and never sorts,
+ * filters or compiles anything on the hot path.
+ */
+public final class CompiledRuleset {
+
+    private static final Logger log = LoggerFactory.getLogger(CompiledRuleset.class);
+
+    // Distinct record field paths whose rules in scope are remembered
+    private static final int MAX_FIELD_PATHS = 4096;
+
+    // Highest priority first; rules without a priority are evaluated last
+    private static final Comparator<Rule> PRIORITY_ORDER =
+            Comparator.comparing(Rule::getPriority,
+                    Comparator.nullsFirst(Comparator.<Integer>naturalOrder())).reversed();
+
+    private final Ruleset ruleset;
+    private final CompiledRule[] rules;
+    private final KeywordAutomaton keywords;
+    private final MultiRegex regexes;
+    private final KeywordAutomaton literals;
+    // Slot of every pattern and dictionary the automata were built from,
+    // for the next compilation to reuse them
+    private final Map<String, Integer> regexSlots;
+    private final Map<String, Integer> prefilterSlots;
+    private final Map<List<String>, Integer> dictionarySlots;
+    private final boolean multiRegex;
+    private final int fallbackRegexCount;
+    private final int prefilteredCount;
+    private final long regexBudgetNanos;
+    private final LongAdder prefilterChecks = new LongAdder();
+    private final LongAdder prefilterSkips = new LongAdder();
+    private final boolean scoped;
+    // Rules in scope per record field path, see rulesForField
+    private final ConcurrentHashMap<String, CompiledRule[]> fieldRules = new ConcurrentHashMap<>();
+
+    private CompiledRuleset(Ruleset ruleset, CompiledRule[] rules, KeywordAutomaton keywords,
+                            MultiRegex regexes, KeywordAutomaton literals, Builder builder) {
+        this.ruleset = ruleset;
+        this.rules = rules;
+        this.keywords = keywords;
+        this.regexes = regexes;
+        this.literals = literals;
+        this.regexSlots = builder != null ? builder.regexSlots : null;
+        this.prefilterSlots = builder != null ? builder.prefilterSlots : null;
+        this.dictionarySlots = builder != null ? builder.dictionarySlots : null;
+        this.multiRegex = builder != null && builder.multiRegex;
+        this.regexBudgetNanos = TimeUnit.MILLISECONDS.toNanos(SdkConfig.getRegexBudgetMillis());
+        boolean anyScoped = false;
+        int fallback = 0;
+        int prefiltered = 0;
+        for (CompiledRule rule : rules) {
+            anyScoped |= rule.isScoped();
+            for (CompiledMatcher m : rule.getMatchers()) {
+                if (m instanceof CompiledMatcher.Regex && ((CompiledMatcher.Regex) m).slot < 0) {
+                    fallback++;
+                    if (((CompiledMatcher.Regex) m).prefilterSlot >= 0) {
+                        prefiltered++;
+                    }
+                }
+            }
+        }
+        this.scoped = anyScoped;
+        this.fallbackRegexCount = fallback;
+        this.prefilteredCount = prefiltered;
+    }
+
+    /**
+     * Compile the given ruleset into an evaluation snapshot. Disabled rules are
+     * dropped and matchers that cannot be compiled (e.g. invalid regular
+     * expressions) are skipped with a warning rather than failing the whole
+     * ruleset.
+     *
+     * @param ruleset the ruleset to compile, may be {@code null}
+     * @return the compiled snapshot, never {@code null}
+     */
+    public static CompiledRuleset compile(Ruleset ruleset) {
+        return compile(ruleset, null);
+    }
+
+    /**
+     * Compile the given ruleset, reusing what it has in common with the
+     * snapshot it replaces. If every regex and dictionary of the new ruleset
+     * already has a slot in the previous snapshot's automata, and at least
+     * half of those slots are still in use, the automata are shared as they
+     * are, including the states the multi-regex automaton has built so far.
+     * Rules carried over unchanged, i.e. the same {@link Rule} instances as
+     * after a delta update, then keep their compiled matchers, and only added
+     * and changed rules are compiled. Otherwise the ruleset is compiled from
+     * scratch.
+     *
+     * @param ruleset  the ruleset to compile, may be {@code null}
+     * @param previous the snapshot being replaced, may be {@code null}
+     * @return the compiled snapshot, never {@code null}
+     */
+    public static CompiledRuleset compile(Ruleset ruleset, CompiledRuleset previous) {
+        if (ruleset == null || ruleset.getRules() == null) {
+            return new CompiledRuleset(ruleset, new CompiledRule[0], null, null, null, null);
+        }
+
+        List<Rule> enabled = new ArrayList<>();
+        for (Rule rule : ruleset.getRules()) {
+            if (rule != null && rule.isEnabled()) {
+                enabled.add(rule);
+            }
+        }
+        enabled.sort(PRIORITY_ORDER);
+
+        boolean multiRegex = SdkConfig.isMultiRegexEnabled();
+        boolean reuse = canReuse(previous, enabled, multiRegex);
+        Builder builder = reuse ? new Builder(previous) : new Builder(multiRegex);
+        Map<Rule, CompiledRule> carried = new IdentityHashMap<>();
+        if (reuse) {
+            for (CompiledRule rule : previous.rules) {
+                if (rule.canCarryOver()) {
+                    carried.put(rule.getRule(), rule);
+                }
+            }
+        }
+        CompiledRule[] compiled = new CompiledRule[enabled.size()];
+        int quarantineAfter = SdkConfig.getRegexQuarantineAfter();
+        int recompiled = 0;
+        ForkJoinPool pool = compilePool();
+        PatternCache patterns = DetectionEngine.patternCache();
+        long generation = patterns.beginGeneration();
+        try {
+            if (pool != null) {
+                List<Rule> pending = new ArrayList<>();
+                for (Rule rule : enabled) {
+                    if (!carried.containsKey(rule)) {
+                        pending.add(rule);
+                    }
+                }
+                prepare(pending, patterns, builder.getBloomFpp(), pool);
+            }
+            for (int i = 0; i < compiled.length; i++) {
+                Rule rule = enabled.get(i);
+                CompiledRule prior = carried.get(rule);
+                if (prior != null) {
+                    // Keep the patterns of carried over rules in the cache
+                    for (CompiledMatcher m : prior.getMatchers()) {
+                        if (m instanceof CompiledMatcher.Regex) {
+                            patterns.get(((CompiledMatcher.Regex) m).pattern.pattern());
+                        }
+                    }
+                    compiled[i] = new CompiledRule(rule, prior.getMatchers(), quarantineAfter);
+                } else {
+                    compiled[i] = new CompiledRule(rule, compileMatchers(rule, builder), quarantineAfter);
+                    recompiled++;
+                }
+            }
+        } finally {
+            patterns.endGeneration(generation);
+        }
+        if (reuse) {
+            log.info("Compiled {} of {} rule(s), reusing the automata of ruleset {}", recompiled, compiled.length,
+                    previous.ruleset != null ? previous.ruleset.getVersion() : null);
+            return new CompiledRuleset(ruleset, compiled, previous.keywords, previous.regexes, previous.literals,
+                    builder);
+        }
+        // The three automata are independent of each other
+        ForkJoinTask<KeywordAutomaton> keywordsTask = buildKeywords(builder.dictionaries, pool);
+        ForkJoinTask<KeywordAutomaton> literalsTask = buildKeywords(builder.prefilters, pool);
+        MultiRegex regexes = builder.regexes != null ? builder.regexes.build() : null;
+        if (regexes != null) {
+            log.debug("Combined {} of {} regex matcher(s) into one automaton",
+                    regexes.size(), builder.regexCount);
+        }
+        KeywordAutomaton keywords = keywordsTask != null ? keywordsTask.join() : null;
+        KeywordAutomaton literals = literalsTask != null ? literalsTask.join() : null;
+        if (builder.fallbackCount > 0) {
+            log.debug("Prefiltering {} of {} java.util.regex matcher(s) by required literals",
+                    builder.prefilteredCount, builder.fallbackCount);
+        }
+        return new CompiledRuleset(ruleset, compiled, keywords, regexes, literals, builder);
+    }
+
+    /**
+     * Compile the regexes and open the external dictionaries of the given
+     * rules in parallel, ahead of the sequential pass that assigns their
+     * slots and then finds them in the pattern cache and the dictionary
+     * registry. Failures are left for that pass to report.
+     */
+    private static void prepare(List<Rule> rules, PatternCache patterns, double bloomFpp, ForkJoinPool pool) {
+        Set<String> regexes = new HashSet<>();
+        Map<String, Boolean> files = new HashMap<>();
+        for (Rule rule : rules) {
+            if (rule.getMatchers() == null) {
+                continue;
+            }
+            for (MatcherDef def : rule.getMatchers()) {
+                if (def == null || def.getType() == null) {
+                    continue;
+                }
+                boolean tokens = "dictionary_token".equalsIgnoreCase(def.getType());
+                if ((tokens || "dictionary".equalsIgnoreCase(def.getType())) && def.getFile() != null) {
+                    files.merge(def.getFile(), tokens, Boolean::logicalOr);
+                } else if ("regex".equalsIgnoreCase(def.getType()) && def.getPattern() != null) {
+                    regexes.add(def.getPattern());
+                }
+            }
+        }
+        if (regexes.size() + files.size() < 2) {
+            return;
+        }
+        List<Runnable> tasks = new ArrayList<>();
+        for (String regex : regexes) {
+            tasks.add(() -> {
+                try {
+                    patterns.get(regex);
+                } catch (PatternSyntaxException e) {
+                    // reported when the rule is compiled
+                }
+            });
+        }
+        for (Map.Entry<String, Boolean> file : files.entrySet()) {
+            tasks.add(() -> {
+                try {
+                    MappedDictionary dictionary = MappedDictionary.open(file.getKey());
+                    if (file.getValue()) {
+                        dictionary.bloomFilter(bloomFpp);
+                    }
+                } catch (IOException | UncheckedIOException e) {
+                    // reported when the rule is compiled
+                }
+            });
+        }
+        pool.submit(() -> tasks.parallelStream().forEach(Runnable::run)).join();
+    }
+
+    private static ForkJoinTask<KeywordAutomaton> buildKeywords(List<String[]> keywordSets, ForkJoinPool pool) {
+        if (keywordSets.isEmpty()) {
+            return null;
+        }
+        Callable<KeywordAutomaton> build = () -> KeywordAutomaton.build(keywordSets);
+        if (pool != null) {
+            return pool.submit(build);
+        }
+        ForkJoinTask<KeywordAutomaton> task = ForkJoinTask.adapt(build);
+        task.invoke();
+        return task;
+    }
+
+    /**
+     * Pool that compiles rulesets in parallel according to
+     * 'sdk.compile.parallelism', or {@code null} to compile on the calling
+     * thread.
+     */
+    private static ForkJoinPool compilePool() {
+        int parallelism = SdkConfig.getCompileParallelism();
+        if (parallelism == 1) {
+            return null;
+        }
+        return parallelism == 0 ? ForkJoinPool.commonPool() : CompilePool.POOL;
+    }
+
+    // Dedicated compile pool, created on first use
+    private static final class CompilePool {
+        static final ForkJoinPool POOL = new ForkJoinPool(SdkConfig.getCompileParallelism(), owner -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(owner);
+            t.setName("sdk-compile-" + t.getPoolIndex());
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+    }
+
+    /**
+     * A snapshot of the given ruleset that holds the ruleset-wide automata
+     * and their slots, as read back from the binary rule cache, but no
+     * compiled rules. Passed to {@link #compile(Ruleset, CompiledRuleset)}
+     * as the previous snapshot, it lets the ruleset be compiled without
+     * building the automata again.
+     */
+    static CompiledRuleset ofAutomata(Ruleset ruleset, boolean multiRegex, Map<String, Integer> regexSlots,
+                                      Map<String, Integer> prefilterSlots,
+                                      Map<List<String>, Integer> dictionarySlots, KeywordAutomaton keywords,
+                                      MultiRegex regexes, KeywordAutomaton literals) {
+        return new CompiledRuleset(ruleset, new CompiledRule[0], keywords, regexes, literals,
+                new Builder(multiRegex, regexSlots, prefilterSlots, dictionarySlots));
+    }
+
+    /**
+     * Whether the automata of the previous snapshot cover every regex and
+     * inline dictionary of the given rules, with at least half of their
+     * slots still in use. Slots of patterns that are no longer used only
+     * cost scan time, so a ruleset that drops too many is compiled afresh.
+     */
+    private static boolean canReuse(CompiledRuleset previous, List<Rule> rules, boolean multiRegex) {
+        if (previous == null || previous.regexSlots == null || previous.multiRegex != multiRegex) {
+            return false;
+        }
+        Set<String> regexes = new HashSet<>();
+        Set<String> prefiltered = new HashSet<>();
+        Set<List<String>> dictionaries = new HashSet<>();
+        for (Rule rule : rules) {
+            if (rule.getMatchers() == null) {
+                continue;
+            }
+            for (MatcherDef def : rule.getMatchers()) {
+                if (def == null || def.getType() == null || def.getPattern() == null) {
+                    continue;
+                }
+                if ("regex".equalsIgnoreCase(def.getType())) {
+                    Integer slot = previous.regexSlots.get(def.getPattern());
+                    if (slot == null) {
+                        return false;
+                    }
+                    if (slot >= 0) {
+                        regexes.add(def.getPattern());
+                        continue;
+                    }
+                    Integer literalSlot = previous.prefilterSlots.get(def.getPattern());
+                    if (literalSlot == null) {
+                        return false;
+                    }
+                    if (literalSlot >= 0) {
+                        prefiltered.add(def.getPattern());
+                    }
+                } else if ("dictionary".equalsIgnoreCase(def.getType()) && def.getFile() == null) {
+                    List<String> entries = Arrays.asList(DictionaryMatcher.parseEntries(def.getPattern()));
+                    if (!previous.dictionarySlots.containsKey(entries)) {
+                        return false;
+                    }
+                    dictionaries.add(entries);
+                }
+            }
+        }
+        int slots = (previous.regexes != null ? previous.regexes.size() : 0)
+                + (previous.literals != null ? previous.literals.getSlotCount() : 0)
+                + (previous.keywords != null ? previous.keywords.getSlotCount() : 0);
+        return (regexes.size() + prefiltered.size() + dictionaries.size()) * 2 >= slots;
+    }
+
+    private static CompiledMatcher[] compileMatchers(Rule rule, Builder builder) {
+        List<CompiledMatcher> matchers = new ArrayList<>();
+        if (rule.getMatchers() != null) {
+            for (MatcherDef def : rule.getMatchers()) {
+                try {
+                    CompiledMatcher m = CompiledMatcher.compile(def, builder);
+                    if (m != null) {
+                        matchers.add(m);
+                    }
+                } catch (PatternSyntaxException e) {
+                    log.warn("Skipping invalid pattern in rule {}: {}", rule.getId(), e.getMessage());
+                } catch (UncheckedIOException e) {
+                    log.warn("Skipping dictionary {} in rule {}: {}", def.getFile(), rule.getId(),
+                            e.getCause().toString());
+                }
+            }
+        }
+        return matchers.toArray(new CompiledMatcher[0]);
+    }
+
+    /**
+     * The source ruleset this snapshot was compiled from.
+     */
+    public Ruleset getRuleset() { return ruleset; }
+
+    /**
+     * Number of enabled rules in the snapshot.
+     */
+    public int size() { return rules.length; }
+
+    CompiledRule[] getRules() { return rules; }
+
+    KeywordAutomaton getKeywords() { return keywords; }
+
+    MultiRegex getRegexes() { return regexes; }
+
+    KeywordAutomaton getLiterals() { return literals; }
+
+    /** Whether the snapshot was compiled with the multi-regex automaton. */
+    boolean isMultiRegex() { return multiRegex; }
+
+    /**
+     * Slot of each regex in the multi-regex automaton, -1 for those
+     * evaluated by {@code java.util.regex}; {@code null} for an empty
+     * ruleset.
+     */
+    Map<String, Integer> getRegexSlots() { return regexSlots; }
+
+    /**
+     * Slot of the required literals of each {@code java.util.regex} regex,
+     * -1 for those without; {@code null} for an empty ruleset.
+     */
+    Map<String, Integer> getPrefilterSlots() { return prefilterSlots; }
+
+    /**
+     * Slot of each inline dictionary in the keyword automaton;
+     * {@code null} for an empty ruleset.
+     */
+    Map<List<String>, Integer> getDictionarySlots() { return dictionarySlots; }
+
+    /** Whether any rule is limited to certain fields of a record. */
+    boolean hasScopedRules() { return scoped; }
+
+    /**
+     * The rules that apply to the record field with the given
+     * {@link FieldScope#keyPath key path}, in priority order. Computed once
+     * per path; the rules of up to {@value #MAX_FIELD_PATHS} paths are
+     * remembered for the life of the snapshot.
+     */
+    CompiledRule[] rulesForField(String keyPath) {
+        if (!scoped) {
+            return rules;
+        }
+        CompiledRule[] inScope = fieldRules.get(keyPath);
+        if (inScope != null) {
+            return inScope;
+        }
+        String[] keys = FieldScope.keys(keyPath);
+        List<CompiledRule> selected = new ArrayList<>();
+        for (CompiledRule rule : rules) {
+            if (rule.inScope(keys)) {
+                selected.add(rule);
+            }
+        }
+        inScope = selected.toArray(new CompiledRule[0]);
+        if (fieldRules.size() < MAX_FIELD_PATHS) {
+            fieldRules.putIfAbsent(keyPath, inScope);
+        }
+        return inScope;
+    }
+
+    /**
+     * Time budget of one rule's {@code java.util.regex} evaluation in
+     * nanoseconds, 0 if unbounded.
+     */
+    long getRegexBudgetNanos() { return regexBudgetNanos; }
+
+    /**
+     * Rules of this snapshot that were quarantined for repeatedly exceeding
+     * the regex time budget. They are skipped until a new ruleset is
+     * activated.
+     */
+    public List<Rule> getQuarantinedRules() {
+        List<Rule> quarantined = new ArrayList<>();
+        for (CompiledRule rule : rules) {
+            if (rule.isQuarantined()) {
+                quarantined.add(rule.getRule());
+            }
+        }
+        return quarantined;
+    }
+
+    void recordPrefilter(int checks, int skips) {
+        prefilterChecks.add(checks);
+        prefilterSkips.add(skips);
+    }
+
+    /**
+     * Selectivity of the literal prefilter on this snapshot so far.
+     */
+    public PrefilterStats getPrefilterStats() {
+        return new PrefilterStats(fallbackRegexCount, prefilteredCount, prefilterChecks.sum(), prefilterSkips.sum());
+    }
+
+    /**
+     * Bloom filter statistics of every {@code dictionary_token} matcher of
+     * this snapshot, in rule priority order.
+     */
+    public List<DictionaryFilterStats> getDictionaryFilterStats() {
+        List<DictionaryFilterStats> stats = new ArrayList<>();
+        for (CompiledRule rule : rules) {
+            for (CompiledMatcher matcher : rule.getMatchers()) {
+                if (matcher instanceof CompiledMatcher.TokenDictionary) {
+                    stats.add(((CompiledMatcher.TokenDictionary) matcher).stats(rule.getRule()));
+                }
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Collects ruleset-wide structures while individual matchers are compiled.
+     * Identical patterns and dictionaries share one slot. A builder created
+     * from a previous snapshot assigns the slots of its automata instead of
+     * collecting new ones.
+     */
+    static final class Builder {
+        private final boolean reuse;
+        private final boolean multiRegex;
+        private final List<String[]> dictionaries = new ArrayList<>();
+        private final Map<List<String>, Integer> dictionarySlots;
+        private final MultiRegex.Builder regexes;
+        private final Map<String, Integer> regexSlots;
+        private final List<String[]> prefilters = new ArrayList<>();
+        private final Map<String, Integer> prefilterSlots;
+        private final double bloomFpp = SdkConfig.getDictionaryBloomFpp();
+        private int regexCount;
+        private int fallbackCount;
+        private int prefilteredCount;
+
+        Builder(boolean multiRegex) {
+            this.reuse = false;
+            this.multiRegex = multiRegex;
+            this.regexes = multiRegex ? new MultiRegex.Builder() : null;
+            this.regexSlots = new HashMap<>();
+            this.prefilterSlots = new HashMap<>();
+            this.dictionarySlots = new HashMap<>();
+        }
+
+        Builder(CompiledRuleset previous) {
+            this(previous.multiRegex, previous.regexSlots, previous.prefilterSlots, previous.dictionarySlots);
+        }
+
+        Builder(boolean multiRegex, Map<String, Integer> regexSlots, Map<String, Integer> prefilterSlots,
+                Map<List<String>, Integer> dictionarySlots) {
+            this.reuse = true;
+            this.multiRegex = multiRegex;
+            this.regexes = null;
+            this.regexSlots = regexSlots;
+            this.prefilterSlots = prefilterSlots;
+            this.dictionarySlots = dictionarySlots;
+        }
+
+        /**
+         * Target false-positive rate of the Bloom filters of token
+         * dictionaries.
+         */
+        double getBloomFpp() {
+            return bloomFpp;
+        }
+
+        /**
+         * Register the entries of a dictionary matcher and return the slot
+         * the keyword automaton will report for them.
+         */
+        int addDictionary(String[] entries) {
+            List<String> key = Arrays.asList(entries);
+            Integer slot = dictionarySlots.get(key);
+            if (slot == null) {
+                checkNotReused(key);
+                dictionaries.add(entries);
+                slot = dictionaries.size() - 1;
+                dictionarySlots.put(key, slot);
+            }
+            return slot;
+        }
+
+        /**
+         * Offer a regex matcher to the multi-pattern automaton. Returns its
+         * slot, or -1 if it must be evaluated by {@code java.util.regex}.
+         */
+        int addRegex(Pattern pattern) {
+            regexCount++;
+            Integer slot = regexSlots.get(pattern.pattern());
+            if (slot == null) {
+                checkNotReused(pattern);
+                slot = regexes != null ? regexes.add(pattern.pattern()) : -1;
+                regexSlots.put(pattern.pattern(), slot);
+            }
+            return slot;
+        }
+
+        /**
+         * Register a regex matcher evaluated by {@code java.util.regex} with
+         * the literal prefilter. Returns the slot of its required literals,
+         * or -1 if none could be derived.
+         */
+        int addPrefilter(Pattern pattern) {
+            fallbackCount++;
+            Integer slot = prefilterSlots.get(pattern.pattern());
+            if (slot == null) {
+                checkNotReused(pattern);
+                String[] required = pattern.flags() == 0 ? RequiredLiterals.of(pattern.pattern()) : null;
+                if (required != null) {
+                    prefilters.add(required);
+                    slot = prefilters.size() - 1;
+                } else {
+                    slot = -1;
+                }
+                prefilterSlots.put(pattern.pattern(), slot);
+            }
+            if (slot >= 0) {
+                prefilteredCount++;
+            }
+            return slot;
+        }
+
+        // compile only reuses automata that cover every pattern
+        private void checkNotReused(Object pattern) {
+            if (reuse) {
+                throw new IllegalStateException("Not in the reused automata: " + pattern);
+            }
+        }
+    }
+}
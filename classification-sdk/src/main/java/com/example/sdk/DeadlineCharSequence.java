@@ -0,0 +1,53 @@
+package com.example.sdk;
+
+/**
+ * Read-only view of a character sequence that aborts whoever reads it once a
+ * deadline has passed. {@code java.util.regex} reads the input through
+ * {@link #charAt} at every step, including while backtracking, so passing
+ * this view to a matcher bounds the search time of any pattern, however
+ * badly written. The clock is only consulted every
+ * {@value #CHECK_INTERVAL} reads to keep the overhead small.
+ */
+final class DeadlineCharSequence implements CharSequence {
+
+    private static final int CHECK_INTERVAL = 1024;
+
+    private final CharSequence text;
+    private final long deadline;
+    private int countdown = CHECK_INTERVAL;
+
+    /**
+     * @param text     the sequence to read
+     * @param deadline {@link System#nanoTime()} after which reads fail
+     */
+    DeadlineCharSequence(CharSequence text, long deadline) {
+        this.text = text;
+        this.deadline = deadline;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (--countdown < 0) {
+            countdown = CHECK_INTERVAL;
+            if (System.nanoTime() - deadline > 0) {
+                throw RegexBudgetExceededException.INSTANCE;
+            }
+        }
+        return text.charAt(index);
+    }
+
+    @Override
+    public int length() {
+        return text.length();
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new DeadlineCharSequence(text.subSequence(start, end), deadline);
+    }
+
+    @Override
+    public String toString() {
+        return text.toString();
+    }
+}
@@ -1,40 +1,57 @@
 package com.example.sdk;
 
-import com.example.sdk.model.MatcherDef;
+import com.example.sdk.config.SdkConfig;
+import com.example.sdk.metrics.Metrics;
+import com.example.sdk.metrics.MetricsRecorder;
 import com.example.sdk.model.Rule;
-import com.example.sdk.model.Ruleset;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.StreamReadFeature;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.LinkedHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
 
-// import dictionary matcher for dictionary-based rule support
-import com.example.sdk.DictionaryMatcher;
-
 /**
  * Core classification engine that executes the rule matchers against input
- * strings. Caches compiled regular expressions and respects rule priority
- * ordering. The detection mode determines whether only the top match or all
- * matches are returned.
+ * strings. Evaluates the immutable {@link CompiledRuleset} published by the
+ * {@link RuleManager}, which is already filtered and ordered by priority.
+ * The detection mode determines whether only the top match or all matches
+ * are returned.
  */
 public class DetectionEngine {
 
-    private static final Logger log = LoggerFactory.getLogger(DetectionEngine.class);
+    // Compiled regex patterns shared by all ruleset compilations
+    private static final PatternCache PATTERN_CACHE = new PatternCache();
 
-    // Simple LRU cache for compiled regex patterns to avoid re-compiling
-    private static final Map<String, Pattern> PATTERN_CACHE =
-            Collections.synchronizedMap(new LinkedHashMap<String, Pattern>(100, 0.75f, true) {
-                @Override
-                protected boolean removeEldestEntry(Map.Entry<String, Pattern> eldest) {
-                    return size() > 100;
-                }
-            });
+    // Parsers for record classification leave the caller's stream open
+    private static final JsonFactory JSON = JsonFactory.builder()
+            .disable(StreamReadFeature.AUTO_CLOSE_SOURCE)
+            .build();
+
+    private final ResultCache cache;
+    private final MatchAuditor auditor;
+
+    public DetectionEngine() {
+        this(null, null);
+    }
+
+    /**
+     * @param cache   cache consulted for results without offsets, may be
+     *                {@code null}
+     * @param auditor receives detections that matched, may be {@code null}
+     */
+    DetectionEngine(ResultCache cache, MatchAuditor auditor) {
+        this.cache = cache;
+        this.auditor = auditor;
+    }
 
     /**
      * Detect sensitive data within the provided string according to the
@@ -45,88 +62,391 @@ public class DetectionEngine {
      * @return the detection result containing matched rules
      */
     public DetectionResult detect(String data, ClassificationMode mode) {
-        Ruleset ruleset = RuleManager.getCurrentRuleset();
-        if (ruleset == null || ruleset.getRules() == null) {
-            return new DetectionResult(data, Collections.emptyList());
-        }
+        return detect(data, mode, RuleManager.getCompiledRuleset());
+    }
 
-        List<Rule> matched = new ArrayList<>();
-        // Sort rules by descending priority so that the first match is the highest priority
-        List<Rule> sorted = new ArrayList<>(ruleset.getRules());
-        sorted.sort(Comparator.comparing(Rule::getPriority).reversed());
+    /**
+     * Detect sensitive data using an explicit ruleset snapshot. Callers that
+     * classify many values at once can pin a single snapshot so that every
+     * value is evaluated against the same rules even if a refresh happens in
+     * between.
+     *
+     * @param data     the value to inspect
+     * @param mode     determines whether to stop at the first match or return all
+     * @param compiled the snapshot to evaluate, may be {@code null}
+     * @return the detection result containing matched rules
+     */
+    public DetectionResult detect(String data, ClassificationMode mode, CompiledRuleset compiled) {
+        return detect(data, mode, compiled, false);
+    }
+
+    /**
+     * Detect sensitive data using an explicit ruleset snapshot, optionally
+     * recording where each matched rule matched. Recording offsets scans the
+     * whole input for keywords and re-runs the regexes of matched rules to
+     * obtain positions, so it is only done on request.
+     *
+     * @param data     the value to inspect
+     * @param mode     determines whether to stop at the first match or return all
+     * @param compiled the snapshot to evaluate, may be {@code null}
+     * @param offsets  whether to record match offsets in the result
+     * @return the detection result containing matched rules
+     */
+    public DetectionResult detect(String data, ClassificationMode mode, CompiledRuleset compiled,
+                                  boolean offsets) {
+        return detect(data, data, mode, compiled, offsets);
+    }
+
+    /**
+     * Detect sensitive data in the UTF-8 encoded bytes {@code buf[off, off +
+     * len)} without decoding them into a string. See
+     * {@link Utf8CharSequence} for how the bytes are read. The array must not
+     * be modified until the call returns.
+     *
+     * @param buf      the encoded value
+     * @param off      index of its first byte
+     * @param len      number of bytes
+     * @param mode     determines whether to stop at the first match or return all
+     * @param compiled the snapshot to evaluate, may be {@code null}
+     * @return the detection result; its data is {@code null}
+     * @throws IndexOutOfBoundsException if the range is not within the array
+     */
+    public DetectionResult detect(byte[] buf, int off, int len, ClassificationMode mode,
+                                  CompiledRuleset compiled) {
+        return detect(Utf8CharSequence.of(buf, off, len), null, mode, compiled, false);
+    }
+
+    /**
+     * Detect sensitive data in the UTF-8 encoded bytes between the buffer's
+     * position and limit without decoding them into a string. Heap, direct
+     * and read-only buffers are supported; the buffer's position and limit
+     * are not modified.
+     *
+     * @param buf      the encoded value
+     * @param mode     determines whether to stop at the first match or return all
+     * @param compiled the snapshot to evaluate, may be {@code null}
+     * @return the detection result; its data is {@code null}
+     * @see #detect(byte[], int, int, ClassificationMode, CompiledRuleset)
+     */
+    public DetectionResult detect(ByteBuffer buf, ClassificationMode mode, CompiledRuleset compiled) {
+        return detect(Utf8CharSequence.of(buf), null, mode, compiled, false);
+    }
 
-        for (Rule rule : sorted) {
-            if (!rule.isEnabled()) {
-                continue;
+    // Evaluate the input; data is the input as a string, or null when it is
+    // only available as a view, in which case the result cache is bypassed
+    private DetectionResult detect(CharSequence input, String data, ClassificationMode mode,
+                                   CompiledRuleset compiled, boolean offsets) {
+        if (compiled == null || compiled.size() == 0) {
+            return offsets
+                    ? new DetectionResult(data, Collections.emptyList(), new SpanBuffer())
+                    : new DetectionResult(data, Collections.emptyList());
+        }
+
+        boolean cacheable = cache != null && !offsets && data != null;
+        if (cacheable) {
+            DetectionResult cached = cache.get(data, mode, compiled);
+            if (cached != null) {
+                audit(compiled, mode, cached.getMatchedRules(), input);
+                return cached;
             }
+        }
+
+        // Instrumentation costs one field read unless a recorder is installed
+        MetricsRecorder metrics = Metrics.recorder();
+        boolean timed = metrics != null && Metrics.sampled();
+        long started = timed ? System.nanoTime() : 0L;
+
+        MatchContext ctx = new MatchContext(input, compiled, offsets);
+        SpanBuffer spans = offsets ? new SpanBuffer() : null;
+        List<Rule> matched = evaluate(compiled.getRules(), ctx, mode, spans, metrics, timed);
+        ctx.recordStats();
+        if (timed) {
+            metrics.detectionLatency(mode, matched.size(), System.nanoTime() - started);
+        }
+        audit(compiled, mode, matched, input);
+
+        List<Rule> overBudget = ctx.getOverBudget();
+        if (spans != null || !overBudget.isEmpty()) {
+            // Results cut short by the regex budget depend on timing and are
+            // not cached
+            DetectionResult result = spans != null
+                    ? new DetectionResult(data, matched, spans)
+                    : new DetectionResult(data, matched);
+            result.setOverBudgetRules(overBudget);
+            return result;
+        }
+        if (cacheable) {
+            // Cached results are shared between callers
+            DetectionResult result = new DetectionResult(data, Collections.unmodifiableList(matched));
+            cache.put(data, mode, compiled, result);
+            return result;
+        }
+        return new DetectionResult(data, matched);
+    }
+
+    private void audit(CompiledRuleset compiled, ClassificationMode mode, List<Rule> matched, CharSequence input) {
+        if (auditor != null && !matched.isEmpty()) {
+            auditor.publish(compiled, mode, matched, input, input != null ? input.length() : 0);
+        }
+    }
+
+    /**
+     * Evaluate the given rules, ordered by descending priority, against the
+     * context and return the matched ones.
+     *
+     * @param spans   receives the offsets of the matches, may be {@code null}
+     * @param metrics the installed recorder, may be {@code null}
+     * @param timed   whether rule evaluations are timed
+     */
+    static List<Rule> evaluate(CompiledRule[] rules, MatchContext ctx, ClassificationMode mode, SpanBuffer spans,
+                               MetricsRecorder metrics, boolean timed) {
+        List<Rule> matched = new ArrayList<>();
+        // Rules in the snapshot are enabled and ordered by descending priority
+        // so that the first match is the highest priority
+        for (CompiledRule rule : rules) {
             // Evaluate the rule against the input value. When operating in
             // TOP_MATCH_ONLY mode the loop terminates after the first
             // successful match due to the rules being ordered by priority.
-            if (matches(rule, data)) {
-                matched.add(rule);
+            if (matches(rule, ctx, metrics, timed)) {
+                if (spans != null) {
+                    rule.spans(ctx, matched.size(), spans);
+                }
+                matched.add(rule.getRule());
                 if (mode == ClassificationMode.TOP_MATCH_ONLY) {
                     break;
                 }
             }
         }
+        return matched;
+    }
+
+    /**
+     * Evaluate a single rule, reporting it to the recorder if one is given.
+     */
+    static boolean matches(CompiledRule rule, MatchContext ctx, MetricsRecorder metrics, boolean timed) {
+        return metrics == null ? rule.matches(ctx) : matchesRecorded(rule, ctx, metrics, timed);
+    }
 
-        if (!matched.isEmpty()) {
-            log.info("Matched {} rule(s) for data: {}", matched.size(), data);
+    // Evaluate a rule and report it to the recorder, timing it on sampled
+    // detections
+    private static boolean matchesRecorded(CompiledRule rule, MatchContext ctx, MetricsRecorder metrics,
+                                           boolean timed) {
+        if (!timed) {
+            boolean hit = rule.matches(ctx);
+            metrics.ruleEvaluated(rule.getRule(), hit);
+            return hit;
         }
+        long started = System.nanoTime();
+        boolean hit = rule.matches(ctx);
+        metrics.ruleLatency(rule.getRule(), System.nanoTime() - started);
+        metrics.ruleEvaluated(rule.getRule(), hit);
+        return hit;
+    }
 
-        return new DetectionResult(data, matched);
+    /**
+     * Detect sensitive data in a document read from the given reader without
+     * holding the whole document in memory. See {@link StreamingDetector} for
+     * how matches across chunk boundaries are handled. The reader is not
+     * closed.
+     *
+     * @param in   the document to inspect
+     * @param mode determines whether to stop at the first match or return all
+     * @return the detection result; its data is {@code null}
+     * @throws IOException if reading fails
+     */
+    public DetectionResult detect(Reader in, ClassificationMode mode) throws IOException {
+        return detect(in, mode, RuleManager.getCompiledRuleset());
     }
 
     /**
-     * Determine whether the input matches any matcher definitions for a given rule.
+     * Detect sensitive data in a document read from the given reader using an
+     * explicit ruleset snapshot.
      *
-     * <p>The matcher type dictates how the pattern is evaluated:
-     * <ul>
-     *   <li><strong>regex</strong> – the pattern is compiled into a
-     *       {@link java.util.regex.Pattern} and a search is performed on the input.</li>
-     *   <li><strong>fuzzy</strong> – the pattern is compared against the input
-     *       using a Levenshtein distance algorithm via {@link FuzzyMatcher}.</li>
-     *   <li><strong>dictionary</strong> – the pattern is treated as a comma or
-     *       semicolon separated list of keywords. If any keyword appears in the
-     *       input the matcher succeeds. See {@link DictionaryMatcher} for
-     *       details.</li>
-     * </ul>
-     * Additional matcher types can be added without modifying this method by
-     * implementing custom logic or by leveraging a pluggable matcher registry.
-     * </p>
+     * @param in       the document to inspect
+     * @param mode     determines whether to stop at the first match or return all
+     * @param compiled the snapshot to evaluate, may be {@code null}
+     * @return the detection result; its data is {@code null}
+     * @throws IOException if reading fails
+     */
+    public DetectionResult detect(Reader in, ClassificationMode mode, CompiledRuleset compiled) throws IOException {
+        if (compiled == null || compiled.size() == 0) {
+            return new DetectionResult(null, Collections.emptyList());
+        }
+
+        StreamingDetector detector = new StreamingDetector(compiled, mode,
+                SdkConfig.getStreamChunkChars(), SdkConfig.getStreamOverlapChars());
+        detector.readFrom(in);
+        DetectionResult result = detector.finish();
+
+        if (auditor != null && result.hasMatch()) {
+            auditor.publish(compiled, mode, result.getMatchedRules(), null, detector.getCharsRead());
+        }
+        return result;
+    }
+
+    /**
+     * Classify the fields of a JSON record read from the given stream. The
+     * record is walked as a token stream without building a tree, and each
+     * string and number is evaluated only against the rules scoped to its
+     * field path. Only the first JSON value of the stream is read; the stream
+     * is not closed.
      *
-     * @param rule the classification rule
-     * @param data the input data to test
-     * @return {@code true} if the data satisfies any matcher of the rule,
-     *         {@code false} otherwise
-     */
-    private boolean matches(Rule rule, String data) {
-        for (MatcherDef m : rule.getMatchers()) {
-            String type = m.getType();
-            if (type == null) {
-                continue;
+     * @param json     the record, UTF-8, UTF-16 or UTF-32 encoded
+     * @param mode     whether each field reports its top match or all matches
+     * @param compiled the snapshot to evaluate, may be {@code null}
+     * @return the matched fields and rules
+     * @throws IOException if reading fails or the input is not valid JSON
+     */
+    public RecordDetectionResult detectRecord(InputStream json, ClassificationMode mode, CompiledRuleset compiled)
+            throws IOException {
+        if (compiled == null || compiled.size() == 0) {
+            return RecordDetectionResult.empty();
+        }
+        try (JsonParser parser = JSON.createParser(json)) {
+            return detectRecord(parser, mode, compiled);
+        }
+    }
+
+    /**
+     * Classify the fields of the next JSON value of the given parser. The
+     * parser is left after the value and not closed.
+     *
+     * @see #detectRecord(InputStream, ClassificationMode, CompiledRuleset)
+     */
+    public RecordDetectionResult detectRecord(JsonParser parser, ClassificationMode mode, CompiledRuleset compiled)
+            throws IOException {
+        if (compiled == null || compiled.size() == 0) {
+            parser.nextToken();
+            parser.skipChildren();
+            return RecordDetectionResult.empty();
+        }
+        MetricsRecorder metrics = Metrics.recorder();
+        boolean timed = metrics != null && Metrics.sampled();
+        long started = timed ? System.nanoTime() : 0L;
+        RecordDetector detector = new RecordDetector(compiled, mode, metrics, timed);
+        detector.readFrom(parser);
+        return finish(detector, mode, compiled, timed ? metrics : null, started);
+    }
+
+    /**
+     * Classify the fields of a record held in memory, such as one bound by
+     * Jackson or read from a document store. Nested maps, collections and
+     * arrays are walked; booleans and nulls are skipped and other values are
+     * classified by their {@code toString()}.
+     *
+     * @param record   the record
+     * @param mode     whether each field reports its top match or all matches
+     * @param compiled the snapshot to evaluate, may be {@code null}
+     * @return the matched fields and rules
+     * @throws IllegalArgumentException if the record is nested more than
+     *                                  1000 levels deep, e.g. because it contains
+     *                                  itself
+     */
+    public RecordDetectionResult detectRecord(Map<String, ?> record, ClassificationMode mode,
+                                              CompiledRuleset compiled) {
+        if (compiled == null || compiled.size() == 0) {
+            return RecordDetectionResult.empty();
+        }
+        MetricsRecorder metrics = Metrics.recorder();
+        boolean timed = metrics != null && Metrics.sampled();
+        long started = timed ? System.nanoTime() : 0L;
+        RecordDetector detector = new RecordDetector(compiled, mode, metrics, timed);
+        detector.readFrom(record);
+        return finish(detector, mode, compiled, timed ? metrics : null, started);
+    }
+
+    private RecordDetectionResult finish(RecordDetector detector, ClassificationMode mode, CompiledRuleset compiled,
+                                         MetricsRecorder timer, long started) {
+        RecordDetectionResult result = detector.finish();
+        if (timer != null) {
+            timer.detectionLatency(mode, result.getMatchedRules().size(), System.nanoTime() - started);
+        }
+        if (auditor != null && result.hasMatch()) {
+            auditor.publish(compiled, mode, result.getMatchedRules(), null, detector.getCharsRead());
+        }
+        return result;
+    }
+
+    /**
+     * Estimate which rules a column of values matches by classifying an
+     * adaptive sample of it. See {@link ColumnScanner} for the sampling and
+     * stopping rules. The iterator is only advanced as far as the scan
+     * needs; values that are not sampled are not classified, and values
+     * that are not character sequences are only converted with
+     * {@code toString()} when sampled.
+     *
+     * @param values   the column, {@code null} elements are nulls
+     * @param options  sample sizes, confidence and threshold
+     * @param compiled the snapshot to evaluate, may be {@code null}
+     * @return per-rule hit ratios and verdicts
+     */
+    public ColumnScanResult scanColumn(Iterator<?> values, ColumnScanOptions options, CompiledRuleset compiled) {
+        if (compiled == null) {
+            return new ColumnScanResult(0, 0, 0, false, Collections.<ColumnRuleStats>emptyList());
+        }
+        MetricsRecorder metrics = Metrics.recorder();
+        ColumnScanner scanner = new ColumnScanner(compiled, options, metrics, metrics != null && Metrics.sampled());
+        while (!scanner.isDone() && values.hasNext()) {
+            Object value = values.next();
+            if (scanner.toSkip() > 0) {
+                scanner.skip(1);
+            } else {
+                scanner.sample(value == null || value instanceof CharSequence
+                        ? (CharSequence) value : value.toString());
             }
-            if ("regex".equalsIgnoreCase(type)) {
-                Pattern p = PATTERN_CACHE.computeIfAbsent(m.getPattern(), Pattern::compile);
-                if (p.matcher(data).find()) {
-                    return true;
-                }
-            } else if ("fuzzy".equalsIgnoreCase(type)) {
-                // Compare the pattern and data using a fuzzy match. Note that
-                // FuzzyMatcher expects (pattern, text) order for its arguments.
-                if (FuzzyMatcher.matches(m.getPattern(), data)) {
-                    return true;
-                }
-            } else if ("dictionary".equalsIgnoreCase(type)) {
-                // Dictionary matching checks whether any of the comma-separated
-                // keywords defined by the pattern appear in the input. Matching
-                // is case-insensitive.
-                if (DictionaryMatcher.matches(data, m.getPattern())) {
-                    return true;
+        }
+        return scanner.finish(!values.hasNext());
+    }
+
+    /**
+     * Estimate which rules a column delivered in array-backed chunks matches.
+     * Unsampled values are skipped without being read.
+     *
+     * @see #scanColumn(Iterator, ColumnScanOptions, CompiledRuleset)
+     */
+    public ColumnScanResult scanColumnChunks(Iterator<ColumnChunk> chunks, ColumnScanOptions options,
+                                             CompiledRuleset compiled) {
+        if (compiled == null) {
+            return new ColumnScanResult(0, 0, 0, false, Collections.<ColumnRuleStats>emptyList());
+        }
+        MetricsRecorder metrics = Metrics.recorder();
+        ColumnScanner scanner = new ColumnScanner(compiled, options, metrics, metrics != null && Metrics.sampled());
+        boolean complete = true;
+        while (!scanner.isDone() && chunks.hasNext()) {
+            ColumnChunk chunk = chunks.next();
+            int i = 0;
+            int size = chunk.size();
+            while (i < size && !scanner.isDone()) {
+                long skip = Math.min(scanner.toSkip(), size - i);
+                if (skip > 0) {
+                    scanner.skip(skip);
+                    i += (int) skip;
+                } else {
+                    scanner.sample(chunk.value(i++));
                 }
             }
-            // ignore unknown matcher types
+            complete = i == size;
         }
-        return false;
+        return scanner.finish(complete && !chunks.hasNext());
+    }
+
+    /**
+     * Compile a regular expression through the shared pattern cache. Called
+     * when a ruleset is compiled so that patterns unchanged between ruleset
+     * versions are not recompiled on every refresh.
+     *
+     * @param regex the regular expression source
+     * @return the compiled pattern
+     */
+    static Pattern compilePattern(String regex) {
+        return PATTERN_CACHE.get(regex);
+    }
+
+    /**
+     * The shared pattern cache, for ruleset compilation to mark its
+     * generations.
+     */
+    static PatternCache patternCache() {
+        return PATTERN_CACHE;
     }
-}
\ No newline at end of file
+}
@@ -2,20 +2,53 @@ package com.example.sdk;
 
 import com.example.sdk.model.Rule;
 
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Represents the outcome of a classification operation for a single piece of
  * data. Contains the input data and a list of matched rules. Provides a
  * convenience method to check if any rule was matched.
+ *
+ * <p>Results produced with offsets enabled also carry the position of every
+ * match as spans. Span {@code i} covers {@code data[getSpanStart(i),
+ * getSpanEnd(i))} and belongs to the matched rule at index
+ * {@code getSpanRuleIndex(i)}. Spans are grouped by rule in the order of
+ * {@link #getMatchedRules()} and sorted by position within each rule; spans
+ * of different matchers or keywords may overlap.</p>
+ *
+ * <p>If a rule's regex evaluation was cut short by its time budget the rule
+ * is listed by {@link #getOverBudgetRules()} and the result may be
+ * incomplete.</p>
  */
 public class DetectionResult {
+    private static final int[] NO_SPANS = new int[0];
+
     private final String data;
     private final List<Rule> matchedRules;
+    // Parallel arrays, one entry per span
+    private final int[] spanRules;
+    private final int[] spanStarts;
+    private final int[] spanEnds;
+    private final boolean offsets;
+    private List<Rule> overBudgetRules = Collections.emptyList();
 
     public DetectionResult(String data, List<Rule> matchedRules) {
         this.data = data;
         this.matchedRules = matchedRules;
+        this.spanRules = NO_SPANS;
+        this.spanStarts = NO_SPANS;
+        this.spanEnds = NO_SPANS;
+        this.offsets = false;
+    }
+
+    DetectionResult(String data, List<Rule> matchedRules, SpanBuffer spans) {
+        this.data = data;
+        this.matchedRules = matchedRules;
+        this.spanRules = spans.keys();
+        this.spanStarts = spans.starts();
+        this.spanEnds = spans.ends();
+        this.offsets = true;
     }
 
     public String getData() { return data; }
@@ -27,4 +60,31 @@ public class DetectionResult {
     public boolean hasMatch() {
         return matchedRules != null && !matchedRules.isEmpty();
     }
+
+    /**
+     * Return true if the result was produced with offsets enabled. Results
+     * without offsets report no spans.
+     */
+    public boolean hasOffsets() {
+        return offsets;
+    }
+
+    /**
+     * Rules that were not fully evaluated because their regex search ran
+     * past the time budget, or that were skipped because they are
+     * quarantined for doing so repeatedly. Such a rule may match the input
+     * even though it is not among the matched rules. Empty in the common
+     * case.
+     */
+    public List<Rule> getOverBudgetRules() { return overBudgetRules; }
+
+    void setOverBudgetRules(List<Rule> rules) {
+        this.overBudgetRules = rules;
+    }
+
+    public int getSpanCount() { return spanStarts.length; }
+    public int getSpanRuleIndex(int i) { return spanRules[i]; }
+    public Rule getSpanRule(int i) { return matchedRules.get(spanRules[i]); }
+    public int getSpanStart(int i) { return spanStarts[i]; }
+    public int getSpanEnd(int i) { return spanEnds[i]; }
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+package com.example.sdk;
+
+import com.example.sdk.model.Rule;
+
+/**
+ * Point-in-time statistics of the Bloom filter in front of one
+ * {@code dictionary_token} matcher. Counts start when the matcher is compiled
+ * and continue across refreshes that carry its rule over unchanged.
+ */
+public class DictionaryFilterStats {
+    private final Rule rule;
+    private final long termCount;
+    private final long memoryBytes;
+    private final double estimatedFpp;
+    private final long checkCount;
+    private final long passCount;
+    private final long hitCount;
+
+    public DictionaryFilterStats(Rule rule, long termCount, long memoryBytes, double estimatedFpp,
+                                 long checkCount, long passCount, long hitCount) {
+        this.rule = rule;
+        this.termCount = termCount;
+        this.memoryBytes = memoryBytes;
+        this.estimatedFpp = estimatedFpp;
+        this.checkCount = checkCount;
+        this.passCount = passCount;
+        this.hitCount = hitCount;
+    }
+
+    /** The rule the matcher belongs to. */
+    public Rule getRule() { return rule; }
+    /** Distinct terms in the dictionary. */
+    public long getTermCount() { return termCount; }
+    /** Heap used by the filter's bit array. */
+    public long getMemoryBytes() { return memoryBytes; }
+    /** False-positive rate expected from the filter's fill. */
+    public double getEstimatedFpp() { return estimatedFpp; }
+    /** Input tokens tested against the filter. */
+    public long getCheckCount() { return checkCount; }
+    /** Tokens the filter let through to the exact lookup. */
+    public long getPassCount() { return passCount; }
+    /** Tokens the exact lookup found in the dictionary. */
+    public long getHitCount() { return hitCount; }
+
+    /**
+     * Fraction of tokens not in the dictionary that the filter let through,
+     * or 0 if there were none.
+     */
+    public double getObservedFpp() {
+        long misses = checkCount - hitCount;
+        return misses <= 0 ? 0.0 : (double) (passCount - hitCount) / misses;
+    }
+
+    @Override
+    public String toString() {
+        return "DictionaryFilterStats{rule=" + (rule != null ? rule.getId() : null) + ", terms=" + termCount
+                + ", bytes=" + memoryBytes + ", checks=" + checkCount + ", passes=" + passCount
+                + ", hits=" + hitCount + "}";
+    }
+}
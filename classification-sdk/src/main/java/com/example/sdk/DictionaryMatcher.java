@@ -1,6 +1,6 @@
 package com.example.sdk;
 
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -14,12 +14,16 @@ import java.util.List;
  * within the input data, the matcher is considered a hit.
  * </p>
  * <p>
- * Note that this implementation is intentionally simple and only suitable
- * for demonstration or prototyping purposes. In a production environment you
- * might load large dictionaries from external files, perform normalization
- * (e.g. Unicode folding) or use more sophisticated tokenization and matching
- * strategies. This class provides a clear extension point for such
- * enhancements.
+ * The static methods here evaluate one dictionary at a time. Rules executed
+ * by the {@link com.example.sdk.DetectionEngine} are instead compiled into a
+ * shared {@link KeywordAutomaton} so that every dictionary in the ruleset is
+ * checked in a single pass over the input.
+ * </p>
+ * <p>
+ * Dictionaries too large to list in a pattern are kept in external files
+ * instead, see {@link com.example.sdk.model.MatcherDef#getFile()}; they are
+ * compiled into a memory-mapped {@link MappedDictionary} rather than parsed
+ * here.
  * </p>
  */
 public final class DictionaryMatcher {
@@ -33,8 +37,7 @@ public final class DictionaryMatcher {
      * entries defined by the pattern string. The pattern string must contain
      * one or more dictionary entries separated by commas. Leading and
      * trailing whitespace around each entry will be trimmed. Matching is
-     * performed using {@link String#toLowerCase()} for case‐insensitive
-     * comparison.
+     * case‐insensitive, see {@link #fold(CharSequence, int, int)}.
      *
      * @param data    the input text to test, must not be {@code null}
      * @param pattern the dictionary pattern string, must not be {@code null}
@@ -45,18 +48,67 @@ public final class DictionaryMatcher {
         if (data == null || pattern == null) {
             return false;
         }
-        // split the pattern on commas and trim whitespace
-        List<String> entries = Arrays.asList(pattern.split("[,;]"));
-        String lower = data.toLowerCase();
-        for (String entry : entries) {
-            String trimmed = entry.trim().toLowerCase();
-            if (trimmed.isEmpty()) {
-                continue;
+        return matches(data, parseEntries(pattern));
+    }
+
+    /**
+     * Split a dictionary pattern into its entries. Entries are separated by
+     * commas or semicolons, trimmed and lower-cased; empty entries are
+     * dropped. The result can be cached and passed to
+     * {@link #matches(String, String[])} to avoid re-parsing the pattern.
+     *
+     * @param pattern the dictionary pattern string, must not be {@code null}
+     * @return the normalized dictionary entries
+     */
+    public static String[] parseEntries(String pattern) {
+        List<String> entries = new ArrayList<>();
+        for (String entry : pattern.split("[,;]")) {
+            String trimmed = entry.trim();
+            trimmed = fold(trimmed, 0, trimmed.length());
+            if (!trimmed.isEmpty()) {
+                entries.add(trimmed);
             }
-            if (lower.contains(trimmed)) {
+        }
+        return entries.toArray(new String[0]);
+    }
+
+    /**
+     * Determines whether the supplied text contains any of the pre-parsed
+     * dictionary entries returned by {@link #parseEntries(String)}.
+     *
+     * @param data    the input text to test
+     * @param entries normalized dictionary entries
+     * @return {@code true} if any entry is contained in the text
+     */
+    public static boolean matches(String data, String[] entries) {
+        if (data == null || entries.length == 0) {
+            return false;
+        }
+        String lower = fold(data, 0, data.length());
+        for (String entry : entries) {
+            if (lower.contains(entry)) {
                 return true;
             }
         }
         return false;
     }
-}
\ No newline at end of file
+
+    /**
+     * Lower-cases a range of text with {@link Character#toLowerCase(char)}
+     * one character at a time, the way {@link KeywordAutomaton} folds its
+     * input. Unlike {@link String#toLowerCase()} this neither depends on the
+     * default locale nor changes the length of the text.
+     *
+     * @param text  the text to fold
+     * @param start index of the first character
+     * @param end   index after the last character
+     * @return the folded characters
+     */
+    static String fold(CharSequence text, int start, int end) {
+        char[] chars = new char[end - start];
+        for (int i = start; i < end; i++) {
+            chars[i - start] = Character.toLowerCase(text.charAt(i));
+        }
+        return new String(chars);
+    }
+}
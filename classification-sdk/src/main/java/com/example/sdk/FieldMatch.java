@@ -0,0 +1,28 @@
+package com.example.sdk;
+
+import com.example.sdk.model.Rule;
+
+import java.util.List;
+
+/**
+ * A field of a structured record that matched one or more rules. The path
+ * names the keys from the record root, separated by dots, with the index of
+ * array elements in brackets, e.g. {@code orders[2].card.number}.
+ */
+public class FieldMatch {
+    private final String path;
+    private final List<Rule> matchedRules;
+
+    public FieldMatch(String path, List<Rule> matchedRules) {
+        this.path = path;
+        this.matchedRules = matchedRules;
+    }
+
+    public String getPath() { return path; }
+
+    /**
+     * The rules the field's value matched, highest priority first. Only the
+     * highest priority rule in TOP_MATCH_ONLY mode.
+     */
+    public List<Rule> getMatchedRules() { return matchedRules; }
+}
@@ -0,0 +1,140 @@
+package com.example.sdk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiled {@link com.example.sdk.model.Rule#getScope() scope} of a rule:
+ * the field paths of a structured record the rule applies to.
+ *
+ * <p>A path names the keys from the record root to a value, separated by
+ * dots, e.g. {@code customer.address.zip}. Array elements do not add a
+ * segment, so {@code orders.card} covers the {@code card} field of every
+ * element of {@code orders}; bracketed indices in a scope, such as
+ * {@code orders[].card}, are ignored. A {@code *} segment matches any one
+ * key and a {@code **} segment any number of keys, including none. Matching
+ * is case-sensitive.</p>
+ */
+final class FieldScope {
+
+    private static final String ANY = "*";
+    private static final String ANY_DEPTH = "**";
+
+    private final String[][] patterns;
+
+    private FieldScope(String[][] patterns) {
+        this.patterns = patterns;
+    }
+
+    /**
+     * Compile the given scope, or return {@code null} if it is empty and the
+     * rule therefore applies to every field.
+     */
+    static FieldScope compile(List<String> scope) {
+        if (scope == null) {
+            return null;
+        }
+        List<String[]> patterns = new ArrayList<>();
+        for (String path : scope) {
+            if (path != null && !path.trim().isEmpty()) {
+                patterns.add(split(path.trim().replaceAll("\\[[^\\]]*\\]", "")));
+            }
+        }
+        return patterns.isEmpty() ? null : new FieldScope(patterns.toArray(new String[0][]));
+    }
+
+    /**
+     * Split a dotted path into its keys, dropping empty segments.
+     */
+    static String[] split(String path) {
+        List<String> keys = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i <= path.length(); i++) {
+            if (i == path.length() || path.charAt(i) == '.') {
+                if (i > start) {
+                    keys.add(path.substring(start, i));
+                }
+                start = i + 1;
+            }
+        }
+        return keys.toArray(new String[0]);
+    }
+
+    /**
+     * Append a key to the key path of its parent, {@code ""} at the root.
+     * Unlike a dotted path the key path keeps every key as it is: each key is
+     * preceded by a dot, and dots and backslashes within it are escaped with
+     * a backslash, so that a key containing a dot, or an empty key, is not
+     * mistaken for other keys. {@link #keys} takes the path apart again.
+     */
+    static String keyPath(String parent, String key) {
+        StringBuilder sb = new StringBuilder(parent.length() + key.length() + 1).append(parent).append('.');
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c == '.' || c == '\\') {
+                sb.append('\\');
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The keys of a key path built by {@link #keyPath}, root first.
+     */
+    static String[] keys(String keyPath) {
+        List<String> keys = new ArrayList<>();
+        StringBuilder key = null;
+        for (int i = 0; i < keyPath.length(); i++) {
+            char c = keyPath.charAt(i);
+            if (c == '.') {
+                if (key != null) {
+                    keys.add(key.toString());
+                }
+                key = new StringBuilder();
+            } else {
+                if (c == '\\' && i + 1 < keyPath.length()) {
+                    c = keyPath.charAt(++i);
+                }
+                key.append(c);
+            }
+        }
+        if (key != null) {
+            keys.add(key.toString());
+        }
+        return keys.toArray(new String[0]);
+    }
+
+    /**
+     * Whether the field with the given keys, root first, is in scope.
+     */
+    boolean matches(String[] keys) {
+        for (String[] pattern : patterns) {
+            if (matches(pattern, 0, keys, 0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(String[] pattern, int p, String[] keys, int k) {
+        while (p < pattern.length) {
+            String segment = pattern[p];
+            if (ANY_DEPTH.equals(segment)) {
+                // Let '**' absorb zero or more keys
+                for (int skip = k; skip <= keys.length; skip++) {
+                    if (matches(pattern, p + 1, keys, skip)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            if (k == keys.length || !(ANY.equals(segment) || segment.equals(keys[k]))) {
+                return false;
+            }
+            p++;
+            k++;
+        }
+        return k == keys.length;
+    }
+}
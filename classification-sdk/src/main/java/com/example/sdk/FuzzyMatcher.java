@@ -1,5 +1,7 @@
 package com.example.sdk;
 
+import java.util.Arrays;
+
 /**
  * Utility class implementing a simple fuzzy matching algorithm
  * based on Levenshtein distance.  This matcher is designed to
@@ -9,11 +11,30 @@ package com.example.sdk;
  * when the distance is below a configurable threshold.  In this
  * example the threshold is fixed at 2 edits.
  *
+ * <p>Distances are computed with a threshold: inputs whose lengths differ
+ * by more than the threshold are rejected immediately, and patterns of up
+ * to 64 characters use the bit-parallel algorithm of Myers (in Hyyrö's
+ * formulation), which processes one input character per handful of word
+ * operations, allocates nothing and stops as soon as the threshold can no
+ * longer be met. Longer patterns use a dynamic program restricted to the
+ * diagonal band the threshold allows.</p>
+ *
+ * <p>Besides whole-string comparison the matcher can locate an approximate
+ * occurrence of the pattern inside a longer text, see
+ * {@link #find(String, CharSequence, int)}.</p>
+ *
  * <p>Note: For production use consider integrating a mature
  * approximate string matching library or machine learning model.
  * </p>
  */
 public final class FuzzyMatcher {
+
+    /** Maximum number of edits for {@link #matches(String, String)}. */
+    public static final int MAX_DISTANCE = 2;
+
+    // Patterns up to this length fit into one bit vector
+    private static final int WORD_SIZE = 64;
+
     private FuzzyMatcher() {}
 
     /**
@@ -26,37 +47,377 @@ public final class FuzzyMatcher {
      * @return true if similar, false otherwise
      */
     public static boolean matches(String pattern, String text) {
-        final int MAX_DISTANCE = 2;
-        int distance = levenshteinDistance(pattern, text);
-        return distance <= MAX_DISTANCE;
+        return distance(pattern, text, MAX_DISTANCE) <= MAX_DISTANCE;
+    }
+
+    /**
+     * Determine if the text contains an approximate occurrence of the
+     * pattern, i.e. a substring within {@code MAX_DISTANCE} edits of it.
+     *
+     * @param pattern pattern to search for
+     * @param text    input text
+     * @return true if an approximate occurrence exists
+     */
+    public static boolean contains(String pattern, CharSequence text) {
+        return find(pattern, text, MAX_DISTANCE) >= 0;
+    }
+
+    /**
+     * Compute the Levenshtein distance between two strings, giving up once it
+     * is known to exceed {@code max}.
+     *
+     * @param s   first string
+     * @param t   second string
+     * @param max the largest distance of interest
+     * @return the edit distance, or {@code max + 1} if it exceeds {@code max}
+     */
+    public static int distance(CharSequence s, CharSequence t, int max) {
+        int m = s.length();
+        int n = t.length();
+        if (Math.abs(m - n) > max) {
+            return max + 1;
+        }
+        // Common prefixes and suffixes never contribute edits
+        int start = 0;
+        while (start < m && start < n && s.charAt(start) == t.charAt(start)) {
+            start++;
+        }
+        int endS = m;
+        int endT = n;
+        while (endS > start && endT > start && s.charAt(endS - 1) == t.charAt(endT - 1)) {
+            endS--;
+            endT--;
+        }
+        if (endS == start || endT == start) {
+            int d = Math.max(endS, endT) - start;
+            return d <= max ? d : max + 1;
+        }
+        if (endS - start <= WORD_SIZE) {
+            return bitParallelDistance(s, start, endS, t, start, endT, max, null);
+        }
+        if (endT - start <= WORD_SIZE) {
+            return bitParallelDistance(t, start, endT, s, start, endS, max, null);
+        }
+        return bandedDistance(s, start, endS, t, start, endT, max);
+    }
+
+    /**
+     * Find the first approximate occurrence of the pattern inside the text.
+     *
+     * @param pattern the pattern to look for
+     * @param text    the text to search
+     * @param max     the largest number of edits allowed
+     * @return the end offset (exclusive) in {@code text} of the first
+     *         occurrence, or -1 if there is none
+     */
+    public static int find(String pattern, CharSequence text, int max) {
+        int m = pattern.length();
+        if (m <= max) {
+            return 0; // deleting the whole pattern is within budget
+        }
+        if (m <= WORD_SIZE) {
+            return bitParallelFind(pattern, text, max, null);
+        }
+        return columnFind(pattern, text, max);
     }
 
     /**
-     * Compute the Levenshtein edit distance between two strings.  This
-     * implementation is intentionally simple for demonstration
-     * purposes.  It runs in O(n*m) time and O(n*m) space where n and
-     * m are the lengths of the input strings.
+     * Bounds of the approximate occurrence found by
+     * {@link #find(String, CharSequence, int)}. {@code find} reports the
+     * earliest end offset within budget, which may cut the occurrence short;
+     * this considers the ends up to {@code 2 * max} characters later and the
+     * starts allowed by the length difference, and picks the pair with the
+     * fewest edits, preferring the earliest start and then the earliest end.
      *
-     * @param s first string
-     * @param t second string
-     * @return edit distance
+     * @param end the end offset returned by {@code find}
+     * @return {@code {start, end}}, or {@code null} if no occurrence is found
+     */
+    public static int[] locate(String pattern, CharSequence text, int end, int max) {
+        int m = pattern.length();
+        int[] best = null;
+        int bestDistance = max + 1;
+        for (int e = end, lastEnd = Math.min(text.length(), end + 2 * max); e <= lastEnd; e++) {
+            for (int s = Math.max(0, e - m - max), last = Math.min(e, e - m + max); s <= last; s++) {
+                int d = distance(pattern, text.subSequence(s, e), max);
+                if (d < bestDistance || (d == bestDistance && best != null && s < best[0])) {
+                    best = new int[]{s, e};
+                    bestDistance = d;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Pre-process a pattern for repeated matching. The compiled form keeps
+     * the per-character bit masks of the pattern so that evaluation does not
+     * have to derive them from the pattern for every input character.
      */
-    private static int levenshteinDistance(String s, String t) {
-        int[][] dp = new int[s.length() + 1][t.length() + 1];
-        for (int i = 0; i <= s.length(); i++) {
-            dp[i][0] = i;
+    public static Compiled compile(String pattern) {
+        return new Compiled(pattern);
+    }
+
+    /**
+     * A pattern with pre-computed bit-parallel match masks. Immutable and
+     * safe to share between threads.
+     */
+    public static final class Compiled {
+        private final String pattern;
+        private final long[] ascii;
+        private final char[] otherChars;
+        private final long[] otherMasks;
+
+        private Compiled(String pattern) {
+            this.pattern = pattern;
+            this.ascii = new long[128];
+            int m = Math.min(pattern.length(), WORD_SIZE);
+            char[] others = new char[m];
+            int otherCount = 0;
+            for (int i = 0; i < m; i++) {
+                char c = pattern.charAt(i);
+                if (c < 128) {
+                    ascii[c] |= 1L << i;
+                } else {
+                    others[otherCount++] = c;
+                }
+            }
+            others = Arrays.copyOf(others, otherCount);
+            Arrays.sort(others);
+            int distinct = 0;
+            for (int i = 0; i < others.length; i++) {
+                if (i == 0 || others[i] != others[i - 1]) {
+                    others[distinct++] = others[i];
+                }
+            }
+            this.otherChars = Arrays.copyOf(others, distinct);
+            this.otherMasks = new long[distinct];
+            for (int i = 0; i < m; i++) {
+                char c = pattern.charAt(i);
+                if (c >= 128) {
+                    otherMasks[Arrays.binarySearch(otherChars, c)] |= 1L << i;
+                }
+            }
+        }
+
+        public String getPattern() {
+            return pattern;
         }
-        for (int j = 0; j <= t.length(); j++) {
-            dp[0][j] = j;
+
+        long mask(char c) {
+            if (c < 128) {
+                return ascii[c];
+            }
+            int idx = Arrays.binarySearch(otherChars, c);
+            return idx >= 0 ? otherMasks[idx] : 0L;
         }
-        for (int i = 1; i <= s.length(); i++) {
-            for (int j = 1; j <= t.length(); j++) {
-                int cost = s.charAt(i - 1) == t.charAt(j - 1) ? 0 : 1;
-                dp[i][j] = Math.min(
-                        Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1),
-                        dp[i - 1][j - 1] + cost);
+
+        /**
+         * Equivalent to {@link FuzzyMatcher#matches(String, String)} for this
+         * pattern.
+         */
+        public boolean matches(CharSequence text) {
+            return distance(text, MAX_DISTANCE) <= MAX_DISTANCE;
+        }
+
+        /**
+         * Equivalent to {@link FuzzyMatcher#contains(String, CharSequence)}
+         * for this pattern.
+         */
+        public boolean containedIn(CharSequence text) {
+            return find(text, MAX_DISTANCE) >= 0;
+        }
+
+        /**
+         * Bounded edit distance between this pattern and the text, see
+         * {@link FuzzyMatcher#distance(CharSequence, CharSequence, int)}.
+         */
+        public int distance(CharSequence text, int max) {
+            int m = pattern.length();
+            if (m > WORD_SIZE) {
+                return FuzzyMatcher.distance(pattern, text, max);
+            }
+            if (Math.abs(m - text.length()) > max) {
+                return max + 1;
+            }
+            if (m == 0) {
+                return text.length();
+            }
+            return bitParallelDistance(pattern, 0, m, text, 0, text.length(), max, this);
+        }
+
+        /**
+         * First approximate occurrence of this pattern in the text, see
+         * {@link FuzzyMatcher#find(String, CharSequence, int)}.
+         */
+        public int find(CharSequence text, int max) {
+            int m = pattern.length();
+            if (m <= max) {
+                return 0;
+            }
+            if (m > WORD_SIZE) {
+                return columnFind(pattern, text, max);
+            }
+            return bitParallelFind(pattern, text, max, this);
+        }
+    }
+
+    /**
+     * Match mask of character {@code c} within {@code p[from, to)}: bit i is
+     * set when {@code p[from + i] == c}.
+     */
+    private static long mask(CharSequence p, int from, int to, char c) {
+        long eq = 0L;
+        for (int i = from; i < to; i++) {
+            if (p.charAt(i) == c) {
+                eq |= 1L << (i - from);
+            }
+        }
+        return eq;
+    }
+
+    /**
+     * Myers/Hyyrö bit-parallel edit distance between {@code p[ps, pe)} (at
+     * most 64 characters) and {@code t[ts, te)}. The vertical delta vectors
+     * of the current DP column are kept in {@code pv}/{@code mv} and the
+     * score tracks the last row, i.e. the distance of the full pattern to the
+     * text prefix processed so far.
+     */
+    private static int bitParallelDistance(CharSequence p, int ps, int pe, CharSequence t, int ts, int te,
+                                           int max, Compiled compiled) {
+        int m = pe - ps;
+        long last = 1L << (m - 1);
+        long pv = -1L;
+        long mv = 0L;
+        int score = m;
+        for (int j = ts; j < te; j++) {
+            char c = t.charAt(j);
+            long eq = compiled != null ? compiled.mask(c) : mask(p, ps, pe, c);
+            long xv = eq | mv;
+            long xh = (((eq & pv) + pv) ^ pv) | eq;
+            long ph = mv | ~(xh | pv);
+            long mh = pv & xh;
+            if ((ph & last) != 0) {
+                score++;
+            } else if ((mh & last) != 0) {
+                score--;
+            }
+            // Each remaining text character lowers the score by at most one
+            if (score - (te - j - 1) > max) {
+                return max + 1;
+            }
+            ph = (ph << 1) | 1L;
+            mh = mh << 1;
+            pv = mh | ~(xv | ph);
+            mv = ph & xv;
+        }
+        return score <= max ? score : max + 1;
+    }
+
+    /**
+     * Bit-parallel approximate search: like {@link #bitParallelDistance} but
+     * the first DP row is zero so a match may start anywhere in the text.
+     */
+    private static int bitParallelFind(String p, CharSequence t, int max, Compiled compiled) {
+        int m = p.length();
+        long last = 1L << (m - 1);
+        long pv = -1L;
+        long mv = 0L;
+        int score = m;
+        for (int j = 0, n = t.length(); j < n; j++) {
+            char c = t.charAt(j);
+            long eq = compiled != null ? compiled.mask(c) : mask(p, 0, m, c);
+            long xv = eq | mv;
+            long xh = (((eq & pv) + pv) ^ pv) | eq;
+            long ph = mv | ~(xh | pv);
+            long mh = pv & xh;
+            if ((ph & last) != 0) {
+                score++;
+            } else if ((mh & last) != 0) {
+                score--;
+            }
+            if (score <= max) {
+                return j + 1;
+            }
+            ph = ph << 1;
+            mh = mh << 1;
+            pv = mh | ~(xv | ph);
+            mv = ph & xv;
+        }
+        return -1;
+    }
+
+    /**
+     * Edit distance restricted to the diagonals {@code |i - j| <= max}, using
+     * two rolling rows of width {@code 2 * max + 1}. Used for patterns longer
+     * than one bit vector.
+     */
+    private static int bandedDistance(CharSequence s, int ss, int se, CharSequence t, int ts, int te, int max) {
+        int m = se - ss;
+        int n = te - ts;
+        int inf = max + 1;
+        int width = 2 * max + 1;
+        int[] prev = new int[width];
+        int[] cur = new int[width];
+        for (int d = 0; d < width; d++) {
+            int j = d - max;
+            prev[d] = (j >= 0 && j <= n) ? j : inf;
+        }
+        for (int i = 1; i <= m; i++) {
+            int rowMin = inf;
+            char sc = s.charAt(ss + i - 1);
+            for (int d = 0; d < width; d++) {
+                int j = i + d - max;
+                int v;
+                if (j < 0 || j > n) {
+                    v = inf;
+                } else if (j == 0) {
+                    v = Math.min(i, inf);
+                } else {
+                    v = prev[d] + (sc == t.charAt(ts + j - 1) ? 0 : 1);
+                    if (d + 1 < width) {
+                        v = Math.min(v, prev[d + 1] + 1);
+                    }
+                    if (d > 0) {
+                        v = Math.min(v, cur[d - 1] + 1);
+                    }
+                    v = Math.min(v, inf);
+                }
+                cur[d] = v;
+                rowMin = Math.min(rowMin, v);
+            }
+            if (rowMin > max) {
+                return inf;
+            }
+            int[] tmp = prev;
+            prev = cur;
+            cur = tmp;
+        }
+        return prev[n - m + max];
+    }
+
+    /**
+     * Column-wise approximate search for patterns longer than one bit
+     * vector. Keeps one DP column over the pattern.
+     */
+    private static int columnFind(String p, CharSequence t, int max) {
+        int m = p.length();
+        int[] col = new int[m + 1];
+        for (int i = 0; i <= m; i++) {
+            col[i] = i;
+        }
+        for (int j = 0, n = t.length(); j < n; j++) {
+            char c = t.charAt(j);
+            int diag = 0; // D[0][j - 1] is always 0 in search mode
+            for (int i = 1; i <= m; i++) {
+                int left = col[i];
+                int v = Math.min(Math.min(left + 1, col[i - 1] + 1), diag + (p.charAt(i - 1) == c ? 0 : 1));
+                diag = left;
+                col[i] = v;
+            }
+            if (col[m] <= max) {
+                return j + 1;
             }
         }
-        return dp[s.length()][t.length()];
+        return -1;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,378 @@
+package com.example.sdk;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aho-Corasick automaton over the keywords of every dictionary matcher in a
+ * ruleset. Each dictionary matcher is assigned a slot; a single linear pass
+ * over the input reports every slot for which at least one keyword occurs.
+ * Matching is case-insensitive: keywords and input are folded with
+ * {@link Character#toLowerCase(char)} one character at a time, so no
+ * lower-cased copy of the input is created.
+ *
+ * <p>The trie is flattened into primitive arrays after construction. The
+ * outgoing edges of each state are stored sorted in {@code edgeChars} and
+ * looked up with a binary search, except for the root which uses a dense
+ * table for ASCII characters. Instances are immutable and safe to share
+ * between threads.</p>
+ */
+final class KeywordAutomaton {
+
+    private static final int ROOT = 0;
+
+    private final int slotCount;
+    // edges of state s are edgeChars/edgeTargets[edgeStart[s] .. edgeStart[s + 1])
+    private final int[] edgeStart;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+    private final int[] rootAscii;
+    private final int[] fail;
+    // slots completed exactly at a state, and the nearest failure ancestor
+    // that has slots of its own (-1 if none)
+    private final int[][] slots;
+    private final int[] outputLink;
+    private final int[] depth;
+
+    private KeywordAutomaton(int slotCount, int[] edgeStart, char[] edgeChars, int[] edgeTargets,
+                             int[] fail, int[][] slots, int[] outputLink, int[] depth) {
+        this.slotCount = slotCount;
+        this.edgeStart = edgeStart;
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.fail = fail;
+        this.slots = slots;
+        this.outputLink = outputLink;
+        this.depth = depth;
+        this.rootAscii = new int[128];
+        for (int c = 0; c < 128; c++) {
+            int t = lookup(ROOT, (char) c);
+            rootAscii[c] = t >= 0 ? t : ROOT;
+        }
+    }
+
+    /**
+     * Build an automaton in which the keywords of {@code keywordSets.get(i)}
+     * report slot {@code i}.
+     *
+     * @param keywordSets keyword lists per slot, as produced by
+     *                    {@link DictionaryMatcher#parseEntries(String)}
+     * @return the automaton
+     */
+    static KeywordAutomaton build(List<String[]> keywordSets) {
+        // 1) Build the trie with sorted child maps
+        List<TreeMap<Character, Integer>> children = new ArrayList<>();
+        List<List<Integer>> outputs = new ArrayList<>();
+        List<Integer> depths = new ArrayList<>();
+        children.add(new TreeMap<>());
+        outputs.add(new ArrayList<>());
+        depths.add(0);
+
+        for (int slot = 0; slot < keywordSets.size(); slot++) {
+            for (String keyword : keywordSets.get(slot)) {
+                if (keyword.isEmpty()) {
+                    continue;
+                }
+                int state = ROOT;
+                for (int i = 0; i < keyword.length(); i++) {
+                    char c = Character.toLowerCase(keyword.charAt(i));
+                    Integer next = children.get(state).get(c);
+                    if (next == null) {
+                        next = children.size();
+                        children.add(new TreeMap<>());
+                        outputs.add(new ArrayList<>());
+                        depths.add(depths.get(state) + 1);
+                        children.get(state).put(c, next);
+                    }
+                    state = next;
+                }
+                List<Integer> out = outputs.get(state);
+                if (!out.contains(slot)) {
+                    out.add(slot);
+                }
+            }
+        }
+
+        // 2) Flatten edges into primitive arrays
+        int stateCount = children.size();
+        int[] edgeStart = new int[stateCount + 1];
+        int edgeCount = 0;
+        for (int s = 0; s < stateCount; s++) {
+            edgeStart[s] = edgeCount;
+            edgeCount += children.get(s).size();
+        }
+        edgeStart[stateCount] = edgeCount;
+        char[] edgeChars = new char[edgeCount];
+        int[] edgeTargets = new int[edgeCount];
+        for (int s = 0; s < stateCount; s++) {
+            int e = edgeStart[s];
+            for (Map.Entry<Character, Integer> edge : children.get(s).entrySet()) {
+                edgeChars[e] = edge.getKey();
+                edgeTargets[e] = edge.getValue();
+                e++;
+            }
+        }
+
+        int[][] slots = new int[stateCount][];
+        int[] depth = new int[stateCount];
+        for (int s = 0; s < stateCount; s++) {
+            List<Integer> out = outputs.get(s);
+            slots[s] = out.isEmpty() ? null : out.stream().mapToInt(Integer::intValue).toArray();
+            depth[s] = depths.get(s);
+        }
+
+        // 3) Breadth-first computation of failure and output links
+        int[] fail = new int[stateCount];
+        int[] outputLink = new int[stateCount];
+        Arrays.fill(outputLink, -1);
+        int[] queue = new int[stateCount];
+        int head = 0;
+        int tail = 0;
+        for (int e = edgeStart[ROOT]; e < edgeStart[ROOT + 1]; e++) {
+            queue[tail++] = edgeTargets[e];
+        }
+        while (head < tail) {
+            int s = queue[head++];
+            for (int e = edgeStart[s]; e < edgeStart[s + 1]; e++) {
+                int t = edgeTargets[e];
+                char c = edgeChars[e];
+                int f = fail[s];
+                int ft;
+                while ((ft = lookup(edgeStart, edgeChars, edgeTargets, f, c)) < 0 && f != ROOT) {
+                    f = fail[f];
+                }
+                fail[t] = ft >= 0 ? ft : ROOT;
+                int ff = fail[t];
+                outputLink[t] = slots[ff] != null ? ff : outputLink[ff];
+                queue[tail++] = t;
+            }
+        }
+
+        return new KeywordAutomaton(keywordSets.size(), edgeStart, edgeChars, edgeTargets,
+                fail, slots, outputLink, depth);
+    }
+
+    /**
+     * Write the automaton's arrays, to be read back by {@link #readFrom}
+     * without building the trie again.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        int stateCount = fail.length;
+        out.writeInt(slotCount);
+        out.writeInt(stateCount);
+        out.writeInt(edgeChars.length);
+        for (int v : edgeStart) {
+            out.writeInt(v);
+        }
+        for (char c : edgeChars) {
+            out.writeChar(c);
+        }
+        for (int v : edgeTargets) {
+            out.writeInt(v);
+        }
+        for (int s = 0; s < stateCount; s++) {
+            out.writeInt(fail[s]);
+            out.writeInt(outputLink[s]);
+            out.writeInt(depth[s]);
+            int[] completed = slots[s];
+            out.writeInt(completed != null ? completed.length : 0);
+            if (completed != null) {
+                for (int slot : completed) {
+                    out.writeInt(slot);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read an automaton written by {@link #writeTo}, advancing the buffer
+     * past it.
+     *
+     * @throws IOException if the data is inconsistent
+     */
+    static KeywordAutomaton readFrom(ByteBuffer in) throws IOException {
+        int slotCount = in.getInt();
+        int stateCount = in.getInt();
+        int edgeCount = in.getInt();
+        if (slotCount < 0 || stateCount < 1 || edgeCount != stateCount - 1) {
+            throw new IOException("Corrupt keyword automaton");
+        }
+        int[] edgeStart = new int[stateCount + 1];
+        in.asIntBuffer().get(edgeStart);
+        ((Buffer) in).position(in.position() + edgeStart.length * 4);
+        char[] edgeChars = new char[edgeCount];
+        in.asCharBuffer().get(edgeChars);
+        ((Buffer) in).position(in.position() + edgeCount * 2);
+        int[] edgeTargets = new int[edgeCount];
+        in.asIntBuffer().get(edgeTargets);
+        ((Buffer) in).position(in.position() + edgeCount * 4);
+        int[] fail = new int[stateCount];
+        int[] outputLink = new int[stateCount];
+        int[] depth = new int[stateCount];
+        int[][] slots = new int[stateCount][];
+        for (int s = 0; s < stateCount; s++) {
+            fail[s] = in.getInt();
+            outputLink[s] = in.getInt();
+            depth[s] = in.getInt();
+            int n = in.getInt();
+            if (n > 0) {
+                slots[s] = new int[n];
+                in.asIntBuffer().get(slots[s]);
+                ((Buffer) in).position(in.position() + n * 4);
+            }
+        }
+        if (edgeStart[0] != 0 || edgeStart[stateCount] != edgeCount) {
+            throw new IOException("Corrupt keyword automaton");
+        }
+        for (int e = 0; e < edgeCount; e++) {
+            if (edgeTargets[e] <= 0 || edgeTargets[e] >= stateCount) {
+                throw new IOException("Corrupt keyword automaton");
+            }
+        }
+        return new KeywordAutomaton(slotCount, edgeStart, edgeChars, edgeTargets, fail, slots, outputLink, depth);
+    }
+
+    /**
+     * Number of slots (dictionary matchers) the automaton reports.
+     */
+    int getSlotCount() { return slotCount; }
+
+    /**
+     * The initial state for a new scan.
+     */
+    int start() { return ROOT; }
+
+    /**
+     * Advance the automaton by one input character.
+     *
+     * @param state the current state
+     * @param ch    the next input character (not yet case-folded)
+     * @return the new state
+     */
+    int next(int state, char ch) {
+        char c = Character.toLowerCase(ch);
+        int s = state;
+        while (true) {
+            if (s == ROOT) {
+                if (c < 128) {
+                    return rootAscii[c];
+                }
+                int t = lookup(ROOT, c);
+                return t >= 0 ? t : ROOT;
+            }
+            int t = lookup(s, c);
+            if (t >= 0) {
+                return t;
+            }
+            s = fail[s];
+        }
+    }
+
+    /**
+     * Whether any keyword ends at the given state.
+     */
+    boolean hasOutput(int state) {
+        return slots[state] != null || outputLink[state] >= 0;
+    }
+
+    /**
+     * Length of the input suffix the given state represents. Used by callers
+     * that need the start offset of a keyword ending at the current position.
+     */
+    int depth(int state) {
+        return depth[state];
+    }
+
+    /**
+     * Record every slot whose keyword ends at the given state.
+     *
+     * @param state the current state
+     * @param hits  per-slot hit flags, updated in place
+     * @return the number of slots newly set to {@code true}
+     */
+    int collect(int state, boolean[] hits) {
+        int added = 0;
+        for (int s = slots[state] != null ? state : outputLink[state]; s >= 0; s = outputLink[s]) {
+            for (int slot : slots[s]) {
+                if (!hits[slot]) {
+                    hits[slot] = true;
+                    added++;
+                }
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Scan the input once and report the slots that hit. The scan stops early
+     * once every slot has been found.
+     *
+     * @param text the input to scan
+     * @return per-slot hit flags
+     */
+    boolean[] scan(CharSequence text) {
+        boolean[] hits = new boolean[slotCount];
+        int remaining = slotCount;
+        int state = ROOT;
+        for (int i = 0, n = text.length(); i < n && remaining > 0; i++) {
+            state = next(state, text.charAt(i));
+            if (hasOutput(state)) {
+                remaining -= collect(state, hits);
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Scan the whole input and record every keyword occurrence as a span
+     * keyed by its slot, in addition to the per-slot hit flags.
+     *
+     * @param text  the input to scan
+     * @param spans receives {@code (slot, start, end)} for each occurrence
+     * @return per-slot hit flags
+     */
+    boolean[] scan(CharSequence text, SpanBuffer spans) {
+        boolean[] hits = new boolean[slotCount];
+        int state = ROOT;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            state = next(state, text.charAt(i));
+            if (hasOutput(state)) {
+                for (int s = slots[state] != null ? state : outputLink[state]; s >= 0; s = outputLink[s]) {
+                    for (int slot : slots[s]) {
+                        hits[slot] = true;
+                        spans.add(slot, i + 1 - depth[s], i + 1);
+                    }
+                }
+            }
+        }
+        return hits;
+    }
+
+    private int lookup(int state, char c) {
+        return lookup(edgeStart, edgeChars, edgeTargets, state, c);
+    }
+
+    private static int lookup(int[] edgeStart, char[] edgeChars, int[] edgeTargets, int state, char c) {
+        int lo = edgeStart[state];
+        int hi = edgeStart[state + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char m = edgeChars[mid];
+            if (m < c) {
+                lo = mid + 1;
+            } else if (m > c) {
+                hi = mid - 1;
+            } else {
+                return edgeTargets[mid];
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,580 @@
+package com.example.sdk;
+
+import com.example.sdk.cache.CachePaths;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An external dictionary file compiled into a sorted, memory-mapped index, for
+ * dictionary matchers with too many terms to inline into the ruleset. The
+ * terms live in the page cache rather than on the heap, so heap usage and GC
+ * pauses do not grow with the dictionary, and every SDK instance in the
+ * process shares one mapping per file.
+ *
+ * <p>A dictionary file holds one term per UTF-8 line; terms are trimmed and
+ * case-folded like inline dictionary entries, and blank lines are ignored.
+ * The first time a file is referenced it is compiled into an index under the
+ * cache directory (see {@link CachePaths#getDictionaryIndexFile}), which is
+ * reused until the file's size or modification time changes. A file that
+ * already is such an index is mapped as is, so indexes can be built once and
+ * distributed instead of the text.</p>
+ *
+ * <p>The index stores the distinct terms' UTF-8 bytes in sorted order, with a
+ * table of the first term for each leading pair of bytes. A term is found by
+ * narrowing the range of terms byte by byte, starting at every position of
+ * the input; like the keyword automaton a term matches anywhere in the input,
+ * ignoring case. Instances are immutable and safe to share between
+ * threads.</p>
+ */
+final class MappedDictionary {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedDictionary.class);
+
+    private static final int MAGIC = 0x43534449; // "CSDI"
+    private static final int VERSION = 1;
+    // magic, version, source size, source modification time, term count,
+    // data length
+    private static final int HEADER_BYTES = 32;
+    // Terms are bucketed by their first two bytes, a one byte term by its
+    // byte followed by zero
+    private static final int BUCKETS = 1 << 16;
+    private static final int BUCKETS_BASE = HEADER_BYTES;
+    private static final int OFFSETS_BASE = BUCKETS_BASE + (BUCKETS + 1) * 4;
+
+    // Dictionaries mapped by this process, by file
+    private static final ConcurrentHashMap<Path, MappedDictionary> MAPPED = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Path, Object> LOCKS = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final long sourceSize;
+    private final long sourceModified;
+    private final ByteBuffer index;
+    private final int count;
+    private final int dataBase;
+    private BloomFilter bloom;
+    private double bloomFpp;
+
+    private MappedDictionary(String name, long sourceSize, long sourceModified, ByteBuffer index, int count) {
+        this.name = name;
+        this.sourceSize = sourceSize;
+        this.sourceModified = sourceModified;
+        this.index = index;
+        this.count = count;
+        this.dataBase = OFFSETS_BASE + (count + 1) * 4;
+    }
+
+    /**
+     * Map the dictionary file with the given name, relative to
+     * {@link CachePaths#getDictionaryDir()}. A file that is already mapped
+     * and has not changed since is shared.
+     *
+     * @throws IOException if the file cannot be read or its index not built
+     */
+    static MappedDictionary open(String name) throws IOException {
+        Path dir = Paths.get(CachePaths.getDictionaryDir()).toAbsolutePath().normalize();
+        Path file = dir.resolve(name).normalize();
+        if (!file.startsWith(dir) || file.equals(dir)) {
+            throw new IOException("Dictionary " + name + " is outside " + dir);
+        }
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        long size = attrs.size();
+        long modified = attrs.lastModifiedTime().toMillis();
+        MappedDictionary dictionary = MAPPED.get(file);
+        if (dictionary != null && dictionary.isFrom(size, modified)) {
+            return dictionary;
+        }
+        // Different dictionaries may be loaded in parallel
+        synchronized (LOCKS.computeIfAbsent(file, k -> new Object())) {
+            dictionary = MAPPED.get(file);
+            if (dictionary == null || !dictionary.isFrom(size, modified)) {
+                dictionary = load(name, file, size, modified);
+                MAPPED.put(file, dictionary);
+            }
+            return dictionary;
+        }
+    }
+
+    private boolean isFrom(long size, long modified) {
+        return sourceSize == size && sourceModified == modified;
+    }
+
+    /** The name the dictionary was opened with. */
+    String getName() { return name; }
+
+    /** Number of distinct terms. */
+    int size() { return count; }
+
+    /**
+     * Whether any term occurs in the text, ignoring case.
+     */
+    boolean containedIn(CharSequence text) {
+        if (count == 0) {
+            return false;
+        }
+        int[] bytes = new int[4];
+        for (int i = 0, n = text.length(); i < n; i++) {
+            if (startsChar(text, i) && match(text, i, bytes, null, 0) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Record every occurrence of a term in the text as a span under
+     * {@code key}.
+     */
+    void spans(CharSequence text, int key, SpanBuffer out) {
+        if (count == 0) {
+            return;
+        }
+        int[] bytes = new int[4];
+        for (int i = 0, n = text.length(); i < n; i++) {
+            if (startsChar(text, i)) {
+                match(text, i, bytes, out, key);
+            }
+        }
+    }
+
+    // Whether a character starts at i rather than being the second half of
+    // a surrogate pair
+    private static boolean startsChar(CharSequence text, int i) {
+        return i == 0 || !Character.isLowSurrogate(text.charAt(i)) || !Character.isHighSurrogate(text.charAt(i - 1));
+    }
+
+    /**
+     * Match the terms starting at {@code start}: the case-folded input is
+     * encoded as UTF-8 one character at a time, and each byte narrows the
+     * range of terms it is a prefix of. Returns the end of the shortest term
+     * found, or with {@code out} records every one and returns the end of
+     * the longest; -1 if there is none. {@code bytes} is scratch space for
+     * the encoding of one character.
+     */
+    private int match(CharSequence text, int start, int[] bytes, SpanBuffer out, int key) {
+        int lo = 0;
+        int hi = count;
+        int depth = 0;
+        int first = 0;
+        int end = -1;
+        for (int i = start, n = text.length(); i < n; ) {
+            char c = Character.toLowerCase(text.charAt(i++));
+            int cp = c;
+            if (Character.isHighSurrogate(c) && i < n && Character.isLowSurrogate(text.charAt(i))) {
+                cp = Character.toCodePoint(c, Character.toLowerCase(text.charAt(i++)));
+            } else if (Character.isSurrogate(c)) {
+                cp = '?'; // as String.getBytes encodes it in the terms
+            }
+            int len = encode(cp, bytes);
+            for (int k = 0; k < len; k++) {
+                if (depth == 0) {
+                    first = bytes[k];
+                }
+                long range = narrow(lo, hi, depth, first, bytes[k]);
+                lo = (int) (range >>> 32);
+                hi = (int) range;
+                depth++;
+                if (lo >= hi) {
+                    return end;
+                }
+                // A term equal to the bytes so far sorts first; being valid
+                // UTF-8 it can only end where a character of the input does
+                if (termLength(lo) == depth) {
+                    if (out == null) {
+                        return i;
+                    }
+                    out.add(key, start, i);
+                    end = i;
+                    if (++lo >= hi) {
+                        return end;
+                    }
+                }
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Whether {@code text[start, end)} is a term, ignoring case.
+     */
+    boolean contains(CharSequence text, int start, int end) {
+        int lo = 0;
+        int hi = count;
+        int depth = 0;
+        int first = 0;
+        int[] bytes = new int[4];
+        for (int i = start; i < end; ) {
+            char c = Character.toLowerCase(text.charAt(i++));
+            int cp = c;
+            if (Character.isHighSurrogate(c) && i < end && Character.isLowSurrogate(text.charAt(i))) {
+                cp = Character.toCodePoint(c, Character.toLowerCase(text.charAt(i++)));
+            } else if (Character.isSurrogate(c)) {
+                cp = '?';
+            }
+            int len = encode(cp, bytes);
+            for (int k = 0; k < len; k++) {
+                if (depth > 0 && termLength(lo) == depth) {
+                    lo++; // a shorter term, a prefix of the text
+                }
+                if (depth == 0) {
+                    first = bytes[k];
+                }
+                long range = narrow(lo, hi, depth, first, bytes[k]);
+                lo = (int) (range >>> 32);
+                hi = (int) range;
+                depth++;
+                if (lo >= hi) {
+                    return false;
+                }
+            }
+        }
+        return depth > 0 && termLength(lo) == depth;
+    }
+
+    /**
+     * Narrow the range of terms {@code [lo, hi)}, which start with the
+     * {@code depth} bytes read so far and from depth 2 on are all longer, to
+     * those whose next byte is {@code b}. The first two bytes are looked up
+     * in the bucket table, {@code first} being the first byte. Returns the
+     * new range as {@code lo << 32 | hi}.
+     */
+    private long narrow(int lo, int hi, int depth, int first, int b) {
+        if (depth == 0) {
+            lo = bucket(b << 8);
+            hi = bucket((b + 1) << 8);
+        } else if (depth == 1) {
+            int pair = first << 8 | b;
+            lo = Math.max(lo, bucket(pair));
+            hi = Math.min(hi, bucket(pair + 1));
+        } else {
+            // Terms in range share the first depth bytes and are longer, so
+            // they are sorted by their byte at depth
+            int l = lo;
+            int h = hi;
+            while (l < h) {
+                int m = (l + h) >>> 1;
+                if (byteAt(m, depth) < b) {
+                    l = m + 1;
+                } else {
+                    h = m;
+                }
+            }
+            lo = l;
+            h = hi;
+            while (l < h) {
+                int m = (l + h) >>> 1;
+                if (byteAt(m, depth) <= b) {
+                    l = m + 1;
+                } else {
+                    h = m;
+                }
+            }
+            hi = l;
+        }
+        return (long) lo << 32 | hi;
+    }
+
+    /**
+     * A Bloom filter of the terms at the given false-positive rate, built on
+     * first use and kept for the life of the mapping.
+     */
+    synchronized BloomFilter bloomFilter(double fpp) {
+        if (bloom == null || bloomFpp != fpp) {
+            BloomFilter filter = BloomFilter.create(count, fpp);
+            for (int i = 0; i < count; i++) {
+                filter.put(Tokens.hash(index, dataBase + termStart(i), termLength(i)));
+            }
+            bloom = filter;
+            bloomFpp = fpp;
+        }
+        return bloom;
+    }
+
+    private static int encode(int cp, int[] out) {
+        if (cp < 0x80) {
+            out[0] = cp;
+            return 1;
+        }
+        if (cp < 0x800) {
+            out[0] = 0xC0 | cp >> 6;
+            out[1] = 0x80 | cp & 0x3F;
+            return 2;
+        }
+        if (cp < 0x10000) {
+            out[0] = 0xE0 | cp >> 12;
+            out[1] = 0x80 | cp >> 6 & 0x3F;
+            out[2] = 0x80 | cp & 0x3F;
+            return 3;
+        }
+        out[0] = 0xF0 | cp >> 18;
+        out[1] = 0x80 | cp >> 12 & 0x3F;
+        out[2] = 0x80 | cp >> 6 & 0x3F;
+        out[3] = 0x80 | cp & 0x3F;
+        return 4;
+    }
+
+    private int bucket(int key) {
+        return index.getInt(BUCKETS_BASE + key * 4);
+    }
+
+    private int termStart(int term) {
+        return index.getInt(OFFSETS_BASE + term * 4);
+    }
+
+    private int termLength(int term) {
+        return termStart(term + 1) - termStart(term);
+    }
+
+    private int byteAt(int term, int pos) {
+        return index.get(dataBase + termStart(term) + pos) & 0xFF;
+    }
+
+    private static MappedDictionary load(String name, Path file, long size, long modified) throws IOException {
+        if (startsWithMagic(file)) {
+            try {
+                return map(name, file, size, modified, false);
+            } catch (IOException e) {
+                log.warn("Dictionary {} is not a valid index, reading it as text: {}", name, e.getMessage());
+            }
+        }
+        Path indexFile = Paths.get(CachePaths.getDictionaryIndexFile(name));
+        if (Files.isRegularFile(indexFile)) {
+            try {
+                MappedDictionary dictionary = map(name, indexFile, size, modified, true);
+                if (dictionary != null) {
+                    return dictionary;
+                }
+            } catch (IOException e) {
+                log.warn("Rebuilding unreadable index of dictionary {}: {}", name, e.getMessage());
+            }
+        }
+        build(name, file, indexFile, size, modified);
+        MappedDictionary dictionary = map(name, indexFile, size, modified, true);
+        if (dictionary == null) {
+            throw new IOException("Index of dictionary " + name + " was replaced while loading");
+        }
+        return dictionary;
+    }
+
+    private static boolean startsWithMagic(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(4);
+            while (head.hasRemaining() && channel.read(head) >= 0) {
+                // fill
+            }
+            return !head.hasRemaining() && head.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Map an index file. Returns {@code null} if {@code checkSource} is set
+     * and the index was built from a different version of the dictionary.
+     */
+    private static MappedDictionary map(String name, Path path, long size, long modified, boolean checkSource)
+            throws IOException {
+        ByteBuffer index;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < OFFSETS_BASE + 4 || length > Integer.MAX_VALUE) {
+                throw new IOException("Unexpected index size " + length + " of " + path);
+            }
+            // The mapping stays valid after the channel is closed
+            index = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        }
+        if (index.getInt(0) != MAGIC || index.getInt(4) != VERSION) {
+            throw new IOException("Not a dictionary index: " + path);
+        }
+        if (checkSource && (index.getLong(8) != size || index.getLong(16) != modified)) {
+            return null;
+        }
+        int count = index.getInt(24);
+        int dataLength = index.getInt(28);
+        if (count < 0 || dataLength < 0
+                || (long) OFFSETS_BASE + (count + 1L) * 4 + dataLength != index.capacity()) {
+            throw new IOException("Corrupt dictionary index: " + path);
+        }
+        log.info("Mapped dictionary {} with {} terms ({} bytes)", name, count, index.capacity());
+        return new MappedDictionary(name, size, modified, index, count);
+    }
+
+    /**
+     * Compile a dictionary file into an index. The terms are packed into one
+     * byte array while reading, so building allocates no object per term.
+     */
+    private static void build(String name, Path source, Path indexFile, long size, long modified)
+            throws IOException {
+        long started = System.nanoTime();
+        byte[] data = new byte[(int) Math.min(Math.max(size, 64), Integer.MAX_VALUE - 8)];
+        int[] starts = new int[1024];
+        int count = 0;
+        int used = 0;
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(Files.newInputStream(source), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (count == 0 && !line.isEmpty() && line.charAt(0) == '\uFEFF') {
+                    line = line.substring(1);
+                }
+                String term = normalize(line);
+                if (term.isEmpty()) {
+                    continue;
+                }
+                byte[] bytes = term.getBytes(StandardCharsets.UTF_8);
+                if ((long) used + bytes.length > Integer.MAX_VALUE - 8) {
+                    throw new IOException("Dictionary " + name + " is too large");
+                }
+                if (used + bytes.length > data.length) {
+                    data = Arrays.copyOf(data, (int) Math.min(Math.max((long) data.length * 2, used + bytes.length),
+                            Integer.MAX_VALUE - 8));
+                }
+                if (count + 1 == starts.length) {
+                    starts = Arrays.copyOf(starts, starts.length * 2);
+                }
+                System.arraycopy(bytes, 0, data, used, bytes.length);
+                starts[count++] = used;
+                used += bytes.length;
+            }
+        }
+        starts[count] = used;
+
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        sort(order, data, starts);
+
+        // Drop duplicates, and bucket the remaining terms by their first two
+        // bytes
+        int distinct = 0;
+        long dataLength = 0;
+        int[] buckets = new int[BUCKETS + 1];
+        for (int i = 0; i < count; i++) {
+            int term = order[i];
+            if (distinct > 0 && compare(data, starts, order[distinct - 1], term) == 0) {
+                continue;
+            }
+            order[distinct++] = term;
+            int start = starts[term];
+            int length = starts[term + 1] - start;
+            dataLength += length;
+            buckets[bucketKey(data, start, length) + 1]++;
+        }
+        for (int k = 0; k < BUCKETS; k++) {
+            buckets[k + 1] += buckets[k];
+        }
+        if (OFFSETS_BASE + (distinct + 1L) * 4 + dataLength > Integer.MAX_VALUE) {
+            throw new IOException("Dictionary " + name + " is too large");
+        }
+
+        Files.createDirectories(indexFile.getParent());
+        Path tmp = Files.createTempFile(indexFile.getParent(), indexFile.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(size);
+                out.writeLong(modified);
+                out.writeInt(distinct);
+                out.writeInt((int) dataLength);
+                for (int bucket : buckets) {
+                    out.writeInt(bucket);
+                }
+                int offset = 0;
+                for (int i = 0; i < distinct; i++) {
+                    out.writeInt(offset);
+                    offset += starts[order[i] + 1] - starts[order[i]];
+                }
+                out.writeInt(offset);
+                for (int i = 0; i < distinct; i++) {
+                    int term = order[i];
+                    out.write(data, starts[term], starts[term + 1] - starts[term]);
+                }
+            }
+            try {
+                Files.move(tmp, indexFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        log.info("Built index of dictionary {} with {} terms in {} ms", name, distinct,
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // Trim and case-fold a term the way the input is folded while matching
+    private static String normalize(String line) {
+        String trimmed = line.trim();
+        char[] chars = trimmed.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    private static int bucketKey(byte[] data, int start, int length) {
+        return (data[start] & 0xFF) << 8 | (length > 1 ? data[start + 1] & 0xFF : 0);
+    }
+
+    // Unsigned lexicographic order of the packed terms a and b, which is the
+    // code point order of their text
+    private static int compare(byte[] data, int[] starts, int a, int b) {
+        int i = starts[a];
+        int j = starts[b];
+        int aEnd = starts[a + 1];
+        int bEnd = starts[b + 1];
+        while (i < aEnd && j < bEnd) {
+            int d = (data[i++] & 0xFF) - (data[j++] & 0xFF);
+            if (d != 0) {
+                return d;
+            }
+        }
+        return (aEnd - starts[a]) - (bEnd - starts[b]);
+    }
+
+    // Bottom-up merge sort of term indices
+    private static void sort(int[] order, byte[] data, int[] starts) {
+        int n = order.length;
+        int[] src = order;
+        int[] dst = new int[n];
+        for (int width = 1; width < n; width *= 2) {
+            for (int lo = 0; lo < n; lo += 2 * width) {
+                int mid = Math.min(lo + width, n);
+                int hi = Math.min(lo + 2 * width, n);
+                int i = lo;
+                int j = mid;
+                for (int k = lo; k < hi; k++) {
+                    if (i < mid && (j >= hi || compare(data, starts, src[i], src[j]) <= 0)) {
+                        dst[k] = src[i++];
+                    } else {
+                        dst[k] = src[j++];
+                    }
+                }
+            }
+            int[] t = src;
+            src = dst;
+            dst = t;
+        }
+        if (src != order) {
+            System.arraycopy(src, 0, order, 0, n);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.sdk;
+
+import com.example.sdk.audit.AuditSink;
+import com.example.sdk.audit.AuditStats;
+import com.example.sdk.audit.LoggingAuditSink;
+import com.example.sdk.audit.MatchEvent;
+import com.example.sdk.audit.PayloadRedaction;
+import com.example.sdk.config.SdkConfig;
+import com.example.sdk.model.Rule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Moves match events off the classification threads. Detections that matched
+ * are sampled and published into a bounded ring buffer with a single
+ * compare-and-set; a background thread drains the buffer, redacts the
+ * payloads and hands the events to the {@link AuditSink} in batches. When the
+ * buffer is full the event is dropped and counted, so a slow sink never
+ * blocks classification.
+ *
+ * <p>The raw value is only retained until the consumer redacts it, and not
+ * at all with the default {@link PayloadRedaction#NONE}.</p>
+ *
+ * <p>{@link #close()} delivers what is buffered and stops the consumer; until
+ * then a shutdown hook does the former when the JVM exits.</p>
+ */
+final class MatchAuditor {
+
+    private static final Logger log = LoggerFactory.getLogger(MatchAuditor.class);
+
+    private static final int BATCH_SIZE = 256;
+    private static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final AtomicReferenceArray<Pending> ring;
+    private final int capacity;
+    private final double sampleRate;
+    private final PayloadRedaction redaction;
+    private volatile AuditSink sink;
+    private final Thread consumer;
+    private final Thread flushHook;
+    private volatile boolean closed;
+
+    // Next sequence to claim, advanced by producers
+    private final AtomicLong tail = new AtomicLong();
+    // Next sequence to consume, advanced only under drainLock
+    private volatile long head;
+    private final ReentrantLock drainLock = new ReentrantLock();
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    MatchAuditor(int bufferSize, double sampleRate, PayloadRedaction redaction, AuditSink sink) {
+        this.capacity = Integer.highestOneBit(Math.max(bufferSize, 2) - 1) << 1;
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.sampleRate = sampleRate;
+        this.redaction = redaction;
+        this.sink = sink;
+
+        this.consumer = new Thread(this::run, "classification-audit");
+        consumer.setDaemon(true);
+        consumer.start();
+        // Deliver what is still buffered when the JVM exits
+        this.flushHook = new Thread(this::drain, "classification-audit-flush");
+        Runtime.getRuntime().addShutdownHook(flushHook);
+    }
+
+    /**
+     * Create the auditor configured through {@link SdkConfig}, writing to a
+     * {@link LoggingAuditSink}, or return {@code null} if auditing is
+     * disabled.
+     */
+    static MatchAuditor fromConfig() {
+        if (!SdkConfig.isAuditEnabled()) {
+            return null;
+        }
+        return new MatchAuditor(SdkConfig.getAuditBufferSize(), SdkConfig.getAuditSampleRate(),
+                PayloadRedaction.parse(SdkConfig.getAuditPayload()), new LoggingAuditSink());
+    }
+
+    void setSink(AuditSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Offer a detection that matched to the pipeline. Never blocks.
+     *
+     * @param compiled the snapshot the value was evaluated against
+     * @param mode     the detection mode
+     * @param matched  the matched rules, not empty
+     * @param data     the value, or {@code null} for streamed input; copied
+     *                 before returning if the payload is recorded
+     * @param length   length of the value or number of characters streamed
+     */
+    void publish(CompiledRuleset compiled, ClassificationMode mode, List<Rule> matched, CharSequence data,
+                 long length) {
+        if (closed) {
+            return;
+        }
+        if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        long seq;
+        do {
+            seq = tail.get();
+            if (seq - head >= capacity) {
+                dropped.increment();
+                return;
+            }
+        } while (!tail.compareAndSet(seq, seq + 1));
+
+        String[] ruleIds = new String[matched.size()];
+        for (int i = 0; i < ruleIds.length; i++) {
+            ruleIds[i] = matched.get(i).getId();
+        }
+        String version = compiled.getRuleset() != null ? compiled.getRuleset().getVersion() : null;
+        Pending event = new Pending(System.currentTimeMillis(), version, mode, ruleIds,
+                length, redaction != PayloadRedaction.NONE && data != null ? data.toString() : null);
+        ring.lazySet((int) seq & (capacity - 1), event);
+        published.increment();
+    }
+
+    AuditStats stats() {
+        return new AuditStats(published.sum(), dropped.sum(), delivered.get(), failed.get(),
+                (int) Math.max(0, tail.get() - head));
+    }
+
+    /**
+     * Deliver the buffered events, stop the consumer thread and unregister
+     * the shutdown hook. Events published afterwards are ignored.
+     */
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(consumer);
+        try {
+            Runtime.getRuntime().removeShutdownHook(flushHook);
+        } catch (IllegalStateException e) {
+            // the JVM is shutting down and the hook is running already
+        }
+        drain();
+    }
+
+    private void run() {
+        while (!closed) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(IDLE_WAIT_NANOS);
+            }
+        }
+    }
+
+    // Deliver every published event; returns the number of events taken
+    private int drain() {
+        drainLock.lock();
+        try {
+            int taken = 0;
+            List<MatchEvent> batch = new ArrayList<>(BATCH_SIZE);
+            long seq = head;
+            while (true) {
+                int index = (int) seq & (capacity - 1);
+                // null if the buffer is empty or the producer that claimed
+                // this slot has not stored its event yet
+                Pending event = ring.get(index);
+                if (event == null) {
+                    break;
+                }
+                ring.lazySet(index, null);
+                head = ++seq;
+                batch.add(event.toEvent(redaction));
+                taken++;
+                if (batch.size() == BATCH_SIZE) {
+                    deliver(batch);
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+            if (!batch.isEmpty()) {
+                deliver(batch);
+            }
+            return taken;
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    private void deliver(List<MatchEvent> batch) {
+        try {
+            sink.write(Collections.unmodifiableList(batch));
+            delivered.addAndGet(batch.size());
+        } catch (Exception e) {
+            failed.addAndGet(batch.size());
+            log.warn("Audit sink failed to write {} event(s): {}", batch.size(), e.toString());
+        }
+    }
+
+    private static final class Pending {
+        final long timestamp;
+        final String version;
+        final ClassificationMode mode;
+        final String[] ruleIds;
+        final long length;
+        final String data;
+
+        Pending(long timestamp, String version, ClassificationMode mode, String[] ruleIds, long length,
+                String data) {
+            this.timestamp = timestamp;
+            this.version = version;
+            this.mode = mode;
+            this.ruleIds = ruleIds;
+            this.length = length;
+            this.data = data;
+        }
+
+        MatchEvent toEvent(PayloadRedaction redaction) {
+            return new MatchEvent(timestamp, version, mode, Collections.unmodifiableList(Arrays.asList(ruleIds)),
+                    length, redaction.apply(data));
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.example.sdk;
+
+import com.example.sdk.model.Rule;
+import com.example.sdk.regex.MultiRegex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Per-call evaluation state shared by all matchers of a single detection.
+ * Whole-ruleset scans such as the dictionary and regex automata run lazily
+ * the first time a matcher asks for their result, and at most once per call.
+ * <p>
+ * When a document is classified as a stream the context instead describes a
+ * window over the input: the automaton results are supplied by the caller,
+ * accumulated over everything read so far, and the data is only the most
+ * recent part of the document.
+ */
+final class MatchContext {
+
+    private final CharSequence data;
+    private final CompiledRuleset compiled;
+    private final int from;
+    private final int to;
+    private final boolean atStart;
+    private final boolean complete;
+    private boolean[] dictionaryHits;
+    private boolean[] regexHits;
+    private boolean[] literalHits;
+    private int prefilterChecks;
+    private int prefilterSkips;
+    private SpanBuffer keywordSpans; // non-null when offsets are requested
+    private Tokens tokens;
+    private final long budgetNanos;
+    private long deadline;
+    private boolean deadlineSet;
+    private List<Rule> overBudget;
+    private boolean warmup;
+    private Set<CompiledRule> warmupOverBudget;
+
+    MatchContext(CharSequence data, CompiledRuleset compiled) {
+        this(data, compiled, false);
+    }
+
+    /**
+     * @param offsets whether match offsets will be requested, in which case
+     *                the keyword scan records every occurrence
+     */
+    MatchContext(CharSequence data, CompiledRuleset compiled, boolean offsets) {
+        this.data = data;
+        this.compiled = compiled;
+        this.from = 0;
+        this.to = data.length();
+        this.atStart = true;
+        this.complete = true;
+        this.keywordSpans = offsets ? new SpanBuffer() : null;
+        this.budgetNanos = compiled.getRegexBudgetNanos();
+    }
+
+    /**
+     * Context for one window of a streamed document.
+     *
+     * @param window         the retained tail of the document
+     * @param from           start of the region searched by regex matchers;
+     *                       characters before it only serve as look-behind
+     * @param to             end of that region; characters after it only serve
+     *                       as look-ahead
+     * @param atStart        whether the window begins at the start of the document
+     * @param complete       whether the window holds the entire document
+     * @param dictionaryHits keyword automaton hits accumulated so far
+     * @param regexHits      multi-regex hits accumulated so far
+     */
+    MatchContext(CharSequence window, CompiledRuleset compiled, int from, int to, boolean atStart,
+                 boolean complete, boolean[] dictionaryHits, boolean[] regexHits) {
+        this.data = window;
+        this.compiled = compiled;
+        this.from = from;
+        this.to = to;
+        this.atStart = atStart;
+        this.complete = complete;
+        this.dictionaryHits = dictionaryHits;
+        this.regexHits = regexHits;
+        this.budgetNanos = compiled.getRegexBudgetNanos();
+    }
+
+    CharSequence getData() { return data; }
+
+    /**
+     * Whether {@link #getData()} is the entire input. Matchers that compare
+     * the whole input cannot decide on a partial window.
+     */
+    boolean isComplete() { return complete; }
+
+    /**
+     * Search the input with a pattern that is not part of the multi-regex
+     * automaton. On a stream window the search is limited to the window's
+     * region, and {@code ^} and {@code $} only match at the real start and
+     * end of the document.
+     */
+    boolean find(Pattern pattern) {
+        Matcher m = matcher(pattern);
+        if (from != 0 || to != data.length() || !atStart) {
+            // Without anchoring bounds '^' and '$' only match at the ends of
+            // the window; a slid window starts one character early and a
+            // partial one ends a few characters late so neither is reached
+            m.region(from, to).useTransparentBounds(true).useAnchoringBounds(false);
+        }
+        return m.find();
+    }
+
+    /**
+     * Create a matcher over the input that gives up with a
+     * {@link RegexBudgetExceededException} once the current rule's regex
+     * budget is spent. The budget starts with the rule's first search.
+     */
+    Matcher matcher(Pattern pattern) {
+        if (budgetNanos <= 0) {
+            return pattern.matcher(data);
+        }
+        if (!deadlineSet) {
+            deadline = System.nanoTime() + budgetNanos;
+            deadlineSet = true;
+        }
+        return pattern.matcher(new DeadlineCharSequence(data, deadline));
+    }
+
+    /**
+     * Start the regex budget of a new rule.
+     */
+    void beginRule() {
+        deadlineSet = false;
+    }
+
+    /**
+     * Record that a rule's evaluation was cut short by its regex budget, or
+     * skipped because the rule is quarantined.
+     */
+    void budgetExceeded(Rule rule) {
+        if (overBudget == null) {
+            overBudget = new ArrayList<>(2);
+        }
+        overBudget.add(rule);
+    }
+
+    /**
+     * Rules recorded by {@link #budgetExceeded}, in evaluation order.
+     */
+    List<Rule> getOverBudget() {
+        return overBudget != null ? overBudget : Collections.<Rule>emptyList();
+    }
+
+    /**
+     * Whether any keyword of the dictionary matcher in the given slot occurs
+     * in the input.
+     */
+    boolean dictionaryHit(int slot) {
+        if (dictionaryHits == null) {
+            dictionaryHits = keywordSpans != null
+                    ? compiled.getKeywords().scan(data, keywordSpans)
+                    : compiled.getKeywords().scan(data);
+        }
+        return dictionaryHits[slot];
+    }
+
+    /**
+     * The tokens of the input, for whole-token dictionary matchers. On a
+     * stream window a token touching an edge of the window that is not an
+     * edge of the document may be cut off; it is dropped here and seen whole
+     * in the neighbouring window.
+     */
+    Tokens tokens() {
+        if (tokens == null) {
+            tokens = Tokens.of(data, !atStart, to < data.length());
+        }
+        return tokens;
+    }
+
+    /**
+     * Whether any required literal of the prefiltered regex in the given slot
+     * occurs in the input. A miss means the regex cannot match.
+     */
+    boolean literalHit(int slot) {
+        if (literalHits == null) {
+            literalHits = compiled.getLiterals().scan(data);
+        }
+        prefilterChecks++;
+        if (!literalHits[slot]) {
+            prefilterSkips++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Mark the context as a warm-up detection, which matchers leave out of
+     * their statistics.
+     *
+     * @param overBudget rules that ran over their regex budget in this or an
+     *                   earlier detection of the same warm-up; they are not
+     *                   evaluated again
+     */
+    void markWarmup(Set<CompiledRule> overBudget) {
+        warmup = true;
+        warmupOverBudget = overBudget;
+    }
+
+    boolean isWarmup() {
+        return warmup;
+    }
+
+    /**
+     * Whether the rule ran over its regex budget earlier in the warm-up.
+     */
+    boolean overBudgetInWarmup(CompiledRule rule) {
+        return warmupOverBudget != null && warmupOverBudget.contains(rule);
+    }
+
+    /**
+     * Record that the rule ran over its regex budget during warm-up, so that
+     * the rest of the warm-up skips it.
+     */
+    void budgetExceededInWarmup(CompiledRule rule) {
+        budgetExceeded(rule.getRule());
+        if (warmupOverBudget != null) {
+            warmupOverBudget.add(rule);
+        }
+    }
+
+    /**
+     * Add the prefilter counts of this context to the ruleset's statistics.
+     */
+    void recordStats() {
+        if (prefilterChecks > 0) {
+            compiled.recordPrefilter(prefilterChecks, prefilterSkips);
+            prefilterChecks = 0;
+            prefilterSkips = 0;
+        }
+    }
+
+    /**
+     * Copy the occurrences of the dictionary matcher in the given slot into
+     * {@code out} under {@code key}. Only available on contexts created with
+     * offsets enabled.
+     */
+    void dictionarySpans(int slot, int key, SpanBuffer out) {
+        if (!dictionaryHit(slot)) {
+            return;
+        }
+        for (int i = 0, n = keywordSpans.size(); i < n; i++) {
+            if (keywordSpans.key(i) == slot) {
+                out.add(key, keywordSpans.start(i), keywordSpans.end(i));
+            }
+        }
+    }
+
+    /**
+     * Whether the regex in the given slot of the ruleset's multi-pattern
+     * automaton has a match in the input.
+     */
+    boolean regexHit(int slot) {
+        if (regexHits == null) {
+            regexHits = compiled.getRegexes().scan(data);
+        }
+        return regexHits[slot];
+    }
+
+    /**
+     * Record the offsets of the non-empty matches of the regex in the given
+     * slot of the multi-pattern automaton, found the way
+     * {@link java.util.regex.Matcher#find()} finds them one after another.
+     */
+    void regexSpans(int slot, int key, SpanBuffer out) {
+        MultiRegex regexes = compiled.getRegexes();
+        int[] bounds = new int[2];
+        int at = 0;
+        while (at <= data.length() && regexes.find(data, slot, at, bounds)) {
+            if (bounds[1] > bounds[0]) {
+                out.add(key, bounds[0], bounds[1]);
+                at = bounds[1];
+            } else {
+                at = bounds[1] + 1;
+            }
+        }
+    }
+}
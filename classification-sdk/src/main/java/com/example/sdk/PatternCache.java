@@ -0,0 +1,92 @@
+package com.example.sdk;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Concurrent cache of compiled regular expressions shared by all ruleset
+ * compilations, so that patterns unchanged between ruleset versions are not
+ * recompiled on every refresh.
+ *
+ * <p>Lookups are a lock-free hash map read; only a miss compiles, and only
+ * the key being compiled is locked. Instead of a fixed capacity the cache is
+ * sized by the rulesets themselves: every compilation runs in a new
+ * generation and stamps the patterns it uses, and once it finishes, patterns
+ * used by neither it nor the compilation before it are evicted. A ruleset of
+ * any size therefore never thrashes the cache, and patterns of retired
+ * rulesets do not accumulate.</p>
+ */
+final class PatternCache {
+
+    private final ConcurrentHashMap<String, Entry> map = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Return the compiled pattern for the given source, compiling it on a
+     * miss.
+     *
+     * @throws java.util.regex.PatternSyntaxException if the source is invalid
+     */
+    Pattern get(String regex) {
+        Entry entry = map.get(regex);
+        if (entry != null) {
+            hits.increment();
+        } else {
+            entry = map.computeIfAbsent(regex, this::load);
+        }
+        long current = generation.get();
+        if (entry.generation < current) {
+            entry.generation = current;
+        }
+        return entry.pattern;
+    }
+
+    /**
+     * Start a ruleset compilation.
+     *
+     * @return the generation to pass to {@link #endGeneration}
+     */
+    long beginGeneration() {
+        return generation.incrementAndGet();
+    }
+
+    /**
+     * Finish a ruleset compilation, evicting patterns that were not used by
+     * it or by the compilation before it.
+     */
+    void endGeneration(long gen) {
+        for (Iterator<Entry> it = map.values().iterator(); it.hasNext(); ) {
+            if (it.next().generation < gen - 1) {
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    PatternCacheStats stats() {
+        return new PatternCacheStats(hits.sum(), misses.sum(), evictions.get(), map.size());
+    }
+
+    private Entry load(String regex) {
+        misses.increment();
+        return new Entry(Pattern.compile(regex), generation.get());
+    }
+
+    private static final class Entry {
+        final Pattern pattern;
+        // Latest generation that used the pattern; a racy maximum is enough
+        volatile long generation;
+
+        Entry(Pattern pattern, long generation) {
+            this.pattern = pattern;
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.sdk;
+
+/**
+ * Point-in-time statistics of the shared cache of compiled regular
+ * expressions used when rulesets are compiled.
+ */
+public class PatternCacheStats {
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final int size;
+
+    public PatternCacheStats(long hitCount, long missCount, long evictionCount, int size) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.size = size;
+    }
+
+    /** Lookups that found a compiled pattern. */
+    public long getHitCount() { return hitCount; }
+    /** Lookups that compiled the pattern. */
+    public long getMissCount() { return missCount; }
+    /** Patterns evicted because no recent ruleset used them. */
+    public long getEvictionCount() { return evictionCount; }
+    /** Patterns currently cached. */
+    public int getSize() { return size; }
+
+    /**
+     * Fraction of lookups that were hits, or 0 if there were none.
+     */
+    public double getHitRate() {
+        long total = hitCount + missCount;
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return "PatternCacheStats{hits=" + hitCount + ", misses=" + missCount
+                + ", evictions=" + evictionCount + ", size=" + size + "}";
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.sdk;
+
+/**
+ * Point-in-time statistics of the literal prefilter applied to regex matchers
+ * evaluated by {@code java.util.regex}. Counts cover the active ruleset
+ * snapshot since it was compiled.
+ */
+public class PrefilterStats {
+    private final int regexCount;
+    private final int prefilteredCount;
+    private final long checkCount;
+    private final long skipCount;
+
+    public PrefilterStats(int regexCount, int prefilteredCount, long checkCount, long skipCount) {
+        this.regexCount = regexCount;
+        this.prefilteredCount = prefilteredCount;
+        this.checkCount = checkCount;
+        this.skipCount = skipCount;
+    }
+
+    /** Regex matchers evaluated by {@code java.util.regex}. */
+    public int getRegexCount() { return regexCount; }
+    /** Of those, the matchers for which required literals were found. */
+    public int getPrefilteredCount() { return prefilteredCount; }
+    /** Evaluations of prefiltered matchers. */
+    public long getCheckCount() { return checkCount; }
+    /** Evaluations that skipped the regex search because a literal was absent. */
+    public long getSkipCount() { return skipCount; }
+
+    /**
+     * Fraction of prefiltered evaluations that skipped the regex search, or 0
+     * if there were none.
+     */
+    public double getSkipRate() {
+        return checkCount == 0 ? 0.0 : (double) skipCount / checkCount;
+    }
+
+    @Override
+    public String toString() {
+        return "PrefilterStats{regexes=" + regexCount + ", prefiltered=" + prefilteredCount
+                + ", checks=" + checkCount + ", skips=" + skipCount + "}";
+    }
+}
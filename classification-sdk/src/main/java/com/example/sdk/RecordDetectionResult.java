@@ -0,0 +1,67 @@
+package com.example.sdk;
+
+import com.example.sdk.model.Rule;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of classifying a structured record. Every string and number in the
+ * record is classified separately against the rules scoped to its field;
+ * the fields that matched are listed with their paths in document order.
+ */
+public class RecordDetectionResult {
+    private final List<FieldMatch> fieldMatches;
+    private final List<Rule> matchedRules;
+    private final int fieldCount;
+    private final List<Rule> overBudgetRules;
+
+    RecordDetectionResult(List<FieldMatch> fieldMatches, List<Rule> matchedRules, int fieldCount,
+                          List<Rule> overBudgetRules) {
+        this.fieldMatches = fieldMatches;
+        this.matchedRules = matchedRules;
+        this.fieldCount = fieldCount;
+        this.overBudgetRules = overBudgetRules;
+    }
+
+    static RecordDetectionResult empty() {
+        return new RecordDetectionResult(Collections.<FieldMatch>emptyList(), Collections.<Rule>emptyList(), 0,
+                Collections.<Rule>emptyList());
+    }
+
+    /** The fields that matched, in document order. */
+    public List<FieldMatch> getFieldMatches() { return fieldMatches; }
+
+    /**
+     * Every rule matched by at least one field, highest priority first.
+     */
+    public List<Rule> getMatchedRules() { return matchedRules; }
+
+    /** Paths of the fields that matched, in document order. */
+    public List<String> getMatchedFieldPaths() {
+        List<String> paths = new ArrayList<>(fieldMatches.size());
+        for (FieldMatch field : fieldMatches) {
+            paths.add(field.getPath());
+        }
+        return paths;
+    }
+
+    /** Number of values in the record that were classified. */
+    public int getFieldCount() { return fieldCount; }
+
+    /**
+     * Return true if one or more fields matched a rule.
+     */
+    public boolean hasMatch() {
+        return !fieldMatches.isEmpty();
+    }
+
+    /**
+     * Rules whose evaluation on some field was cut short by the regex time
+     * budget, or skipped because they are quarantined.
+     *
+     * @see DetectionResult#getOverBudgetRules()
+     */
+    public List<Rule> getOverBudgetRules() { return overBudgetRules; }
+}
@@ -0,0 +1,248 @@
+package com.example.sdk;
+
+import com.example.sdk.metrics.MetricsRecorder;
+import com.example.sdk.model.Rule;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Classifies the values of a structured record one field at a time. A JSON
+ * record is walked as a Jackson token stream, so it is never bound to a tree
+ * and string values are evaluated in place in the parser's buffer; a record
+ * already held as a {@code Map} is walked directly.
+ *
+ * <p>Each string and number is evaluated like a separate value, but only
+ * against the rules whose {@link FieldScope scope} covers its field path; the
+ * rules per path are looked up once per snapshot through
+ * {@link CompiledRuleset#rulesForField}. Booleans and nulls are skipped. In
+ * TOP_MATCH_ONLY mode each field reports its highest priority match. One
+ * instance classifies a single record and is not thread-safe.</p>
+ */
+final class RecordDetector {
+
+    /**
+     * Deepest nesting of a record held in memory, the limit Jackson applies
+     * to JSON by default. A record that contains itself reaches it instead of
+     * overflowing the stack.
+     */
+    static final int MAX_DEPTH = 1000;
+
+    private final CompiledRuleset compiled;
+    private final ClassificationMode mode;
+    private final MetricsRecorder metrics;
+    private final boolean timed;
+    private final boolean scoped;
+
+    // Open containers of the current position: level i is an array if
+    // arrays[i], with the current element at indices[i], and otherwise an
+    // object whose current key is keys[i]. keyPaths[i] is the key path of
+    // the object keys up to level i, for scope lookups.
+    private boolean[] arrays = new boolean[8];
+    private int[] indices = new int[8];
+    private String[] keys = new String[8];
+    private String[] keyPaths = new String[8];
+    private int depth;
+
+    private final List<FieldMatch> fieldMatches = new ArrayList<>();
+    private final Set<Rule> matched = Collections.newSetFromMap(new IdentityHashMap<Rule, Boolean>());
+    private final Set<Rule> overBudget = new LinkedHashSet<>();
+    private int fieldCount;
+    private long charsRead;
+
+    RecordDetector(CompiledRuleset compiled, ClassificationMode mode, MetricsRecorder metrics, boolean timed) {
+        this.compiled = compiled;
+        this.mode = mode;
+        this.metrics = metrics;
+        this.timed = timed;
+        this.scoped = compiled.hasScopedRules();
+    }
+
+    /**
+     * Read one JSON value, usually an object, from the parser and classify
+     * its fields. The parser is left after the value.
+     *
+     * @throws IOException if reading fails or the input is not valid JSON
+     */
+    void readFrom(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        while (token != null) {
+            switch (token) {
+                case FIELD_NAME:
+                    key(parser.getCurrentName());
+                    break;
+                case START_OBJECT:
+                    element();
+                    push(false);
+                    break;
+                case START_ARRAY:
+                    element();
+                    push(true);
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    depth--;
+                    break;
+                case VALUE_STRING:
+                    element();
+                    // The parser's buffer is only valid until the next token
+                    leaf(CharBuffer.wrap(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength()));
+                    break;
+                case VALUE_NUMBER_INT:
+                case VALUE_NUMBER_FLOAT:
+                    element();
+                    leaf(parser.getText());
+                    break;
+                default:
+                    // booleans, nulls and embedded objects
+                    element();
+                    break;
+            }
+            if (depth == 0) {
+                return;
+            }
+            token = parser.nextToken();
+        }
+    }
+
+    /**
+     * Classify the fields of a record held in memory. Nested maps, collections
+     * and arrays are walked; booleans and nulls are skipped, and any other
+     * value is classified by its {@code toString()}.
+     *
+     * @throws IllegalArgumentException if the record is nested more than
+     *                                  {@link #MAX_DEPTH} levels deep
+     */
+    void readFrom(Map<String, ?> record) {
+        value(record);
+    }
+
+    private void value(Object value) {
+        element();
+        if (depth == MAX_DEPTH && (value instanceof Map || value instanceof Collection || value instanceof Object[])) {
+            throw new IllegalArgumentException("Record nested more than " + MAX_DEPTH + " levels deep");
+        }
+        if (value instanceof Map) {
+            push(false);
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+                key(String.valueOf(e.getKey()));
+                value(e.getValue());
+            }
+            depth--;
+        } else if (value instanceof Collection) {
+            push(true);
+            for (Object item : (Collection<?>) value) {
+                value(item);
+            }
+            depth--;
+        } else if (value instanceof Object[]) {
+            push(true);
+            for (Object item : (Object[]) value) {
+                value(item);
+            }
+            depth--;
+        } else if (value instanceof CharSequence) {
+            leaf((CharSequence) value);
+        } else if (value != null && !(value instanceof Boolean)) {
+            leaf(value.toString());
+        }
+    }
+
+    /**
+     * The matched fields, the rules they matched and the rules that ran out
+     * of regex budget.
+     */
+    RecordDetectionResult finish() {
+        List<Rule> rules = new ArrayList<>(matched.size());
+        if (!matched.isEmpty()) {
+            for (CompiledRule rule : compiled.getRules()) {
+                if (matched.contains(rule.getRule())) {
+                    rules.add(rule.getRule());
+                }
+            }
+        }
+        List<Rule> slow = overBudget.isEmpty() ? Collections.<Rule>emptyList() : new ArrayList<>(overBudget);
+        return new RecordDetectionResult(fieldMatches, rules, fieldCount, slow);
+    }
+
+    /** Total length of the classified values. */
+    long getCharsRead() {
+        return charsRead;
+    }
+
+    private void leaf(CharSequence value) {
+        fieldCount++;
+        charsRead += value.length();
+        CompiledRule[] rules = scoped ? compiled.rulesForField(depth > 0 ? keyPaths[depth - 1] : "")
+                : compiled.getRules();
+        if (rules.length == 0) {
+            return;
+        }
+        MatchContext ctx = new MatchContext(value, compiled);
+        List<Rule> hits = DetectionEngine.evaluate(rules, ctx, mode, null, metrics, timed);
+        ctx.recordStats();
+        overBudget.addAll(ctx.getOverBudget());
+        if (!hits.isEmpty()) {
+            fieldMatches.add(new FieldMatch(path(), hits));
+            matched.addAll(hits);
+        }
+    }
+
+    // A value starts at the current position; advance the enclosing array
+    private void element() {
+        if (depth > 0 && arrays[depth - 1]) {
+            indices[depth - 1]++;
+        }
+    }
+
+    private void key(String key) {
+        int level = depth - 1;
+        keys[level] = key;
+        if (scoped) {
+            keyPaths[level] = FieldScope.keyPath(level > 0 ? keyPaths[level - 1] : "", key);
+        }
+    }
+
+    private void push(boolean array) {
+        if (depth == arrays.length) {
+            int capacity = depth * 2;
+            arrays = Arrays.copyOf(arrays, capacity);
+            indices = Arrays.copyOf(indices, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+            keyPaths = Arrays.copyOf(keyPaths, capacity);
+        }
+        arrays[depth] = array;
+        indices[depth] = -1;
+        keys[depth] = null;
+        // Array elements add no key; a new object has none until its first field
+        keyPaths[depth] = depth > 0 ? keyPaths[depth - 1] : "";
+        depth++;
+    }
+
+    // Path of the current field, e.g. "orders[2].card.number"
+    private String path() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            if (arrays[i]) {
+                sb.append('[').append(indices[i]).append(']');
+            } else {
+                if (sb.length() > 0) {
+                    sb.append('.');
+                }
+                sb.append(keys[i]);
+            }
+        }
+        return sb.toString();
+    }
+}
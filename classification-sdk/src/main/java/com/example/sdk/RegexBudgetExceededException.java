@@ -0,0 +1,17 @@
+package com.example.sdk;
+
+/**
+ * Thrown from inside {@code java.util.regex} when a rule's regex evaluation
+ * runs past its time budget, to abandon the search. Carries no stack trace
+ * and is caught by {@link CompiledRule}; it never reaches SDK callers.
+ */
+final class RegexBudgetExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    static final RegexBudgetExceededException INSTANCE = new RegexBudgetExceededException();
+
+    private RegexBudgetExceededException() {
+        super("Regex evaluation exceeded its time budget", null, false, false);
+    }
+}
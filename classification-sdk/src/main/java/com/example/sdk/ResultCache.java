@@ -0,0 +1,419 @@
+package com.example.sdk;
+
+import com.example.sdk.config.SdkConfig;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded cache of detection results for repeated input values, keyed by the
+ * value and the {@link ClassificationMode}. Entries belong to the ruleset
+ * snapshot they were computed against: once {@link RuleManager} publishes a
+ * new snapshot the next access clears the cache, so a result is never served
+ * across a ruleset change, even when the version string stays the same.
+ *
+ * <p>Eviction follows W-TinyLFU. New entries enter a small LRU window (1% of
+ * the capacity); entries leaving the window compete for a place in the main
+ * segmented LRU against its least recently used probation entry, and the
+ * one a 4-bit count-min sketch estimates to be requested less often is
+ * evicted. This keeps frequently repeated values resident while a burst of
+ * one-off values only churns the window. The cap is in estimated bytes;
+ * values whose entry would exceed the window are not cached.</p>
+ *
+ * <p>Lookups are lock-free. Recording an access on a hit takes the policy
+ * lock only if it is free, so under contention some accesses are not counted
+ * towards recency and frequency, which affects eviction order but not
+ * correctness.</p>
+ */
+final class ResultCache {
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    // Rough per-entry overhead: key, node, map entry, result and list objects
+    private static final int ENTRY_OVERHEAD = 160;
+
+    private final long maxWeight;
+    private final long windowMax;
+    private final long protectedMax;
+
+    private final ConcurrentHashMap<Key, Node> map = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Queue window = new Queue();
+    private final Queue probation = new Queue();
+    private final Queue protectedQueue = new Queue();
+    private final FrequencySketch sketch;
+
+    private volatile CompiledRuleset snapshot;
+    private long windowWeight;
+    private long protectedWeight;
+    private volatile long totalWeight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final AtomicLong evictions = new AtomicLong();
+
+    ResultCache(long maxBytes) {
+        this.maxWeight = maxBytes;
+        this.windowMax = Math.max(1, maxBytes / 100);
+        this.protectedMax = (maxBytes - windowMax) * 8 / 10;
+        // Size the sketch for entries of about 256 bytes
+        this.sketch = new FrequencySketch((int) Math.min(1 << 24, Math.max(64, maxBytes / 256)));
+    }
+
+    /**
+     * Create the cache configured by 'sdk.cache.max.bytes', or return
+     * {@code null} if caching is disabled.
+     */
+    static ResultCache fromConfig() {
+        long maxBytes = SdkConfig.getResultCacheMaxBytes();
+        return maxBytes > 0 ? new ResultCache(maxBytes) : null;
+    }
+
+    /**
+     * Look up a cached result.
+     *
+     * @return the result, or {@code null} on a miss or if the snapshot is
+     *         not the live one
+     */
+    DetectionResult get(String data, ClassificationMode mode, CompiledRuleset compiled) {
+        if (!usable(compiled)) {
+            return null;
+        }
+        Node node = map.get(new Key(data, mode));
+        if (node == null || node.snapshot != compiled) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        if (lock.tryLock()) {
+            try {
+                // A node of a cleared snapshot still carries its old queue
+                // links; relinking it would corrupt the new queues
+                if (node.snapshot == snapshot && node.queue >= 0) {
+                    onAccess(node);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return node.result;
+    }
+
+    /**
+     * Offer a freshly computed result to the cache.
+     */
+    void put(String data, ClassificationMode mode, CompiledRuleset compiled, DetectionResult result) {
+        long weight = weigh(data, result);
+        if (weight > windowMax || !usable(compiled)) {
+            return;
+        }
+        Key key = new Key(data, mode);
+        lock.lock();
+        try {
+            if (compiled != snapshot || map.containsKey(key)) {
+                return;
+            }
+            Node node = new Node(key, result, compiled, (int) weight);
+            map.put(key, node);
+            sketch.increment(key.hashCode());
+            node.queue = WINDOW;
+            window.addLast(node);
+            windowWeight += weight;
+            totalWeight += weight;
+            evict();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    ResultCacheStats stats() {
+        return new ResultCacheStats(hits.sum(), misses.sum(), evictions.get(), map.size(), totalWeight);
+    }
+
+    // Results of a live snapshot are cacheable; a newly published snapshot
+    // clears entries of the previous one. Callers that pinned an older
+    // snapshot bypass the cache.
+    private boolean usable(CompiledRuleset compiled) {
+        if (compiled == null) {
+            return false;
+        }
+        if (compiled == snapshot) {
+            return true;
+        }
+        if (compiled != RuleManager.getCompiledRuleset()) {
+            return false;
+        }
+        lock.lock();
+        try {
+            if (compiled != snapshot) {
+                map.clear();
+                window.clear();
+                probation.clear();
+                protectedQueue.clear();
+                windowWeight = 0;
+                protectedWeight = 0;
+                totalWeight = 0;
+                snapshot = compiled;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    private void onAccess(Node node) {
+        sketch.increment(node.key.hashCode());
+        if (node.queue == WINDOW) {
+            window.moveToLast(node);
+        } else if (node.queue == PROBATION) {
+            probation.remove(node);
+            node.queue = PROTECTED;
+            protectedQueue.addLast(node);
+            protectedWeight += node.weight;
+            while (protectedWeight > protectedMax) {
+                Node demoted = protectedQueue.pollFirst();
+                protectedWeight -= demoted.weight;
+                demoted.queue = PROBATION;
+                probation.addLast(demoted);
+            }
+        } else {
+            protectedQueue.moveToLast(node);
+        }
+    }
+
+    private void evict() {
+        // Entries leaving the window become admission candidates at the
+        // most recently used end of probation
+        Node firstCandidate = null;
+        while (windowWeight > windowMax) {
+            Node node = window.pollFirst();
+            windowWeight -= node.weight;
+            node.queue = PROBATION;
+            probation.addLast(node);
+            if (firstCandidate == null) {
+                firstCandidate = node;
+            }
+        }
+        Node candidate = firstCandidate;
+        while (totalWeight > maxWeight) {
+            Node victim = probation.first();
+            if (victim == null) {
+                victim = protectedQueue.first() != null ? protectedQueue.first() : window.first();
+                remove(victim);
+                continue;
+            }
+            if (candidate == null || candidate == victim) {
+                remove(victim);
+                candidate = null;
+                continue;
+            }
+            Node next = candidate.next;
+            // The candidate only displaces the victim if it is requested more
+            // often; ties favour the incumbent
+            if (sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode())) {
+                remove(victim);
+            } else {
+                remove(candidate);
+                candidate = next;
+            }
+        }
+    }
+
+    private void remove(Node node) {
+        if (node.queue == WINDOW) {
+            window.remove(node);
+            windowWeight -= node.weight;
+        } else if (node.queue == PROBATION) {
+            probation.remove(node);
+        } else {
+            protectedQueue.remove(node);
+            protectedWeight -= node.weight;
+        }
+        node.queue = -1;
+        map.remove(node.key, node);
+        totalWeight -= node.weight;
+        evictions.incrementAndGet();
+    }
+
+    private static long weigh(String data, DetectionResult result) {
+        int rules = result.getMatchedRules() != null ? result.getMatchedRules().size() : 0;
+        return ENTRY_OVERHEAD + 2L * data.length() + 8L * rules;
+    }
+
+    private static final class Key {
+        final String data;
+        final ClassificationMode mode;
+        final int hash;
+
+        Key(String data, ClassificationMode mode) {
+            this.data = data;
+            this.mode = mode;
+            this.hash = data.hashCode() * 31 + mode.ordinal();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return mode == other.mode && data.equals(other.data);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Node {
+        final Key key;
+        final DetectionResult result;
+        final CompiledRuleset snapshot;
+        final int weight;
+        int queue;
+        Node prev;
+        Node next;
+
+        Node(Key key, DetectionResult result, CompiledRuleset snapshot, int weight) {
+            this.key = key;
+            this.result = result;
+            this.snapshot = snapshot;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Intrusive doubly linked list in access order, least recent first.
+     */
+    private static final class Queue {
+        private Node head;
+        private Node tail;
+
+        Node first() {
+            return head;
+        }
+
+        void addLast(Node node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+        }
+
+        void remove(Node node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+        }
+
+        Node pollFirst() {
+            Node node = head;
+            if (node != null) {
+                remove(node);
+            }
+            return node;
+        }
+
+        void moveToLast(Node node) {
+            if (node != tail) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        void clear() {
+            head = null;
+            tail = null;
+        }
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters, four per entry, estimating how often
+     * each key was requested recently. Counters are halved once the number of
+     * increments reaches ten times the table width so that the estimate
+     * follows changes in popularity.
+     */
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = {
+                0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int tableMask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int expectedEntries) {
+            int width = Integer.highestOneBit(Math.max(expectedEntries, 16) - 1) << 1;
+            this.table = new long[width];
+            this.tableMask = width - 1;
+            this.sampleSize = 10 * width;
+        }
+
+        int frequency(int hashCode) {
+            int hash = spread(hashCode);
+            int start = (hash & 3) << 2;
+            int min = 15;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+                min = Math.min(min, count);
+            }
+            return min;
+        }
+
+        void increment(int hashCode) {
+            int hash = spread(hashCode);
+            int start = (hash & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int offset = (start + i) << 2;
+                long mask = 0xfL << offset;
+                if ((table[index] & mask) != mask) {
+                    table[index] += 1L << offset;
+                    added = true;
+                }
+            }
+            if (added && ++additions == sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (table[i] >>> 1) & RESET_MASK;
+                }
+                additions >>>= 1;
+            }
+        }
+
+        private int indexOf(int hash, int i) {
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            h += h >>> 32;
+            return (int) h & tableMask;
+        }
+
+        private static int spread(int x) {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.sdk;
+
+/**
+ * Point-in-time statistics of the SDK's result cache. All values are zero
+ * when the cache is disabled.
+ */
+public class ResultCacheStats {
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final int entryCount;
+    private final long weightBytes;
+
+    public ResultCacheStats(long hitCount, long missCount, long evictionCount, int entryCount, long weightBytes) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.entryCount = entryCount;
+        this.weightBytes = weightBytes;
+    }
+
+    public long getHitCount() { return hitCount; }
+    public long getMissCount() { return missCount; }
+    public long getEvictionCount() { return evictionCount; }
+    public int getEntryCount() { return entryCount; }
+    /** Estimated memory held by the cached entries, in bytes. */
+    public long getWeightBytes() { return weightBytes; }
+
+    /**
+     * Fraction of lookups served from the cache, or 0 if there were none.
+     */
+    public double getHitRate() {
+        long total = hitCount + missCount;
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return "ResultCacheStats{hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount
+                + ", entries=" + entryCount + ", bytes=" + weightBytes + "}";
+    }
+}
@@ -3,85 +3,405 @@ package com.example.sdk;
 import com.example.sdk.cache.CacheStore;
 import com.example.sdk.config.SdkConfig;
 import com.example.sdk.http.PolicyHttpClient;
+import com.example.sdk.http.PushUnsupportedException;
 import com.example.sdk.http.VersionedResponse;
+import com.example.sdk.metrics.Metrics;
+import com.example.sdk.metrics.MetricsRecorder;
+import com.example.sdk.model.Rule;
 import com.example.sdk.model.Ruleset;
+import com.example.sdk.model.RulesetDelta;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Central coordinator for loading, caching and updating classification rules.
- * It maintains a reference to the current ruleset and schedules periodic
- * refreshes from the remote policy service.
+ * It maintains a reference to the current ruleset, keeps a long-poll open to
+ * the remote policy service so that published changes arrive at once, and
+ * schedules periodic refreshes as a fallback.
  */
 public class RuleManager {
 
     private static final Logger log = LoggerFactory.getLogger(RuleManager.class);
 
-    // Volatile ensures visibility across threads without requiring locks
-    private static volatile Ruleset currentRuleset;
+    // Volatile ensures visibility across threads without requiring locks. The
+    // compiled snapshot carries its source ruleset so both are swapped together.
+    private static volatile CompiledRuleset current;
 
     private static final ScheduledExecutorService scheduler =
             Executors.newSingleThreadScheduledExecutor();
 
     private static final PolicyHttpClient httpClient = new PolicyHttpClient();
 
+    private static volatile RulesetActivationStats lastActivation;
+
+    // Released once the cached and remote rulesets have been loaded
+    private static final CountDownLatch started = new CountDownLatch(1);
+
+    // Serializes updates from polling and from the long-poll
+    private static final Object updateLock = new Object();
+
+    // Longest pause between failed long-polls
+    private static final int WATCH_MAX_BACKOFF_SECONDS = 60;
+
+    // Set once the long-poll thread has been started; every SDK instance
+    // initializes the rule manager, but one long-poll serves them all
+    private static final AtomicBoolean watching = new AtomicBoolean();
+
     /**
      * Initialize the rule manager. This method loads any cached rules from
      * disk or falls back to the bootstrap rules. It then performs an immediate
      * remote fetch and schedules periodic polling according to SdkConfig.
+     * With 'sdk.startup.async' only the bootstrap rules are activated before
+     * this method returns, and only if no ruleset is active yet; the cached and remote rulesets are loaded on the
+     * refresh thread and replace them once compiled and warmed up. Rulesets
+     * activated while this method blocks are not warmed up, which would only
+     * delay startup further. Unless 'sdk.rule.push.enabled' is false a
+     * long-poll for changes is then kept open on a thread of its own.
      */
     public static void init() {
         log.info("Initializing RuleManager ...");
 
-        // 1) Attempt to load cached ruleset from disk
-        Ruleset cached = CacheStore.loadLatest();
-        if (cached != null) {
-            log.info("Loaded cached ruleset: {}", cached.getVersion());
-            currentRuleset = cached;
-            SdkConfig.setLastETag(cached.getETag());
+        if (SdkConfig.isAsyncStartupEnabled()) {
+            // Serve the bootstrap rules right away; warming them up would
+            // only delay the caller. Another SDK instance may have published
+            // a ruleset already, which the bootstrap rules must not replace.
+            synchronized (updateLock) {
+                if (current == null) {
+                    activate(BootstrapRulesLoader.load(), null, false);
+                }
+            }
+            scheduler.execute(() -> {
+                try {
+                    loadCached(true);
+                    fetchRemoteAndUpdate(true);
+                } catch (Exception e) {
+                    log.error("Startup refresh error: {}", e.getMessage());
+                } finally {
+                    started.countDown();
+                }
+                startWatching();
+            });
         } else {
-            // 2) Otherwise, load embedded bootstrap rules
-            log.warn("No local cache found. Loading bootstrap rules.");
-            currentRuleset = BootstrapRulesLoader.load();
-        }
+            // 1) Attempt to load cached ruleset from disk
+            if (!loadCached(false)) {
+                // 2) Otherwise, load embedded bootstrap rules
+                log.warn("No local cache found. Loading bootstrap rules.");
+                activate(BootstrapRulesLoader.load(), false);
+            }
 
-        // 3) Always try to fetch fresh rules on startup
-        fetchRemoteAndUpdate();
+            // 3) Always try to fetch fresh rules on startup
+            fetchRemoteAndUpdate(false);
+            started.countDown();
+            startWatching();
+        }
 
         // 4) Schedule periodic refresh at configured interval
         int interval = SdkConfig.getPollIntervalSeconds();
         scheduler.scheduleAtFixedRate(() -> {
             try {
-                fetchRemoteAndUpdate();
+                fetchRemoteAndUpdate(true);
             } catch (Exception e) {
                 log.error("Polling error: {}", e.getMessage());
             }
         }, interval, interval, TimeUnit.SECONDS);
     }
 
+    /**
+     * Activate the cached ruleset, preferring the binary cache whose automata
+     * need not be built again, and optionally warm it up. Returns false if
+     * there is none.
+     */
+    private static boolean loadCached(boolean warm) {
+        CompiledRuleset image = BinaryRuleCache.load();
+        Ruleset cached = image != null ? image.getRuleset() : CacheStore.loadLatest();
+        if (cached == null) {
+            return false;
+        }
+        log.info("Loaded cached ruleset: {}", cached.getVersion());
+        activate(cached, image != null ? image : current, warm);
+        SdkConfig.setLastETag(cached.getETag());
+        if (image == null) {
+            BinaryRuleCache.save(current);
+        }
+        return true;
+    }
+
+    /**
+     * Wait until the rules cached on disk and the rules of the policy
+     * service, if it could be reached, have been activated. Only waits with
+     * 'sdk.startup.async'; otherwise {@link #init()} has done so already.
+     *
+     * @return whether startup completed within the timeout
+     */
+    public static boolean awaitStartup(long timeout, TimeUnit unit) throws InterruptedException {
+        return started.await(timeout, unit);
+    }
+
     /**
      * Perform a synchronous fetch from the remote policy service and update
      * both the in-memory ruleset and disk cache if new rules are returned.
+     * The request names the active ruleset's version, so that the service
+     * can answer with only the rules that changed since. A new ruleset is
+     * warmed up before activation if {@code warm} is set.
+     */
+    private static void fetchRemoteAndUpdate(boolean warm) {
+        Ruleset active = getCurrentRuleset();
+        long started = System.nanoTime();
+        VersionedResponse response = httpClient.fetchLatest(active != null ? active.getVersion() : null);
+        MetricsRecorder metrics = Metrics.recorder();
+        if (metrics != null) {
+            metrics.rulesetFetched(response != null, System.nanoTime() - started);
+        }
+        if (response != null) {
+            update(response, warm);
+        }
+    }
+
+    /**
+     * Start the thread that long-polls the policy service for changes, unless
+     * push is disabled or it has been started already.
      */
-    private static void fetchRemoteAndUpdate() {
-        VersionedResponse response = httpClient.fetchLatest();
-        if (response == null) {
-            return; // 304 or failure
+    private static void startWatching() {
+        if (!SdkConfig.isPushEnabled() || !watching.compareAndSet(false, true)) {
+            return;
         }
+        Thread watcher = new Thread(RuleManager::watch, "sdk-rules-watch");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
 
-        Ruleset newRules = response.getRuleset();
-        // Attach the ETag so it is persisted alongside the rules
-        newRules.setETag(response.getETag());
-        currentRuleset = newRules;
+    /**
+     * Long-poll the policy service for as long as it supports it, applying
+     * each ruleset it answers with. Failed requests, and answers that leave
+     * the active ruleset as it was, are retried with exponential backoff;
+     * polling goes on meanwhile.
+     */
+    private static void watch() {
+        int waitSeconds = SdkConfig.getPushWaitSeconds();
+        int backoff = 1;
+        while (true) {
+            try {
+                Ruleset active = getCurrentRuleset();
+                VersionedResponse response = httpClient.awaitLatest(
+                        active != null ? active.getVersion() : null, waitSeconds);
+                // Nothing changed while the request was held, or the change
+                // has been applied
+                if (response == null || update(response, true)) {
+                    backoff = 1;
+                    continue;
+                }
+                log.debug("Long-poll answer left the active ruleset unchanged, retrying in {} s", backoff);
+            } catch (PushUnsupportedException e) {
+                log.info("Policy service does not push rule changes; polling every {} s",
+                        SdkConfig.getPollIntervalSeconds());
+                return;
+            } catch (IOException e) {
+                log.debug("Long-poll for rules failed, retrying in {} s: {}", backoff, e.getMessage());
+            } catch (Exception e) {
+                log.error("Long-poll error, retrying in {} s: {}", backoff, e.getMessage());
+            }
+            try {
+                TimeUnit.SECONDS.sleep(backoff);
+            } catch (InterruptedException e) {
+                return;
+            }
+            backoff = Math.min(backoff * 2, WATCH_MAX_BACKOFF_SECONDS);
+        }
+    }
 
-        SdkConfig.setLastETag(response.getETag());
-        CacheStore.save(newRules);
+    /**
+     * Activate and cache the ruleset of a response. Responses from polling
+     * and from the long-poll may overlap, so one that is already active, or
+     * a delta against a version no longer active, is not applied twice.
+     *
+     * @param warm whether to warm the new ruleset up before activation
+     * @return whether a new ruleset was activated
+     */
+    private static boolean update(VersionedResponse response, boolean warm) {
+        synchronized (updateLock) {
+            Ruleset active = getCurrentRuleset();
+            Ruleset newRules;
+            if (response.isDelta()) {
+                newRules = applyDelta(active, response.getDelta());
+                if (newRules == null) {
+                    log.warn("Ruleset delta {} -> {} does not apply to the active ruleset, fetching it in full",
+                            response.getDelta().getBaseVersion(), response.getDelta().getVersion());
+                    response = httpClient.fetchLatest(null);
+                    if (response == null) {
+                        return false;
+                    }
+                    if (response.isDelta()) {
+                        discard(response);
+                        return false;
+                    }
+                    newRules = response.getRuleset();
+                }
+            } else {
+                newRules = response.getRuleset();
+            }
+            if (active != null && active.getVersion() != null
+                    && active.getVersion().equals(newRules.getVersion())) {
+                SdkConfig.setLastETag(response.getETag());
+                discard(response);
+                return false;
+            }
+            // Attach the ETag so it is persisted alongside the rules
+            newRules.setETag(response.getETag());
+            try {
+                activate(newRules, warm);
+            } catch (RuntimeException e) {
+                discard(response);
+                throw e;
+            }
 
-        log.info("Ruleset updated and cached: {}", newRules.getVersion());
+            SdkConfig.setLastETag(response.getETag());
+            // The binary cache goes first so that it never outlives the JSON
+            // cache it was written with
+            BinaryRuleCache.delete();
+            if (response.getJsonFile() != null) {
+                // Written while the response was parsed
+                CacheStore.saveRaw(newRules, response.getJsonFile());
+            } else {
+                CacheStore.save(newRules);
+            }
+            BinaryRuleCache.save(current);
+
+            log.info("Ruleset updated and cached: {}", newRules.getVersion());
+            return true;
+        }
+    }
+
+    /** Delete the copy of a response's JSON that is not going to be cached. */
+    private static void discard(VersionedResponse response) {
+        if (response.getJsonFile() != null) {
+            response.getJsonFile().delete();
+        }
+    }
+
+    /**
+     * Apply a delta to the ruleset it was computed from. Rules that did not
+     * change are carried over as the same instances, which lets compilation
+     * reuse their compiled form. The result lists the rules by id, the order
+     * in which the policy service publishes them, so that rules of equal
+     * priority are evaluated as after a full fetch. Returns {@code null} if
+     * the delta was computed against another version or names rules the
+     * ruleset does not have.
+     */
+    static Ruleset applyDelta(Ruleset base, RulesetDelta delta) {
+        if (base == null || base.getVersion() == null || !base.getVersion().equals(delta.getBaseVersion())) {
+            return null;
+        }
+        Map<String, Rule> replaced = new HashMap<>();
+        if (delta.getChanged() != null) {
+            for (Rule rule : delta.getChanged()) {
+                replaced.put(rule.getId(), rule);
+            }
+        }
+        Set<String> removed = delta.getRemoved() != null
+                ? new HashSet<>(delta.getRemoved()) : Collections.<String>emptySet();
+        List<Rule> rules = new ArrayList<>();
+        int matched = 0;
+        if (base.getRules() != null) {
+            for (Rule rule : base.getRules()) {
+                if (rule == null) {
+                    continue;
+                }
+                String id = rule.getId();
+                if (id != null && removed.contains(id)) {
+                    matched++;
+                    continue;
+                }
+                Rule changed = id != null ? replaced.get(id) : null;
+                if (changed != null) {
+                    matched++;
+                }
+                rules.add(changed != null ? changed : rule);
+            }
+        }
+        if (matched != replaced.size() + removed.size()) {
+            return null;
+        }
+        if (delta.getAdded() != null) {
+            rules.addAll(delta.getAdded());
+        }
+        rules.sort(Comparator.comparing(Rule::getId, Comparator.nullsFirst(Comparator.<String>naturalOrder())));
+        Ruleset ruleset = new Ruleset();
+        ruleset.setVersion(delta.getVersion());
+        ruleset.setRules(rules);
+        return ruleset;
+    }
+
+    /**
+     * Compile the given ruleset and make it the active one. Compilation happens
+     * before the volatile write so readers only ever observe complete snapshots.
+     * What the ruleset has in common with the active snapshot is reused.
+     */
+    private static void activate(Ruleset ruleset, boolean warm) {
+        activate(ruleset, current, warm);
+    }
+
+    /**
+     * Compile the given ruleset against the given previous snapshot, e.g.
+     * the automata restored from the binary cache, optionally warm it up
+     * while the active snapshot keeps serving, and make it the active one.
+     */
+    private static void activate(Ruleset ruleset, CompiledRuleset previous, boolean warm) {
+        long compileStarted = System.nanoTime();
+        CompiledRuleset compiled = CompiledRuleset.compile(ruleset, previous);
+        long compileNanos = System.nanoTime() - compileStarted;
+        int detections = warm && compiled.size() > 0 ? SdkConfig.getWarmupDetections() : 0;
+        long warmupNanos = 0;
+        if (detections > 0) {
+            long warmupStarted = System.nanoTime();
+            detections = RulesetWarmer.warmUp(compiled, detections,
+                    TimeUnit.MILLISECONDS.toNanos(SdkConfig.getWarmupMaxMillis()));
+            warmupNanos = System.nanoTime() - warmupStarted;
+        }
+        current = compiled;
+
+        String version = ruleset != null ? ruleset.getVersion() : null;
+        lastActivation = new RulesetActivationStats(version, compiled.size(), compileNanos, warmupNanos,
+                detections, System.currentTimeMillis());
+        log.info("Activated ruleset {} with {} rule(s): compiled in {} ms, warmed up in {} ms", version,
+                compiled.size(), compileNanos / 1_000_000, warmupNanos / 1_000_000);
+        MetricsRecorder metrics = Metrics.recorder();
+        if (metrics != null) {
+            metrics.rulesetCompiled(version, compiled.size(), compileNanos);
+            if (detections > 0) {
+                metrics.rulesetWarmedUp(version, detections, warmupNanos);
+            }
+        }
+    }
+
+    /**
+     * Make the given snapshot the active one as is, without compiling,
+     * warming up or starting the refresh threads. For tests.
+     */
+    static void publish(CompiledRuleset compiled) {
+        current = compiled;
+    }
+
+    /**
+     * Timings of the activation of the current ruleset, or null if
+     * initialization has not occurred.
+     */
+    public static RulesetActivationStats getLastActivation() {
+        return lastActivation;
     }
 
     /**
@@ -89,6 +409,15 @@ public class RuleManager {
      * initialization has not occurred.
      */
     public static Ruleset getCurrentRuleset() {
-        return currentRuleset;
+        CompiledRuleset snapshot = current;
+        return snapshot != null ? snapshot.getRuleset() : null;
+    }
+
+    /**
+     * Retrieve the compiled snapshot of the currently active ruleset. This
+     * method returns null if initialization has not occurred.
+     */
+    public static CompiledRuleset getCompiledRuleset() {
+        return current;
     }
 }
\ No newline at end of file
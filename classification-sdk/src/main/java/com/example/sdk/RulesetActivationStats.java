@@ -0,0 +1,44 @@
+package com.example.sdk;
+
+/**
+ * Timings of the activation of a ruleset: how long it took to compile and
+ * to warm up before it replaced the previous one.
+ */
+public class RulesetActivationStats {
+    private final String version;
+    private final int ruleCount;
+    private final long compileNanos;
+    private final long warmupNanos;
+    private final int warmupDetections;
+    private final long activatedAtMillis;
+
+    public RulesetActivationStats(String version, int ruleCount, long compileNanos, long warmupNanos,
+                                  int warmupDetections, long activatedAtMillis) {
+        this.version = version;
+        this.ruleCount = ruleCount;
+        this.compileNanos = compileNanos;
+        this.warmupNanos = warmupNanos;
+        this.warmupDetections = warmupDetections;
+        this.activatedAtMillis = activatedAtMillis;
+    }
+
+    /** Version of the activated ruleset. */
+    public String getVersion() { return version; }
+    /** Enabled rules in the activated ruleset. */
+    public int getRuleCount() { return ruleCount; }
+    /** Time spent compiling the ruleset. */
+    public long getCompileNanos() { return compileNanos; }
+    /** Time spent warming up the compiled ruleset. */
+    public long getWarmupNanos() { return warmupNanos; }
+    /** Synthetic detections run during warm-up. */
+    public int getWarmupDetections() { return warmupDetections; }
+    /** When the ruleset became the active one, in epoch milliseconds. */
+    public long getActivatedAtMillis() { return activatedAtMillis; }
+
+    @Override
+    public String toString() {
+        return "RulesetActivationStats{version=" + version + ", rules=" + ruleCount
+                + ", compileMs=" + compileNanos / 1_000_000 + ", warmupMs=" + warmupNanos / 1_000_000
+                + ", warmupDetections=" + warmupDetections + "}";
+    }
+}
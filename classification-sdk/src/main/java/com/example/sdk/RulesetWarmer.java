@@ -0,0 +1,148 @@
+package com.example.sdk;
+
+import com.example.sdk.model.MatcherDef;
+import com.example.sdk.regex.RequiredLiterals;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Runs synthetic detections against a newly compiled ruleset before it is
+ * activated. The first detections of a snapshot are otherwise slow: the
+ * JIT has not compiled the paths its matchers take yet, and the multi-regex
+ * automaton builds its DFA states as the input needs them. Warming up on a
+ * background thread moves that cost off the first requests after startup
+ * and after every refresh.
+ *
+ * <p>The inputs mix generic text with the keywords of the ruleset's
+ * dictionaries, the literals its regexes require and the terms of its fuzzy
+ * matchers, so that both the miss and the hit paths run. They are given as
+ * strings and as UTF-8 bytes, in every {@link ClassificationMode}, and some
+ * with offsets. Warm-up detections are not cached, audited or counted in
+ * metrics and statistics.</p>
+ *
+ * <p>A rule that runs over its regex budget is not evaluated again for the
+ * rest of the warm-up, and the warm-up as a whole stops after a time limit,
+ * so that a slow rule cannot hold back the activation of its ruleset.</p>
+ */
+final class RulesetWarmer {
+
+    private static final Logger log = LoggerFactory.getLogger(RulesetWarmer.class);
+
+    // Rules whose terms are added to the generic inputs
+    private static final int MAX_RULE_SAMPLES = 64;
+
+    private static final String[] GENERIC = {
+            "",
+            "hello world",
+            "Please contact jane.doe@example.com or call +1 (555) 010-9999 before Friday.",
+            "Card 4111 1111 1111 1111, expires 12/29, CVV 123",
+            "IBAN DE89 3704 0044 0532 0130 00, SSN 123-45-6789, DOB 1970-01-01",
+            "order_id=AB-1234; user=j.doe; ip=192.168.0.1; token=eyJhbGciOiJIUzI1NiJ9",
+            "Grüße aus Köln – 東京 – Ελλάδα – naïve café",
+            "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor incididunt ut "
+                    + "labore et dolore magna aliqua. Ut enim ad minim veniam, quis nostrud exercitation ullamco "
+                    + "laboris nisi ut aliquip ex ea commodo consequat. Duis aute irure dolor in reprehenderit in "
+                    + "voluptate velit esse cillum dolore eu fugiat nulla pariatur. Excepteur sint occaecat "
+                    + "cupidatat non proident, sunt in culpa qui officia deserunt mollit anim id est laborum.",
+    };
+
+    private RulesetWarmer() {
+    }
+
+    /**
+     * Run up to the given number of synthetic detections against the
+     * snapshot, stopping once {@code maxNanos} have passed.
+     *
+     * @return the number of detections run
+     */
+    static int warmUp(CompiledRuleset compiled, int detections, long maxNanos) {
+        List<String> samples = samples(compiled);
+        byte[][] encoded = new byte[samples.size()][];
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = samples.get(i).getBytes(StandardCharsets.UTF_8);
+        }
+        ClassificationMode[] modes = ClassificationMode.values();
+        Set<CompiledRule> overBudget = new HashSet<>();
+        long started = System.nanoTime();
+        int done = 0;
+        try {
+            for (; done < detections; done++) {
+                if (System.nanoTime() - started > maxNanos) {
+                    log.warn("Stopped warm-up of ruleset {} after {} detection(s) at its time limit of {} ms",
+                            version(compiled), done, maxNanos / 1_000_000);
+                    break;
+                }
+                int sample = done % encoded.length;
+                ClassificationMode mode = modes[(done / encoded.length) % modes.length];
+                CharSequence input = (done & 3) == 3
+                        ? Utf8CharSequence.of(encoded[sample], 0, encoded[sample].length)
+                        : samples.get(sample);
+                boolean offsets = (done & 7) == 5;
+                MatchContext ctx = new MatchContext(input, compiled, offsets);
+                ctx.markWarmup(overBudget);
+                DetectionEngine.evaluate(compiled.getRules(), ctx, mode, offsets ? new SpanBuffer() : null,
+                        null, false);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Stopped warm-up of ruleset {} after {} detection(s): {}", version(compiled), done,
+                    e.toString());
+        }
+        return done;
+    }
+
+    private static String version(CompiledRuleset compiled) {
+        return compiled.getRuleset() != null ? compiled.getRuleset().getVersion() : null;
+    }
+
+    private static List<String> samples(CompiledRuleset compiled) {
+        List<String> samples = new ArrayList<>();
+        for (String text : GENERIC) {
+            samples.add(text);
+        }
+        CompiledRule[] rules = compiled.getRules();
+        for (int i = 0; i < rules.length && i < MAX_RULE_SAMPLES; i++) {
+            List<MatcherDef> defs = rules[i].getRule().getMatchers();
+            if (defs == null) {
+                continue;
+            }
+            for (MatcherDef def : defs) {
+                String term = term(def);
+                if (term != null && !term.isEmpty()) {
+                    samples.add("value: " + term + " (" + GENERIC[i % GENERIC.length] + ")");
+                    break;
+                }
+            }
+        }
+        return samples;
+    }
+
+    // A term that makes the matcher match, or at least gets past its prefilter
+    private static String term(MatcherDef def) {
+        if (def == null || def.getType() == null || def.getPattern() == null || def.getFile() != null) {
+            return null;
+        }
+        String type = def.getType();
+        if ("dictionary".equalsIgnoreCase(type) || "dictionary_token".equalsIgnoreCase(type)) {
+            String[] entries = DictionaryMatcher.parseEntries(def.getPattern());
+            return entries.length > 0 ? entries[0] : null;
+        }
+        if ("regex".equalsIgnoreCase(type)) {
+            try {
+                String[] literals = RequiredLiterals.of(def.getPattern());
+                return literals != null && literals.length > 0 ? literals[0] : null;
+            } catch (RuntimeException e) {
+                return null; // invalid patterns were skipped by compilation
+            }
+        }
+        if ("fuzzy".equalsIgnoreCase(type) || "fuzzy_contains".equalsIgnoreCase(type)) {
+            return def.getPattern();
+        }
+        return null;
+    }
+}
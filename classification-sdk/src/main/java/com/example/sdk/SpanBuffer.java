@@ -0,0 +1,60 @@
+package com.example.sdk;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of {@code (key, start, end)} spans kept in three parallel
+ * int arrays, so that recording a match allocates no object per span.
+ */
+final class SpanBuffer {
+
+    private int[] keys = new int[8];
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private int size;
+
+    void add(int key, int start, int end) {
+        if (size == keys.length) {
+            int cap = size * 2;
+            keys = Arrays.copyOf(keys, cap);
+            starts = Arrays.copyOf(starts, cap);
+            ends = Arrays.copyOf(ends, cap);
+        }
+        keys[size] = key;
+        starts[size] = start;
+        ends[size] = end;
+        size++;
+    }
+
+    int size() { return size; }
+    int key(int i) { return keys[i]; }
+    int start(int i) { return starts[i]; }
+    int end(int i) { return ends[i]; }
+
+    /**
+     * Sort the spans {@code [from, size)}, which must share one key, by start
+     * and then end offset and drop duplicates.
+     */
+    void sortTail(int from) {
+        int n = size - from;
+        if (n < 2) {
+            return;
+        }
+        long[] packed = new long[n];
+        for (int i = 0; i < n; i++) {
+            packed[i] = ((long) starts[from + i] << 32) | (ends[from + i] & 0xFFFFFFFFL);
+        }
+        Arrays.sort(packed);
+        int key = keys[from];
+        size = from;
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || packed[i] != packed[i - 1]) {
+                add(key, (int) (packed[i] >>> 32), (int) packed[i]);
+            }
+        }
+    }
+
+    int[] keys() { return Arrays.copyOf(keys, size); }
+    int[] starts() { return Arrays.copyOf(starts, size); }
+    int[] ends() { return Arrays.copyOf(ends, size); }
+}
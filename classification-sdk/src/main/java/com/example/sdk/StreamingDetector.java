@@ -0,0 +1,198 @@
+package com.example.sdk;
+
+import com.example.sdk.model.Rule;
+import com.example.sdk.regex.MultiRegex;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Classifies a document that is read in chunks instead of being held in
+ * memory as one string. Memory use is bounded by the chunk size plus the
+ * overlap window, independent of the document length.
+ *
+ * <p>The keyword automaton and the multi-regex automaton carry their state
+ * from one chunk to the next, so dictionary matchers and automaton-evaluated
+ * regex matchers see the document exactly as if it had been classified in
+ * one piece. Regex matchers evaluated by {@code java.util.regex},
+ * {@code fuzzy_contains} and {@code dictionary_token} matchers and
+ * dictionaries kept in external files run on a sliding window made of the new
+ * chunk plus the last {@code overlap} characters before it; a match that
+ * spans more than the overlap across a chunk boundary is not found. Whole
+ * input {@code fuzzy} matchers are only evaluated when the document fits in
+ * the window.</p>
+ *
+ * <p>In TOP_MATCH_ONLY mode reading stops as soon as the highest priority
+ * rule has matched, and in MULTI_MATCH_ALL mode once every rule has. One
+ * instance classifies a single document and is not thread-safe.</p>
+ */
+final class StreamingDetector {
+
+    // Characters kept after a window's regex region so that '$' and
+    // look-ahead at the region end see the text that follows
+    private static final int LOOKAHEAD = 3;
+
+    private final CompiledRuleset compiled;
+    private final CompiledRule[] rules;
+    private final boolean topOnly;
+    private final int chunkChars;
+    private final int overlapChars;
+
+    private final KeywordAutomaton keywords;
+    private final boolean[] dictionaryHits;
+    private int keywordState;
+    private int dictionaryRemaining;
+    private final MultiRegex.Cursor regexCursor;
+
+    private final char[] window;
+    private int length;
+    private boolean atStart = true; // nothing has been dropped from the window yet
+    private long total;
+
+    private final boolean[] fired;
+    private int firedCount;
+    private int best; // lowest fired rule index, rules.length if none
+    private boolean done;
+    private final Set<Rule> overBudget = new LinkedHashSet<>();
+
+    StreamingDetector(CompiledRuleset compiled, ClassificationMode mode, int chunkChars, int overlapChars) {
+        this.compiled = compiled;
+        this.rules = compiled.getRules();
+        this.topOnly = mode == ClassificationMode.TOP_MATCH_ONLY;
+        this.chunkChars = chunkChars;
+        this.overlapChars = overlapChars;
+        this.keywords = compiled.getKeywords();
+        this.dictionaryHits = keywords != null ? new boolean[keywords.getSlotCount()] : null;
+        this.keywordState = keywords != null ? keywords.start() : 0;
+        this.dictionaryRemaining = keywords != null ? keywords.getSlotCount() : 0;
+        this.regexCursor = compiled.getRegexes() != null ? compiled.getRegexes().cursor() : null;
+        this.window = new char[overlapChars + chunkChars];
+        this.fired = new boolean[rules.length];
+        this.best = rules.length;
+        this.done = rules.length == 0;
+    }
+
+    /**
+     * Read the document to its end, or until the outcome can no longer change.
+     * The reader is not closed.
+     */
+    void readFrom(Reader in) throws IOException {
+        boolean eof = false;
+        while (!done && !eof) {
+            if (length + chunkChars > window.length) {
+                slide();
+            }
+            int start = length;
+            int limit = start + chunkChars;
+            while (length < limit) {
+                int n = in.read(window, length, limit - length);
+                if (n < 0) {
+                    eof = true;
+                    break;
+                }
+                length += n;
+            }
+            if (length > start) {
+                scan(start, length);
+                if (!eof) {
+                    evaluate(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finish the document and return the matched rules.
+     *
+     * @return the detection result; streamed input is not retained, so the
+     *         result carries no data
+     */
+    DetectionResult finish() {
+        if (!done) {
+            if (regexCursor != null) {
+                regexCursor.finish();
+            }
+            evaluate(true);
+        }
+        List<Rule> matched = new ArrayList<>();
+        if (topOnly) {
+            if (best < rules.length) {
+                matched.add(rules[best].getRule());
+            }
+        } else {
+            for (int i = 0; i < rules.length; i++) {
+                if (fired[i]) {
+                    matched.add(rules[i].getRule());
+                }
+            }
+        }
+        DetectionResult result = new DetectionResult(null, matched);
+        if (!overBudget.isEmpty()) {
+            result.setOverBudgetRules(new ArrayList<>(overBudget));
+        }
+        return result;
+    }
+
+    /**
+     * Number of characters read so far.
+     */
+    long getCharsRead() {
+        return total;
+    }
+
+    // Drop all but the last overlapChars characters to make room for a chunk
+    private void slide() {
+        int keep = Math.min(length, overlapChars);
+        System.arraycopy(window, length - keep, window, 0, keep);
+        length = keep;
+        atStart = false;
+    }
+
+    // Advance the automata over the newly read characters
+    private void scan(int from, int to) {
+        total += to - from;
+        if (keywords != null && dictionaryRemaining > 0) {
+            int state = keywordState;
+            for (int i = from; i < to && dictionaryRemaining > 0; i++) {
+                state = keywords.next(state, window[i]);
+                if (keywords.hasOutput(state)) {
+                    dictionaryRemaining -= keywords.collect(state, dictionaryHits);
+                }
+            }
+            keywordState = state;
+        }
+        if (regexCursor != null) {
+            regexCursor.feed(CharBuffer.wrap(window, 0, length), from, to);
+        }
+    }
+
+    private void evaluate(boolean last) {
+        CharBuffer text = CharBuffer.wrap(window, 0, length);
+        // the first character of a slid window is only context for '^' and \b
+        int from = atStart ? 0 : 1;
+        int to = last ? length : Math.max(from, length - LOOKAHEAD);
+        MatchContext ctx = new MatchContext(text, compiled, from, to, atStart, last && atStart,
+                dictionaryHits, regexCursor != null ? regexCursor.hits() : null);
+        // Only rules that would take precedence over the current best can
+        // change a TOP_MATCH_ONLY result
+        int limit = topOnly ? best : rules.length;
+        for (int i = 0; i < limit; i++) {
+            if (!fired[i] && rules[i].matches(ctx)) {
+                fired[i] = true;
+                firedCount++;
+                if (topOnly) {
+                    best = i;
+                    break;
+                }
+            }
+        }
+        ctx.recordStats();
+        overBudget.addAll(ctx.getOverBudget());
+        done = topOnly ? best == 0 : firedCount == rules.length;
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.sdk;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The tokens of one input and their hashes, computed once per detection and
+ * shared by every {@code dictionary_token} matcher.
+ *
+ * <p>A token is a maximal run of letters, digits and underscores, which may
+ * also contain a hyphen or dot between two such characters, e.g.
+ * {@code AB-1234} or {@code j.doe}. A token is hashed over the UTF-8 encoding
+ * of its case-folded characters, the form in which dictionary terms are
+ * stored, so a term and a token that equal it ignoring case hash alike.</p>
+ */
+final class Tokens {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private long[] hashes = new long[16];
+    private int size;
+
+    private Tokens() {
+    }
+
+    /**
+     * Split the text into tokens.
+     *
+     * @param text         the input
+     * @param partialStart whether a token at the start of the text may be cut
+     *                     off and is therefore dropped
+     * @param partialEnd   whether a token at the end of the text may be cut
+     *                     off and is therefore dropped
+     */
+    static Tokens of(CharSequence text, boolean partialStart, boolean partialEnd) {
+        Tokens tokens = new Tokens();
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            int cp = Character.codePointAt(text, i);
+            if (!isWordChar(cp)) {
+                i += Character.charCount(cp);
+                continue;
+            }
+            int start = i;
+            i += Character.charCount(cp);
+            while (i < n) {
+                cp = Character.codePointAt(text, i);
+                if (isWordChar(cp)) {
+                    i += Character.charCount(cp);
+                } else if ((cp == '-' || cp == '.') && i + 1 < n
+                        && isWordChar(Character.codePointAt(text, i + 1))) {
+                    i++;
+                } else {
+                    break;
+                }
+            }
+            if (!(partialStart && start == 0) && !(partialEnd && i == n)) {
+                tokens.add(start, i, hash(text, start, i));
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isWordChar(int cp) {
+        return Character.isLetterOrDigit(cp) || cp == '_';
+    }
+
+    private void add(int start, int end, long hash) {
+        if (size == starts.length) {
+            int cap = size * 2;
+            starts = Arrays.copyOf(starts, cap);
+            ends = Arrays.copyOf(ends, cap);
+            hashes = Arrays.copyOf(hashes, cap);
+        }
+        starts[size] = start;
+        ends[size] = end;
+        hashes[size] = hash;
+        size++;
+    }
+
+    int size() { return size; }
+    int start(int i) { return starts[i]; }
+    int end(int i) { return ends[i]; }
+    long hash(int i) { return hashes[i]; }
+
+    /**
+     * Hash of {@code text[start, end)} after folding each character with
+     * {@link Character#toLowerCase(char)} and encoding the result as UTF-8;
+     * an unpaired surrogate is encoded as {@code '?'}, as by
+     * {@link String#getBytes}.
+     */
+    static long hash(CharSequence text, int start, int end) {
+        long h = FNV_OFFSET;
+        for (int i = start; i < end; ) {
+            char c = Character.toLowerCase(text.charAt(i++));
+            int cp = c;
+            if (Character.isHighSurrogate(c) && i < end && Character.isLowSurrogate(text.charAt(i))) {
+                cp = Character.toCodePoint(c, Character.toLowerCase(text.charAt(i++)));
+            } else if (Character.isSurrogate(c)) {
+                cp = '?';
+            }
+            if (cp < 0x80) {
+                h = (h ^ cp) * FNV_PRIME;
+            } else if (cp < 0x800) {
+                h = (h ^ (0xC0 | cp >> 6)) * FNV_PRIME;
+                h = (h ^ (0x80 | cp & 0x3F)) * FNV_PRIME;
+            } else if (cp < 0x10000) {
+                h = (h ^ (0xE0 | cp >> 12)) * FNV_PRIME;
+                h = (h ^ (0x80 | cp >> 6 & 0x3F)) * FNV_PRIME;
+                h = (h ^ (0x80 | cp & 0x3F)) * FNV_PRIME;
+            } else {
+                h = (h ^ (0xF0 | cp >> 18)) * FNV_PRIME;
+                h = (h ^ (0x80 | cp >> 12 & 0x3F)) * FNV_PRIME;
+                h = (h ^ (0x80 | cp >> 6 & 0x3F)) * FNV_PRIME;
+                h = (h ^ (0x80 | cp & 0x3F)) * FNV_PRIME;
+            }
+        }
+        return mix(h);
+    }
+
+    /**
+     * Hash of an already folded, UTF-8 encoded term, equal to
+     * {@link #hash(CharSequence, int, int)} of its text.
+     */
+    static long hash(ByteBuffer buf, int off, int len) {
+        long h = FNV_OFFSET;
+        for (int i = off, end = off + len; i < end; i++) {
+            h = (h ^ (buf.get(i) & 0xFF)) * FNV_PRIME;
+        }
+        return mix(h);
+    }
+
+    // Spread FNV-1a's weak high bits (MurmurHash3 finalizer)
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.sdk;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-only UTF-16 view of UTF-8 encoded bytes in a byte array or a heap or
+ * direct {@link ByteBuffer}, for classifying encoded input without decoding
+ * it into a {@code String} first.
+ *
+ * <p>The bytes are validated once when the view is created. Pure ASCII, the
+ * common case for identifiers, numbers and most structured values, is then
+ * read straight from the bytes. Other well-formed input is decoded on the fly
+ * as long as it is read front to back, which is how the keyword, literal and
+ * multi-regex automata and the fuzzy matchers scan; each such scan starts
+ * again at index 0. The first out-of-order read, typically a
+ * {@code java.util.regex} search, decodes the whole input into a
+ * {@code char[]} that is used from then on. Malformed input is decoded right
+ * away, with the same replacement characters {@code new String(bytes, UTF_8)}
+ * would produce.</p>
+ *
+ * <p>The view does not copy the bytes, so they must not change while it is
+ * in use. Not thread-safe; it belongs to a single detection.</p>
+ */
+final class Utf8CharSequence implements CharSequence {
+
+    private final byte[] array;     // null when reading a buffer without an accessible array
+    private final ByteBuffer buffer;
+    private final int offset;       // index of the first byte in array or buffer
+    private final int byteLength;
+    private final int length;
+    private final boolean ascii;
+    private char[] chars;           // whole input, once decoded
+
+    // Sequential decoding state: the char at index next - 1 is current, and
+    // the char at index next starts at byte nextByte, or is low if non-zero
+    private int next;
+    private int nextByte;
+    private char current;
+    private char low;
+
+    private Utf8CharSequence(byte[] array, ByteBuffer buffer, int offset, int byteLength) {
+        this.array = array;
+        this.buffer = buffer;
+        this.offset = offset;
+        this.byteLength = byteLength;
+        int n = measure();
+        if (n < 0) {
+            chars = decode();
+            n = chars.length;
+        }
+        this.length = n;
+        this.ascii = chars == null && n == byteLength;
+    }
+
+    /**
+     * View {@code buf[off, off + len)}.
+     *
+     * @throws IndexOutOfBoundsException if the range is not within the array
+     */
+    static Utf8CharSequence of(byte[] buf, int off, int len) {
+        if (off < 0 || len < 0 || off > buf.length - len) {
+            throw new IndexOutOfBoundsException("off=" + off + ", len=" + len + ", length=" + buf.length);
+        }
+        return new Utf8CharSequence(buf, null, off, len);
+    }
+
+    /**
+     * View the bytes between the buffer's position and limit. The buffer's
+     * position, limit and mark are not modified.
+     */
+    static Utf8CharSequence of(ByteBuffer buf) {
+        if (buf.hasArray()) {
+            return new Utf8CharSequence(buf.array(), null, buf.arrayOffset() + buf.position(), buf.remaining());
+        }
+        return new Utf8CharSequence(null, buf, buf.position(), buf.remaining());
+    }
+
+    /** Whether the input is pure ASCII and read without any decoding. */
+    boolean isAscii() {
+        return ascii;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new StringIndexOutOfBoundsException(index);
+        }
+        if (chars != null) {
+            return chars[index];
+        }
+        if (ascii) {
+            return (char) byteAt(offset + index);
+        }
+        if (index == next) {
+            return advance();
+        }
+        if (index == next - 1) {
+            return current;
+        }
+        if (index == 0) {
+            next = 0;
+            nextByte = 0;
+            low = 0;
+            return advance();
+        }
+        chars = decode();
+        return chars[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new StringIndexOutOfBoundsException("start=" + start + ", end=" + end + ", length=" + length);
+        }
+        if (ascii && chars == null) {
+            return array != null
+                    ? new Utf8CharSequence(array, null, offset + start, end - start)
+                    : new Utf8CharSequence(null, buffer, offset + start, end - start);
+        }
+        if (chars == null) {
+            chars = decode();
+        }
+        return new String(chars, start, end - start);
+    }
+
+    /** Decode the input into a new string. */
+    @Override
+    public String toString() {
+        if (chars != null) {
+            return new String(chars);
+        }
+        if (array != null) {
+            return new String(array, offset, byteLength, StandardCharsets.UTF_8);
+        }
+        return new String(copyBytes(), StandardCharsets.UTF_8);
+    }
+
+    private byte byteAt(int index) {
+        return array != null ? array[index] : buffer.get(index);
+    }
+
+    // Decode the char at index next
+    private char advance() {
+        char c;
+        if (low != 0) {
+            c = low;
+            low = 0;
+        } else {
+            int p = offset + nextByte;
+            int b0 = byteAt(p);
+            if (b0 >= 0) {
+                c = (char) b0;
+                nextByte += 1;
+            } else if (b0 < (byte) 0xE0) {
+                c = (char) (((b0 & 0x1F) << 6) | (byteAt(p + 1) & 0x3F));
+                nextByte += 2;
+            } else if (b0 < (byte) 0xF0) {
+                c = (char) (((b0 & 0x0F) << 12) | ((byteAt(p + 1) & 0x3F) << 6) | (byteAt(p + 2) & 0x3F));
+                nextByte += 3;
+            } else {
+                int cp = ((b0 & 0x07) << 18) | ((byteAt(p + 1) & 0x3F) << 12)
+                        | ((byteAt(p + 2) & 0x3F) << 6) | (byteAt(p + 3) & 0x3F);
+                c = Character.highSurrogate(cp);
+                low = Character.lowSurrogate(cp);
+                nextByte += 4;
+            }
+        }
+        next++;
+        current = c;
+        return c;
+    }
+
+    /**
+     * Validate the bytes as UTF-8 and count the UTF-16 chars they decode to,
+     * or return -1 if they are malformed. Accepts exactly the well-formed
+     * sequences of the Unicode standard, which the JDK decoder decodes
+     * without replacements.
+     */
+    private int measure() {
+        int n = 0;
+        int i = offset;
+        int end = offset + byteLength;
+        while (i < end) {
+            int b0 = byteAt(i);
+            if (b0 >= 0) {
+                i++;
+                n++;
+                continue;
+            }
+            b0 &= 0xFF;
+            int size;
+            int min = 0x80; // bounds of the second byte
+            int max = 0xBF;
+            if (b0 >= 0xC2 && b0 <= 0xDF) {
+                size = 2;
+            } else if (b0 >= 0xE0 && b0 <= 0xEF) {
+                size = 3;
+                if (b0 == 0xE0) {
+                    min = 0xA0; // overlong
+                } else if (b0 == 0xED) {
+                    max = 0x9F; // surrogates
+                }
+            } else if (b0 >= 0xF0 && b0 <= 0xF4) {
+                size = 4;
+                if (b0 == 0xF0) {
+                    min = 0x90; // overlong
+                } else if (b0 == 0xF4) {
+                    max = 0x8F; // above U+10FFFF
+                }
+            } else {
+                return -1;
+            }
+            if (end - i < size) {
+                return -1;
+            }
+            int b1 = byteAt(i + 1) & 0xFF;
+            if (b1 < min || b1 > max) {
+                return -1;
+            }
+            for (int k = 2; k < size; k++) {
+                if ((byteAt(i + k) & 0xC0) != 0x80) {
+                    return -1;
+                }
+            }
+            i += size;
+            n += size == 4 ? 2 : 1;
+        }
+        return n;
+    }
+
+    private char[] decode() {
+        return toString().toCharArray();
+    }
+
+    private byte[] copyBytes() {
+        byte[] bytes = new byte[byteLength];
+        ByteBuffer view = buffer.duplicate();
+        ((Buffer) view).position(offset);
+        view.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.sdk.audit;
+
+import java.util.List;
+
+/**
+ * Destination of match events. The SDK calls the sink from a single
+ * background thread with batches of events in detection order, so an
+ * implementation may block on I/O without slowing down classification; while
+ * it does, new events queue up and are dropped once the buffer is full.
+ */
+public interface AuditSink {
+
+    /**
+     * Deliver a batch of events. Exceptions are counted and logged; the batch
+     * is not retried.
+     *
+     * @param events the events, not retained by the caller after the call
+     */
+    void write(List<MatchEvent> events) throws Exception;
+}
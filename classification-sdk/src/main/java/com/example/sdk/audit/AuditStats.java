@@ -0,0 +1,40 @@
+package com.example.sdk.audit;
+
+/**
+ * Point-in-time counters of the match-audit pipeline since the SDK was
+ * created. All values are zero when auditing is disabled.
+ */
+public class AuditStats {
+    private final long publishedCount;
+    private final long droppedCount;
+    private final long deliveredCount;
+    private final long failedCount;
+    private final int pendingCount;
+
+    public AuditStats(long publishedCount, long droppedCount, long deliveredCount, long failedCount,
+                      int pendingCount) {
+        this.publishedCount = publishedCount;
+        this.droppedCount = droppedCount;
+        this.deliveredCount = deliveredCount;
+        this.failedCount = failedCount;
+        this.pendingCount = pendingCount;
+    }
+
+    /** Sampled events accepted into the buffer. */
+    public long getPublishedCount() { return publishedCount; }
+    /** Sampled events discarded because the buffer was full. */
+    public long getDroppedCount() { return droppedCount; }
+    /** Events handed to the sink without an exception. */
+    public long getDeliveredCount() { return deliveredCount; }
+    /** Events in batches for which the sink threw. */
+    public long getFailedCount() { return failedCount; }
+    /** Events waiting in the buffer. */
+    public int getPendingCount() { return pendingCount; }
+
+    @Override
+    public String toString() {
+        return "AuditStats{published=" + publishedCount + ", dropped=" + droppedCount
+                + ", delivered=" + deliveredCount + ", failed=" + failedCount
+                + ", pending=" + pendingCount + "}";
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.sdk.audit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Default {@link AuditSink}: writes one INFO line per event to the
+ * {@code com.example.sdk.audit} logger.
+ */
+public class LoggingAuditSink implements AuditSink {
+
+    private static final Logger log = LoggerFactory.getLogger("com.example.sdk.audit");
+
+    @Override
+    public void write(List<MatchEvent> events) {
+        if (!log.isInfoEnabled()) {
+            return;
+        }
+        for (MatchEvent event : events) {
+            if (event.getPayload() != null) {
+                log.info("Matched {} rule(s) {} in {} character(s): {}", event.getRuleIds().size(),
+                        event.getRuleIds(), event.getInputLength(), event.getPayload());
+            } else {
+                log.info("Matched {} rule(s) {} in {} character(s)", event.getRuleIds().size(),
+                        event.getRuleIds(), event.getInputLength());
+            }
+        }
+    }
+}
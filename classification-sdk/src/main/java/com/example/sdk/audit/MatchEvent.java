@@ -0,0 +1,47 @@
+package com.example.sdk.audit;
+
+import com.example.sdk.ClassificationMode;
+
+import java.util.List;
+
+/**
+ * A detection that matched at least one rule, as delivered to an
+ * {@link AuditSink}. The payload has already been redacted according to
+ * 'sdk.audit.payload'; with the default setting it is {@code null}.
+ */
+public class MatchEvent {
+    private final long timestamp;
+    private final String rulesetVersion;
+    private final ClassificationMode mode;
+    private final List<String> ruleIds;
+    private final long inputLength;
+    private final String payload;
+
+    public MatchEvent(long timestamp, String rulesetVersion, ClassificationMode mode, List<String> ruleIds,
+                      long inputLength, String payload) {
+        this.timestamp = timestamp;
+        this.rulesetVersion = rulesetVersion;
+        this.mode = mode;
+        this.ruleIds = ruleIds;
+        this.inputLength = inputLength;
+        this.payload = payload;
+    }
+
+    /** Time of the detection in milliseconds since the epoch. */
+    public long getTimestamp() { return timestamp; }
+    /** Version of the ruleset the value was evaluated against. */
+    public String getRulesetVersion() { return rulesetVersion; }
+    public ClassificationMode getMode() { return mode; }
+    /** Ids of the matched rules, highest priority first. */
+    public List<String> getRuleIds() { return ruleIds; }
+    /** Length of the inspected value, or characters read for a stream. */
+    public long getInputLength() { return inputLength; }
+    /** The redacted value, or {@code null} if it is not recorded. */
+    public String getPayload() { return payload; }
+
+    @Override
+    public String toString() {
+        return "MatchEvent{rules=" + ruleIds + ", mode=" + mode + ", ruleset=" + rulesetVersion
+                + ", length=" + inputLength + (payload != null ? ", payload=" + payload : "") + "}";
+    }
+}
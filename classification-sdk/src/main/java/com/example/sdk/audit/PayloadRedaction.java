@@ -0,0 +1,94 @@
+package com.example.sdk.audit;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * How much of a matched value is recorded in a {@link MatchEvent}, selected
+ * by 'sdk.audit.payload'.
+ */
+public enum PayloadRedaction {
+
+    /** Record nothing. The default. */
+    NONE,
+
+    /** Record the SHA-256 of the UTF-8 value in hex, to correlate repeats. */
+    HASH,
+
+    /**
+     * Record the value with every letter and digit replaced by '*', keeping
+     * its shape, truncated to {@value #MAX_MASKED_LENGTH} characters.
+     */
+    MASK,
+
+    /** Record the value unchanged. Writes sensitive data to the sink. */
+    RAW;
+
+    private static final int MAX_MASKED_LENGTH = 256;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Parse a setting, case-insensitively.
+     *
+     * @return the redaction, or {@code NONE} if the value is not recognized
+     */
+    public static PayloadRedaction parse(String value) {
+        if (value != null) {
+            for (PayloadRedaction redaction : values()) {
+                if (redaction.name().equalsIgnoreCase(value.trim())) {
+                    return redaction;
+                }
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Apply the redaction to a value.
+     *
+     * @param data the value, may be {@code null}
+     * @return the recorded payload, or {@code null}
+     */
+    public String apply(String data) {
+        if (data == null) {
+            return null;
+        }
+        switch (this) {
+            case HASH:
+                return sha256(data);
+            case MASK:
+                return mask(data);
+            case RAW:
+                return data;
+            default:
+                return null;
+        }
+    }
+
+    private static String mask(String data) {
+        int length = Math.min(data.length(), MAX_MASKED_LENGTH);
+        char[] out = new char[length];
+        for (int i = 0; i < length; i++) {
+            char c = data.charAt(i);
+            out[i] = Character.isLetterOrDigit(c) ? '*' : c;
+        }
+        return new String(out);
+    }
+
+    private static String sha256(String data) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(data.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+        char[] out = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            out[2 * i] = HEX[(digest[i] >> 4) & 0xf];
+            out[2 * i + 1] = HEX[digest[i] & 0xf];
+        }
+        return new String(out);
+    }
+}
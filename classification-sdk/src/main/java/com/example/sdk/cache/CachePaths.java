@@ -34,4 +34,38 @@ public class CachePaths {
     public static String getVersionCacheFile(String version) {
         return getCacheDir() + "rules-cache-" + version + ".json";
     }
+
+    /**
+     * File storing the latest ruleset together with the automata compiled
+     * from it, in a checksummed binary format that is memory-mapped on
+     * startup. The JSON file remains the fallback.
+     */
+    public static String getBinaryCacheFile() {
+        return getCacheDir() + "rules-cache.bin";
+    }
+
+    /**
+     * Directory holding the external dictionary files referenced by
+     * dictionary matchers. Configured with the JVM system property
+     * sdk.dictionary.dir or the environment variable SDK_DICTIONARY_DIR,
+     * and otherwise the "dictionaries" directory inside the cache directory.
+     */
+    public static String getDictionaryDir() {
+        String dir = System.getProperty("sdk.dictionary.dir");
+        if (dir == null || dir.isEmpty()) {
+            dir = System.getenv("SDK_DICTIONARY_DIR");
+        }
+        if (dir == null || dir.isEmpty()) {
+            dir = getCacheDir() + "dictionaries/";
+        }
+        return dir.endsWith("/") ? dir : dir + "/";
+    }
+
+    /**
+     * File storing the compiled, memory-mappable index of an external
+     * dictionary. Rebuilt whenever the dictionary file changes.
+     */
+    public static String getDictionaryIndexFile(String name) {
+        return getCacheDir() + "dictionary-index/" + name + ".idx";
+    }
 }
@@ -5,6 +5,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
 /**
  * Persists and loads rule configurations from the filesystem. Maintains both
@@ -55,6 +57,33 @@ public class CacheStore {
         }
     }
 
+    /**
+     * Create an empty file in the cache directory to receive the JSON of a
+     * ruleset as it is downloaded, for {@link #saveRaw}.
+     */
+    public static File createTempFile() throws IOException {
+        ensureDir();
+        return Files.createTempFile(new File(CachePaths.getCacheDir()).toPath(), "rules-", ".json.tmp").toFile();
+    }
+
+    /**
+     * Save a ruleset whose JSON is already in the given file, e.g. as it was
+     * received from the policy service, by moving the file into place instead
+     * of serializing the ruleset again. The file must hold the ruleset
+     * including its ETag. Falls back to {@link #save} if it cannot be moved.
+     */
+    public static void saveRaw(Ruleset ruleset, File json) {
+        try {
+            File versionFile = new File(CachePaths.getVersionCacheFile(ruleset.getVersion()));
+            Files.copy(json.toPath(), versionFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.move(json.toPath(), new File(CachePaths.getLatestCacheFile()).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            json.delete();
+            save(ruleset);
+        }
+    }
+
     private static void ensureDir() {
         File dir = new File(CachePaths.getCacheDir());
         if (!dir.exists()) {
@@ -14,6 +14,42 @@ public class SdkConfig {
     // Default polling interval is 15 minutes
     private static final int DEFAULT_POLL_INTERVAL_SECONDS = 900;
 
+    // Default admission limit for asynchronous classification
+    private static final int DEFAULT_ASYNC_MAX_IN_FLIGHT = 1024;
+
+    // Streaming classification reads 64K characters at a time and keeps 4K
+    // characters of the previous chunk for matches across chunk boundaries
+    private static final int DEFAULT_STREAM_CHUNK_CHARS = 64 * 1024;
+    private static final int DEFAULT_STREAM_OVERLAP_CHARS = 4 * 1024;
+
+    // Time one in 64 detections when metrics are enabled
+    private static final int DEFAULT_METRICS_SAMPLE_INTERVAL = 64;
+
+    // A rule's java.util.regex evaluation may take 50 ms; a rule that runs
+    // over budget 3 times in a row is quarantined
+    private static final int DEFAULT_REGEX_BUDGET_MILLIS = 50;
+    private static final int DEFAULT_REGEX_QUARANTINE_AFTER = 3;
+
+    // Match-audit ring buffer capacity
+    private static final int DEFAULT_AUDIT_BUFFER_SIZE = 8192;
+
+    // Column scans sample at least 128 and at most 8192 values and decide
+    // at 95% confidence whether 1% or more of a column matches a rule
+    private static final int DEFAULT_COLUMN_MIN_SAMPLES = 128;
+    private static final int DEFAULT_COLUMN_MAX_SAMPLES = 8192;
+    private static final double DEFAULT_COLUMN_CONFIDENCE = 0.95;
+    private static final double DEFAULT_COLUMN_THRESHOLD = 0.01;
+    private static final double DEFAULT_DICTIONARY_BLOOM_FPP = 0.01;
+
+    // A new ruleset is warmed up with 2000 synthetic detections, for at
+    // most 5 seconds, before it is activated
+    private static final int DEFAULT_WARMUP_DETECTIONS = 2000;
+    private static final int DEFAULT_WARMUP_MAX_MILLIS = 5000;
+
+    // A long-poll for rule changes is held by the policy service for up to
+    // 60 seconds, below common proxy idle timeouts
+    private static final int DEFAULT_PUSH_WAIT_SECONDS = 60;
+
     // Stored last ETag for conditional requests
     private static volatile String lastETag;
 
@@ -50,6 +86,290 @@ public class SdkConfig {
         return DEFAULT_POLL_INTERVAL_SECONDS;
     }
 
+    /**
+     * Whether regex matchers are evaluated by a single multi-pattern automaton
+     * instead of one {@code java.util.regex} scan per pattern. Checked in
+     * order: JVM system property 'sdk.regex.multi.enabled', environment
+     * variable 'SDK_REGEX_MULTI_ENABLED', then defaults to true.
+     */
+    public static boolean isMultiRegexEnabled() {
+        return readBoolean("sdk.regex.multi.enabled", "SDK_REGEX_MULTI_ENABLED", true);
+    }
+
+    /**
+     * Time budget in milliseconds for evaluating the regex matchers of one
+     * rule that are run by {@code java.util.regex}; a search still running
+     * after it is abandoned and the rule treated as not matching. Checked in
+     * order: JVM system property 'sdk.regex.budget.millis', environment
+     * variable 'SDK_REGEX_BUDGET_MILLIS', then defaults to 50. 0 disables
+     * the budget.
+     */
+    public static int getRegexBudgetMillis() {
+        return Math.max(0, readInt("sdk.regex.budget.millis", "SDK_REGEX_BUDGET_MILLIS", DEFAULT_REGEX_BUDGET_MILLIS));
+    }
+
+    /**
+     * Number of consecutive evaluations over the regex time budget after
+     * which a rule is quarantined, i.e. skipped until the next ruleset is
+     * activated. Checked in order: JVM system property
+     * 'sdk.regex.quarantine.after', environment variable
+     * 'SDK_REGEX_QUARANTINE_AFTER', then defaults to 3. 0 disables
+     * quarantine.
+     */
+    public static int getRegexQuarantineAfter() {
+        return Math.max(0, readInt("sdk.regex.quarantine.after", "SDK_REGEX_QUARANTINE_AFTER",
+                DEFAULT_REGEX_QUARANTINE_AFTER));
+    }
+
+    /**
+     * Parallelism of the dedicated fork-join pool used by
+     * {@code ClassificationSdk.classifyAll}. Checked in order: JVM system
+     * property 'sdk.batch.parallelism', environment variable
+     * 'SDK_BATCH_PARALLELISM'. Defaults to 0, meaning the common pool.
+     */
+    public static int getBatchParallelism() {
+        return readInt("sdk.batch.parallelism", "SDK_BATCH_PARALLELISM", 0);
+    }
+
+    /**
+     * Maximum number of asynchronous classifications queued or running at
+     * once; further requests are rejected. Checked in order: JVM system
+     * property 'sdk.async.max.in.flight', environment variable
+     * 'SDK_ASYNC_MAX_IN_FLIGHT', then defaults to 1024.
+     */
+    public static int getAsyncMaxInFlight() {
+        return readInt("sdk.async.max.in.flight", "SDK_ASYNC_MAX_IN_FLIGHT", DEFAULT_ASYNC_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * Executor type for asynchronous classification: 'virtual' (virtual
+     * threads) or 'platform' (fixed pool sized to the processor count).
+     * Checked in order: JVM system property 'sdk.async.executor', environment
+     * variable 'SDK_ASYNC_EXECUTOR'. Returns null if neither is set, in which
+     * case virtual threads are used where the JVM supports them.
+     */
+    public static String getAsyncExecutor() {
+        String val = read("sdk.async.executor", "SDK_ASYNC_EXECUTOR");
+        return val != null ? val.trim() : null;
+    }
+
+    /**
+     * Number of characters read per chunk when classifying a stream. Checked
+     * in order: JVM system property 'sdk.stream.chunk.chars', environment
+     * variable 'SDK_STREAM_CHUNK_CHARS', then defaults to 65536. Values below
+     * 1024 are raised to 1024.
+     */
+    public static int getStreamChunkChars() {
+        return Math.max(1024, readInt("sdk.stream.chunk.chars", "SDK_STREAM_CHUNK_CHARS", DEFAULT_STREAM_CHUNK_CHARS));
+    }
+
+    /**
+     * Number of trailing characters of the previous chunk that regex and
+     * fuzzy_contains matchers see again with the next chunk, bounding the
+     * length of a match they can find across a chunk boundary. Checked in
+     * order: JVM system property 'sdk.stream.overlap.chars', environment
+     * variable 'SDK_STREAM_OVERLAP_CHARS', then defaults to 4096. Values
+     * below 16 are raised to 16.
+     */
+    public static int getStreamOverlapChars() {
+        return Math.max(16, readInt("sdk.stream.overlap.chars", "SDK_STREAM_OVERLAP_CHARS", DEFAULT_STREAM_OVERLAP_CHARS));
+    }
+
+    /**
+     * Size cap in bytes of the cache of detection results for repeated
+     * values. Checked in order: JVM system property 'sdk.cache.max.bytes',
+     * environment variable 'SDK_CACHE_MAX_BYTES'. Defaults to 0, which
+     * disables the cache.
+     */
+    public static long getResultCacheMaxBytes() {
+        String val = read("sdk.cache.max.bytes", "SDK_CACHE_MAX_BYTES");
+        if (val != null) {
+            try {
+                return Long.parseLong(val.trim());
+            } catch (NumberFormatException ignore) {
+                // ignore and fall back to default
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * One in how many detections has its rule evaluations timed when a
+     * metrics recorder is installed. Checked in order: JVM system property
+     * 'sdk.metrics.sample.interval', environment variable
+     * 'SDK_METRICS_SAMPLE_INTERVAL', then defaults to 64. A value of 1 times
+     * every detection.
+     */
+    public static int getMetricsSampleInterval() {
+        return Math.max(1, readInt("sdk.metrics.sample.interval", "SDK_METRICS_SAMPLE_INTERVAL",
+                DEFAULT_METRICS_SAMPLE_INTERVAL));
+    }
+
+    /**
+     * Whether detections that match are reported to the match-audit sink.
+     * Checked in order: JVM system property 'sdk.audit.enabled', environment
+     * variable 'SDK_AUDIT_ENABLED', then defaults to true.
+     */
+    public static boolean isAuditEnabled() {
+        return readBoolean("sdk.audit.enabled", "SDK_AUDIT_ENABLED", true);
+    }
+
+    /**
+     * Fraction of matching detections that are audited, between 0 and 1.
+     * Checked in order: JVM system property 'sdk.audit.sample.rate',
+     * environment variable 'SDK_AUDIT_SAMPLE_RATE', then defaults to 1.
+     */
+    public static double getAuditSampleRate() {
+        return Math.min(1.0, Math.max(0.0, readDouble("sdk.audit.sample.rate", "SDK_AUDIT_SAMPLE_RATE", 1.0)));
+    }
+
+    /**
+     * How the inspected value is recorded in audit events: 'none', 'hash',
+     * 'mask' or 'raw'. Checked in order: JVM system property
+     * 'sdk.audit.payload', environment variable 'SDK_AUDIT_PAYLOAD', then
+     * defaults to 'none'.
+     */
+    public static String getAuditPayload() {
+        String val = read("sdk.audit.payload", "SDK_AUDIT_PAYLOAD");
+        return val != null ? val.trim() : "none";
+    }
+
+    /**
+     * Number of audit events buffered for the sink before further events are
+     * dropped, rounded up to a power of two. Checked in order: JVM system
+     * property 'sdk.audit.buffer.size', environment variable
+     * 'SDK_AUDIT_BUFFER_SIZE', then defaults to 8192.
+     */
+    public static int getAuditBufferSize() {
+        return Math.max(16, readInt("sdk.audit.buffer.size", "SDK_AUDIT_BUFFER_SIZE", DEFAULT_AUDIT_BUFFER_SIZE));
+    }
+
+    /**
+     * Number of values a column scan samples before it may stop early.
+     * Checked in order: JVM system property 'sdk.column.min.samples',
+     * environment variable 'SDK_COLUMN_MIN_SAMPLES', then defaults to 128.
+     */
+    public static int getColumnMinSamples() {
+        return Math.max(1, readInt("sdk.column.min.samples", "SDK_COLUMN_MIN_SAMPLES", DEFAULT_COLUMN_MIN_SAMPLES));
+    }
+
+    /**
+     * Number of values after which a column scan stops even if some rules
+     * are undecided. Checked in order: JVM system property
+     * 'sdk.column.max.samples', environment variable
+     * 'SDK_COLUMN_MAX_SAMPLES', then defaults to 8192. 0 samples until the
+     * column ends.
+     */
+    public static int getColumnMaxSamples() {
+        return Math.max(0, readInt("sdk.column.max.samples", "SDK_COLUMN_MAX_SAMPLES", DEFAULT_COLUMN_MAX_SAMPLES));
+    }
+
+    /**
+     * Confidence level of column scan verdicts, between 0.5 and 0.9999.
+     * Checked in order: JVM system property 'sdk.column.confidence',
+     * environment variable 'SDK_COLUMN_CONFIDENCE', then defaults to 0.95.
+     */
+    public static double getColumnConfidence() {
+        return Math.min(0.9999, Math.max(0.5,
+                readDouble("sdk.column.confidence", "SDK_COLUMN_CONFIDENCE", DEFAULT_COLUMN_CONFIDENCE)));
+    }
+
+    /**
+     * Hit ratio at or above which a column scan reports a rule as present in
+     * a column, between 0 and 1. Checked in order: JVM system property
+     * 'sdk.column.threshold', environment variable 'SDK_COLUMN_THRESHOLD',
+     * then defaults to 0.01.
+     */
+    public static double getColumnThreshold() {
+        return Math.min(1.0, Math.max(0.0,
+                readDouble("sdk.column.threshold", "SDK_COLUMN_THRESHOLD", DEFAULT_COLUMN_THRESHOLD)));
+    }
+
+    /**
+     * Target false-positive rate of the Bloom filter placed in front of each
+     * token dictionary, between 0.000001 and 0.5. Checked in order: JVM
+     * system property 'sdk.dictionary.bloom.fpp', environment variable
+     * 'SDK_DICTIONARY_BLOOM_FPP', then defaults to 0.01.
+     */
+    public static double getDictionaryBloomFpp() {
+        return Math.min(0.5, Math.max(0.000001,
+                readDouble("sdk.dictionary.bloom.fpp", "SDK_DICTIONARY_BLOOM_FPP", DEFAULT_DICTIONARY_BLOOM_FPP)));
+    }
+
+    /**
+     * Whether the compiled ruleset is also cached in binary form, from which
+     * the SDK starts without parsing JSON or building automata. Checked in
+     * order: JVM system property 'sdk.rule.cache.binary.enabled', environment
+     * variable 'SDK_RULE_CACHE_BINARY_ENABLED', then defaults to true.
+     */
+    public static boolean isBinaryCacheEnabled() {
+        return readBoolean("sdk.rule.cache.binary.enabled", "SDK_RULE_CACHE_BINARY_ENABLED", true);
+    }
+
+    /**
+     * Whether the SDK starts without waiting for its rules: the bootstrap
+     * rules are activated at once, and the cached and remote rulesets are
+     * loaded, compiled and warmed up in the background. Checked in order:
+     * JVM system property 'sdk.startup.async', environment variable
+     * 'SDK_STARTUP_ASYNC', then defaults to false.
+     */
+    public static boolean isAsyncStartupEnabled() {
+        return readBoolean("sdk.startup.async", "SDK_STARTUP_ASYNC", false);
+    }
+
+    /**
+     * Parallelism of ruleset compilation. Checked in order: JVM system
+     * property 'sdk.compile.parallelism', environment variable
+     * 'SDK_COMPILE_PARALLELISM'. Defaults to 0, meaning the common pool; 1
+     * compiles on the calling thread only.
+     */
+    public static int getCompileParallelism() {
+        return Math.max(0, readInt("sdk.compile.parallelism", "SDK_COMPILE_PARALLELISM", 0));
+    }
+
+    /**
+     * Number of synthetic detections run against a newly compiled ruleset
+     * before it is activated, so that it is served by compiled code and
+     * built automaton states from its first request. Checked in order: JVM
+     * system property 'sdk.warmup.detections', environment variable
+     * 'SDK_WARMUP_DETECTIONS', then defaults to 2000. 0 disables warm-up.
+     */
+    public static int getWarmupDetections() {
+        return Math.max(0, readInt("sdk.warmup.detections", "SDK_WARMUP_DETECTIONS", DEFAULT_WARMUP_DETECTIONS));
+    }
+
+    /**
+     * Longest time in milliseconds spent warming up a new ruleset; the
+     * warm-up stops early once it is reached. Checked in order: JVM system
+     * property 'sdk.warmup.max.millis', environment variable
+     * 'SDK_WARMUP_MAX_MILLIS', then defaults to 5000.
+     */
+    public static int getWarmupMaxMillis() {
+        return Math.max(0, readInt("sdk.warmup.max.millis", "SDK_WARMUP_MAX_MILLIS", DEFAULT_WARMUP_MAX_MILLIS));
+    }
+
+    /**
+     * Whether the SDK keeps a long-poll open to the policy service, which
+     * answers it as soon as the published rules change. Polling every
+     * 'sdk.rule.poll.interval.seconds' continues as a fallback. Checked in
+     * order: JVM system property 'sdk.rule.push.enabled', environment
+     * variable 'SDK_RULE_PUSH_ENABLED', then defaults to true.
+     */
+    public static boolean isPushEnabled() {
+        return readBoolean("sdk.rule.push.enabled", "SDK_RULE_PUSH_ENABLED", true);
+    }
+
+    /**
+     * Seconds the policy service is asked to hold a long-poll before it
+     * answers that nothing changed. Checked in order: JVM system property
+     * 'sdk.rule.push.wait.seconds', environment variable
+     * 'SDK_RULE_PUSH_WAIT_SECONDS', then defaults to 60.
+     */
+    public static int getPushWaitSeconds() {
+        return Math.max(1, readInt("sdk.rule.push.wait.seconds", "SDK_RULE_PUSH_WAIT_SECONDS",
+                DEFAULT_PUSH_WAIT_SECONDS));
+    }
+
     public static String getLastETag() {
         return lastETag;
     }
@@ -57,4 +377,45 @@ public class SdkConfig {
     public static void setLastETag(String eTag) {
         lastETag = eTag;
     }
+
+    /**
+     * Read a raw value from the given system property, falling back to the
+     * environment variable. Returns null if neither is set.
+     */
+    private static String read(String property, String env) {
+        String val = System.getProperty(property);
+        if (val == null || val.isEmpty()) {
+            val = System.getenv(env);
+        }
+        return (val == null || val.isEmpty()) ? null : val;
+    }
+
+    private static int readInt(String property, String env, int defaultValue) {
+        String val = read(property, env);
+        if (val != null) {
+            try {
+                return Integer.parseInt(val.trim());
+            } catch (NumberFormatException ignore) {
+                // ignore and fall back to default
+            }
+        }
+        return defaultValue;
+    }
+
+    private static double readDouble(String property, String env, double defaultValue) {
+        String val = read(property, env);
+        if (val != null) {
+            try {
+                return Double.parseDouble(val.trim());
+            } catch (NumberFormatException ignore) {
+                // ignore and fall back to default
+            }
+        }
+        return defaultValue;
+    }
+
+    private static boolean readBoolean(String property, String env, boolean defaultValue) {
+        String val = read(property, env);
+        return val != null ? Boolean.parseBoolean(val.trim()) : defaultValue;
+    }
 }
@@ -1,8 +1,11 @@
 package com.example.sdk.http;
 
+import com.example.sdk.cache.CacheStore;
 import com.example.sdk.config.SdkConfig;
 import com.example.sdk.model.Ruleset;
+import com.example.sdk.model.RulesetDelta;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
@@ -10,17 +13,39 @@ import okhttp3.ResponseBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Handles communication with the remote policy service over HTTP. Supports
  * conditional GET requests using the If-None-Match header to avoid
- * downloading unchanged rulesets.
+ * downloading unchanged rulesets, and delta requests that only download the
+ * rules changed since the version the client holds. A long-poll variant
+ * lets the service hold the request until the published rules change.
+ *
+ * <p>Responses are gzip-compressed if the service supports it; OkHttp asks
+ * for and decompresses them transparently. Bodies are parsed from the
+ * response stream, and a full ruleset is copied to a file in the cache
+ * directory as it is parsed, so that it can be cached without being
+ * serialized again.</p>
  */
 public class PolicyHttpClient {
 
     private static final Logger log = LoggerFactory.getLogger(PolicyHttpClient.class);
 
+    /** Query parameter asking the service to hold the request, in seconds. */
+    public static final String WAIT_PARAM = "wait";
+    /** Response header by which the service confirms it held the request. */
+    public static final String WAIT_HEADER = "X-Ruleset-Wait";
+
+    // Time allowed on top of the requested wait for the service to answer
+    private static final int WAIT_GRACE_SECONDS = 15;
+
     private static final OkHttpClient client = new OkHttpClient();
     private static final ObjectMapper MAPPER = new ObjectMapper();
 
@@ -30,22 +55,28 @@ public class PolicyHttpClient {
      * network errors or non-success codes it also returns null.
      */
     public VersionedResponse fetchLatest() {
-        Request.Builder requestBuilder =
-                new Request.Builder().url(SdkConfig.getPolicyUrl());
+        return fetchLatest(null);
+    }
 
-        // Set conditional request header if we have a previous ETag
-        String eTag = SdkConfig.getLastETag();
-        if (eTag != null) {
-            requestBuilder.header("If-None-Match", eTag);
+    /**
+     * Fetch the latest ruleset, asking for the changes since the given base
+     * version. The service answers with a {@link RulesetDelta} if it still
+     * knows that version and with the full ruleset otherwise. Returns null
+     * on 304 Not Modified, network errors and non-success codes.
+     *
+     * @param baseVersion version of the ruleset the caller holds, or
+     *                    {@code null} to fetch the full ruleset
+     */
+    public VersionedResponse fetchLatest(String baseVersion) {
+        Request request = request(baseVersion, 0);
+        if (request == null) {
+            return null;
         }
-
-        Request request = requestBuilder.build();
-
         try (Response response = client.newCall(request).execute()) {
 
             // Handle no content change
             if (response.code() == 304) {
-                log.info("Ruleset not modified, ETag={}", eTag);
+                log.info("Ruleset not modified, ETag={}", request.header("If-None-Match"));
                 return null;
             }
 
@@ -54,20 +85,178 @@ public class PolicyHttpClient {
                 log.warn("Fetch rules failed: {}", response.code());
                 return null;
             }
+            return read(response);
+        } catch (IOException e) {
+            log.error("Network error while fetching rules: {}", e.getMessage());
+            return null; // swallow exceptions to allow fallback to cached rules
+        }
+    }
 
-            String respETag = response.header("ETag");
-            ResponseBody bodyObj = response.body();
-            String body = (bodyObj != null) ? bodyObj.string() : "";
-            Ruleset ruleset = MAPPER.readValue(body, Ruleset.class);
+    /**
+     * Long-poll for a ruleset other than the one whose ETag was last stored.
+     * The service holds the request for up to {@code waitSeconds} and answers
+     * as soon as the published rules change, with a delta against the given
+     * base version where it can. Returns null if nothing changed in that time.
+     *
+     * @throws PushUnsupportedException if the service answered without
+     *                                  holding the request
+     * @throws IOException              on network errors and non-success codes
+     */
+    public VersionedResponse awaitLatest(String baseVersion, int waitSeconds) throws IOException {
+        Request request = request(baseVersion, waitSeconds);
+        if (request == null) {
+            throw new IOException("Invalid policy URL: " + SdkConfig.getPolicyUrl());
+        }
+        OkHttpClient waiting = client.newBuilder()
+                .readTimeout(waitSeconds + WAIT_GRACE_SECONDS, TimeUnit.SECONDS)
+                .build();
+        try (Response response = waiting.newCall(request).execute()) {
+            if (!response.isSuccessful() && response.code() != 304) {
+                throw new IOException("Long-poll for rules failed: " + response.code());
+            }
+            if (response.header(WAIT_HEADER) == null) {
+                throw new PushUnsupportedException("Policy service did not hold the long-poll");
+            }
+            return response.code() == 304 ? null : read(response);
+        }
+    }
 
-            log.info("Fetched new ruleset: version={}, ETag={}",
-                    ruleset.getVersion(), respETag);
+    private static Request request(String baseVersion, int waitSeconds) {
+        HttpUrl url = HttpUrl.parse(SdkConfig.getPolicyUrl());
+        if (url == null) {
+            log.warn("Invalid policy URL: {}", SdkConfig.getPolicyUrl());
+            return null;
+        }
+        HttpUrl.Builder urlBuilder = url.newBuilder();
+        if (baseVersion != null) {
+            urlBuilder.addQueryParameter(RulesetDelta.BASE_PARAM, baseVersion);
+        }
+        if (waitSeconds > 0) {
+            urlBuilder.addQueryParameter(WAIT_PARAM, Integer.toString(waitSeconds));
+        }
+        Request.Builder requestBuilder = new Request.Builder().url(urlBuilder.build());
 
-            return new VersionedResponse(ruleset, respETag);
+        // Set conditional request header if we have a previous ETag
+        String eTag = SdkConfig.getLastETag();
+        if (eTag != null) {
+            requestBuilder.header("If-None-Match", eTag);
+        }
+        return requestBuilder.build();
+    }
 
+    /**
+     * Parse the ruleset or delta of a successful response. Returns null if
+     * there is no body.
+     */
+    private static VersionedResponse read(Response response) throws IOException {
+        String respETag = response.header("ETag");
+        ResponseBody body = response.body();
+        if (body == null) {
+            log.warn("Fetch rules returned no body");
+            return null;
+        }
+
+        // A delta only carries the rules that changed, so only those are
+        // parsed
+        if (response.header(RulesetDelta.BASE_HEADER) != null) {
+            RulesetDelta delta = MAPPER.readValue(body.byteStream(), RulesetDelta.class);
+            log.info("Fetched ruleset delta: {} -> {}, ETag={}",
+                    delta.getBaseVersion(), delta.getVersion(), respETag);
+            return new VersionedResponse(delta, respETag);
+        }
+
+        File json = null;
+        try {
+            json = CacheStore.createTempFile();
         } catch (IOException e) {
-            log.error("Network error while fetching rules: {}", e.getMessage());
-            return null; // swallow exceptions to allow fallback to cached rules
+            log.debug("Cannot copy the ruleset to the cache directory: {}", e.getMessage());
+        }
+        Ruleset ruleset;
+        try (InputStream in = json != null
+                ? new CopyingInputStream(body.byteStream(), new FileOutputStream(json))
+                : body.byteStream()) {
+            ruleset = MAPPER.readValue(in, Ruleset.class);
+        } catch (IOException | RuntimeException e) {
+            if (json != null) {
+                json.delete();
+            }
+            throw e;
+        }
+        // The copy stands in for the cache only if it carries the ETag the
+        // next conditional request is made with
+        if (json != null && (respETag == null || !respETag.equals(ruleset.getETag()))) {
+            json.delete();
+            json = null;
+        }
+
+        log.info("Fetched new ruleset: version={}, ETag={}",
+                ruleset.getVersion(), respETag);
+
+        return new VersionedResponse(ruleset, respETag, json);
+    }
+
+    /**
+     * Copies what is read to an output stream. Closing it reads the rest of
+     * the input first, so that the copy is complete even if the parser stops
+     * at the end of the JSON value.
+     */
+    private static final class CopyingInputStream extends FilterInputStream {
+        private final OutputStream copy;
+        private boolean closed;
+
+        CopyingInputStream(InputStream in, OutputStream copy) {
+            super(in);
+            this.copy = copy;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                copy.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                copy.write(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] buf = new byte[(int) Math.min(n, 8192)];
+            int read = read(buf, 0, buf.length);
+            return Math.max(read, 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                byte[] buf = new byte[8192];
+                while (read(buf, 0, buf.length) >= 0) {
+                    // drain
+                }
+            } finally {
+                try {
+                    copy.close();
+                } finally {
+                    in.close();
+                }
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,16 @@
+package com.example.sdk.http;
+
+import java.io.IOException;
+
+/**
+ * Thrown by {@link PolicyHttpClient#awaitLatest} when the policy service
+ * answered a long-poll without holding it, i.e. it does not support push.
+ */
+public class PushUnsupportedException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public PushUnsupportedException(String message) {
+        super(message);
+    }
+}
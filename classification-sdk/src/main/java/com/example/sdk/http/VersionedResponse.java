@@ -1,21 +1,50 @@
 package com.example.sdk.http;
 
 import com.example.sdk.model.Ruleset;
+import com.example.sdk.model.RulesetDelta;
+
+import java.io.File;
 
 /**
- * Simple wrapper object containing a ruleset and the ETag header returned
- * alongside it. Used by the HTTP client to convey both pieces of information
- * back to the RuleManager.
+ * Simple wrapper object containing a ruleset, or the delta to it from the
+ * version the client already holds, and the ETag header returned alongside
+ * it. Used by the HTTP client to convey both pieces of information back to
+ * the RuleManager. A full ruleset may come with the file its JSON was copied
+ * to while it was parsed, ready to become the disk cache.
  */
 public class VersionedResponse {
     private final Ruleset ruleset;
+    private final RulesetDelta delta;
     private final String eTag;
+    private final File json;
 
     public VersionedResponse(Ruleset ruleset, String eTag) {
+        this(ruleset, eTag, null);
+    }
+
+    public VersionedResponse(Ruleset ruleset, String eTag, File json) {
         this.ruleset = ruleset;
+        this.delta = null;
+        this.eTag = eTag;
+        this.json = json;
+    }
+
+    public VersionedResponse(RulesetDelta delta, String eTag) {
+        this.ruleset = null;
+        this.delta = delta;
         this.eTag = eTag;
+        this.json = null;
     }
 
+    /** The full ruleset, or {@code null} for a delta response. */
     public Ruleset getRuleset() { return ruleset; }
+    /** The delta, or {@code null} for a full response. */
+    public RulesetDelta getDelta() { return delta; }
+    public boolean isDelta() { return delta != null; }
     public String getETag() { return eTag; }
-}
\ No newline at end of file
+    /**
+     * Temporary file holding the ruleset's JSON as received, ETag included,
+     * or {@code null}. Whoever takes the response moves or deletes it.
+     */
+    public File getJsonFile() { return json; }
+}
@@ -0,0 +1,46 @@
+package com.example.sdk.metrics;
+
+import com.example.sdk.config.SdkConfig;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Holds the installed {@link MetricsRecorder}. Instrumentation is disabled
+ * until a recorder is installed: the engine then only reads one static field
+ * per detection and takes no timestamps.
+ */
+public final class Metrics {
+
+    private static volatile MetricsRecorder recorder;
+
+    // One in this many detections is timed
+    private static final int SAMPLE_INTERVAL = SdkConfig.getMetricsSampleInterval();
+
+    private Metrics() {}
+
+    /**
+     * Install the recorder that receives instrumentation events, replacing
+     * any previously installed one.
+     *
+     * @param metrics the recorder, or {@code null} to disable instrumentation
+     */
+    public static void install(MetricsRecorder metrics) {
+        recorder = metrics;
+    }
+
+    /**
+     * The installed recorder, or {@code null} if instrumentation is disabled.
+     */
+    public static MetricsRecorder recorder() {
+        return recorder;
+    }
+
+    /**
+     * Decide whether the current detection is timed. Sampling keeps the cost
+     * of {@link System#nanoTime()} around every rule evaluation off most
+     * detections; see 'sdk.metrics.sample.interval'.
+     */
+    public static boolean sampled() {
+        return SAMPLE_INTERVAL <= 1 || ThreadLocalRandom.current().nextInt(SAMPLE_INTERVAL) == 0;
+    }
+}
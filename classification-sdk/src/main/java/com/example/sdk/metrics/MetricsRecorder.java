@@ -0,0 +1,95 @@
+package com.example.sdk.metrics;
+
+import com.example.sdk.ClassificationMode;
+import com.example.sdk.model.Rule;
+
+/**
+ * Receives instrumentation events from the detection engine and the rule
+ * manager. Install an implementation with {@link Metrics#install}; the SDK
+ * ships {@link RuleMetrics}, which keeps the values in memory and renders
+ * them in the Prometheus text format, but an adapter to any metrics library
+ * can be plugged in instead.
+ *
+ * <p>Methods are called on classification threads and must be cheap and
+ * thread-safe. Latencies are only measured for a sample of detections, see
+ * {@link Metrics#sampled()}; counts cover every detection.</p>
+ *
+ * <p>Events added after the first release have empty default
+ * implementations, so existing recorders keep compiling and simply ignore
+ * them.</p>
+ */
+public interface MetricsRecorder {
+
+    /**
+     * A rule was evaluated against a value.
+     *
+     * @param rule    the rule
+     * @param matched whether the rule matched
+     */
+    void ruleEvaluated(Rule rule, boolean matched);
+
+    /**
+     * Time spent evaluating a rule, for sampled detections only.
+     *
+     * @param rule  the rule
+     * @param nanos evaluation time in nanoseconds
+     */
+    void ruleLatency(Rule rule, long nanos);
+
+    /**
+     * A rule's regex evaluation was abandoned because it ran past the time
+     * budget.
+     *
+     * @param rule the rule
+     */
+    default void ruleBudgetExceeded(Rule rule) {
+    }
+
+    /**
+     * A rule was quarantined for repeatedly exceeding the regex time budget;
+     * it is skipped until the next ruleset is activated.
+     *
+     * @param rule the rule
+     */
+    default void ruleQuarantined(Rule rule) {
+    }
+
+    /**
+     * Time spent on a whole detection, for sampled detections only. Results
+     * served from the result cache are not reported.
+     *
+     * @param mode    the detection mode
+     * @param matched number of matched rules
+     * @param nanos   detection time in nanoseconds
+     */
+    void detectionLatency(ClassificationMode mode, int matched, long nanos);
+
+    /**
+     * A refresh asked the policy service for a new ruleset.
+     *
+     * @param updated whether a new ruleset was returned; {@code false} when
+     *                it was unchanged or the request failed
+     * @param nanos   duration of the request in nanoseconds
+     */
+    void rulesetFetched(boolean updated, long nanos);
+
+    /**
+     * A ruleset was compiled and activated.
+     *
+     * @param version   the ruleset version
+     * @param ruleCount number of active rules
+     * @param nanos     compile time in nanoseconds
+     */
+    void rulesetCompiled(String version, int ruleCount, long nanos);
+
+    /**
+     * A compiled ruleset was warmed up with synthetic detections before it
+     * was activated.
+     *
+     * @param version    the ruleset version
+     * @param detections number of synthetic detections run
+     * @param nanos      warm-up time in nanoseconds
+     */
+    default void rulesetWarmedUp(String version, int detections, long nanos) {
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.sdk.metrics;
+
+import com.example.sdk.ClassificationMode;
+import com.example.sdk.model.Rule;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory {@link MetricsRecorder} that keeps per-rule evaluation, match,
+ * over-budget and quarantine counts, sampled per-rule and per-detection
+ * latency histograms, and ruleset refresh timings, and renders them in the
+ * Prometheus text exposition format. Rules are identified by id; statistics
+ * of rules that have since been removed from the ruleset are kept.
+ *
+ * <pre>
+ * RuleMetrics metrics = new RuleMetrics();
+ * Metrics.install(metrics);
+ * ...
+ * String body = metrics.toPrometheusText();
+ * </pre>
+ */
+public class RuleMetrics implements MetricsRecorder {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final ConcurrentHashMap<String, RuleStats> rules = new ConcurrentHashMap<>();
+    private final Map<ClassificationMode, LatencyHistogram> detections = new EnumMap<>(ClassificationMode.class);
+    private final LatencyHistogram fetchUpdated = new LatencyHistogram();
+    private final LatencyHistogram fetchUnchanged = new LatencyHistogram();
+    private final LatencyHistogram compile = new LatencyHistogram();
+    private final LatencyHistogram warmup = new LatencyHistogram();
+    private volatile int activeRules;
+
+    public RuleMetrics() {
+        for (ClassificationMode mode : ClassificationMode.values()) {
+            detections.put(mode, new LatencyHistogram());
+        }
+    }
+
+    @Override
+    public void ruleEvaluated(Rule rule, boolean matched) {
+        RuleStats stats = stats(rule);
+        stats.evaluations.increment();
+        if (matched) {
+            stats.matches.increment();
+        }
+    }
+
+    @Override
+    public void ruleLatency(Rule rule, long nanos) {
+        stats(rule).latency.record(nanos);
+    }
+
+    @Override
+    public void ruleBudgetExceeded(Rule rule) {
+        stats(rule).overBudget.increment();
+    }
+
+    @Override
+    public void ruleQuarantined(Rule rule) {
+        stats(rule).quarantines.increment();
+    }
+
+    @Override
+    public void detectionLatency(ClassificationMode mode, int matched, long nanos) {
+        detections.get(mode).record(nanos);
+    }
+
+    @Override
+    public void rulesetFetched(boolean updated, long nanos) {
+        (updated ? fetchUpdated : fetchUnchanged).record(nanos);
+    }
+
+    @Override
+    public void rulesetCompiled(String version, int ruleCount, long nanos) {
+        compile.record(nanos);
+        activeRules = ruleCount;
+    }
+
+    @Override
+    public void rulesetWarmedUp(String version, int detections, long nanos) {
+        warmup.record(nanos);
+    }
+
+    /** Number of times the rule with the given id was evaluated. */
+    public long getEvaluationCount(String ruleId) {
+        RuleStats stats = rules.get(ruleId);
+        return stats != null ? stats.evaluations.sum() : 0L;
+    }
+
+    /** Number of times the rule with the given id matched. */
+    public long getMatchCount(String ruleId) {
+        RuleStats stats = rules.get(ruleId);
+        return stats != null ? stats.matches.sum() : 0L;
+    }
+
+    /** Sampled evaluation latencies of the rule with the given id, or null. */
+    public LatencyHistogram getLatency(String ruleId) {
+        RuleStats stats = rules.get(ruleId);
+        return stats != null ? stats.latency : null;
+    }
+
+    /**
+     * Render all metrics in the Prometheus text exposition format, version
+     * 0.0.4. Latencies are exported as summaries in seconds.
+     */
+    public String toPrometheusText() {
+        StringBuilder sb = new StringBuilder(4096);
+        try {
+            writePrometheusText(sb);
+        } catch (IOException e) {
+            // StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Write all metrics in the Prometheus text exposition format to the
+     * given output.
+     *
+     * @see #toPrometheusText()
+     */
+    public void writePrometheusText(Appendable out) throws IOException {
+        Map<String, RuleStats> sorted = new TreeMap<>(rules);
+
+        header(out, "classification_rule_evaluations_total", "counter",
+                "Number of times a rule was evaluated against a value.");
+        for (RuleStats stats : sorted.values()) {
+            sample(out, "classification_rule_evaluations_total", stats.labels, stats.evaluations.sum());
+        }
+        header(out, "classification_rule_matches_total", "counter",
+                "Number of times a rule matched a value.");
+        for (RuleStats stats : sorted.values()) {
+            sample(out, "classification_rule_matches_total", stats.labels, stats.matches.sum());
+        }
+        header(out, "classification_rule_budget_exceeded_total", "counter",
+                "Number of times a rule's regex evaluation was abandoned over its time budget.");
+        for (RuleStats stats : sorted.values()) {
+            sample(out, "classification_rule_budget_exceeded_total", stats.labels, stats.overBudget.sum());
+        }
+        header(out, "classification_rule_quarantines_total", "counter",
+                "Number of times a rule was quarantined for exceeding its regex time budget.");
+        for (RuleStats stats : sorted.values()) {
+            sample(out, "classification_rule_quarantines_total", stats.labels, stats.quarantines.sum());
+        }
+        header(out, "classification_rule_latency_seconds", "summary",
+                "Rule evaluation time of sampled detections.");
+        for (RuleStats stats : sorted.values()) {
+            summary(out, "classification_rule_latency_seconds", stats.labels, stats.latency);
+        }
+        header(out, "classification_detection_latency_seconds", "summary",
+                "Detection time of sampled, uncached detections.");
+        for (Map.Entry<ClassificationMode, LatencyHistogram> e : detections.entrySet()) {
+            summary(out, "classification_detection_latency_seconds",
+                    "mode=\"" + e.getKey().name() + "\"", e.getValue());
+        }
+        header(out, "classification_ruleset_fetch_seconds", "summary",
+                "Duration of requests to the policy service.");
+        summary(out, "classification_ruleset_fetch_seconds", "outcome=\"updated\"", fetchUpdated);
+        summary(out, "classification_ruleset_fetch_seconds", "outcome=\"unchanged\"", fetchUnchanged);
+        header(out, "classification_ruleset_compile_seconds", "summary",
+                "Time to compile a ruleset.");
+        summary(out, "classification_ruleset_compile_seconds", "", compile);
+        header(out, "classification_ruleset_warmup_seconds", "summary",
+                "Time to warm up a compiled ruleset before activating it.");
+        summary(out, "classification_ruleset_warmup_seconds", "", warmup);
+        header(out, "classification_ruleset_active_rules", "gauge",
+                "Number of enabled rules in the active ruleset.");
+        sample(out, "classification_ruleset_active_rules", "", activeRules);
+    }
+
+    private RuleStats stats(Rule rule) {
+        String id = String.valueOf(rule.getId());
+        RuleStats stats = rules.get(id);
+        return stats != null ? stats : rules.computeIfAbsent(id, RuleStats::new);
+    }
+
+    private static void header(Appendable out, String name, String type, String help) throws IOException {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void summary(Appendable out, String name, String labels, LatencyHistogram histogram)
+            throws IOException {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        for (double q : QUANTILES) {
+            sample(out, name, prefix + "quantile=\"" + q + "\"",
+                    histogram.getValueAtQuantile(q) / NANOS_PER_SECOND);
+        }
+        sample(out, name + "_sum", labels, histogram.getSum() / NANOS_PER_SECOND);
+        sample(out, name + "_count", labels, histogram.getCount());
+    }
+
+    private static void sample(Appendable out, String name, String labels, double value) throws IOException {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append(Long.toString((long) value));
+        } else {
+            out.append(Double.toString(value));
+        }
+        out.append('\n');
+    }
+
+    private static String escape(String value) {
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                sb.append('\\').append(c);
+            } else if (c == '\n') {
+                sb.append("\\n");
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static final class RuleStats {
+        final String labels;
+        final LongAdder evaluations = new LongAdder();
+        final LongAdder matches = new LongAdder();
+        final LongAdder overBudget = new LongAdder();
+        final LongAdder quarantines = new LongAdder();
+        final LatencyHistogram latency = new LatencyHistogram();
+
+        RuleStats(String id) {
+            this.labels = "rule=\"" + escape(id) + "\"";
+        }
+    }
+}
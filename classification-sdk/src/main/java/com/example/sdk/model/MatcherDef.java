@@ -4,12 +4,15 @@ package com.example.sdk.model;
  * Definition of a matching component within a rule. A matcher can be of different
  * types (e.g. regex, dictionary, semantic_model) and contains the pattern needed
  * for detection along with an optional confidence. Confidence is unused for regex
- * matchers but reserved for future semantic matchers.
+ * matchers but reserved for future semantic matchers. Dictionary matchers may
+ * name an external dictionary file instead of listing their entries in the
+ * pattern.
  */
 public class MatcherDef {
     private String type;        // regex/dictionary/semantic_model...
     private String pattern;     // regex or other pattern expression
     private Double confidence;  // optional confidence threshold
+    private String file;        // external dictionary file, instead of an inline pattern
 
     public String getType() { return type; }
     public void setType(String type) { this.type = type; }
@@ -19,4 +22,7 @@ public class MatcherDef {
 
     public Double getConfidence() { return confidence; }
     public void setConfidence(Double confidence) { this.confidence = confidence; }
+
+    public String getFile() { return file; }
+    public void setFile(String file) { this.file = file; }
 }
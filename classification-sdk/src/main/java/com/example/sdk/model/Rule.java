@@ -8,6 +8,8 @@ import java.util.List;
  * define the priority and set of matchers used to detect sensitive values. A
  * higher priority value means the rule is preferred if multiple rules match
  * the same piece of data. Rules can be enabled or disabled individually.
+ * When classifying structured records a rule can be limited to certain field
+ * paths through its scope; plain values are always checked against every rule.
  */
 public class Rule {
     private String id;
@@ -16,6 +18,9 @@ public class Rule {
     private Integer priority;
     private List<MatcherDef> matchers;
     private boolean enabled;
+    // Field path patterns such as "customer.email" or "**.iban"; null or
+    // empty applies the rule to every field of a record
+    private List<String> scope;
 
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
@@ -34,4 +39,7 @@ public class Rule {
 
     public boolean isEnabled() { return enabled; }
     public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public List<String> getScope() { return scope; }
+    public void setScope(List<String> scope) { this.scope = scope; }
 }
@@ -0,0 +1,39 @@
+package com.example.sdk.model;
+
+import java.util.List;
+
+/**
+ * The changes between two versions of a ruleset. The policy service answers
+ * with a delta instead of a full {@link Ruleset} when the client names, as
+ * its base, a version the service still knows; it marks such a response with
+ * the {@link #BASE_HEADER} header. Added and changed rules are sent in full,
+ * removed rules by id. Applying a delta to the base version yields the
+ * ruleset of the new version.
+ */
+public class RulesetDelta {
+    /** Query parameter naming the version the client holds. */
+    public static final String BASE_PARAM = "base";
+    /** Response header naming the base version of a delta response. */
+    public static final String BASE_HEADER = "X-Ruleset-Base";
+
+    private String baseVersion;
+    private String version;
+    private List<Rule> added;
+    private List<Rule> changed;
+    private List<String> removed;
+
+    public String getBaseVersion() { return baseVersion; }
+    public void setBaseVersion(String baseVersion) { this.baseVersion = baseVersion; }
+
+    public String getVersion() { return version; }
+    public void setVersion(String version) { this.version = version; }
+
+    public List<Rule> getAdded() { return added; }
+    public void setAdded(List<Rule> added) { this.added = added; }
+
+    public List<Rule> getChanged() { return changed; }
+    public void setChanged(List<Rule> changed) { this.changed = changed; }
+
+    public List<String> getRemoved() { return removed; }
+    public void setRemoved(List<String> removed) { this.removed = removed; }
+}
@@ -0,0 +1,92 @@
+package com.example.sdk.regex;
+
+import java.util.Arrays;
+
+/**
+ * Helpers for sets of code points represented as sorted, non-overlapping,
+ * inclusive {@code [lo, hi]} pairs flattened into an {@code int[]}.
+ */
+final class CharRanges {
+
+    static final int MAX_CODE_POINT = Character.MAX_CODE_POINT;
+
+    // Predefined classes with java.util.regex default (non-UNICODE) semantics
+    static final int[] DIGIT = {'0', '9'};
+    static final int[] WORD = {'0', '9', 'A', 'Z', '_', '_', 'a', 'z'};
+    static final int[] SPACE = {'\t', '\r', ' ', ' '};
+    // '.' matches anything but line terminators unless DOTALL is set
+    static final int[] DOT = negate(normalize(new int[]{
+            '\n', '\n', '\r', '\r', 0x85, 0x85, 0x2028, 0x2029}));
+
+    private CharRanges() {
+    }
+
+    static int[] single(int cp) {
+        return new int[]{cp, cp};
+    }
+
+    /**
+     * Sort and merge arbitrary (possibly overlapping) pairs.
+     */
+    static int[] normalize(int[] pairs) {
+        int n = pairs.length / 2;
+        long[] packed = new long[n];
+        for (int i = 0; i < n; i++) {
+            packed[i] = ((long) pairs[2 * i] << 32) | (pairs[2 * i + 1] & 0xFFFFFFFFL);
+        }
+        Arrays.sort(packed);
+        int[] out = new int[pairs.length];
+        int len = 0;
+        for (long p : packed) {
+            int lo = (int) (p >>> 32);
+            int hi = (int) p;
+            if (len > 0 && lo <= out[len - 1] + 1) {
+                out[len - 1] = Math.max(out[len - 1], hi);
+            } else {
+                out[len++] = lo;
+                out[len++] = hi;
+            }
+        }
+        return Arrays.copyOf(out, len);
+    }
+
+    static int[] union(int[] a, int[] b) {
+        int[] all = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, all, a.length, b.length);
+        return normalize(all);
+    }
+
+    /**
+     * Complement of a normalized range set over all code points.
+     */
+    static int[] negate(int[] ranges) {
+        int[] out = new int[ranges.length + 2];
+        int len = 0;
+        int next = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (ranges[i] > next) {
+                out[len++] = next;
+                out[len++] = ranges[i] - 1;
+            }
+            next = ranges[i + 1] + 1;
+        }
+        if (next <= MAX_CODE_POINT) {
+            out[len++] = next;
+            out[len++] = MAX_CODE_POINT;
+        }
+        return Arrays.copyOf(out, len);
+    }
+
+    static boolean contains(int[] ranges, int cp) {
+        // Range sets in patterns are small; a linear scan beats binary search
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (cp < ranges[i]) {
+                return false;
+            }
+            if (cp <= ranges[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,758 @@
+package com.example.sdk.regex;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Evaluates many regular expressions in a single left-to-right scan of the
+ * input. The patterns are combined into one Thompson NFA which is turned into
+ * a DFA lazily: DFA states are built the first time the scan needs them and
+ * cached for all later scans, so steady-state cost is one table lookup per
+ * input code point regardless of how many patterns the set contains.
+ *
+ * <p>The automaton answers the question {@code Pattern.matcher(s).find()}
+ * answers for each pattern, i.e. whether a match exists anywhere in the input.
+ * Patterns that use constructs outside the regular subset understood by
+ * {@link RegexParser} are rejected by {@link Builder#add(String)} and must be
+ * evaluated with {@link java.util.regex.Pattern} by the caller.</p>
+ *
+ * <p>Instances are immutable apart from the DFA cache, which is safe for
+ * concurrent use: states are interned in a {@link ConcurrentHashMap} and
+ * transitions are immutable objects published through racy but idempotent
+ * array writes. Once {@link #MAX_STATES} states exist, new states are no
+ * longer cached and scans continue at NFA-simulation speed.</p>
+ */
+public final class MultiRegex {
+
+    private static final Logger log = LoggerFactory.getLogger(MultiRegex.class);
+
+    static final int MAX_STATES = 10_000;
+    // Upper bound on cached transition slots (states x classes) to bound memory
+    static final long MAX_TRANSITIONS = 4_000_000L;
+
+    private static final int FLAG_AT_START = 1;
+    private static final int FLAG_PREV_WORD = 2;
+    // The last code point that is not a nonspacing mark is a letter or digit
+    private static final int FLAG_PREV_BASE = 4;
+
+    // What \b needs to know of a code point: whether it is a word character
+    // and whether it is a letter or digit, or else whether it is a
+    // nonspacing mark, which java.util.regex treats as a word character
+    // when it follows a letter or digit. A supplementary mark never counts
+    // as one before the position that follows it, nor does a supplementary
+    // letter or digit as a base: java.util.regex looks back one char at a
+    // time there and only sees a low surrogate.
+    private static final int KIND_WORD = 1;
+    private static final int KIND_BASE = 2;
+    private static final int KIND_MARK = 4;
+    private static final int KIND_SUPPLEMENTARY_MARK = 5;
+    private static final int KINDS = 6;
+
+    private static final int[] NO_MATCHES = new int[0];
+
+    // java.util.regex changed \b from letter/digit to \w semantics in JDK 19;
+    // mirror whichever behaviour the running JVM has.
+    private static final boolean UNICODE_WORD_BOUNDARY =
+            Pattern.compile("\\b").matcher("\u00e9").find();
+
+    private final int[] op;
+    private final int[] x;
+    private final int[] y;
+    private final int[][] ranges;
+    private final int[] starts;
+    private final int[] ends; // end of each pattern's instructions
+    private final int slotCount;
+    private final boolean wordAware;
+    private final boolean beginAware;
+
+    // Code points are partitioned into classes that no instruction can tell
+    // apart; transitions are stored per class rather than per code point.
+    private final int[] boundaries;
+    private final char[] bmpClass;
+    private final int classCount;
+    private final int maxStates;
+
+    private final ConcurrentHashMap<State, State> states = new ConcurrentHashMap<>();
+    private final State initial;
+
+    /**
+     * Collects patterns for a {@link MultiRegex}.
+     */
+    public static final class Builder {
+        private final Program program = new Program();
+        private final List<Integer> starts = new ArrayList<>();
+
+        /**
+         * Add a pattern to the set.
+         *
+         * @param regex a pattern already accepted by {@code Pattern.compile}
+         * @return the slot that {@link MultiRegex#scan} reports for the pattern,
+         *         or {@code -1} if the pattern is not supported by the automaton
+         */
+        public int add(String regex) {
+            try {
+                RegexParser.Node node = RegexParser.parse(regex);
+                starts.add(program.add(node, starts.size()));
+                return starts.size() - 1;
+            } catch (UnsupportedRegexException | StackOverflowError e) {
+                log.debug("Pattern evaluated by java.util.regex ({}): {}", e.getMessage(), regex);
+                return -1;
+            }
+        }
+
+        /**
+         * Number of patterns accepted so far.
+         */
+        public int size() {
+            return starts.size();
+        }
+
+        /**
+         * Build the automaton, or return {@code null} if no pattern was accepted.
+         */
+        public MultiRegex build() {
+            if (starts.isEmpty()) {
+                return null;
+            }
+            return new MultiRegex(program, starts.stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+
+    private MultiRegex(Program program, int[] starts) {
+        this.op = Arrays.copyOf(program.op, program.size);
+        this.x = Arrays.copyOf(program.x, program.size);
+        this.y = Arrays.copyOf(program.y, program.size);
+        this.ranges = Arrays.copyOf(program.ranges, program.size);
+        this.starts = starts;
+        this.slotCount = starts.length;
+        int[] sorted = starts.clone();
+        Arrays.sort(sorted);
+        this.ends = new int[slotCount];
+        for (int slot = 0; slot < slotCount; slot++) {
+            int next = Arrays.binarySearch(sorted, starts[slot] + 1);
+            next = next < 0 ? -next - 1 : next;
+            ends[slot] = next < sorted.length ? sorted[next] : op.length;
+        }
+        this.wordAware = program.usesAssertion(RegexParser.ASSERT_WORD_BOUNDARY);
+        this.beginAware = program.usesAssertion(RegexParser.ASSERT_BEGIN);
+
+        TreeSet<Integer> points = new TreeSet<>();
+        points.add(0);
+        for (int pc = 0; pc < op.length; pc++) {
+            if (op[pc] == Program.CLASS) {
+                int[] r = ranges[pc];
+                for (int i = 0; i < r.length; i += 2) {
+                    points.add(r[i]);
+                    if (r[i + 1] < CharRanges.MAX_CODE_POINT) {
+                        points.add(r[i + 1] + 1);
+                    }
+                }
+            }
+        }
+        this.boundaries = points.stream().mapToInt(Integer::intValue).toArray();
+        this.bmpClass = new char[Character.MAX_VALUE + 1];
+        for (int rc = 0; rc < boundaries.length && boundaries[rc] <= Character.MAX_VALUE; rc++) {
+            int end = rc + 1 < boundaries.length ? Math.min(boundaries[rc + 1], Character.MAX_VALUE + 1)
+                    : Character.MAX_VALUE + 1;
+            // range classes beyond char range are resolved by binary search
+            Arrays.fill(bmpClass, boundaries[rc], end, (char) Math.min(rc, Character.MAX_VALUE));
+        }
+        this.classCount = boundaries.length * (wordAware ? KINDS : 1);
+        this.maxStates = (int) Math.min(MAX_STATES, MAX_TRANSITIONS / classCount);
+        this.initial = intern(new int[0], beginAware ? FLAG_AT_START : 0);
+    }
+
+    /**
+     * Write the compiled program, to be read back by {@link #readFrom}
+     * without parsing the patterns again. DFA states are not written; they
+     * are built again as scans need them.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(op.length);
+        for (int pc = 0; pc < op.length; pc++) {
+            out.writeInt(op[pc]);
+            out.writeInt(x[pc]);
+            out.writeInt(y[pc]);
+            int[] r = ranges[pc];
+            out.writeInt(r != null ? r.length : -1);
+            if (r != null) {
+                for (int v : r) {
+                    out.writeInt(v);
+                }
+            }
+        }
+        out.writeInt(starts.length);
+        for (int start : starts) {
+            out.writeInt(start);
+        }
+    }
+
+    /**
+     * Read a set written by {@link #writeTo}, advancing the buffer past it.
+     *
+     * @throws IOException if the data is inconsistent
+     */
+    public static MultiRegex readFrom(ByteBuffer in) throws IOException {
+        int size = in.getInt();
+        if (size < 1 || size > in.remaining() / 16) {
+            throw new IOException("Corrupt regex program");
+        }
+        Program program = new Program();
+        program.op = new int[size];
+        program.x = new int[size];
+        program.y = new int[size];
+        program.ranges = new int[size][];
+        program.size = size;
+        for (int pc = 0; pc < size; pc++) {
+            program.op[pc] = in.getInt();
+            program.x[pc] = in.getInt();
+            program.y[pc] = in.getInt();
+            int n = in.getInt();
+            if (n >= 0) {
+                program.ranges[pc] = new int[n];
+                in.asIntBuffer().get(program.ranges[pc]);
+                ((Buffer) in).position(in.position() + n * 4);
+            }
+            if (program.op[pc] == Program.CLASS ? program.ranges[pc] == null
+                    : (program.op[pc] == Program.SPLIT || program.op[pc] == Program.JUMP)
+                    && (program.x[pc] < 0 || program.x[pc] >= size || program.y[pc] < 0 || program.y[pc] >= size)) {
+                throw new IOException("Corrupt regex program");
+            }
+        }
+        int[] starts = new int[in.getInt()];
+        in.asIntBuffer().get(starts);
+        ((Buffer) in).position(in.position() + starts.length * 4);
+        for (int start : starts) {
+            if (start < 0 || start >= size) {
+                throw new IOException("Corrupt regex program");
+            }
+        }
+        return new MultiRegex(program, starts);
+    }
+
+    /**
+     * Number of patterns (slots) in the set.
+     */
+    public int size() {
+        return slotCount;
+    }
+
+    /**
+     * Number of DFA states materialized so far.
+     */
+    public int cachedStates() {
+        return states.size();
+    }
+
+    /**
+     * Scan the input once and report which patterns have a match in it. The
+     * scan stops early once every pattern has matched.
+     *
+     * @param text the input to scan
+     * @return per-slot hit flags
+     */
+    public boolean[] scan(CharSequence text) {
+        boolean[] hits = new boolean[slotCount];
+        int remaining = slotCount;
+        State s = initial;
+        int i = 0;
+        int n = text.length();
+        while (i < n) {
+            int cp = Character.codePointAt(text, i);
+            i += Character.charCount(cp);
+            Transition t = step(s, classOf(cp));
+            if (t.matches != null) {
+                remaining -= mark(t.matches, hits);
+                if (remaining == 0) {
+                    return hits;
+                }
+            }
+            s = t.target;
+        }
+        mark(endMatches(s), hits);
+        return hits;
+    }
+
+    /**
+     * Find the first match of one pattern that starts at or after
+     * {@code from}, the match {@code Pattern.matcher(text).find(from)} would
+     * report. The search simulates the pattern's NFA, trying the branches of
+     * each alternation and quantifier in the order {@code java.util.regex}
+     * prefers them, in time linear in the length of the text. Unlike
+     * {@link #scan} it builds no DFA states.
+     *
+     * @param text   the input to search
+     * @param slot   the pattern's slot
+     * @param from   index at which the search starts
+     * @param bounds receives the start and end index of the match
+     * @return whether a match was found
+     */
+    public boolean find(CharSequence text, int slot, int from, int[] bounds) {
+        int n = text.length();
+        // Each pattern's instructions are contiguous and only refer to each other
+        int base = starts[slot];
+        int size = ends[slot] - base;
+        int[] pcs = new int[size];
+        int[] origins = new int[size];
+        int[] nextPcs = new int[size];
+        int[] nextOrigins = new int[size];
+        int[] added = new int[size]; // generation in which a pc was added
+        int[] stack = new int[size * 2 + 1];
+        int generation = 1;
+        int count = 0;
+        int matchStart = -1;
+        int matchEnd = -1;
+        for (int i = from; i <= n; ) {
+            if (matchStart < 0) {
+                // A thread starting here has the lowest priority
+                count = follow(text, i, base, base, i, generation, added, stack, pcs, origins, count);
+            }
+            if (count == 0 && (matchStart >= 0 || i == n)) {
+                break;
+            }
+            int cp = i < n ? Character.codePointAt(text, i) : -1;
+            int next = i < n ? i + Character.charCount(cp) : i + 1;
+            generation++;
+            int nextCount = 0;
+            for (int t = 0; t < count; t++) {
+                int pc = pcs[t];
+                if (op[pc] == Program.MATCH) {
+                    // Threads after this one are less preferred
+                    matchStart = origins[t];
+                    matchEnd = i;
+                    break;
+                }
+                if (cp >= 0 && CharRanges.contains(ranges[pc], cp)) {
+                    nextCount = follow(text, next, base, pc + 1, origins[t], generation, added, stack,
+                            nextPcs, nextOrigins, nextCount);
+                }
+            }
+            int[] swap = pcs;
+            pcs = nextPcs;
+            nextPcs = swap;
+            swap = origins;
+            origins = nextOrigins;
+            nextOrigins = swap;
+            count = nextCount;
+            i = next;
+        }
+        if (matchStart < 0) {
+            return false;
+        }
+        bounds[0] = matchStart;
+        bounds[1] = matchEnd;
+        return true;
+    }
+
+    /**
+     * Add the instructions that consume input or match, reachable from
+     * {@code entry} at index {@code at} without consuming input, to the
+     * thread list in order of preference. {@code added} is indexed from the
+     * pattern's first instruction {@code base}.
+     *
+     * @return the new length of the list
+     */
+    private int follow(CharSequence text, int at, int base, int entry, int origin, int generation, int[] added,
+                       int[] stack, int[] pcs, int[] origins, int count) {
+        int n = text.length();
+        int sp = 0;
+        stack[sp++] = entry;
+        while (sp > 0) {
+            int pc = stack[--sp];
+            if (added[pc - base] == generation) {
+                continue;
+            }
+            added[pc - base] = generation;
+            switch (op[pc]) {
+                case Program.CLASS:
+                case Program.MATCH:
+                    pcs[count] = pc;
+                    origins[count++] = origin;
+                    break;
+                case Program.SPLIT:
+                    stack[sp++] = y[pc];
+                    stack[sp++] = x[pc];
+                    break;
+                case Program.JUMP:
+                    stack[sp++] = x[pc];
+                    break;
+                case Program.ASSERT:
+                    boolean holds = x[pc] == RegexParser.ASSERT_BEGIN
+                            ? at == 0
+                            : (at > 0 && isWordBefore(text, at)) != (at < n && isWordAt(text, at));
+                    if (holds) {
+                        stack[sp++] = pc + 1;
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown opcode " + op[pc]);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Start an incremental scan. The returned cursor accepts the input in
+     * consecutive pieces and reports the same hits {@link #scan} would for
+     * their concatenation, including matches that span piece boundaries.
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Incremental scan over input delivered in pieces. Not thread-safe; use
+     * one cursor per input.
+     */
+    public final class Cursor {
+        private final boolean[] hits = new boolean[slotCount];
+        private int remaining = slotCount;
+        private State state = initial;
+        private char pendingHigh; // high surrogate ending the previous piece
+        private boolean finished;
+
+        private Cursor() {
+        }
+
+        /**
+         * Feed the characters {@code text[from, to)}.
+         */
+        public void feed(CharSequence text, int from, int to) {
+            int i = from;
+            if (pendingHigh != 0 && i < to) {
+                char low = text.charAt(i);
+                if (Character.isLowSurrogate(low)) {
+                    advance(Character.toCodePoint(pendingHigh, low));
+                    i++;
+                } else {
+                    advance(pendingHigh);
+                }
+                pendingHigh = 0;
+            }
+            while (i < to && remaining > 0) {
+                char c = text.charAt(i);
+                if (Character.isHighSurrogate(c) && i + 1 == to) {
+                    pendingHigh = c;
+                    return;
+                }
+                int cp = Character.codePointAt(text, i);
+                i += Character.charCount(cp);
+                advance(cp);
+            }
+        }
+
+        private void advance(int cp) {
+            Transition t = step(state, classOf(cp));
+            if (t.matches != null) {
+                remaining -= mark(t.matches, hits);
+            }
+            state = t.target;
+        }
+
+        /**
+         * Signal the end of input; matches that need the end of input (for
+         * example a trailing {@code \b}) are reported afterwards.
+         */
+        public void finish() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (pendingHigh != 0) {
+                advance(pendingHigh);
+                pendingHigh = 0;
+            }
+            if (remaining > 0) {
+                remaining -= mark(endMatches(state), hits);
+            }
+        }
+
+        /**
+         * Per-slot hit flags accumulated so far. The array is live and must
+         * not be modified.
+         */
+        public boolean[] hits() {
+            return hits;
+        }
+
+        /**
+         * Whether every pattern has already matched.
+         */
+        public boolean isComplete() {
+            return remaining == 0;
+        }
+    }
+
+    private static int mark(int[] slots, boolean[] hits) {
+        int added = 0;
+        for (int slot : slots) {
+            if (!hits[slot]) {
+                hits[slot] = true;
+                added++;
+            }
+        }
+        return added;
+    }
+
+    private int classOf(int cp) {
+        int rc;
+        if (cp <= Character.MAX_VALUE && boundaries.length <= Character.MAX_VALUE) {
+            rc = bmpClass[cp];
+        } else {
+            rc = Arrays.binarySearch(boundaries, cp);
+            if (rc < 0) {
+                rc = -rc - 2;
+            }
+        }
+        return wordAware ? rc * KINDS + kindOf(cp) : rc;
+    }
+
+    private static int kindOf(int cp) {
+        if (Character.getType(cp) == Character.NON_SPACING_MARK) {
+            return Character.isBmpCodePoint(cp) ? KIND_MARK : KIND_SUPPLEMENTARY_MARK;
+        }
+        int kind = isWord(cp) ? KIND_WORD : 0;
+        if (Character.isBmpCodePoint(cp) && Character.isLetterOrDigit(cp)) {
+            kind |= KIND_BASE;
+        }
+        return kind;
+    }
+
+    /**
+     * Whether {@code \b} treats the code point as a word character, unless it
+     * is a nonspacing mark.
+     */
+    static boolean isWord(int cp) {
+        if (UNICODE_WORD_BOUNDARY) {
+            return cp == '_' || Character.isLetterOrDigit(cp);
+        }
+        return (cp >= 'a' && cp <= 'z') || (cp >= 'A' && cp <= 'Z') || (cp >= '0' && cp <= '9') || cp == '_';
+    }
+
+    /**
+     * Whether {@code \b} treats the code point starting at {@code i} as a
+     * word character.
+     */
+    static boolean isWordAt(CharSequence text, int i) {
+        int cp = Character.codePointAt(text, i);
+        return isWord(cp) || Character.getType(cp) == Character.NON_SPACING_MARK && hasBase(text, i);
+    }
+
+    /**
+     * Whether {@code \b} treats the code point ending at {@code i} as a word
+     * character.
+     */
+    static boolean isWordBefore(CharSequence text, int i) {
+        int cp = Character.codePointBefore(text, i);
+        return isWord(cp) || Character.getType(cp) == Character.NON_SPACING_MARK && hasBase(text, i - 1);
+    }
+
+    // Whether a letter or digit precedes the nonspacing marks at index i
+    private static boolean hasBase(CharSequence text, int i) {
+        for (int at = i; at >= 0; at--) {
+            int cp = Character.codePointAt(text, at);
+            if (Character.isLetterOrDigit(cp)) {
+                return true;
+            }
+            if (Character.getType(cp) != Character.NON_SPACING_MARK) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private Transition step(State s, int cls) {
+        Transition t = s.next[cls];
+        if (t == null) {
+            t = computeTransition(s, cls);
+            s.next[cls] = t;
+        }
+        return t;
+    }
+
+    private int[] endMatches(State s) {
+        int[] m = s.endMatches;
+        if (m == null) {
+            Closure c = closure(s, false, true);
+            m = c.matches;
+            s.endMatches = m;
+        }
+        return m;
+    }
+
+    private Transition computeTransition(State s, int cls) {
+        int kind = wordAware ? cls % KINDS : 0;
+        boolean prevBase = (s.flags & FLAG_PREV_BASE) != 0;
+        boolean mark = kind >= KIND_MARK;
+        boolean nextWord = wordAware && (mark ? prevBase : (kind & KIND_WORD) != 0);
+        int representative = boundaries[wordAware ? cls / KINDS : cls];
+        Closure c = closure(s, nextWord, false);
+
+        boolean[] seen = new boolean[op.length + 1];
+        int[] core = new int[c.consumingCount];
+        int len = 0;
+        for (int i = 0; i < c.consumingCount; i++) {
+            int pc = c.consuming[i];
+            if (CharRanges.contains(ranges[pc], representative) && !seen[pc + 1]) {
+                seen[pc + 1] = true;
+                core[len++] = pc + 1;
+            }
+        }
+        core = Arrays.copyOf(core, len);
+        Arrays.sort(core);
+        int flags = 0;
+        if (nextWord && kind != KIND_SUPPLEMENTARY_MARK) {
+            flags |= FLAG_PREV_WORD;
+        }
+        if (kind == KIND_MARK ? prevBase : !mark && (kind & KIND_BASE) != 0) {
+            flags |= FLAG_PREV_BASE;
+        }
+        State target = intern(core, wordAware ? flags : 0);
+        return new Transition(target, c.matches.length == 0 ? null : c.matches);
+    }
+
+    /**
+     * Follow all epsilon transitions from the state's core plus the entry
+     * points of every pattern (the search is unanchored), evaluating
+     * assertions against the previous and next code point.
+     */
+    private Closure closure(State s, boolean nextWord, boolean atEnd) {
+        boolean atStart = (s.flags & FLAG_AT_START) != 0;
+        boolean prevWord = (s.flags & FLAG_PREV_WORD) != 0;
+        boolean[] visited = new boolean[op.length];
+        int[] stack = new int[op.length * 2 + starts.length + s.core.length];
+        int sp = 0;
+        int[] consuming = new int[op.length];
+        int consumingCount = 0;
+        boolean[] matched = new boolean[slotCount];
+        int matchCount = 0;
+
+        for (int pc : s.core) {
+            stack[sp++] = pc;
+        }
+        for (int pc : starts) {
+            stack[sp++] = pc;
+        }
+        while (sp > 0) {
+            int pc = stack[--sp];
+            if (visited[pc]) {
+                continue;
+            }
+            visited[pc] = true;
+            switch (op[pc]) {
+                case Program.CLASS:
+                    if (!atEnd) {
+                        consuming[consumingCount++] = pc;
+                    }
+                    break;
+                case Program.SPLIT:
+                    stack[sp++] = y[pc];
+                    stack[sp++] = x[pc];
+                    break;
+                case Program.JUMP:
+                    stack[sp++] = x[pc];
+                    break;
+                case Program.ASSERT:
+                    boolean holds = x[pc] == RegexParser.ASSERT_BEGIN
+                            ? atStart
+                            : prevWord != (nextWord && !atEnd);
+                    if (holds) {
+                        stack[sp++] = pc + 1;
+                    }
+                    break;
+                case Program.MATCH:
+                    if (!matched[x[pc]]) {
+                        matched[x[pc]] = true;
+                        matchCount++;
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown opcode " + op[pc]);
+            }
+        }
+
+        int[] matches = matchCount == 0 ? NO_MATCHES : new int[matchCount];
+        for (int slot = 0, j = 0; j < matchCount; slot++) {
+            if (matched[slot]) {
+                matches[j++] = slot;
+            }
+        }
+        return new Closure(consuming, consumingCount, matches);
+    }
+
+    private State intern(int[] core, int flags) {
+        State candidate = new State(core, flags, classCount);
+        State existing = states.get(candidate);
+        if (existing != null) {
+            return existing;
+        }
+        if (states.size() >= maxStates) {
+            // cache full: keep scanning with an uncached state
+            return candidate;
+        }
+        existing = states.putIfAbsent(candidate, candidate);
+        return existing != null ? existing : candidate;
+    }
+
+    private static final class Closure {
+        final int[] consuming;
+        final int consumingCount;
+        final int[] matches;
+
+        Closure(int[] consuming, int consumingCount, int[] matches) {
+            this.consuming = consuming;
+            this.consumingCount = consumingCount;
+            this.matches = matches;
+        }
+    }
+
+    private static final class Transition {
+        final State target;
+        final int[] matches; // slots matching before the consumed code point
+
+        Transition(State target, int[] matches) {
+            this.target = target;
+            this.matches = matches;
+        }
+    }
+
+    private static final class State {
+        final int[] core;
+        final int flags;
+        final int hash;
+        final Transition[] next;
+        volatile int[] endMatches;
+
+        State(int[] core, int flags, int classCount) {
+            this.core = core;
+            this.flags = flags;
+            this.hash = 31 * Arrays.hashCode(core) + flags;
+            this.next = new Transition[classCount];
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof State)) {
+                return false;
+            }
+            State other = (State) o;
+            return flags == other.flags && Arrays.equals(core, other.core);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.sdk.regex;
+
+import java.util.Arrays;
+
+/**
+ * Thompson NFA for a set of patterns, stored as parallel instruction arrays.
+ * Each pattern contributes its own instruction sequence ending in a
+ * {@link #MATCH} instruction that names the pattern's slot. The first branch
+ * of a {@link #SPLIT} is the one {@code java.util.regex} would try first, so
+ * that a search preferring it finds the same match.
+ */
+final class Program {
+
+    /** Consume one code point contained in {@code ranges[pc]}, continue at pc + 1. */
+    static final int CLASS = 0;
+    /** Continue at both {@code x[pc]}, preferably, and {@code y[pc]}. */
+    static final int SPLIT = 1;
+    /** Continue at {@code x[pc]}. */
+    static final int JUMP = 2;
+    /** Zero-width assertion of kind {@code x[pc]}, continue at pc + 1. */
+    static final int ASSERT = 3;
+    /** Pattern {@code x[pc]} matched. */
+    static final int MATCH = 4;
+
+    // Patterns that expand beyond this many instructions are left to java.util.regex
+    static final int MAX_PATTERN_SIZE = 4000;
+
+    int[] op = new int[64];
+    int[] x = new int[64];
+    int[] y = new int[64];
+    int[][] ranges = new int[64][];
+    int size;
+
+    private int limit;
+
+    /**
+     * Append the instructions for one pattern.
+     *
+     * @param node the parsed pattern
+     * @param slot the slot reported by its MATCH instruction
+     * @return the entry point of the pattern
+     * @throws UnsupportedRegexException if the expansion is too large; the
+     *                                   program is left unchanged in that case
+     */
+    int add(RegexParser.Node node, int slot) throws UnsupportedRegexException {
+        int start = size;
+        limit = start + MAX_PATTERN_SIZE;
+        try {
+            emit(node);
+            int pc = append(MATCH);
+            x[pc] = slot;
+        } catch (UnsupportedRegexException e) {
+            // roll back the partially emitted pattern
+            for (int i = start; i < size; i++) {
+                ranges[i] = null;
+            }
+            size = start;
+            throw e;
+        }
+        return start;
+    }
+
+    boolean usesAssertion(int kind) {
+        for (int pc = 0; pc < size; pc++) {
+            if (op[pc] == ASSERT && (kind == 0 || x[pc] == kind)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void emit(RegexParser.Node node) throws UnsupportedRegexException {
+        if (node instanceof RegexParser.CharSet) {
+            int pc = append(CLASS);
+            ranges[pc] = ((RegexParser.CharSet) node).ranges;
+        } else if (node instanceof RegexParser.Concat) {
+            for (RegexParser.Node item : ((RegexParser.Concat) node).items) {
+                emit(item);
+            }
+        } else if (node instanceof RegexParser.Alt) {
+            RegexParser.Alt alt = (RegexParser.Alt) node;
+            int[] exits = new int[alt.options.size() - 1];
+            for (int i = 0; i < alt.options.size(); i++) {
+                if (i < alt.options.size() - 1) {
+                    int split = append(SPLIT);
+                    x[split] = split + 1;
+                    emit(alt.options.get(i));
+                    exits[i] = append(JUMP);
+                    y[split] = size;
+                } else {
+                    emit(alt.options.get(i));
+                }
+            }
+            for (int exit : exits) {
+                x[exit] = size;
+            }
+        } else if (node instanceof RegexParser.Repeat) {
+            RegexParser.Repeat rep = (RegexParser.Repeat) node;
+            for (int i = 0; i < rep.min; i++) {
+                emit(rep.node);
+            }
+            if (rep.max < 0) {
+                int split = append(SPLIT);
+                x[split] = split + 1;
+                emit(rep.node);
+                int jump = append(JUMP);
+                x[jump] = split;
+                y[split] = size;
+                if (rep.lazy) {
+                    swap(split);
+                }
+            } else {
+                int optional = rep.max - rep.min;
+                int[] splits = new int[optional];
+                for (int i = 0; i < optional; i++) {
+                    splits[i] = append(SPLIT);
+                    x[splits[i]] = splits[i] + 1;
+                    emit(rep.node);
+                }
+                for (int split : splits) {
+                    y[split] = size;
+                    if (rep.lazy) {
+                        swap(split);
+                    }
+                }
+            }
+        } else if (node instanceof RegexParser.Assert) {
+            int pc = append(ASSERT);
+            x[pc] = ((RegexParser.Assert) node).kind;
+        } else {
+            throw new UnsupportedRegexException("Unknown node " + node);
+        }
+    }
+
+    private void swap(int split) {
+        int preferred = x[split];
+        x[split] = y[split];
+        y[split] = preferred;
+    }
+
+    private int append(int opcode) throws UnsupportedRegexException {
+        if (size >= limit) {
+            throw new UnsupportedRegexException("Pattern expands beyond " + MAX_PATTERN_SIZE + " instructions");
+        }
+        if (size == op.length) {
+            int cap = size * 2;
+            op = Arrays.copyOf(op, cap);
+            x = Arrays.copyOf(x, cap);
+            y = Arrays.copyOf(y, cap);
+            ranges = Arrays.copyOf(ranges, cap);
+        }
+        op[size] = opcode;
+        x[size] = 0;
+        y[size] = 0;
+        return size++;
+    }
+}
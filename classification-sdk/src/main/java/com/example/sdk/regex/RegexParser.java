@@ -0,0 +1,667 @@
+package com.example.sdk.regex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parser for the regular subset of {@link java.util.regex.Pattern} syntax
+ * (default flags). Produces a small syntax tree that {@link Program} turns
+ * into NFA instructions. Anything whose semantics cannot be expressed by a
+ * finite automaton, or that this parser does not model exactly, is rejected
+ * with an {@link UnsupportedRegexException} so the caller can fall back to
+ * {@code java.util.regex}.
+ *
+ * <p>Supported: literals and escapes, {@code .}, character classes with
+ * ranges and the {@code \d \w \s} shorthands, groups (capturing,
+ * non-capturing and named), alternation, greedy and lazy quantifiers
+ * including counted repetition, {@code ^}, {@code \A} and {@code \b}.
+ * Patterns are assumed to have been validated by {@code Pattern.compile}
+ * beforehand.</p>
+ *
+ * <p>{@link #parseLenient(String)} additionally accepts most of the remaining
+ * syntax for analyses that do not need exact semantics, such as
+ * {@link RequiredLiterals}: constructs the tree cannot express become
+ * {@link Opaque} nodes.</p>
+ */
+final class RegexParser {
+
+    static final int ASSERT_BEGIN = 1;
+    static final int ASSERT_WORD_BOUNDARY = 2;
+
+    /** Syntax tree node. */
+    abstract static class Node {
+    }
+
+    static final class CharSet extends Node {
+        final int[] ranges;
+
+        CharSet(int[] ranges) {
+            this.ranges = ranges;
+        }
+    }
+
+    static final class Concat extends Node {
+        final List<Node> items;
+
+        Concat(List<Node> items) {
+            this.items = items;
+        }
+    }
+
+    static final class Alt extends Node {
+        final List<Node> options;
+
+        Alt(List<Node> options) {
+            this.options = options;
+        }
+    }
+
+    static final class Repeat extends Node {
+        final Node node;
+        final int min;
+        final int max; // -1 for unbounded
+        final boolean lazy;
+
+        Repeat(Node node, int min, int max, boolean lazy) {
+            this.node = node;
+            this.min = min;
+            this.max = max;
+            this.lazy = lazy;
+        }
+    }
+
+    static final class Assert extends Node {
+        final int kind;
+
+        Assert(int kind) {
+            this.kind = kind;
+        }
+    }
+
+    /**
+     * A construct only produced by lenient parsing whose matches are not
+     * modelled: look-around, {@code $}, {@code \B}, back-references, Unicode
+     * property classes and the like.
+     */
+    static final class Opaque extends Node {
+        final boolean zeroWidth;
+
+        Opaque(boolean zeroWidth) {
+            this.zeroWidth = zeroWidth;
+        }
+    }
+
+    // Counted repetitions beyond this bound are left to java.util.regex
+    private static final int MAX_REPEAT = 1000;
+
+    private final String src;
+    private final boolean lenient;
+    private int pos;
+
+    private RegexParser(String src, boolean lenient) {
+        this.src = src;
+        this.lenient = lenient;
+    }
+
+    /**
+     * Parse a pattern into a syntax tree.
+     *
+     * @throws UnsupportedRegexException if the pattern uses unsupported syntax
+     */
+    static Node parse(String pattern) throws UnsupportedRegexException {
+        return parse(pattern, false);
+    }
+
+    /**
+     * Parse a pattern into a syntax tree that may contain {@link Opaque}
+     * nodes. Still fails on inline flags, which change how the rest of the
+     * pattern is read.
+     *
+     * @throws UnsupportedRegexException if the pattern cannot be read
+     */
+    static Node parseLenient(String pattern) throws UnsupportedRegexException {
+        return parse(pattern, true);
+    }
+
+    private static Node parse(String pattern, boolean lenient) throws UnsupportedRegexException {
+        RegexParser p = new RegexParser(pattern, lenient);
+        Node node = p.parseAlternation();
+        if (p.pos < p.src.length()) {
+            throw new UnsupportedRegexException("Unexpected '" + p.src.charAt(p.pos) + "' at " + p.pos);
+        }
+        return node;
+    }
+
+    private Node parseAlternation() throws UnsupportedRegexException {
+        List<Node> options = new ArrayList<>();
+        options.add(parseConcat());
+        while (more() && peek() == '|') {
+            pos++;
+            options.add(parseConcat());
+        }
+        return options.size() == 1 ? options.get(0) : new Alt(options);
+    }
+
+    private Node parseConcat() throws UnsupportedRegexException {
+        List<Node> items = new ArrayList<>();
+        while (more() && peek() != '|' && peek() != ')') {
+            if (src.startsWith("\\Q", pos)) {
+                parseQuoted(items);
+                continue;
+            }
+            Node atom = parseAtom();
+            items.add(parseQuantifier(atom));
+        }
+        return items.size() == 1 ? items.get(0) : new Concat(items);
+    }
+
+    private void parseQuoted(List<Node> items) throws UnsupportedRegexException {
+        pos += 2;
+        int end = src.indexOf("\\E", pos);
+        String quoted = end < 0 ? src.substring(pos) : src.substring(pos, end);
+        pos = end < 0 ? src.length() : end + 2;
+        for (int i = 0; i < quoted.length(); ) {
+            int cp = quoted.codePointAt(i);
+            i += Character.charCount(cp);
+            Node lit = new CharSet(CharRanges.single(cp));
+            // A quantifier after \E applies to the last quoted character
+            items.add(i >= quoted.length() ? parseQuantifier(lit) : lit);
+        }
+    }
+
+    private Node parseAtom() throws UnsupportedRegexException {
+        int c = src.codePointAt(pos);
+        switch (c) {
+            case '(':
+                return parseGroup();
+            case '[':
+                return parseClass();
+            case '.':
+                pos++;
+                return new CharSet(CharRanges.DOT);
+            case '^':
+                pos++;
+                return new Assert(ASSERT_BEGIN);
+            case '$':
+                // end anchors depend on trailing line terminators; not modelled
+                if (lenient) {
+                    pos++;
+                    return new Opaque(true);
+                }
+                throw new UnsupportedRegexException("'$' anchor");
+            case '\\':
+                return parseEscape();
+            case '*':
+            case '+':
+            case '?':
+            case '{':
+                throw new UnsupportedRegexException("Dangling quantifier at " + pos);
+            default:
+                pos += Character.charCount(c);
+                return new CharSet(CharRanges.single(c));
+        }
+    }
+
+    private Node parseGroup() throws UnsupportedRegexException {
+        pos++; // '('
+        if (more() && peek() == '?') {
+            if (src.startsWith("?:", pos)) {
+                pos += 2;
+            } else if (src.startsWith("?<", pos) && pos + 2 < src.length()
+                    && Character.isLetter(src.charAt(pos + 2))) {
+                int close = src.indexOf('>', pos);
+                if (close < 0) {
+                    throw new UnsupportedRegexException("Unterminated group name");
+                }
+                pos = close + 1;
+            } else if (lenient && src.startsWith("?>", pos)) {
+                // atomic group: matches a subset of what the plain group does
+                pos += 2;
+            } else if (lenient && (src.startsWith("?=", pos) || src.startsWith("?!", pos)
+                    || src.startsWith("?<=", pos) || src.startsWith("?<!", pos))) {
+                pos += src.charAt(pos + 1) == '<' ? 3 : 2;
+                parseAlternation();
+                if (!more() || peek() != ')') {
+                    throw new UnsupportedRegexException("Unclosed group");
+                }
+                pos++;
+                return new Opaque(true);
+            } else {
+                // look-around, atomic groups and inline flags
+                throw new UnsupportedRegexException("Special group at " + pos);
+            }
+        }
+        Node inner = parseAlternation();
+        if (!more() || peek() != ')') {
+            throw new UnsupportedRegexException("Unclosed group");
+        }
+        pos++;
+        return inner;
+    }
+
+    private Node parseQuantifier(Node atom) throws UnsupportedRegexException {
+        if (!more()) {
+            return atom;
+        }
+        int min;
+        int max;
+        char c = peek();
+        if (c == '*') {
+            min = 0;
+            max = -1;
+            pos++;
+        } else if (c == '+') {
+            min = 1;
+            max = -1;
+            pos++;
+        } else if (c == '?') {
+            min = 0;
+            max = 1;
+            pos++;
+        } else if (c == '{') {
+            int close = src.indexOf('}', pos);
+            if (close < 0) {
+                throw new UnsupportedRegexException("Unterminated repetition");
+            }
+            String body = src.substring(pos + 1, close);
+            int comma = body.indexOf(',');
+            try {
+                if (comma < 0) {
+                    min = max = Integer.parseInt(body.trim());
+                } else {
+                    min = Integer.parseInt(body.substring(0, comma).trim());
+                    String upper = body.substring(comma + 1).trim();
+                    max = upper.isEmpty() ? -1 : Integer.parseInt(upper);
+                }
+            } catch (NumberFormatException e) {
+                throw new UnsupportedRegexException("Bad repetition '" + body + "'");
+            }
+            if (max >= 0 && max < min || !lenient && (min > MAX_REPEAT || max > MAX_REPEAT)) {
+                throw new UnsupportedRegexException("Repetition too large");
+            }
+            pos = close + 1;
+        } else {
+            return atom;
+        }
+        if (atom instanceof Assert && !lenient) {
+            throw new UnsupportedRegexException("Quantified assertion");
+        }
+        if ((min > 1 || max != 1) && !lenient && nullable(atom)) {
+            // java.util.regex treats empty iterations of loops specially
+            throw new UnsupportedRegexException("Repetition of a sub-pattern that can match empty");
+        }
+        boolean lazy = false;
+        if (more()) {
+            if (peek() == '+' && !lenient) {
+                // possessive quantifiers can change whether a match exists
+                throw new UnsupportedRegexException("Possessive quantifier");
+            }
+            if (peek() == '?' || peek() == '+') {
+                // reluctant and greedy quantifiers accept the same inputs,
+                // they only prefer different matches
+                lazy = peek() == '?';
+                pos++;
+            }
+        }
+        Node repeated = new Repeat(atom, min, max, lazy);
+        if (more() && (peek() == '*' || peek() == '+' || peek() == '?' || peek() == '{')) {
+            if (lenient) {
+                // java.util.regex does not simply nest stacked quantifiers
+                parseQuantifier(repeated);
+                return new Opaque(false);
+            }
+            throw new UnsupportedRegexException("Stacked quantifier");
+        }
+        return repeated;
+    }
+
+    private Node parseEscape() throws UnsupportedRegexException {
+        pos++; // '\\'
+        if (!more()) {
+            throw new UnsupportedRegexException("Trailing backslash");
+        }
+        char c = peek();
+        switch (c) {
+            case 'b':
+                pos++;
+                return new Assert(ASSERT_WORD_BOUNDARY);
+            case 'B':
+                // java.util.regex also tests \B between the halves of a
+                // surrogate pair, which the code point automaton never visits
+                if (lenient) {
+                    pos++;
+                    return new Opaque(true);
+                }
+                throw new UnsupportedRegexException("\\B assertion");
+            case 'A':
+                pos++;
+                return new Assert(ASSERT_BEGIN);
+            default:
+                int[] set = parseClassEscape();
+                if (set != null) {
+                    return new CharSet(set);
+                }
+                if (lenient) {
+                    Node opaque = parseOpaqueEscape();
+                    if (opaque != null) {
+                        return opaque;
+                    }
+                }
+                return new CharSet(CharRanges.single(parseCharEscape()));
+        }
+    }
+
+    /**
+     * Lenient mode: parse an escape the tree cannot express after the
+     * backslash; returns null if the escape is an ordinary one.
+     */
+    private Node parseOpaqueEscape() throws UnsupportedRegexException {
+        char c = peek();
+        if (c >= '1' && c <= '9') {
+            while (more() && Character.isDigit(peek())) {
+                pos++;
+            }
+            return new Opaque(false);
+        }
+        switch (c) {
+            case 'k':
+            case 'p':
+            case 'P':
+                pos++;
+                if (more() && (peek() == '<' || peek() == '{')) {
+                    int close = src.indexOf(peek() == '<' ? '>' : '}', pos);
+                    if (close < 0) {
+                        throw new UnsupportedRegexException("Unterminated \\" + c);
+                    }
+                    pos = close + 1;
+                } else if (c != 'k' && more()) {
+                    pos++; // one-letter property such as \pL
+                }
+                return new Opaque(false);
+            case 'z':
+            case 'Z':
+            case 'G':
+                pos++;
+                return new Opaque(true);
+            case 'R':
+            case 'X':
+            case 'h':
+            case 'H':
+            case 'v':
+            case 'V':
+                pos++;
+                return new Opaque(false);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Parse a shorthand class escape ({@code \d \D \w \W \s \S}) after the
+     * backslash; returns null if the escape is not a shorthand class.
+     */
+    private int[] parseClassEscape() {
+        switch (peek()) {
+            case 'd':
+                pos++;
+                return CharRanges.DIGIT;
+            case 'D':
+                pos++;
+                return CharRanges.negate(CharRanges.DIGIT);
+            case 'w':
+                pos++;
+                return CharRanges.WORD;
+            case 'W':
+                pos++;
+                return CharRanges.negate(CharRanges.WORD);
+            case 's':
+                pos++;
+                return CharRanges.SPACE;
+            case 'S':
+                pos++;
+                return CharRanges.negate(CharRanges.SPACE);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Parse a single-character escape after the backslash and return the code
+     * point it denotes.
+     */
+    private int parseCharEscape() throws UnsupportedRegexException {
+        int c = src.codePointAt(pos);
+        pos += Character.charCount(c);
+        switch (c) {
+            case 't':
+                return '\t';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 'f':
+                return '\f';
+            case 'a':
+                return 0x07;
+            case 'e':
+                return 0x1B;
+            case '0':
+                return parseOctal();
+            case 'x':
+                if (more() && peek() == '{') {
+                    int close = src.indexOf('}', pos);
+                    if (close < 0) {
+                        throw new UnsupportedRegexException("Unterminated \\x{");
+                    }
+                    int cp = parseHex(pos + 1, close);
+                    pos = close + 1;
+                    return cp;
+                }
+                return parseHexDigits(2);
+            case 'u':
+                return parseHexDigits(4);
+            case 'c':
+                if (!more()) {
+                    throw new UnsupportedRegexException("Incomplete \\c");
+                }
+                return src.charAt(pos++) ^ 64;
+            default:
+                if (Character.isLetterOrDigit(c)) {
+                    // back-references, \p{..}, \h, \R, \z, \G and friends
+                    throw new UnsupportedRegexException("Escape \\" + new String(Character.toChars(c)));
+                }
+                return c;
+        }
+    }
+
+    private int parseOctal() throws UnsupportedRegexException {
+        int value = 0;
+        int digits = 0;
+        while (digits < 3 && more() && peek() >= '0' && peek() <= '7') {
+            int next = value * 8 + (peek() - '0');
+            if (next > 0377) {
+                break;
+            }
+            value = next;
+            pos++;
+            digits++;
+        }
+        if (digits == 0) {
+            throw new UnsupportedRegexException("Bad octal escape");
+        }
+        return value;
+    }
+
+    private int parseHexDigits(int count) throws UnsupportedRegexException {
+        if (pos + count > src.length()) {
+            throw new UnsupportedRegexException("Incomplete hex escape");
+        }
+        int cp = parseHex(pos, pos + count);
+        pos += count;
+        return cp;
+    }
+
+    private int parseHex(int start, int end) throws UnsupportedRegexException {
+        try {
+            int cp = Integer.parseInt(src.substring(start, end), 16);
+            if (cp < 0 || cp > CharRanges.MAX_CODE_POINT) {
+                throw new UnsupportedRegexException("Hex escape out of range");
+            }
+            return cp;
+        } catch (NumberFormatException e) {
+            throw new UnsupportedRegexException("Bad hex escape");
+        }
+    }
+
+    private Node parseClass() throws UnsupportedRegexException {
+        int start = pos;
+        try {
+            return parseSimpleClass();
+        } catch (UnsupportedRegexException e) {
+            if (!lenient) {
+                throw e;
+            }
+            pos = start;
+            skipClass();
+            return new Opaque(false);
+        }
+    }
+
+    /**
+     * Lenient mode: move past a class with nested classes, intersections or
+     * quoting without interpreting it.
+     */
+    private void skipClass() throws UnsupportedRegexException {
+        int depth = 0;
+        while (more()) {
+            char c = peek();
+            if (c == '\\') {
+                if (src.startsWith("\\Q", pos)) {
+                    int end = src.indexOf("\\E", pos + 2);
+                    pos = end < 0 ? src.length() : end + 2;
+                } else {
+                    pos += 2;
+                }
+                continue;
+            }
+            pos++;
+            if (c == '[') {
+                depth++;
+                // a ']' right after '[' or '[^' is a literal
+                if (more() && peek() == '^') {
+                    pos++;
+                }
+                if (more() && peek() == ']') {
+                    pos++;
+                }
+            } else if (c == ']' && --depth == 0) {
+                return;
+            }
+        }
+        throw new UnsupportedRegexException("Unclosed class");
+    }
+
+    private Node parseSimpleClass() throws UnsupportedRegexException {
+        pos++; // '['
+        boolean negated = false;
+        if (more() && peek() == '^') {
+            negated = true;
+            pos++;
+        }
+        if (more() && peek() == ']') {
+            throw new UnsupportedRegexException("Leading ']' in class");
+        }
+        int[] ranges = new int[0];
+        while (true) {
+            if (!more()) {
+                throw new UnsupportedRegexException("Unclosed class");
+            }
+            char c = peek();
+            if (c == ']') {
+                pos++;
+                break;
+            }
+            if (c == '[' || src.startsWith("&&", pos)) {
+                throw new UnsupportedRegexException("Class union or intersection");
+            }
+            int lo;
+            if (c == '\\') {
+                pos++;
+                if (!more()) {
+                    throw new UnsupportedRegexException("Trailing backslash");
+                }
+                if (peek() == 'Q') {
+                    throw new UnsupportedRegexException("Quoting inside class");
+                }
+                int[] set = parseClassEscape();
+                if (set != null) {
+                    ranges = CharRanges.union(ranges, set);
+                    continue;
+                }
+                lo = parseCharEscape();
+            } else {
+                lo = src.codePointAt(pos);
+                pos += Character.charCount(lo);
+            }
+            int hi = lo;
+            if (pos + 1 < src.length() && peek() == '-' && src.charAt(pos + 1) != ']') {
+                pos++;
+                char h = peek();
+                if (h == '[') {
+                    throw new UnsupportedRegexException("Class union");
+                }
+                if (h == '\\') {
+                    pos++;
+                    if (!more() || parseClassEscapePeek()) {
+                        throw new UnsupportedRegexException("Range to class escape");
+                    }
+                    hi = parseCharEscape();
+                } else {
+                    hi = src.codePointAt(pos);
+                    pos += Character.charCount(hi);
+                }
+                if (hi < lo) {
+                    throw new UnsupportedRegexException("Reversed range");
+                }
+            }
+            ranges = CharRanges.union(ranges, new int[]{lo, hi});
+        }
+        return new CharSet(negated ? CharRanges.negate(ranges) : ranges);
+    }
+
+    private boolean parseClassEscapePeek() {
+        return "dDwWsS".indexOf(peek()) >= 0;
+    }
+
+    private static boolean nullable(Node node) {
+        if (node instanceof CharSet) {
+            return false;
+        } else if (node instanceof Concat) {
+            for (Node item : ((Concat) node).items) {
+                if (!nullable(item)) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (node instanceof Alt) {
+            for (Node option : ((Alt) node).options) {
+                if (nullable(option)) {
+                    return true;
+                }
+            }
+            return false;
+        } else if (node instanceof Repeat) {
+            Repeat rep = (Repeat) node;
+            return rep.min == 0 || nullable(rep.node);
+        }
+        return true;
+    }
+
+    private boolean more() {
+        return pos < src.length();
+    }
+
+    private char peek() {
+        return src.charAt(pos);
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.sdk.regex;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Derives from a regular expression a set of literal strings at least one of
+ * which occurs in every match, e.g. {@code "@"} for an e-mail pattern or
+ * {@code "-"} for an SSN format. An input containing none of them cannot
+ * match, so the expensive search can be skipped after a cheap literal scan.
+ *
+ * <p>The analysis walks the tree produced by
+ * {@link RegexParser#parseLenient(String)}. For every node it tracks either
+ * the exact, small set of strings the node can match, or failing that the
+ * most selective set of strings every match of the node must contain. Small
+ * character classes are expanded to their characters; classes with more than
+ * {@value #MAX_CLASS_CHARS} characters, look-around, back-references and
+ * similar constructs contribute no requirement. The strings are exact and
+ * case-sensitive; inline flags disable the analysis altogether.</p>
+ */
+public final class RequiredLiterals {
+
+    // Limits that keep the sets small enough for a keyword automaton
+    private static final int MAX_EXACT = 16;
+    private static final int MAX_LITERAL_LENGTH = 32;
+    private static final int MAX_CLASS_CHARS = 16;
+    private static final int MAX_ALTERNATIVES = 64;
+
+    private RequiredLiterals() {}
+
+    /**
+     * Compute the required literals of a pattern.
+     *
+     * @param pattern a pattern accepted by {@link java.util.regex.Pattern}
+     *                with default flags
+     * @return non-empty strings at least one of which occurs in every match,
+     *         or {@code null} if no such set could be derived
+     */
+    public static String[] of(String pattern) {
+        Info info;
+        try {
+            info = analyze(RegexParser.parseLenient(pattern));
+        } catch (UnsupportedRegexException | StackOverflowError e) {
+            return null;
+        }
+        Set<String> required = info.exact != null ? info.exact : info.required;
+        if (required == null || required.contains("")) {
+            return null;
+        }
+        return required.toArray(new String[0]);
+    }
+
+    /**
+     * What is known about the strings a node matches: their exact set if it
+     * is small, and otherwise a set of which every match contains one
+     * ({@code null} when nothing is required).
+     */
+    private static final class Info {
+        final Set<String> exact;
+        final Set<String> required;
+
+        Info(Set<String> exact, Set<String> required) {
+            this.exact = exact;
+            this.required = required;
+        }
+
+        /** The requirement implied by this node alone. */
+        Set<String> requirement() {
+            if (exact != null) {
+                return exact.contains("") ? null : exact;
+            }
+            return required;
+        }
+    }
+
+    private static final Info EMPTY = new Info(single(""), null);
+    private static final Info UNKNOWN = new Info(null, null);
+
+    private static Info analyze(RegexParser.Node node) {
+        if (node instanceof RegexParser.CharSet) {
+            return new Info(expand(((RegexParser.CharSet) node).ranges), null);
+        } else if (node instanceof RegexParser.Concat) {
+            return concat(((RegexParser.Concat) node).items);
+        } else if (node instanceof RegexParser.Alt) {
+            return alternation(((RegexParser.Alt) node).options);
+        } else if (node instanceof RegexParser.Repeat) {
+            return repeat((RegexParser.Repeat) node);
+        } else if (node instanceof RegexParser.Assert) {
+            return EMPTY;
+        } else if (node instanceof RegexParser.Opaque) {
+            return ((RegexParser.Opaque) node).zeroWidth ? EMPTY : UNKNOWN;
+        }
+        return UNKNOWN;
+    }
+
+    private static Info concat(List<RegexParser.Node> items) {
+        // Consecutive exact items are multiplied out into one run of
+        // literals; each run and each inexact item is a candidate requirement
+        List<Set<String>> candidates = new ArrayList<>();
+        Set<String> run = single("");
+        boolean exact = true;
+        for (RegexParser.Node item : items) {
+            Info info = analyze(item);
+            Set<String> product = info.exact != null ? cross(run, info.exact) : null;
+            if (product != null) {
+                run = product;
+                continue;
+            }
+            exact = false;
+            candidates.add(run);
+            if (info.exact != null) {
+                run = info.exact;
+            } else {
+                candidates.add(info.required);
+                run = single("");
+            }
+        }
+        if (exact) {
+            return new Info(run, null);
+        }
+        candidates.add(run);
+        Set<String> best = null;
+        for (Set<String> candidate : candidates) {
+            best = better(best, candidate);
+        }
+        return new Info(null, best);
+    }
+
+    private static Info alternation(List<RegexParser.Node> options) {
+        Set<String> exact = new LinkedHashSet<>();
+        Set<String> required = new LinkedHashSet<>();
+        for (RegexParser.Node option : options) {
+            Info info = analyze(option);
+            if (exact != null) {
+                if (info.exact != null && exact.size() + info.exact.size() <= MAX_EXACT) {
+                    exact.addAll(info.exact);
+                } else {
+                    exact = null;
+                }
+            }
+            Set<String> req = info.requirement();
+            if (required != null) {
+                if (req != null && required.size() + req.size() <= MAX_ALTERNATIVES) {
+                    required.addAll(req);
+                } else {
+                    required = null;
+                }
+            }
+        }
+        return exact != null ? new Info(exact, null) : new Info(null, required);
+    }
+
+    private static Info repeat(RegexParser.Repeat rep) {
+        Info body = analyze(rep.node);
+        if (rep.min == 0) {
+            if (rep.max == 1 && body.exact != null && body.exact.size() < MAX_EXACT) {
+                Set<String> optional = new LinkedHashSet<>(body.exact);
+                optional.add("");
+                return new Info(optional, null);
+            }
+            return UNKNOWN;
+        }
+        if (body.exact == null) {
+            return new Info(null, body.required);
+        }
+        // Every match starts with min consecutive matches of the body
+        Set<String> prefix = body.exact;
+        for (int i = 1; i < rep.min && prefix != null; i++) {
+            prefix = cross(prefix, body.exact);
+        }
+        if (prefix == null) {
+            return new Info(null, body.requirement());
+        }
+        return rep.max == rep.min ? new Info(prefix, null) : new Info(null, prefix.contains("") ? null : prefix);
+    }
+
+    // Concatenate every string of a with every string of b, or null if the
+    // result would exceed the limits
+    private static Set<String> cross(Set<String> a, Set<String> b) {
+        if ((long) a.size() * b.size() > MAX_EXACT) {
+            return null;
+        }
+        Set<String> out = new LinkedHashSet<>();
+        for (String x : a) {
+            for (String y : b) {
+                if (x.length() + y.length() > MAX_LITERAL_LENGTH) {
+                    return null;
+                }
+                out.add(x + y);
+            }
+        }
+        return out;
+    }
+
+    private static Set<String> expand(int[] ranges) {
+        long count = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            count += ranges[i + 1] - ranges[i] + 1;
+        }
+        if (count > MAX_CLASS_CHARS) {
+            return null;
+        }
+        Set<String> out = new LinkedHashSet<>();
+        for (int i = 0; i < ranges.length; i += 2) {
+            for (int cp = ranges[i]; cp <= ranges[i + 1]; cp++) {
+                out.add(new String(Character.toChars(cp)));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Pick the requirement an input is less likely to satisfy, estimating
+     * each literal of length n to occur with probability 16^-n.
+     */
+    private static Set<String> better(Set<String> a, Set<String> b) {
+        if (b == null || b.contains("")) {
+            return a;
+        }
+        if (a == null) {
+            return b;
+        }
+        return weight(b) < weight(a) ? b : a;
+    }
+
+    private static double weight(Set<String> literals) {
+        double w = 0;
+        for (String s : literals) {
+            w += Math.pow(16, -Math.min(s.length(), 8));
+        }
+        return w;
+    }
+
+    private static Set<String> single(String s) {
+        Set<String> set = new LinkedHashSet<>();
+        set.add(s);
+        return set;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.sdk.regex;
+
+/**
+ * Raised by the {@link RegexParser} when a pattern uses a construct the
+ * automaton cannot represent (back-references, look-around, possessive
+ * quantifiers, inline flags, ...). Such patterns are left to
+ * {@link java.util.regex.Pattern}.
+ */
+class UnsupportedRegexException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    UnsupportedRegexException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.sdk;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AsyncClassifierTests {
+
+    @Test
+    @DisplayName("should reject requests beyond the in-flight limit")
+    void rejectsBeyondLimit() {
+        List<Runnable> tasks = new ArrayList<>();
+        AsyncClassifier classifier = new AsyncClassifier(new DetectionEngine(), tasks::add, 2);
+
+        classifier.submit("a", ClassificationMode.TOP_MATCH_ONLY);
+        classifier.submit("b", ClassificationMode.TOP_MATCH_ONLY);
+        CompletableFuture<DetectionResult> third = classifier.submit("c", ClassificationMode.TOP_MATCH_ONLY);
+
+        assertThat(tasks).hasSize(2);
+        assertThat(third).isCompletedExceptionally();
+        assertThat(classifier.getInFlight()).isEqualTo(2);
+        assertThat(classifier.getQueueDepth()).isEqualTo(2);
+        assertThat(classifier.getRejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should release the request when the executor rejects it")
+    void releasesRejectedRequest() {
+        AsyncClassifier classifier = new AsyncClassifier(new DetectionEngine(), task -> {
+            throw new RejectedExecutionException("shut down");
+        }, 1);
+
+        CompletableFuture<DetectionResult> future = classifier.submit("a", ClassificationMode.TOP_MATCH_ONLY);
+
+        assertThat(future).isCompletedExceptionally();
+        assertThat(classifier.getInFlight()).isZero();
+        assertThat(classifier.getQueueDepth()).isZero();
+        assertThat(classifier.getRejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should release the request and rethrow when the executor fails")
+    void releasesFailedRequest() {
+        AsyncClassifier classifier = new AsyncClassifier(new DetectionEngine(), task -> {
+            throw new IllegalStateException("broken");
+        }, 1);
+
+        assertThatThrownBy(() -> classifier.submit("a", ClassificationMode.TOP_MATCH_ONLY))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(classifier.getInFlight()).isZero();
+        assertThat(classifier.getQueueDepth()).isZero();
+        assertThat(classifier.getRejectedCount()).isZero();
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.sdk;
+
+import com.example.sdk.cache.CachePaths;
+import com.example.sdk.model.MatcherDef;
+import com.example.sdk.model.Rule;
+import com.example.sdk.model.Ruleset;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BinaryRuleCacheTests {
+
+    private static final String[] INPUTS = {
+            "call 13812345678",
+            "id 110105198001015678",
+            "the Password is hunter2",
+            "acct ACC123 and ACC1234",
+            "nothing to see here",
+            "",
+    };
+
+    @TempDir
+    static Path cacheDir;
+
+    private static Path file;
+    private static String previousCacheDir;
+
+    @BeforeAll
+    static void configureCacheDir() {
+        previousCacheDir = System.setProperty("sdk.rule.cache.dir", cacheDir.toString());
+        file = Paths.get(CachePaths.getBinaryCacheFile());
+    }
+
+    @AfterAll
+    static void restoreCacheDir() {
+        TestSupport.restoreProperty("sdk.rule.cache.dir", previousCacheDir);
+    }
+
+    @AfterEach
+    void removeCache() {
+        System.clearProperty("sdk.rule.cache.binary.enabled");
+        BinaryRuleCache.delete();
+    }
+
+    @Test
+    @DisplayName("should restore a snapshot that classifies like a freshly compiled one")
+    void restoresSnapshot() throws IOException {
+        CompiledRuleset fresh = CompiledRuleset.compile(ruleset());
+        BinaryRuleCache.save(fresh);
+
+        CompiledRuleset image = BinaryRuleCache.load();
+
+        assertThat(image).isNotNull();
+        ObjectMapper mapper = new ObjectMapper();
+        assertThat(mapper.writeValueAsString(image.getRuleset()))
+                .isEqualTo(mapper.writeValueAsString(fresh.getRuleset()));
+        CompiledRuleset restored = CompiledRuleset.compile(image.getRuleset(), image);
+        DetectionEngine engine = new DetectionEngine();
+        assertThat(ids(engine.detect("call 13812345678", ClassificationMode.TOP_MATCH_ONLY, restored)))
+                .containsExactly("phone");
+        for (String input : INPUTS) {
+            for (ClassificationMode mode : ClassificationMode.values()) {
+                assertThat(ids(engine.detect(input, mode, restored)))
+                        .as("%s %s", mode, input)
+                        .isEqualTo(ids(engine.detect(input, mode, fresh)));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("should ignore a missing cache")
+    void ignoresMissingCache() {
+        assertThat(Files.exists(file)).isFalse();
+        assertThat(BinaryRuleCache.load()).isNull();
+    }
+
+    @Test
+    @DisplayName("should ignore a cache whose payload was altered")
+    void ignoresCorruptedCache() throws IOException {
+        BinaryRuleCache.save(CompiledRuleset.compile(ruleset()));
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+
+        assertThat(BinaryRuleCache.load()).isNull();
+    }
+
+    @Test
+    @DisplayName("should ignore a truncated cache")
+    void ignoresTruncatedCache() throws IOException {
+        BinaryRuleCache.save(CompiledRuleset.compile(ruleset()));
+        byte[] bytes = Files.readAllBytes(file);
+
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThat(BinaryRuleCache.load()).isNull();
+
+        Files.write(file, Arrays.copyOf(bytes, 20));
+        assertThat(BinaryRuleCache.load()).isNull();
+
+        Files.write(file, new byte[0]);
+        assertThat(BinaryRuleCache.load()).isNull();
+    }
+
+    @Test
+    @DisplayName("should ignore a cache of another format version")
+    void ignoresOtherFormatVersion() throws IOException {
+        BinaryRuleCache.save(CompiledRuleset.compile(ruleset()));
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[7]++;
+        Files.write(file, bytes);
+
+        assertThat(BinaryRuleCache.load()).isNull();
+    }
+
+    @Test
+    @DisplayName("should neither write nor read the cache when it is disabled")
+    void honoursDisabledCache() {
+        System.setProperty("sdk.rule.cache.binary.enabled", "false");
+        BinaryRuleCache.save(CompiledRuleset.compile(ruleset()));
+        assertThat(Files.exists(file)).isFalse();
+
+        System.clearProperty("sdk.rule.cache.binary.enabled");
+        BinaryRuleCache.save(CompiledRuleset.compile(ruleset()));
+        System.setProperty("sdk.rule.cache.binary.enabled", "false");
+        assertThat(BinaryRuleCache.load()).isNull();
+    }
+
+    private static Ruleset ruleset() {
+        List<Rule> rules = new ArrayList<>();
+        rules.add(rule("phone", 10, "regex", "1[3-9]\\d{9}"));
+        rules.add(rule("idcard", 20, "regex", "\\b\\d{17}[\\dXx]\\b"));
+        // look-ahead, evaluated by java.util.regex behind the literal prefilter
+        rules.add(rule("account", 5, "regex", "ACC\\d{3}(?!\\d)"));
+        rules.add(rule("secret", 15, "dictionary", "password,passwd,secret"));
+        rules.add(rule("fuzzy", 1, "fuzzy_contains", "hunter"));
+        Ruleset ruleset = new Ruleset();
+        ruleset.setVersion("v1");
+        ruleset.setRules(rules);
+        return ruleset;
+    }
+
+    private static Rule rule(String id, int priority, String type, String pattern) {
+        MatcherDef matcher = new MatcherDef();
+        matcher.setType(type);
+        matcher.setPattern(pattern);
+        matcher.setConfidence(0.9);
+        Rule rule = new Rule();
+        rule.setId(id);
+        rule.setName("Rule " + id);
+        rule.setLevel("CONFIDENTIAL");
+        rule.setPriority(priority);
+        rule.setEnabled(true);
+        rule.setMatchers(Collections.singletonList(matcher));
+        return rule;
+    }
+
+    private static List<String> ids(DetectionResult result) {
+        return result.getMatchedRules().stream().map(Rule::getId).collect(Collectors.toList());
+    }
+}
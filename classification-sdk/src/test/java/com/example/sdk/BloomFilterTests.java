@@ -0,0 +1,64 @@
+package com.example.sdk;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTests {
+
+    @Test
+    @DisplayName("should contain every key added to it")
+    void hasNoFalseNegatives() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        Random random = new Random(19);
+        long[] keys = new long[10_000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextLong();
+            filter.put(keys[i]);
+        }
+
+        for (long key : keys) {
+            assertThat(filter.mightContain(key)).isTrue();
+        }
+    }
+
+    @Test
+    @DisplayName("should keep the false-positive rate near its target")
+    void keepsTargetRate() {
+        for (double fpp : new double[]{0.1, 0.01, 0.001}) {
+            BloomFilter filter = BloomFilter.create(20_000, fpp);
+            Random random = new Random(23);
+            for (int i = 0; i < 20_000; i++) {
+                String term = "term" + random.nextInt();
+                filter.put(Tokens.hash(term, 0, term.length()));
+            }
+            int positives = 0;
+            int probes = 200_000;
+            for (int i = 0; i < probes; i++) {
+                String probe = "probe" + i;
+                if (filter.mightContain(Tokens.hash(probe, 0, probe.length()))) {
+                    positives++;
+                }
+            }
+
+            double observed = (double) positives / probes;
+            assertThat(observed).as("%s", fpp).isLessThan(2 * fpp);
+            assertThat(filter.estimatedFpp()).as("%s", fpp).isLessThan(2 * fpp);
+        }
+    }
+
+    @Test
+    @DisplayName("should size the bit array by the keys and the target rate")
+    void sizesBitArray() {
+        long small = BloomFilter.create(1_000, 0.01).memoryBytes();
+        long large = BloomFilter.create(100_000, 0.01).memoryBytes();
+        long precise = BloomFilter.create(1_000, 0.0001).memoryBytes();
+
+        assertThat(large).isBetween(90 * small, 110 * small);
+        assertThat(precise).isGreaterThan(small);
+        assertThat(BloomFilter.create(0, 0.01).memoryBytes()).isEqualTo(64);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.sdk;
+
+import com.example.sdk.model.MatcherDef;
+import com.example.sdk.model.Rule;
+import com.example.sdk.model.Ruleset;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class ColumnScannerTests {
+
+    private static final CompiledRuleset COMPILED = CompiledRuleset.compile(ruleset(
+            rule("phone", 20, "1[3-9]\\d{9}"),
+            rule("email", 10, "[\\w.]+@[\\w.]+")));
+
+    private final DetectionEngine engine = new DetectionEngine();
+
+    @Test
+    @DisplayName("should settle every verdict from a small sample of a uniform column")
+    void stopsEarly() {
+        List<String> column = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            column.add("1380000" + (1000 + i % 9000));
+        }
+
+        ColumnScanResult result = engine.scanColumn(column.iterator(), options(64, 0, 0.5), COMPILED);
+
+        assertThat(ids(result.getPresentRules())).containsExactly("phone");
+        assertThat(verdicts(result)).containsExactly(ColumnVerdict.PRESENT, ColumnVerdict.ABSENT);
+        assertThat(result.isComplete()).isFalse();
+        assertThat(result.getSampleCount()).isLessThan(1_000);
+    }
+
+    @Test
+    @DisplayName("should leave a rule undecided when its ratio is too close to the threshold")
+    void leavesCloseCallsUndecided() {
+        List<String> column = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            column.add(i % 2 == 0 ? "13812345678" : "none");
+        }
+        ColumnScanOptions options = options(64, 200, 0.5);
+        options.setRowCount(column.size());
+
+        ColumnScanResult result = engine.scanColumn(column.iterator(), options, COMPILED);
+
+        assertThat(result.isComplete()).isTrue();
+        assertThat(result.getRuleStats().get(0).getVerdict()).isEqualTo(ColumnVerdict.UNDECIDED);
+        assertThat(result.getRuleStats().get(0).getHitRatio()).isEqualTo(0.5);
+    }
+
+    @Test
+    @DisplayName("should count nulls and sample the next value instead")
+    void countsNulls() {
+        List<String> column = Arrays.asList(null, "13812345678", null, null, "a@b.c");
+
+        ColumnScanResult result = engine.scanColumn(column.iterator(), options(64, 0, 0.5), COMPILED);
+
+        assertThat(result.getRowCount()).isEqualTo(5);
+        assertThat(result.getNullCount()).isEqualTo(3);
+        assertThat(result.getSampleCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should spread the samples over a column of known length")
+    void spreadsSamplesOverKnownLength() {
+        // sorted by content: the first half never matches
+        long[] values = new long[20_000];
+        for (int i = values.length / 2; i < values.length; i++) {
+            values[i] = 13800000000L + i;
+        }
+        ColumnScanOptions adaptive = options(64, 400, 0.3);
+        ColumnScanOptions spread = options(64, 400, 0.3);
+        spread.setRowCount(values.length);
+
+        ColumnScanResult early = engine.scanColumnChunks(chunks(values), adaptive, COMPILED);
+        ColumnScanResult whole = engine.scanColumnChunks(chunks(values), spread, COMPILED);
+
+        assertThat(early.getRuleStats().get(0).getVerdict()).isEqualTo(ColumnVerdict.ABSENT);
+        assertThat(whole.getRuleStats().get(0).getVerdict()).isEqualTo(ColumnVerdict.PRESENT);
+        assertThat(whole.getSampleCount()).isEqualTo(400);
+    }
+
+    @Test
+    @DisplayName("should invert the standard normal distribution")
+    void computesNormalQuantiles() {
+        assertThat(ColumnScanner.normalQuantile(0.5)).isCloseTo(0.0, within(1e-9));
+        assertThat(ColumnScanner.normalQuantile(0.975)).isCloseTo(1.959964, within(1e-6));
+        assertThat(ColumnScanner.normalQuantile(0.01)).isCloseTo(-2.326348, within(1e-6));
+        assertThat(ColumnScanner.normalQuantile(0.99995)).isCloseTo(3.890592, within(1e-6));
+    }
+
+    private static Iterator<ColumnChunk> chunks(long[] values) {
+        List<ColumnChunk> chunks = new ArrayList<>();
+        for (int from = 0; from < values.length; from += 1_000) {
+            chunks.add(ColumnChunk.ofLongs(Arrays.copyOfRange(values, from, from + 1_000), 1_000));
+        }
+        return chunks.iterator();
+    }
+
+    private static ColumnScanOptions options(int minSamples, int maxSamples, double threshold) {
+        ColumnScanOptions options = new ColumnScanOptions();
+        options.setMinSamples(minSamples);
+        options.setMaxSamples(maxSamples);
+        options.setConfidence(0.95);
+        options.setThreshold(threshold);
+        return options;
+    }
+
+    private static List<ColumnVerdict> verdicts(ColumnScanResult result) {
+        return result.getRuleStats().stream().map(ColumnRuleStats::getVerdict).collect(Collectors.toList());
+    }
+
+    private static List<String> ids(List<Rule> rules) {
+        return rules.stream().map(Rule::getId).collect(Collectors.toList());
+    }
+
+    private static Ruleset ruleset(Rule... rules) {
+        Ruleset ruleset = new Ruleset();
+        ruleset.setVersion("v1");
+        ruleset.setRules(Arrays.asList(rules));
+        return ruleset;
+    }
+
+    private static Rule rule(String id, int priority, String pattern) {
+        MatcherDef matcher = new MatcherDef();
+        matcher.setType("regex");
+        matcher.setPattern(pattern);
+        Rule rule = new Rule();
+        rule.setId(id);
+        rule.setName("Rule " + id);
+        rule.setLevel("CONFIDENTIAL");
+        rule.setPriority(priority);
+        rule.setEnabled(true);
+        rule.setMatchers(Collections.singletonList(matcher));
+        return rule;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.sdk;
+
+import com.example.sdk.model.MatcherDef;
+import com.example.sdk.model.Rule;
+import com.example.sdk.model.Ruleset;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DictionaryMatcherTests {
+
+    private final Locale defaultLocale = Locale.getDefault();
+
+    @AfterEach
+    void restoreLocale() {
+        Locale.setDefault(defaultLocale);
+    }
+
+    @Test
+    @DisplayName("should fold entries the same way in every default locale")
+    void ignoresDefaultLocale() {
+        Locale.setDefault(new Locale("tr", "TR"));
+
+        assertThat(DictionaryMatcher.parseEntries("ID, Kimlik")).containsExactly("id", "kimlik");
+        assertThat(DictionaryMatcher.matches("user ID 42", "ID")).isTrue();
+        assertThat(detects("dictionary", "ID", "user ID 42")).isTrue();
+        assertThat(detects("dictionary_token", "ID", "user ID 42")).isTrue();
+    }
+
+    @Test
+    @DisplayName("should match entries whose lower case is longer than the entry")
+    void matchesDottedCapitalI() {
+        Locale.setDefault(Locale.ENGLISH);
+
+        assertThat(DictionaryMatcher.parseEntries("İstanbul")).containsExactly("istanbul");
+        assertThat(DictionaryMatcher.matches("İstanbul office", "İstanbul")).isTrue();
+        assertThat(detects("dictionary", "İstanbul", "İstanbul office")).isTrue();
+        assertThat(detects("dictionary_token", "İstanbul", "İstanbul office")).isTrue();
+    }
+
+    private static boolean detects(String type, String pattern, String input) {
+        MatcherDef matcher = new MatcherDef();
+        matcher.setType(type);
+        matcher.setPattern(pattern);
+        Rule rule = new Rule();
+        rule.setId("dictionary");
+        rule.setName("Dictionary");
+        rule.setLevel("CONFIDENTIAL");
+        rule.setEnabled(true);
+        rule.setMatchers(Collections.singletonList(matcher));
+        Ruleset ruleset = new Ruleset();
+        ruleset.setVersion("v1");
+        ruleset.setRules(Collections.singletonList(rule));
+        CompiledRuleset compiled = CompiledRuleset.compile(ruleset);
+        return !new DetectionEngine().detect(input, ClassificationMode.TOP_MATCH_ONLY, compiled)
+                .getMatchedRules().isEmpty();
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.sdk;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeywordAutomatonTests {
+
+    @Test
+    @DisplayName("should report the slots whose keywords occur, ignoring case")
+    void reportsMatchingSlots() {
+        KeywordAutomaton automaton = KeywordAutomaton.build(Arrays.asList(
+                new String[]{"password", "passwd"},
+                new String[]{"身份证"},
+                new String[]{"ÉCOLE"},
+                new String[]{"word"}));
+
+        assertThat(automaton.getSlotCount()).isEqualTo(4);
+        assertThat(automaton.scan("my PassWord is secret")).containsExactly(true, false, false, true);
+        assertThat(automaton.scan("请提供身份证号码")).containsExactly(false, true, false, false);
+        assertThat(automaton.scan("l'école")).containsExactly(false, false, true, false);
+        assertThat(automaton.scan("pass wd")).containsExactly(false, false, false, false);
+    }
+
+    @Test
+    @DisplayName("should ignore empty keywords and never report a slot without keywords")
+    void ignoresEmptyKeywords() {
+        KeywordAutomaton automaton = KeywordAutomaton.build(Arrays.asList(
+                new String[]{""},
+                new String[]{"", "x"}));
+
+        assertThat(automaton.scan("")).containsExactly(false, false);
+        assertThat(automaton.scan("abc")).containsExactly(false, false);
+        assertThat(automaton.scan("xyz")).containsExactly(false, true);
+    }
+
+    @Test
+    @DisplayName("should agree with a naive search on generated dictionaries")
+    void agreesWithNaiveSearch() {
+        Random random = new Random(5);
+        for (int round = 0; round < 300; round++) {
+            List<String[]> sets = new ArrayList<>();
+            int slots = 1 + random.nextInt(5);
+            for (int slot = 0; slot < slots; slot++) {
+                String[] keywords = new String[1 + random.nextInt(4)];
+                for (int i = 0; i < keywords.length; i++) {
+                    keywords[i] = text(random, 1 + random.nextInt(4));
+                }
+                sets.add(keywords);
+            }
+            KeywordAutomaton automaton = KeywordAutomaton.build(sets);
+            for (int n = 0; n < 20; n++) {
+                String input = text(random, random.nextInt(30));
+                SpanBuffer spans = new SpanBuffer();
+
+                boolean[] hits = automaton.scan(input, spans);
+
+                assertThat(automaton.scan(input)).as(input).containsExactly(hits);
+                assertThat(spans(spans)).as(input).isEqualTo(naiveSpans(sets, input));
+                for (int slot = 0; slot < slots; slot++) {
+                    assertThat(hits[slot]).isEqualTo(naiveSpans(sets.subList(slot, slot + 1), input).size() > 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("should read back a written automaton with the same behaviour")
+    void roundTripsThroughBinaryForm() throws IOException {
+        List<String[]> sets = Arrays.asList(new String[]{"alpha", "beta"}, new String[]{"gamma", "alphabet"});
+        KeywordAutomaton automaton = KeywordAutomaton.build(sets);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        automaton.writeTo(new DataOutputStream(bytes));
+        ByteBuffer in = ByteBuffer.wrap(bytes.toByteArray());
+
+        KeywordAutomaton copy = KeywordAutomaton.readFrom(in);
+
+        assertThat(in.hasRemaining()).isFalse();
+        for (String input : new String[]{"ALPHABET soup", "beta", "gamm", ""}) {
+            SpanBuffer expected = new SpanBuffer();
+            SpanBuffer actual = new SpanBuffer();
+            assertThat(copy.scan(input, actual)).containsExactly(automaton.scan(input, expected));
+            assertThat(spans(actual)).isEqualTo(spans(expected));
+        }
+    }
+
+    private static Set<String> spans(SpanBuffer spans) {
+        Set<String> out = new HashSet<>();
+        for (int i = 0; i < spans.size(); i++) {
+            out.add(spans.key(i) + ":" + spans.start(i) + ":" + spans.end(i));
+        }
+        return out;
+    }
+
+    private static Set<String> naiveSpans(List<String[]> sets, String input) {
+        Set<String> out = new HashSet<>();
+        for (int slot = 0; slot < sets.size(); slot++) {
+            for (String span : TestSupport.naiveSpans(Arrays.asList(sets.get(slot)), input)) {
+                out.add(slot + ":" + span);
+            }
+        }
+        return out;
+    }
+
+    private static String text(Random random, int length) {
+        return TestSupport.text(random, "abAB密", length);
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.sdk;
+
+import com.example.sdk.cache.CachePaths;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MappedDictionaryTests {
+
+    @TempDir
+    static Path cacheDir;
+
+    private static Path dictionaryDir;
+    private static String previousCacheDir;
+    private static String previousDictionaryDir;
+
+    @BeforeAll
+    static void configureDirectories() throws IOException {
+        previousCacheDir = System.setProperty("sdk.rule.cache.dir", cacheDir.toString());
+        dictionaryDir = cacheDir.resolve("dictionaries");
+        previousDictionaryDir = System.setProperty("sdk.dictionary.dir", dictionaryDir.toString());
+        Files.createDirectories(dictionaryDir);
+    }
+
+    @AfterAll
+    static void restoreDirectories() {
+        TestSupport.restoreProperty("sdk.rule.cache.dir", previousCacheDir);
+        TestSupport.restoreProperty("sdk.dictionary.dir", previousDictionaryDir);
+    }
+
+    @Test
+    @DisplayName("should find terms anywhere in the text, ignoring case")
+    void findsTerms() throws IOException {
+        write("names.txt", "\uFEFFAlice\n  bob  \n\nBOB\n张三\nstraße\n");
+
+        MappedDictionary dictionary = MappedDictionary.open("names.txt");
+
+        assertThat(dictionary.size()).isEqualTo(4);
+        assertThat(dictionary.containedIn("hello ALICE!")).isTrue();
+        assertThat(dictionary.containedIn("bobby")).isTrue();
+        assertThat(dictionary.containedIn("客户张三的地址")).isTrue();
+        assertThat(dictionary.containedIn("STRASSE")).isFalse();
+        assertThat(dictionary.containedIn("Straße 1")).isTrue();
+        assertThat(dictionary.containedIn("al ice")).isFalse();
+        assertThat(dictionary.containedIn("")).isFalse();
+    }
+
+    @Test
+    @DisplayName("should tell whether a range of the text is exactly a term")
+    void matchesWholeTerms() throws IOException {
+        write("exact.txt", "ab\nabc\n");
+        MappedDictionary dictionary = MappedDictionary.open("exact.txt");
+        String text = "xABCx";
+
+        assertThat(dictionary.contains(text, 1, 3)).isTrue();
+        assertThat(dictionary.contains(text, 1, 4)).isTrue();
+        assertThat(dictionary.contains(text, 1, 2)).isFalse();
+        assertThat(dictionary.contains(text, 0, 3)).isFalse();
+        assertThat(dictionary.contains(text, 2, 2)).isFalse();
+    }
+
+    @Test
+    @DisplayName("should agree with a naive search on generated dictionaries")
+    void agreesWithNaiveSearch() throws IOException {
+        Random random = new Random(9);
+        for (int round = 0; round < 30; round++) {
+            List<String> terms = new ArrayList<>();
+            int count = 1 + random.nextInt(30);
+            for (int i = 0; i < count; i++) {
+                terms.add(text(random, 1 + random.nextInt(4)));
+            }
+            String name = "generated-" + round + ".txt";
+            write(name, String.join("\n", terms));
+            MappedDictionary dictionary = MappedDictionary.open(name);
+
+            for (int n = 0; n < 30; n++) {
+                String input = text(random, random.nextInt(20));
+                Set<String> expected = naiveSpans(terms, input);
+                SpanBuffer spans = new SpanBuffer();
+
+                dictionary.spans(input, 7, spans);
+
+                assertThat(dictionary.containedIn(input)).as(input).isEqualTo(!expected.isEmpty());
+                Set<String> actual = new HashSet<>();
+                for (int i = 0; i < spans.size(); i++) {
+                    assertThat(spans.key(i)).isEqualTo(7);
+                    actual.add(spans.start(i) + ":" + spans.end(i));
+                }
+                assertThat(actual).as(input).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("should build a Bloom filter that passes every term, ignoring case")
+    void buildsBloomFilter() throws IOException {
+        write("tokens.txt", "AB-1234\nj.doe\nStraße\n张三\n");
+        MappedDictionary dictionary = MappedDictionary.open("tokens.txt");
+
+        BloomFilter filter = dictionary.bloomFilter(0.01);
+
+        for (String token : new String[]{"ab-1234", "J.DOE", "STRAßE", "张三"}) {
+            assertThat(filter.mightContain(Tokens.hash(token, 0, token.length()))).as(token).isTrue();
+        }
+        assertThat(dictionary.bloomFilter(0.01)).isSameAs(filter);
+    }
+
+    @Test
+    @DisplayName("should rebuild the index when the dictionary file changes")
+    void rebuildsChangedDictionary() throws IOException {
+        Path file = write("changing.txt", "first\n");
+        assertThat(MappedDictionary.open("changing.txt").containedIn("second")).isFalse();
+
+        write("changing.txt", "first\nsecond\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2_000));
+
+        MappedDictionary dictionary = MappedDictionary.open("changing.txt");
+        assertThat(dictionary.size()).isEqualTo(2);
+        assertThat(dictionary.containedIn("second")).isTrue();
+        assertThat(MappedDictionary.open("changing.txt")).isSameAs(dictionary);
+    }
+
+    @Test
+    @DisplayName("should rebuild an unreadable index instead of failing")
+    void rebuildsCorruptIndex() throws IOException {
+        write("corrupt.txt", "secret\n");
+        Path index = Paths.get(CachePaths.getDictionaryIndexFile("corrupt.txt"));
+        Files.createDirectories(index.getParent());
+        Files.write(index, "not an index".getBytes(StandardCharsets.UTF_8));
+
+        MappedDictionary dictionary = MappedDictionary.open("corrupt.txt");
+
+        assertThat(dictionary.containedIn("top secret")).isTrue();
+    }
+
+    @Test
+    @DisplayName("should map a distributed index file as is")
+    void mapsIndexFile() throws IOException {
+        write("source.txt", "alpha\nbeta\n");
+        MappedDictionary.open("source.txt");
+        Files.copy(Paths.get(CachePaths.getDictionaryIndexFile("source.txt")), dictionaryDir.resolve("shipped.idx"));
+
+        MappedDictionary dictionary = MappedDictionary.open("shipped.idx");
+
+        assertThat(dictionary.size()).isEqualTo(2);
+        assertThat(dictionary.containedIn("the BETA release")).isTrue();
+    }
+
+    @Test
+    @DisplayName("should refuse names outside the dictionary directory")
+    void rejectsEscapingNames() {
+        assertThatThrownBy(() -> MappedDictionary.open("../rules-cache.json"))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("outside");
+    }
+
+    private static Path write(String name, String content) throws IOException {
+        return Files.write(dictionaryDir.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Set<String> naiveSpans(List<String> terms, String input) {
+        Set<String> trimmed = new HashSet<>();
+        for (String term : terms) {
+            trimmed.add(term.trim());
+        }
+        return TestSupport.naiveSpans(trimmed, input);
+    }
+
+    private static String text(Random random, int length) {
+        return TestSupport.text(random, "abAé张 ", length);
+    }
+}
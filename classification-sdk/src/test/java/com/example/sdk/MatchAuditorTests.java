@@ -0,0 +1,117 @@
+package com.example.sdk;
+
+import com.example.sdk.audit.AuditStats;
+import com.example.sdk.audit.MatchEvent;
+import com.example.sdk.audit.PayloadRedaction;
+import com.example.sdk.model.Rule;
+import com.example.sdk.model.Ruleset;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MatchAuditorTests {
+
+    private static final CompiledRuleset COMPILED = CompiledRuleset.compile(ruleset());
+    private static final List<Rule> MATCHED = Arrays.asList(rule("phone"), rule("email"));
+
+    @Test
+    @DisplayName("should deliver redacted events on close")
+    void deliversRedactedEvents() {
+        List<MatchEvent> events = new CopyOnWriteArrayList<>();
+        MatchAuditor auditor = new MatchAuditor(16, 1.0, PayloadRedaction.MASK, events::addAll);
+
+        auditor.publish(COMPILED, ClassificationMode.MULTI_MATCH_ALL, MATCHED, "call 138-1234", 13);
+        auditor.close();
+
+        assertThat(events).hasSize(1);
+        MatchEvent event = events.get(0);
+        assertThat(event.getRulesetVersion()).isEqualTo("v1");
+        assertThat(event.getMode()).isEqualTo(ClassificationMode.MULTI_MATCH_ALL);
+        assertThat(event.getRuleIds()).containsExactly("phone", "email");
+        assertThat(event.getInputLength()).isEqualTo(13);
+        assertThat(event.getPayload()).isEqualTo("**** ***-****");
+        assertThat(auditor.stats().getDeliveredCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should drop events instead of blocking while the buffer is full")
+    void dropsWhenFull() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<MatchEvent> events = new CopyOnWriteArrayList<>();
+        MatchAuditor auditor = new MatchAuditor(2, 1.0, PayloadRedaction.NONE, batch -> {
+            writing.countDown();
+            release.await();
+            events.addAll(batch);
+        });
+        auditor.publish(COMPILED, ClassificationMode.TOP_MATCH_ONLY, MATCHED, "first", 5);
+        assertThat(writing.await(10, TimeUnit.SECONDS)).isTrue();
+
+        for (int i = 0; i < 5; i++) {
+            auditor.publish(COMPILED, ClassificationMode.TOP_MATCH_ONLY, MATCHED, "value", 5);
+        }
+        AuditStats stats = auditor.stats();
+        release.countDown();
+        auditor.close();
+
+        assertThat(stats.getPublishedCount()).isEqualTo(3);
+        assertThat(stats.getDroppedCount()).isEqualTo(3);
+        assertThat(stats.getPendingCount()).isEqualTo(2);
+        assertThat(events).hasSize(3);
+        assertThat(events).extracting(MatchEvent::getPayload).containsOnlyNulls();
+    }
+
+    @Test
+    @DisplayName("should count the events of a batch the sink failed to write")
+    void countsFailedBatches() {
+        MatchAuditor auditor = new MatchAuditor(16, 1.0, PayloadRedaction.NONE, batch -> {
+            throw new IllegalStateException("sink down");
+        });
+
+        auditor.publish(COMPILED, ClassificationMode.TOP_MATCH_ONLY, MATCHED, "value", 5);
+        auditor.publish(COMPILED, ClassificationMode.TOP_MATCH_ONLY, MATCHED, "value", 5);
+        auditor.close();
+
+        assertThat(auditor.stats().getFailedCount()).isEqualTo(2);
+        assertThat(auditor.stats().getDeliveredCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("should publish nothing at a zero sample rate or once closed")
+    void ignoresUnsampledAndLateEvents() {
+        List<MatchEvent> events = new ArrayList<>();
+        MatchAuditor unsampled = new MatchAuditor(16, 0.0, PayloadRedaction.RAW, events::addAll);
+        MatchAuditor closed = new MatchAuditor(16, 1.0, PayloadRedaction.RAW, events::addAll);
+        closed.close();
+
+        unsampled.publish(COMPILED, ClassificationMode.TOP_MATCH_ONLY, MATCHED, "value", 5);
+        closed.publish(COMPILED, ClassificationMode.TOP_MATCH_ONLY, MATCHED, "value", 5);
+        unsampled.close();
+
+        assertThat(events).isEmpty();
+        assertThat(unsampled.stats().getPublishedCount()).isZero();
+        assertThat(closed.stats().getPublishedCount()).isZero();
+    }
+
+    private static Ruleset ruleset() {
+        Ruleset ruleset = new Ruleset();
+        ruleset.setVersion("v1");
+        ruleset.setRules(Collections.emptyList());
+        return ruleset;
+    }
+
+    private static Rule rule(String id) {
+        Rule rule = new Rule();
+        rule.setId(id);
+        return rule;
+    }
+}
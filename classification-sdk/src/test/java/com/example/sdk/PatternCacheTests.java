@@ -0,0 +1,90 @@
+package com.example.sdk;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PatternCacheTests {
+
+    @Test
+    @DisplayName("should compile a pattern once and serve it from then on")
+    void servesCachedPattern() {
+        PatternCache cache = new PatternCache();
+
+        Pattern first = cache.get("\\d+");
+
+        assertThat(cache.get("\\d+")).isSameAs(first);
+        PatternCacheStats stats = cache.stats();
+        assertThat(stats.getMissCount()).isEqualTo(1);
+        assertThat(stats.getHitCount()).isEqualTo(1);
+        assertThat(stats.getSize()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should keep the patterns of the last two compilations")
+    void evictsRetiredPatterns() {
+        PatternCache cache = new PatternCache();
+        compile(cache, "a", "b");
+        compile(cache, "b", "c");
+        assertThat(cache.stats().getSize()).isEqualTo(3);
+
+        compile(cache, "c", "d");
+
+        assertThat(cache.stats().getSize()).isEqualTo(3);
+        assertThat(cache.stats().getEvictionCount()).isEqualTo(1);
+        long misses = cache.stats().getMissCount();
+        cache.get("b");
+        assertThat(cache.stats().getMissCount()).isEqualTo(misses);
+        cache.get("a");
+        assertThat(cache.stats().getMissCount()).isEqualTo(misses + 1);
+    }
+
+    @Test
+    @DisplayName("should not cache an invalid pattern")
+    void rejectsInvalidPattern() {
+        PatternCache cache = new PatternCache();
+
+        assertThatThrownBy(() -> cache.get("(unclosed")).isInstanceOf(PatternSyntaxException.class);
+        assertThat(cache.stats().getSize()).isZero();
+    }
+
+    @Test
+    @DisplayName("should hand every thread the same compiled pattern")
+    void sharesPatternsAcrossThreads() throws Exception {
+        PatternCache cache = new PatternCache();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Pattern>> lookups = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                lookups.add(() -> cache.get("[a-z]+@[a-z]+"));
+            }
+            Pattern expected = cache.get("[a-z]+@[a-z]+");
+            for (Future<Pattern> pattern : pool.invokeAll(lookups)) {
+                assertThat(pattern.get()).isSameAs(expected);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertThat(cache.stats().getMissCount()).isEqualTo(1);
+        assertThat(cache.stats().getHitCount()).isEqualTo(64);
+    }
+
+    private static void compile(PatternCache cache, String... regexes) {
+        long generation = cache.beginGeneration();
+        for (String regex : regexes) {
+            cache.get(regex);
+        }
+        cache.endGeneration(generation);
+    }
+}
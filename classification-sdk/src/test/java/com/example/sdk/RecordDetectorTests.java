@@ -0,0 +1,97 @@
+package com.example.sdk;
+
+import com.example.sdk.model.MatcherDef;
+import com.example.sdk.model.Rule;
+import com.example.sdk.model.Ruleset;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RecordDetectorTests {
+
+    private static final String PHONE = "13812345678";
+
+    private final DetectionEngine engine = new DetectionEngine();
+
+    @Test
+    @DisplayName("should tell a key containing a dot from nested keys")
+    void keepsDottedKeys() throws IOException {
+        CompiledRuleset compiled = CompiledRuleset.compile(ruleset("a.b"));
+
+        assertThat(detects(compiled, Collections.singletonMap("a", Collections.singletonMap("b", PHONE)))).isTrue();
+        assertThat(detects(compiled, Collections.singletonMap("a.b", PHONE))).isFalse();
+        assertThat(detects(compiled, "{\"a\":{\"b\":\"" + PHONE + "\"}}")).isTrue();
+        assertThat(detects(compiled, "{\"a.b\":\"" + PHONE + "\"}")).isFalse();
+    }
+
+    @Test
+    @DisplayName("should not drop empty keys from the field path")
+    void keepsEmptyKeys() throws IOException {
+        CompiledRuleset compiled = CompiledRuleset.compile(ruleset("a.*"));
+
+        assertThat(detects(compiled, "{\"a\":{\"b\":\"" + PHONE + "\"}}")).isTrue();
+        assertThat(detects(compiled, "{\"a\":{\"\":{\"b\":\"" + PHONE + "\"}}}")).isFalse();
+        assertThat(detects(compiled, "{\"\":{\"a\":{\"b\":\"" + PHONE + "\"}}}")).isFalse();
+    }
+
+    @Test
+    @DisplayName("should take a key path apart into the keys it was built from")
+    void roundTripsKeyPaths() {
+        String path = "";
+        String[] keys = {"a.b", "", "c\\", "\\.d", "."};
+        for (String key : keys) {
+            path = FieldScope.keyPath(path, key);
+        }
+
+        assertThat(FieldScope.keys(path)).containsExactly(keys);
+        assertThat(FieldScope.keys("")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should reject a record that contains itself")
+    void rejectsCyclicRecord() {
+        Map<String, Object> record = new HashMap<>();
+        record.put("self", record);
+
+        assertThatThrownBy(() -> engine.detectRecord(record, ClassificationMode.MULTI_MATCH_ALL,
+                CompiledRuleset.compile(ruleset(null))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private boolean detects(CompiledRuleset compiled, Map<String, ?> record) {
+        return !engine.detectRecord(record, ClassificationMode.MULTI_MATCH_ALL, compiled).getMatchedRules().isEmpty();
+    }
+
+    private boolean detects(CompiledRuleset compiled, String json) throws IOException {
+        return !engine.detectRecord(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)),
+                ClassificationMode.MULTI_MATCH_ALL, compiled).getMatchedRules().isEmpty();
+    }
+
+    private static Ruleset ruleset(String scope) {
+        MatcherDef matcher = new MatcherDef();
+        matcher.setType("regex");
+        matcher.setPattern("1[3-9]\\d{9}");
+        Rule rule = new Rule();
+        rule.setId("phone");
+        rule.setName("Phone");
+        rule.setLevel("CONFIDENTIAL");
+        rule.setEnabled(true);
+        rule.setMatchers(Collections.singletonList(matcher));
+        if (scope != null) {
+            rule.setScope(Collections.singletonList(scope));
+        }
+        Ruleset ruleset = new Ruleset();
+        ruleset.setVersion("v1");
+        ruleset.setRules(Collections.singletonList(rule));
+        return ruleset;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.sdk;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResultCacheTests {
+
+    private static CompiledRuleset previous;
+
+    @BeforeAll
+    static void publishBootstrapRules() {
+        // Only results of the live snapshot are cached; serve the bootstrap rules
+        previous = RuleManager.getCompiledRuleset();
+        RuleManager.publish(CompiledRuleset.compile(BootstrapRulesLoader.load()));
+    }
+
+    @AfterAll
+    static void restoreLiveSnapshot() {
+        RuleManager.publish(previous);
+    }
+
+    @Test
+    @DisplayName("should serve a stored result for the same value and mode")
+    void servesStoredResult() {
+        ResultCache cache = new ResultCache(1 << 20);
+        CompiledRuleset live = RuleManager.getCompiledRuleset();
+        DetectionResult result = result("13812345678");
+
+        assertThat(cache.get("13812345678", ClassificationMode.TOP_MATCH_ONLY, live)).isNull();
+        cache.put("13812345678", ClassificationMode.TOP_MATCH_ONLY, live, result);
+
+        assertThat(cache.get("13812345678", ClassificationMode.TOP_MATCH_ONLY, live)).isSameAs(result);
+        assertThat(cache.get("13812345678", ClassificationMode.MULTI_MATCH_ALL, live)).isNull();
+        ResultCacheStats stats = cache.stats();
+        assertThat(stats.getHitCount()).isEqualTo(1);
+        assertThat(stats.getMissCount()).isEqualTo(2);
+        assertThat(stats.getEntryCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should bypass the cache for a snapshot that is not the live one")
+    void bypassesPinnedSnapshot() {
+        ResultCache cache = new ResultCache(1 << 20);
+        CompiledRuleset pinned = CompiledRuleset.compile(RuleManager.getCurrentRuleset());
+
+        cache.put("value", ClassificationMode.TOP_MATCH_ONLY, pinned, result("value"));
+
+        assertThat(cache.get("value", ClassificationMode.TOP_MATCH_ONLY, pinned)).isNull();
+        assertThat(cache.stats().getEntryCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("should not cache a value whose entry exceeds the admission window")
+    void skipsOversizedEntries() {
+        ResultCache cache = new ResultCache(10_000);
+        CompiledRuleset live = RuleManager.getCompiledRuleset();
+        String large = String.join("", Collections.nCopies(100, "x"));
+
+        cache.put(large, ClassificationMode.TOP_MATCH_ONLY, live, result(large));
+
+        assertThat(cache.get(large, ClassificationMode.TOP_MATCH_ONLY, live)).isNull();
+    }
+
+    @Test
+    @DisplayName("should stay within its byte budget")
+    void staysWithinBudget() {
+        long maxBytes = 32 * 1024;
+        ResultCache cache = new ResultCache(maxBytes);
+        CompiledRuleset live = RuleManager.getCompiledRuleset();
+
+        for (int i = 0; i < 5_000; i++) {
+            String value = "order-" + i;
+            cache.put(value, ClassificationMode.TOP_MATCH_ONLY, live, result(value));
+        }
+
+        ResultCacheStats stats = cache.stats();
+        assertThat(stats.getWeightBytes()).isLessThanOrEqualTo(maxBytes);
+        assertThat(stats.getEvictionCount()).isPositive();
+        assertThat(stats.getEntryCount()).isPositive();
+    }
+
+    @Test
+    @DisplayName("should keep frequently requested values through a stream of one-off values")
+    void keepsFrequentValues() {
+        // About 350 entries; an LRU cache of this size would lose each hot
+        // value between two of its requests
+        ResultCache cache = new ResultCache(64 * 1024);
+        CompiledRuleset live = RuleManager.getCompiledRuleset();
+        for (int i = 0; i < 50; i++) {
+            cache.put("hot-" + i, ClassificationMode.TOP_MATCH_ONLY, live, result("hot-" + i));
+        }
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 50; i++) {
+                cache.get("hot-" + i, ClassificationMode.TOP_MATCH_ONLY, live);
+            }
+        }
+
+        for (int i = 0; i < 20_000; i++) {
+            String value = "cold-" + i;
+            cache.put(value, ClassificationMode.TOP_MATCH_ONLY, live, result(value));
+            if (i % 10 == 0) {
+                cache.get("hot-" + (i / 10) % 50, ClassificationMode.TOP_MATCH_ONLY, live);
+            }
+        }
+
+        int resident = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.get("hot-" + i, ClassificationMode.TOP_MATCH_ONLY, live) != null) {
+                resident++;
+            }
+        }
+        assertThat(resident).isEqualTo(50);
+    }
+
+    private static DetectionResult result(String data) {
+        return new DetectionResult(data, Collections.emptyList());
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.sdk;
+
+import com.example.sdk.model.MatcherDef;
+import com.example.sdk.model.Rule;
+import com.example.sdk.model.Ruleset;
+import com.example.sdk.model.RulesetDelta;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RuleManagerTests {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    @DisplayName("should rebuild the new version from its base and a delta")
+    void appliesDelta() throws Exception {
+        Ruleset base = ruleset("v1", rule("a", "1"), rule("b", "2"), rule("c", "3"));
+        Ruleset latest = ruleset("v2", rule("a", "1"), rule("b", "20"), rule("d", "4"));
+
+        Ruleset applied = RuleManager.applyDelta(base, roundTrip(delta(base, latest)));
+
+        assertThat(applied.getVersion()).isEqualTo("v2");
+        assertThat(describe(applied)).isEqualTo(describe(latest));
+    }
+
+    @Test
+    @DisplayName("should agree with a full fetch on generated version histories")
+    void roundTripsGeneratedDeltas() throws Exception {
+        Random random = new Random(3);
+        Ruleset current = ruleset("v0");
+        for (int version = 1; version <= 200; version++) {
+            Ruleset next = mutate(random, current, "v" + version);
+
+            Ruleset applied = RuleManager.applyDelta(current, roundTrip(delta(current, next)));
+
+            assertThat(applied).as("v%d", version).isNotNull();
+            assertThat(describe(applied)).as("v%d", version).isEqualTo(describe(next));
+            current = applied;
+        }
+    }
+
+    @Test
+    @DisplayName("should reject a delta computed against another version")
+    void rejectsOtherBase() {
+        Ruleset base = ruleset("v1", rule("a", "1"));
+        RulesetDelta delta = delta(ruleset("v0", rule("a", "1")), ruleset("v2", rule("a", "2")));
+
+        assertThat(RuleManager.applyDelta(base, delta)).isNull();
+        assertThat(RuleManager.applyDelta(null, delta)).isNull();
+        assertThat(RuleManager.applyDelta(ruleset(null, rule("a", "1")), delta)).isNull();
+    }
+
+    @Test
+    @DisplayName("should reject a delta naming rules the base does not have")
+    void rejectsUnknownRules() {
+        Ruleset base = ruleset("v1", rule("a", "1"));
+
+        RulesetDelta changed = delta(base, ruleset("v2", rule("a", "1")));
+        changed.setChanged(Collections.singletonList(rule("x", "1")));
+        RulesetDelta removed = delta(base, ruleset("v2", rule("a", "1")));
+        removed.setRemoved(Collections.singletonList("x"));
+
+        assertThat(RuleManager.applyDelta(base, changed)).isNull();
+        assertThat(RuleManager.applyDelta(base, removed)).isNull();
+    }
+
+    // Mirrors how the policy service diffs two published versions
+    private static RulesetDelta delta(Ruleset base, Ruleset latest) {
+        Map<String, String> previous = new HashMap<>();
+        for (Rule rule : base.getRules()) {
+            previous.put(rule.getId(), fingerprint(rule));
+        }
+        List<Rule> added = new ArrayList<>();
+        List<Rule> changed = new ArrayList<>();
+        for (Rule rule : latest.getRules()) {
+            String fingerprint = previous.remove(rule.getId());
+            if (fingerprint == null) {
+                added.add(rule);
+            } else if (!fingerprint.equals(fingerprint(rule))) {
+                changed.add(rule);
+            }
+        }
+        RulesetDelta delta = new RulesetDelta();
+        delta.setBaseVersion(base.getVersion());
+        delta.setVersion(latest.getVersion());
+        delta.setAdded(added);
+        delta.setChanged(changed);
+        delta.setRemoved(new ArrayList<>(previous.keySet()));
+        return delta;
+    }
+
+    private static RulesetDelta roundTrip(RulesetDelta delta) throws Exception {
+        return MAPPER.readValue(MAPPER.writeValueAsBytes(delta), RulesetDelta.class);
+    }
+
+    private static Ruleset mutate(Random random, Ruleset ruleset, String version) {
+        List<Rule> rules = new ArrayList<>();
+        for (Rule rule : ruleset.getRules()) {
+            int action = random.nextInt(10);
+            if (action == 0) {
+                continue;
+            }
+            rules.add(action == 1 ? rule(rule.getId(), Integer.toString(random.nextInt(100))) : rule);
+        }
+        for (int i = random.nextInt(3); i > 0; i--) {
+            rules.add(rule("r" + random.nextInt(1000), Integer.toString(random.nextInt(100))));
+        }
+        return ruleset(version, rules.toArray(new Rule[0]));
+    }
+
+    private static Ruleset ruleset(String version, Rule... rules) {
+        List<Rule> sorted = new ArrayList<>();
+        for (Rule rule : rules) {
+            if (sorted.stream().noneMatch(r -> r.getId().equals(rule.getId()))) {
+                sorted.add(rule);
+            }
+        }
+        sorted.sort(Comparator.comparing(Rule::getId));
+        Ruleset ruleset = new Ruleset();
+        ruleset.setVersion(version);
+        ruleset.setRules(sorted);
+        return ruleset;
+    }
+
+    private static Rule rule(String id, String token) {
+        MatcherDef matcher = new MatcherDef();
+        matcher.setType("regex");
+        matcher.setPattern("\\b" + id + "-" + token + "\\b");
+        Rule rule = new Rule();
+        rule.setId(id);
+        rule.setName("Rule " + id);
+        rule.setLevel("CONFIDENTIAL");
+        rule.setPriority(id.length());
+        rule.setEnabled(true);
+        rule.setMatchers(Collections.singletonList(matcher));
+        rule.setScope(Arrays.asList("user.*"));
+        return rule;
+    }
+
+    private static List<String> describe(Ruleset ruleset) {
+        List<String> out = new ArrayList<>();
+        for (Rule rule : ruleset.getRules()) {
+            out.add(rule.getId() + "=" + fingerprint(rule));
+        }
+        return out;
+    }
+
+    private static String fingerprint(Rule rule) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(rule.getName()).append(':').append(rule.getLevel()).append(':').append(rule.getPriority());
+        for (MatcherDef matcher : rule.getMatchers()) {
+            sb.append(':').append(matcher.getType()).append('=').append(matcher.getPattern());
+        }
+        sb.append(':').append(rule.getScope());
+        return sb.toString();
+    }
+}
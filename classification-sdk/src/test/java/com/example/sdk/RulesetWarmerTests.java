@@ -0,0 +1,65 @@
+package com.example.sdk;
+
+import com.example.sdk.model.MatcherDef;
+import com.example.sdk.model.Rule;
+import com.example.sdk.model.Ruleset;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RulesetWarmerTests {
+
+    @Test
+    @DisplayName("should stop evaluating a rule once it runs over its regex budget")
+    void skipsRuleOverBudget() {
+        // Backtracks exponentially on the longer generic inputs; the
+        // back-reference keeps it out of the multi-regex automaton
+        CompiledRuleset compiled = CompiledRuleset.compile(ruleset(
+                rule("slow", "(\\w+\\s?)*\\1(?=!)"),
+                rule("phone", "1[3-9]\\d{9}")));
+        long budgetMillis = TimeUnit.NANOSECONDS.toMillis(compiled.getRegexBudgetNanos());
+
+        long started = System.nanoTime();
+        int done = RulesetWarmer.warmUp(compiled, 500, TimeUnit.SECONDS.toNanos(60));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertThat(done).isEqualTo(500);
+        assertThat(elapsedMillis).isLessThan(20 * budgetMillis);
+        assertThat(compiled.getRules()[0].isQuarantined()).isFalse();
+    }
+
+    @Test
+    @DisplayName("should stop the warm-up at its time limit")
+    void stopsAtTimeLimit() {
+        CompiledRuleset compiled = CompiledRuleset.compile(ruleset(rule("phone", "1[3-9]\\d{9}")));
+
+        int done = RulesetWarmer.warmUp(compiled, Integer.MAX_VALUE, TimeUnit.MILLISECONDS.toNanos(100));
+
+        assertThat(done).isPositive().isLessThan(Integer.MAX_VALUE);
+    }
+
+    private static Ruleset ruleset(Rule... rules) {
+        Ruleset ruleset = new Ruleset();
+        ruleset.setVersion("v1");
+        ruleset.setRules(Arrays.asList(rules));
+        return ruleset;
+    }
+
+    private static Rule rule(String id, String pattern) {
+        MatcherDef matcher = new MatcherDef();
+        matcher.setType("regex");
+        matcher.setPattern(pattern);
+        Rule rule = new Rule();
+        rule.setId(id);
+        rule.setName("Rule " + id);
+        rule.setLevel("CONFIDENTIAL");
+        rule.setEnabled(true);
+        rule.setMatchers(Collections.singletonList(matcher));
+        return rule;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.sdk;
+
+import com.example.sdk.model.MatcherDef;
+import com.example.sdk.model.Rule;
+import com.example.sdk.model.Ruleset;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamingDetectorTests {
+
+    private static final CompiledRuleset COMPILED = CompiledRuleset.compile(ruleset(
+            rule("phone", 30, "regex", "1[3-9]\\d{9}"),
+            rule("secret", 20, "dictionary", "password,passwd"),
+            rule("account", 10, "regex", "ACC\\d{3}(?!\\d)")));
+
+    @Test
+    @DisplayName("should find automaton matches that span chunk boundaries")
+    void findsMatchesAcrossChunks() throws IOException {
+        String document = "xxxxxxxxxxxx 13812345678 and the passwd";
+
+        assertThat(ids(stream(document, ClassificationMode.MULTI_MATCH_ALL, 8, 2)))
+                .containsExactly("phone", "secret");
+    }
+
+    @Test
+    @DisplayName("should find window matches that fit in the overlap")
+    void findsMatchesInOverlap() throws IOException {
+        String document = "xxxxxxxxxxxxxx ACC123 yyyyyyyy";
+
+        assertThat(ids(stream(document, ClassificationMode.MULTI_MATCH_ALL, 16, 8))).containsExactly("account");
+    }
+
+    @Test
+    @DisplayName("should stop reading once the highest priority rule has matched")
+    void stopsAtTopMatch() throws IOException {
+        StringBuilder document = new StringBuilder("call 13812345678 ");
+        for (int i = 0; i < 1_000; i++) {
+            document.append("nothing here ");
+        }
+        StreamingDetector detector = new StreamingDetector(COMPILED, ClassificationMode.TOP_MATCH_ONLY, 64, 16);
+
+        detector.readFrom(new StringReader(document.toString()));
+
+        assertThat(ids(detector.finish())).containsExactly("phone");
+        assertThat(detector.getCharsRead()).isLessThan(document.length());
+    }
+
+    @Test
+    @DisplayName("should agree with a detection over the whole string on generated documents")
+    void agreesWithWholeString() throws IOException {
+        Random random = new Random(11);
+        DetectionEngine engine = new DetectionEngine();
+        String[] words = {"13812345678", "password", "ACC123", "ACC1234", "pass", "word", " ", "1", "x"};
+        for (int n = 0; n < 300; n++) {
+            StringBuilder document = new StringBuilder();
+            for (int i = random.nextInt(12); i > 0; i--) {
+                document.append(words[random.nextInt(words.length)]);
+            }
+            String text = document.toString();
+            int chunk = 4 + random.nextInt(12);
+            for (ClassificationMode mode : ClassificationMode.values()) {
+                // every match is short enough to fit in the overlap
+                assertThat(ids(stream(text, mode, chunk, 12)))
+                        .as("%s %d %s", mode, chunk, text)
+                        .isEqualTo(ids(engine.detect(text, mode, COMPILED)));
+            }
+        }
+    }
+
+    private static DetectionResult stream(String document, ClassificationMode mode, int chunkChars, int overlapChars)
+            throws IOException {
+        StreamingDetector detector = new StreamingDetector(COMPILED, mode, chunkChars, overlapChars);
+        detector.readFrom(new StringReader(document));
+        return detector.finish();
+    }
+
+    private static List<String> ids(DetectionResult result) {
+        return result.getMatchedRules().stream().map(Rule::getId).collect(Collectors.toList());
+    }
+
+    private static Ruleset ruleset(Rule... rules) {
+        Ruleset ruleset = new Ruleset();
+        ruleset.setVersion("v1");
+        ruleset.setRules(Arrays.asList(rules));
+        return ruleset;
+    }
+
+    private static Rule rule(String id, int priority, String type, String pattern) {
+        MatcherDef matcher = new MatcherDef();
+        matcher.setType(type);
+        matcher.setPattern(pattern);
+        Rule rule = new Rule();
+        rule.setId(id);
+        rule.setName("Rule " + id);
+        rule.setLevel("CONFIDENTIAL");
+        rule.setPriority(priority);
+        rule.setEnabled(true);
+        rule.setMatchers(Collections.singletonList(matcher));
+        return rule;
+    }
+}
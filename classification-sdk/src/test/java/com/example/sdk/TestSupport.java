@@ -0,0 +1,69 @@
+package com.example.sdk;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Helpers shared by the SDK tests. Public only so that the tests of the
+ * SDK's subpackages can use them.
+ */
+public final class TestSupport {
+
+    private TestSupport() {
+    }
+
+    /**
+     * Random text of the given length drawn from the chars of an alphabet.
+     */
+    static String text(Random random, String alphabet, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Lower-case the text one char at a time, the way the matchers fold it.
+     */
+    static String fold(String text) {
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Every occurrence of any of the terms in the input, ignoring case, as
+     * {@code start:end}. Empty terms are skipped.
+     */
+    static Set<String> naiveSpans(Collection<String> terms, String input) {
+        String folded = fold(input);
+        Set<String> out = new HashSet<>();
+        for (String term : terms) {
+            String t = fold(term);
+            if (t.isEmpty()) {
+                continue;
+            }
+            for (int at = folded.indexOf(t); at >= 0; at = folded.indexOf(t, at + 1)) {
+                out.add(at + ":" + (at + t.length()));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Put back a System property as it was before a test set it: the
+     * previous value, or cleared if it had none.
+     */
+    public static void restoreProperty(String key, String previous) {
+        if (previous == null) {
+            System.clearProperty(key);
+        } else {
+            System.setProperty(key, previous);
+        }
+    }
+}
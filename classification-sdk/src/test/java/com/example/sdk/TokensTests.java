@@ -0,0 +1,87 @@
+package com.example.sdk;
+
+import com.example.sdk.model.MatcherDef;
+import com.example.sdk.model.Rule;
+import com.example.sdk.model.Ruleset;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokensTests {
+
+    @Test
+    @DisplayName("should split runs of word characters joined by inner hyphens and dots")
+    void splitsTokens() {
+        String text = "call AB-1234, j.doe. x- _id 张三 end";
+
+        assertThat(tokens(text, false, false)).containsExactly("call", "AB-1234", "j.doe", "x", "_id", "张三", "end");
+        assertThat(tokens(text, true, true)).containsExactly("AB-1234", "j.doe", "x", "_id", "张三");
+    }
+
+    @Test
+    @DisplayName("should hash a token like the folded UTF-8 term")
+    void hashesLikeStoredTerms() {
+        for (String token : new String[]{"ACCOUNT", "Straße", "ÄÖÜ", "张三", "A😀b", ""}) {
+            byte[] term = DictionaryMatcher.fold(token, 0, token.length()).getBytes(StandardCharsets.UTF_8);
+            String padded = "(" + token + ")";
+
+            assertThat(Tokens.hash(padded, 1, padded.length() - 1))
+                    .as(token)
+                    .isEqualTo(Tokens.hash(ByteBuffer.wrap(term), 0, term.length));
+        }
+        assertThat(Tokens.hash("ab", 0, 2)).isNotEqualTo(Tokens.hash("ba", 0, 2));
+    }
+
+    @Test
+    @DisplayName("should match whole tokens only and count the filter's work")
+    void matchesWholeTokens() {
+        CompiledRuleset compiled = CompiledRuleset.compile(ruleset("AB-1234,j.doe,secret"));
+        DetectionEngine engine = new DetectionEngine();
+
+        assertThat(detects(engine, compiled, "ticket ab-1234 closed")).isTrue();
+        assertThat(detects(engine, compiled, "mail J.Doe.")).isTrue();
+        assertThat(detects(engine, compiled, "secrets and AB-12345")).isFalse();
+
+        DictionaryFilterStats stats = compiled.getDictionaryFilterStats().get(0);
+        assertThat(stats.getTermCount()).isEqualTo(3);
+        assertThat(stats.getHitCount()).isEqualTo(2);
+        assertThat(stats.getCheckCount()).isGreaterThanOrEqualTo(stats.getPassCount());
+        assertThat(stats.getPassCount()).isGreaterThanOrEqualTo(stats.getHitCount());
+    }
+
+    private static List<String> tokens(String text, boolean partialStart, boolean partialEnd) {
+        Tokens tokens = Tokens.of(text, partialStart, partialEnd);
+        List<String> out = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            out.add(text.substring(tokens.start(i), tokens.end(i)));
+        }
+        return out;
+    }
+
+    private static boolean detects(DetectionEngine engine, CompiledRuleset compiled, String input) {
+        return !engine.detect(input, ClassificationMode.TOP_MATCH_ONLY, compiled).getMatchedRules().isEmpty();
+    }
+
+    private static Ruleset ruleset(String entries) {
+        MatcherDef matcher = new MatcherDef();
+        matcher.setType("dictionary_token");
+        matcher.setPattern(entries);
+        Rule rule = new Rule();
+        rule.setId("tokens");
+        rule.setName("Tokens");
+        rule.setLevel("CONFIDENTIAL");
+        rule.setEnabled(true);
+        rule.setMatchers(Collections.singletonList(matcher));
+        Ruleset ruleset = new Ruleset();
+        ruleset.setVersion("v1");
+        ruleset.setRules(Collections.singletonList(rule));
+        return ruleset;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.sdk;
+
+import com.example.sdk.model.MatcherDef;
+import com.example.sdk.model.Rule;
+import com.example.sdk.model.Ruleset;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Utf8CharSequenceTests {
+
+    private static final String[] PIECES = {"a", "7", " ", "é", "张", "😀", "@", "-"};
+
+    @Test
+    @DisplayName("should read like the decoded string, in order and out of order")
+    void readsLikeDecodedString() {
+        Random random = new Random(17);
+        for (int n = 0; n < 500; n++) {
+            byte[] bytes = bytes(random);
+            String expected = new String(bytes, StandardCharsets.UTF_8);
+            for (Utf8CharSequence view : views(bytes)) {
+                assertThat(view.length()).isEqualTo(expected.length());
+                assertThat(sequential(view)).isEqualTo(expected);
+                // start over, then jump around
+                assertThat(sequential(view)).isEqualTo(expected);
+                for (int i = expected.length() - 1; i >= 0; i -= 3) {
+                    assertThat(view.charAt(i)).isEqualTo(expected.charAt(i));
+                }
+                assertThat(view.toString()).isEqualTo(expected);
+                if (expected.length() > 2) {
+                    assertThat(view.subSequence(1, expected.length() - 1).toString())
+                            .isEqualTo(expected.substring(1, expected.length() - 1));
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("should tell pure ASCII input apart")
+    void detectsAscii() {
+        assertThat(Utf8CharSequence.of(utf8("order-42"), 0, 8).isAscii()).isTrue();
+        assertThat(Utf8CharSequence.of(utf8("straße"), 0, 7).isAscii()).isFalse();
+    }
+
+    @Test
+    @DisplayName("should view only the bytes between position and limit and leave the buffer as it was")
+    void viewsBufferRange() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(16);
+        buffer.put(utf8("xx张三yy"));
+        buffer.position(2).limit(8);
+
+        assertThat(Utf8CharSequence.of(buffer).toString()).isEqualTo("张三");
+        assertThat(buffer.position()).isEqualTo(2);
+        assertThat(buffer.limit()).isEqualTo(8);
+    }
+
+    @Test
+    @DisplayName("should classify encoded input like the decoded string")
+    void classifiesLikeDecodedString() {
+        CompiledRuleset compiled = CompiledRuleset.compile(ruleset(
+                rule("phone", 30, "regex", "1[3-9]\\d{9}"),
+                rule("name", 20, "dictionary", "张三"),
+                rule("account", 10, "regex", "ACC\\d{3}(?!\\d)")));
+        DetectionEngine engine = new DetectionEngine();
+        String[] inputs = {"call 13812345678", "客户张三", "ACC123 ☺", "ACC1234", "😀 none", ""};
+        for (String input : inputs) {
+            byte[] bytes = utf8("#" + input + "#");
+            for (ClassificationMode mode : ClassificationMode.values()) {
+                List<String> expected = ids(engine.detect("#" + input + "#", mode, compiled));
+
+                assertThat(ids(engine.detect(bytes, 0, bytes.length, mode, compiled))).as(input).isEqualTo(expected);
+                assertThat(ids(engine.detect(ByteBuffer.wrap(bytes).asReadOnlyBuffer(), mode, compiled)))
+                        .as(input).isEqualTo(expected);
+            }
+        }
+    }
+
+    private static byte[] bytes(Random random) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = random.nextInt(12); i > 0; i--) {
+            sb.append(PIECES[random.nextInt(PIECES.length)]);
+        }
+        byte[] bytes = utf8(sb.toString());
+        if (bytes.length > 0 && random.nextInt(5) == 0) {
+            // malformed: a stray continuation byte or a truncated sequence
+            bytes[random.nextInt(bytes.length)] = (byte) (random.nextBoolean() ? 0x80 : 0xE4);
+        }
+        return bytes;
+    }
+
+    // The same bytes in an array at an offset, in a heap buffer and in a
+    // direct buffer
+    private static List<Utf8CharSequence> views(byte[] bytes) {
+        List<Utf8CharSequence> views = new ArrayList<>();
+        byte[] padded = new byte[bytes.length + 4];
+        System.arraycopy(bytes, 0, padded, 2, bytes.length);
+        views.add(Utf8CharSequence.of(padded, 2, bytes.length));
+        views.add(Utf8CharSequence.of(ByteBuffer.wrap(bytes)));
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        views.add(Utf8CharSequence.of(direct));
+        return views;
+    }
+
+    private static String sequential(CharSequence text) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            sb.append(text.charAt(i));
+        }
+        return sb.toString();
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> ids(DetectionResult result) {
+        return result.getMatchedRules().stream().map(Rule::getId).collect(Collectors.toList());
+    }
+
+    private static Ruleset ruleset(Rule... rules) {
+        Ruleset ruleset = new Ruleset();
+        ruleset.setVersion("v1");
+        ruleset.setRules(Arrays.asList(rules));
+        return ruleset;
+    }
+
+    private static Rule rule(String id, int priority, String type, String pattern) {
+        MatcherDef matcher = new MatcherDef();
+        matcher.setType(type);
+        matcher.setPattern(pattern);
+        Rule rule = new Rule();
+        rule.setId(id);
+        rule.setName("Rule " + id);
+        rule.setLevel("CONFIDENTIAL");
+        rule.setPriority(priority);
+        rule.setEnabled(true);
+        rule.setMatchers(Collections.singletonList(matcher));
+        return rule;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.sdk.audit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PayloadRedactionTests {
+
+    @Test
+    @DisplayName("should parse settings case-insensitively and default to NONE")
+    void parsesSettings() {
+        assertThat(PayloadRedaction.parse(" Mask ")).isEqualTo(PayloadRedaction.MASK);
+        assertThat(PayloadRedaction.parse("hash")).isEqualTo(PayloadRedaction.HASH);
+        assertThat(PayloadRedaction.parse("plain")).isEqualTo(PayloadRedaction.NONE);
+        assertThat(PayloadRedaction.parse(null)).isEqualTo(PayloadRedaction.NONE);
+    }
+
+    @Test
+    @DisplayName("should keep the shape of a masked value and truncate it")
+    void masksValues() {
+        String longValue = String.join("", Collections.nCopies(300, "a"));
+
+        assertThat(PayloadRedaction.MASK.apply("张三, ID 1234-56")).isEqualTo("**, ** ****-**");
+        assertThat(PayloadRedaction.MASK.apply(longValue)).hasSize(256).matches("\\*+");
+    }
+
+    @Test
+    @DisplayName("should hash the UTF-8 value with SHA-256")
+    void hashesValues() {
+        assertThat(PayloadRedaction.HASH.apply("abc"))
+                .isEqualTo("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+    }
+
+    @Test
+    @DisplayName("should record the raw value only when asked to")
+    void recordsRawOnRequest() {
+        assertThat(PayloadRedaction.RAW.apply("secret")).isEqualTo("secret");
+        assertThat(PayloadRedaction.NONE.apply("secret")).isNull();
+        assertThat(PayloadRedaction.MASK.apply(null)).isNull();
+    }
+}
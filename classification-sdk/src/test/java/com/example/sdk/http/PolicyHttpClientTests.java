@@ -0,0 +1,156 @@
+package com.example.sdk.http;
+
+import com.example.sdk.TestSupport;
+import com.example.sdk.cache.CacheStore;
+import com.example.sdk.config.SdkConfig;
+import com.example.sdk.model.MatcherDef;
+import com.example.sdk.model.Rule;
+import com.example.sdk.model.Ruleset;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PolicyHttpClientTests {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    static Path cacheDir;
+
+    private static HttpServer server;
+    private static String previousPolicyUrl;
+    private static String previousCacheDir;
+
+    // What the server answers with next
+    private static volatile byte[] body;
+    private static volatile String eTag;
+    private static volatile String acceptEncoding;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/v1/rules", exchange -> {
+            acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            byte[] gzipped = gzip(body);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            exchange.getResponseHeaders().set("ETag", eTag);
+            exchange.sendResponseHeaders(200, gzipped.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(gzipped);
+            }
+        });
+        server.start();
+        previousPolicyUrl = System.setProperty("sdk.policy.url",
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/api/v1/rules");
+        previousCacheDir = System.setProperty("sdk.rule.cache.dir", cacheDir.toString());
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop(0);
+        TestSupport.restoreProperty("sdk.policy.url", previousPolicyUrl);
+        TestSupport.restoreProperty("sdk.rule.cache.dir", previousCacheDir);
+    }
+
+    @AfterEach
+    void forgetETag() {
+        SdkConfig.setLastETag(null);
+    }
+
+    @Test
+    @DisplayName("should ask for gzip and keep the decompressed body as the cache file")
+    void cachesDecompressedBody() throws IOException {
+        Ruleset served = ruleset("v7", "W/\"v7\"");
+        body = MAPPER.writeValueAsBytes(served);
+        eTag = "W/\"v7\"";
+
+        VersionedResponse response = new PolicyHttpClient().fetchLatest();
+
+        assertThat(acceptEncoding).contains("gzip");
+        assertThat(response.getRuleset().getVersion()).isEqualTo("v7");
+        assertThat(response.getRuleset().getRules()).extracting(Rule::getId).containsExactly("phone");
+        assertThat(response.getJsonFile()).isNotNull();
+        assertThat(Files.readAllBytes(response.getJsonFile().toPath())).isEqualTo(body);
+
+        CacheStore.saveRaw(response.getRuleset(), response.getJsonFile());
+        Ruleset cached = CacheStore.loadLatest();
+        assertThat(cached.getVersion()).isEqualTo("v7");
+        assertThat(cached.getETag()).isEqualTo("W/\"v7\"");
+        assertThat(temporaryFiles()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should drop the copy of a body that does not carry the response's ETag")
+    void dropsCopyWithoutETag() throws IOException {
+        body = MAPPER.writeValueAsBytes(ruleset("v8", null));
+        eTag = "W/\"v8\"";
+
+        VersionedResponse response = new PolicyHttpClient().fetchLatest();
+
+        assertThat(response.getRuleset().getVersion()).isEqualTo("v8");
+        assertThat(response.getJsonFile()).isNull();
+        assertThat(temporaryFiles()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should drop the copy of a body that cannot be parsed")
+    void dropsCopyOfMalformedBody() throws IOException {
+        body = "{\"version\": \"v9\", \"rules\": [".getBytes(StandardCharsets.UTF_8);
+        eTag = "W/\"v9\"";
+
+        assertThat(new PolicyHttpClient().fetchLatest()).isNull();
+        assertThat(temporaryFiles()).isEmpty();
+    }
+
+    private static List<Path> temporaryFiles() throws IOException {
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".tmp")).collect(Collectors.toList());
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private static Ruleset ruleset(String version, String eTag) {
+        MatcherDef matcher = new MatcherDef();
+        matcher.setType("regex");
+        matcher.setPattern("1[3-9]\\d{9}");
+        Rule rule = new Rule();
+        rule.setId("phone");
+        rule.setName("Phone");
+        rule.setLevel("CONFIDENTIAL");
+        rule.setEnabled(true);
+        rule.setMatchers(Collections.singletonList(matcher));
+        Ruleset ruleset = new Ruleset();
+        ruleset.setVersion(version);
+        ruleset.setETag(eTag);
+        ruleset.setRules(Collections.singletonList(rule));
+        return ruleset;
+    }
+}
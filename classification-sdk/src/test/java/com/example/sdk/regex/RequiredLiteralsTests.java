@@ -0,0 +1,69 @@
+package com.example.sdk.regex;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequiredLiteralsTests {
+
+    private static final String[] PATTERNS = {
+            "[\\w.]+@[\\w.]+",
+            "\\d{3}-\\d{2}-\\d{4}",
+            "ACC\\d{3}(?!\\d)",
+            "(?:foo|bar)baz",
+            "colou?r",
+            "x[ab]y",
+            "(ab)+c",
+            "(a|b)\\1",
+            "f(?:o|oo)*bar|baz",
+            "a{2,3}b*c",
+    };
+
+    @Test
+    @DisplayName("should derive the literals every match contains")
+    void derivesLiterals() {
+        assertThat(RequiredLiterals.of("[\\w.]+@[\\w.]+")).containsExactly("@");
+        assertThat(RequiredLiterals.of("\\d{3}-\\d{2}-\\d{4}")).containsExactly("-");
+        assertThat(RequiredLiterals.of("ACC\\d{3}(?!\\d)")).containsExactly("ACC");
+        assertThat(RequiredLiterals.of("(?:foo|bar)baz")).containsExactlyInAnyOrder("foobaz", "barbaz");
+        assertThat(RequiredLiterals.of("colou?r")).containsExactlyInAnyOrder("color", "colour");
+        assertThat(RequiredLiterals.of("x[ab]y")).containsExactlyInAnyOrder("xay", "xby");
+    }
+
+    @Test
+    @DisplayName("should derive nothing when a match need not contain a literal")
+    void derivesNothing() {
+        assertThat(RequiredLiterals.of("\\w+")).isNull();
+        assertThat(RequiredLiterals.of("a*")).isNull();
+        assertThat(RequiredLiterals.of("a|\\w")).isNull();
+        assertThat(RequiredLiterals.of("(?i)secret")).isNull();
+        assertThat(RequiredLiterals.of("(unclosed")).isNull();
+    }
+
+    @Test
+    @DisplayName("should only derive literals that every match found by Pattern contains")
+    void neverRejectsAMatch() {
+        Random random = new Random(13);
+        String[] pieces = {"a", "b", "c", "x", "y", "o", "f", "bar", "baz", "ACC", "123", "1234", "-", "@", "."};
+        for (String pattern : PATTERNS) {
+            String[] literals = RequiredLiterals.of(pattern);
+            assertThat(literals).as(pattern).isNotNull();
+            Pattern compiled = Pattern.compile(pattern);
+            for (int n = 0; n < 2_000; n++) {
+                StringBuilder input = new StringBuilder();
+                for (int i = random.nextInt(8); i > 0; i--) {
+                    input.append(pieces[random.nextInt(pieces.length)]);
+                }
+                Matcher m = compiled.matcher(input);
+                while (m.find()) {
+                    assertThat(literals).as("%s in %s", pattern, input).anyMatch(m.group()::contains);
+                }
+            }
+        }
+    }
+}
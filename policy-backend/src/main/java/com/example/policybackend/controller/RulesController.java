@@ -2,48 +2,159 @@ package com.example.policybackend.controller;
 
 import com.example.policybackend.model.Policy;
 import com.example.policybackend.service.PolicyService;
+import com.example.sdk.http.PolicyHttpClient;
 import com.example.sdk.model.MatcherDef;
 import com.example.sdk.model.Rule;
 import com.example.sdk.model.Ruleset;
+import com.example.sdk.model.RulesetDelta;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.stream.Collectors;
 
 @RestController
 public class RulesController {
+    // Published versions a client may ask for a delta against
+    private static final int HISTORY_SIZE = 32;
+    // Longest a client may have its long-poll held
+    private static final int MAX_WAIT_SECONDS = 120;
+    // Bytes of the ruleset's SHA-256 hash used as its version
+    private static final int VERSION_HASH_BYTES = 16;
+
     private final PolicyService policyService;
     private final AtomicReference<Ruleset> lastRuleset = new AtomicReference<>();
+    private final Map<String, Ruleset> history = Collections.synchronizedMap(
+            new LinkedHashMap<String, Ruleset>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Ruleset> eldest) {
+                    return size() > HISTORY_SIZE;
+                }
+            });
+    private final Set<Watch> watches = ConcurrentHashMap.newKeySet();
 
     public RulesController(PolicyService policyService) {
         this.policyService = policyService;
+        policyService.addPublishedListener(this::publishedChanged);
     }
 
+    /**
+     * Return the published rules. A client that names the version it holds
+     * as {@code base} receives only the rules added, changed or removed since,
+     * as long as that version is among the recently published ones; the
+     * response then carries the {@link RulesetDelta#BASE_HEADER} header.
+     */
     @GetMapping("/api/v1/rules")
-    public ResponseEntity<Ruleset> fetchRules(@RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+    public ResponseEntity<?> fetchRules(@RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch,
+                                        @RequestParam(value = RulesetDelta.BASE_PARAM, required = false) String base) {
+        return respond(buildRuleset(), ifNoneMatch, base, new HttpHeaders());
+    }
+
+    /**
+     * Long-poll variant of {@link #fetchRules}. A client whose ETag is still
+     * the current one is answered once the published rules change, or with
+     * 304 Not Modified after {@code wait} seconds (at most 120). Held
+     * requests are parked by async request processing and occupy no thread,
+     * so a node can hold one for every connected SDK. Responses carry the
+     * {@link PolicyHttpClient#WAIT_HEADER} header, by which clients tell
+     * that long-polling is supported.
+     */
+    @GetMapping(value = "/api/v1/rules", params = PolicyHttpClient.WAIT_PARAM)
+    public DeferredResult<ResponseEntity<?>> awaitRules(
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch,
+            @RequestParam(value = RulesetDelta.BASE_PARAM, required = false) String base,
+            @RequestParam(PolicyHttpClient.WAIT_PARAM) int wait) {
+        int seconds = Math.max(1, Math.min(wait, MAX_WAIT_SECONDS));
+        HttpHeaders timeoutHeaders = new HttpHeaders();
+        timeoutHeaders.set(PolicyHttpClient.WAIT_HEADER, Integer.toString(seconds));
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(TimeUnit.SECONDS.toMillis(seconds),
+                new ResponseEntity<>(timeoutHeaders, HttpStatus.NOT_MODIFIED));
+        Watch watch = new Watch(result, ifNoneMatch, base, seconds);
+        // Registered before the check, so that a change in between is not missed
+        watches.add(watch);
+        result.onCompletion(() -> watches.remove(watch));
+        watch.offer(buildRuleset());
+        return result;
+    }
+
+    /**
+     * Answer every held long-poll whose client does not have the newly
+     * published rules.
+     */
+    private void publishedChanged() {
+        if (watches.isEmpty()) {
+            return;
+        }
         Ruleset latest = buildRuleset();
+        for (Watch watch : watches) {
+            watch.offer(latest);
+        }
+    }
+
+    private ResponseEntity<?> respond(Ruleset latest, String ifNoneMatch, String base, HttpHeaders headers) {
         String eTag = computeETag(latest);
 
         Ruleset cached = lastRuleset.get();
         if (eTag.equals(ifNoneMatch) && cached != null) {
-            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
         }
 
         latest.setETag(eTag);
         lastRuleset.set(latest);
+        history.put(latest.getVersion(), latest);
 
-        HttpHeaders headers = new HttpHeaders();
         headers.setETag(eTag);
+        Ruleset baseRuleset = base != null ? history.get(base) : null;
+        if (baseRuleset != null) {
+            headers.set(RulesetDelta.BASE_HEADER, base);
+            return new ResponseEntity<>(computeDelta(baseRuleset, latest), headers, HttpStatus.OK);
+        }
         return new ResponseEntity<>(latest, headers, HttpStatus.OK);
     }
 
+    private RulesetDelta computeDelta(Ruleset base, Ruleset latest) {
+        Map<String, String> baseFingerprints = new HashMap<>();
+        for (Rule rule : base.getRules()) {
+            baseFingerprints.put(rule.getId(), fingerprint(rule));
+        }
+        List<Rule> added = new ArrayList<>();
+        List<Rule> changed = new ArrayList<>();
+        for (Rule rule : latest.getRules()) {
+            String previous = baseFingerprints.remove(rule.getId());
+            if (previous == null) {
+                added.add(rule);
+            } else if (!previous.equals(fingerprint(rule))) {
+                changed.add(rule);
+            }
+        }
+
+        RulesetDelta delta = new RulesetDelta();
+        delta.setBaseVersion(base.getVersion());
+        delta.setVersion(latest.getVersion());
+        delta.setAdded(added);
+        delta.setChanged(changed);
+        delta.setRemoved(new ArrayList<>(baseFingerprints.keySet()));
+        return delta;
+    }
+
     private Ruleset buildRuleset() {
         List<Policy> published = policyService.listPublished();
         List<Rule> rules = new ArrayList<>();
@@ -64,8 +175,13 @@ public class RulesController {
                 matchers.add(matcher);
             }
             rule.setMatchers(matchers);
+            if (!policy.getScope().isEmpty()) {
+                rule.setScope(new ArrayList<>(policy.getScope()));
+            }
             rules.add(rule);
         }
+        // Clients applying a delta list the rules by id as well
+        rules.sort(Comparator.comparing(Rule::getId));
 
         Ruleset ruleset = new Ruleset();
         ruleset.setRules(rules);
@@ -74,8 +190,21 @@ public class RulesController {
     }
 
     private String computeETag(Ruleset ruleset) {
-        String candidate = ruleset.getVersion() + "-" + ruleset.getRules().hashCode();
-        return '"' + Integer.toHexString(candidate.hashCode()) + '"';
+        // The version already covers every published field of every rule. The
+        // tag is weak as the body may be gzip-compressed, which a strong tag
+        // would have to tell apart (and Tomcat does not compress responses
+        // with one)
+        return "W/\"" + ruleset.getVersion() + '"';
+    }
+
+    private String fingerprint(Rule rule) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(rule.getName()).append(':').append(rule.getLevel()).append(':').append(rule.getPriority());
+        for (MatcherDef matcher : rule.getMatchers()) {
+            sb.append(':').append(matcher.getType()).append('=').append(matcher.getPattern());
+        }
+        sb.append(':').append(rule.getScope());
+        return sb.toString();
     }
 
     private String calculateVersion(List<Policy> published) {
@@ -83,11 +212,83 @@ public class RulesController {
             return "v-empty";
         }
 
-        String seed = published.stream()
-                .sorted((a, b) -> a.getId().compareToIgnoreCase(b.getId()))
-                .map(p -> p.getId() + ":" + p.getName() + ":" + p.getLevel() + ":" + p.getPriority()
-                        + ":" + String.join(",", p.getPatterns()))
-                .collect(Collectors.joining("|"));
-        return "v-" + Integer.toHexString(seed.hashCode());
+        // Every field is length-prefixed, so that no two rulesets encode to
+        // the same bytes, and hashed with SHA-256, so that two versions a
+        // client may hold never share a tag
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        List<Policy> sorted = new ArrayList<>(published);
+        sorted.sort(Comparator.comparing(Policy::getId));
+        for (Policy p : sorted) {
+            update(digest, p.getId());
+            update(digest, p.getName());
+            update(digest, p.getLevel());
+            update(digest, p.getPriority() != null ? p.getPriority().toString() : null);
+            update(digest, p.getPatterns());
+            update(digest, p.getScope());
+        }
+        byte[] hash = digest.digest();
+        StringBuilder version = new StringBuilder("v-");
+        for (int i = 0; i < VERSION_HASH_BYTES; i++) {
+            version.append(String.format("%02x", hash[i] & 0xFF));
+        }
+        return version.toString();
+    }
+
+    private static void update(MessageDigest digest, List<String> fields) {
+        if (fields == null) {
+            updateLength(digest, -1);
+            return;
+        }
+        updateLength(digest, fields.size());
+        for (String field : fields) {
+            update(digest, field);
+        }
+    }
+
+    private static void update(MessageDigest digest, String field) {
+        if (field == null) {
+            updateLength(digest, -1);
+            return;
+        }
+        byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+        updateLength(digest, bytes.length);
+        digest.update(bytes);
+    }
+
+    private static void updateLength(MessageDigest digest, int length) {
+        digest.update((byte) (length >>> 24));
+        digest.update((byte) (length >>> 16));
+        digest.update((byte) (length >>> 8));
+        digest.update((byte) length);
+    }
+
+    /** A held long-poll. */
+    private final class Watch {
+        private final DeferredResult<ResponseEntity<?>> result;
+        private final String ifNoneMatch;
+        private final String base;
+        private final int seconds;
+
+        Watch(DeferredResult<ResponseEntity<?>> result, String ifNoneMatch, String base, int seconds) {
+            this.result = result;
+            this.ifNoneMatch = ifNoneMatch;
+            this.base = base;
+            this.seconds = seconds;
+        }
+
+        /** Answer with the given ruleset unless the client already has it. */
+        void offer(Ruleset latest) {
+            if (result.isSetOrExpired() || computeETag(latest).equals(ifNoneMatch)) {
+                return;
+            }
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(PolicyHttpClient.WAIT_HEADER, Integer.toString(seconds));
+            result.setResult(respond(latest, ifNoneMatch, base, headers));
+        }
     }
 }
@@ -10,6 +10,7 @@ public class Policy {
     private String level;
     private Integer priority;
     private List<String> patterns = new ArrayList<>();
+    private List<String> scope = new ArrayList<>();
     private PolicyStatus status = PolicyStatus.DRAFT;
 
     public Policy() {
@@ -65,6 +66,14 @@ public class Policy {
         this.patterns = patterns != null ? patterns : new ArrayList<>();
     }
 
+    public List<String> getScope() {
+        return scope;
+    }
+
+    public void setScope(List<String> scope) {
+        this.scope = scope != null ? scope : new ArrayList<>();
+    }
+
     public PolicyStatus getStatus() {
         return status;
     }
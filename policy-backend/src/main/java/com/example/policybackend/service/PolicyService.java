@@ -7,13 +7,28 @@ import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 @Service
 public class PolicyService {
     private final PolicyRepository repository = new PolicyRepository();
+    private final List<Runnable> publishedListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Register a callback run whenever the set of published policies
+     * changes: a policy is published, or a published one is updated,
+     * deleted or moved back to another status.
+     */
+    public void addPublishedListener(Runnable listener) {
+        publishedListeners.add(listener);
+    }
 
     public Policy create(Policy policy) {
-        return repository.save(policy);
+        Policy saved = repository.save(policy);
+        if (saved.getStatus() == PolicyStatus.PUBLISHED) {
+            publishedChanged();
+        }
+        return saved;
     }
 
     public Optional<Policy> get(String id) {
@@ -30,14 +45,22 @@ public class PolicyService {
             existing.setLevel(updated.getLevel());
             existing.setPriority(updated.getPriority());
             existing.setPatterns(updated.getPatterns());
-            return repository.save(existing);
+            existing.setScope(updated.getScope());
+            Policy saved = repository.save(existing);
+            if (saved.getStatus() == PolicyStatus.PUBLISHED) {
+                publishedChanged();
+            }
+            return saved;
         });
     }
 
     public boolean delete(String id) {
-        boolean exists = repository.findById(id).isPresent();
+        Optional<Policy> existing = repository.findById(id);
         repository.delete(id);
-        return exists;
+        if (existing.isPresent() && existing.get().getStatus() == PolicyStatus.PUBLISHED) {
+            publishedChanged();
+        }
+        return existing.isPresent();
     }
 
     public Optional<Policy> approve(String id) {
@@ -54,8 +77,19 @@ public class PolicyService {
 
     private Optional<Policy> updateStatus(String id, PolicyStatus status) {
         return repository.findById(id).map(policy -> {
+            boolean wasPublished = policy.getStatus() == PolicyStatus.PUBLISHED;
             policy.setStatus(status);
-            return repository.save(policy);
+            Policy saved = repository.save(policy);
+            if (wasPublished != (status == PolicyStatus.PUBLISHED)) {
+                publishedChanged();
+            }
+            return saved;
         });
     }
+
+    private void publishedChanged() {
+        for (Runnable listener : publishedListeners) {
+            listener.run();
+        }
+    }
 }
@@ -0,0 +1,176 @@
+package com.example.policybackend.controller;
+
+import com.example.policybackend.model.Policy;
+import com.example.policybackend.model.PolicyStatus;
+import com.example.policybackend.service.PolicyService;
+import com.example.sdk.http.PolicyHttpClient;
+import com.example.sdk.model.Rule;
+import com.example.sdk.model.Ruleset;
+import com.example.sdk.model.RulesetDelta;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RulesControllerTests {
+
+    private PolicyService policyService;
+    private RulesController controller;
+
+    @BeforeEach
+    void setUp() {
+        policyService = new PolicyService();
+        controller = new RulesController(policyService);
+        policyService.create(policy("email", "[\\w.]+@[\\w.]+", PolicyStatus.PUBLISHED));
+        policyService.create(policy("phone", "1[3-9]\\d{9}", PolicyStatus.PUBLISHED));
+        policyService.create(policy("ssn", "\\d{3}-\\d{2}-\\d{4}", PolicyStatus.PUBLISHED));
+    }
+
+    @Test
+    @DisplayName("should serve the published rules sorted by id with a weak ETag")
+    void servesFullRuleset() {
+        ResponseEntity<?> response = controller.fetchRules(null, null);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        Ruleset ruleset = (Ruleset) response.getBody();
+        assertThat(ruleset.getRules()).extracting(Rule::getId).containsExactly("email", "phone", "ssn");
+        assertThat(response.getHeaders().getETag()).isEqualTo("W/\"" + ruleset.getVersion() + "\"");
+    }
+
+    @Test
+    @DisplayName("should answer 304 to a client holding the current version")
+    void answersNotModified() {
+        String eTag = controller.fetchRules(null, null).getHeaders().getETag();
+
+        ResponseEntity<?> response = controller.fetchRules(eTag, null);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getBody()).isNull();
+    }
+
+    @Test
+    @DisplayName("should send only the rules changed since a recently served version")
+    void servesDelta() {
+        Ruleset base = fetchRuleset();
+        policyService.update("phone", policy("phone", "1[3-9]\\d{9}|\\+86\\d{11}", PolicyStatus.PUBLISHED));
+        policyService.delete("ssn");
+        policyService.create(policy("iban", "[A-Z]{2}\\d{2}[A-Z0-9]{12,30}", PolicyStatus.PUBLISHED));
+        policyService.create(policy("draft", "draft", PolicyStatus.DRAFT));
+
+        ResponseEntity<?> response = controller.fetchRules(base.getETag(), base.getVersion());
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getFirst(RulesetDelta.BASE_HEADER)).isEqualTo(base.getVersion());
+        RulesetDelta delta = (RulesetDelta) response.getBody();
+        assertThat(delta.getBaseVersion()).isEqualTo(base.getVersion());
+        assertThat(delta.getVersion()).isNotEqualTo(base.getVersion());
+        assertThat(delta.getAdded()).extracting(Rule::getId).containsExactly("iban");
+        assertThat(delta.getChanged()).extracting(Rule::getId).containsExactly("phone");
+        assertThat(delta.getRemoved()).containsExactly("ssn");
+    }
+
+    @Test
+    @DisplayName("should send the full rules for a base version it does not know")
+    void servesFullRulesetForUnknownBase() {
+        ResponseEntity<?> response = controller.fetchRules(null, "v-unknown");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().containsKey(RulesetDelta.BASE_HEADER)).isFalse();
+        assertThat(response.getBody()).isInstanceOf(Ruleset.class);
+    }
+
+    @Test
+    @DisplayName("should tell apart rulesets whose fields only differ in how they are split")
+    void versionsEveryField() {
+        String joined = fetchRuleset().getVersion();
+        policyService.update("email", new Policy("email", "Policy email", "CONFIDENTIAL", 10,
+                Arrays.asList("[\\w.]+@[\\w.]+", ""), PolicyStatus.PUBLISHED));
+        String split = fetchRuleset().getVersion();
+        policyService.update("email", new Policy("email", "Policy email", "CONFIDENTIAL", 10,
+                Collections.singletonList("[\\w.]+@[\\w.]+,"), PolicyStatus.PUBLISHED));
+        String comma = fetchRuleset().getVersion();
+
+        assertThat(joined).startsWith("v-").hasSize(34);
+        assertThat(Arrays.asList(joined, split, comma)).doesNotHaveDuplicates();
+    }
+
+    @Test
+    @DisplayName("should hold a long-poll until the published rules change")
+    void holdsLongPollUntilPublished() {
+        Ruleset current = fetchRuleset();
+        DeferredResult<ResponseEntity<?>> result = controller.awaitRules(current.getETag(), null, 30);
+        assertThat(result.hasResult()).isFalse();
+
+        policyService.create(policy("draft", "draft", PolicyStatus.DRAFT));
+        assertThat(result.hasResult()).isFalse();
+
+        policyService.publish("draft");
+
+        assertThat(result.hasResult()).isTrue();
+        ResponseEntity<?> response = (ResponseEntity<?>) result.getResult();
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getFirst(PolicyHttpClient.WAIT_HEADER)).isEqualTo("30");
+        Ruleset latest = (Ruleset) response.getBody();
+        assertThat(latest.getVersion()).isNotEqualTo(current.getVersion());
+        assertThat(latest.getRules()).extracting(Rule::getId).contains("draft");
+    }
+
+    @Test
+    @DisplayName("should answer a long-poll at once when the client is behind")
+    void answersStaleLongPollAtOnce() {
+        DeferredResult<ResponseEntity<?>> result = controller.awaitRules("W/\"v-old\"", null, 30);
+
+        assertThat(result.hasResult()).isTrue();
+        ResponseEntity<?> response = (ResponseEntity<?>) result.getResult();
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isInstanceOf(Ruleset.class);
+    }
+
+    @Test
+    @DisplayName("should answer a held long-poll with a delta against the client's version")
+    void answersLongPollWithDelta() {
+        Ruleset base = fetchRuleset();
+        DeferredResult<ResponseEntity<?>> result = controller.awaitRules(base.getETag(), base.getVersion(), 30);
+
+        policyService.delete("email");
+
+        ResponseEntity<?> response = (ResponseEntity<?>) result.getResult();
+        assertThat(response.getHeaders().getFirst(RulesetDelta.BASE_HEADER)).isEqualTo(base.getVersion());
+        RulesetDelta delta = (RulesetDelta) response.getBody();
+        assertThat(delta.getRemoved()).containsExactly("email");
+        assertThat(delta.getAdded()).isEmpty();
+        assertThat(delta.getChanged()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should clamp the requested wait")
+    void clampsWait() {
+        Ruleset current = fetchRuleset();
+        DeferredResult<ResponseEntity<?>> longest = controller.awaitRules(current.getETag(), null, 600);
+        DeferredResult<ResponseEntity<?>> shortest = controller.awaitRules(current.getETag(), null, 0);
+
+        assertThat(longest.hasResult()).isFalse();
+        assertThat(shortest.hasResult()).isFalse();
+        policyService.delete("phone");
+
+        assertThat(((ResponseEntity<?>) longest.getResult()).getHeaders().getFirst(PolicyHttpClient.WAIT_HEADER))
+                .isEqualTo("120");
+        assertThat(((ResponseEntity<?>) shortest.getResult()).getHeaders().getFirst(PolicyHttpClient.WAIT_HEADER))
+                .isEqualTo("1");
+    }
+
+    private Ruleset fetchRuleset() {
+        return (Ruleset) controller.fetchRules(null, null).getBody();
+    }
+
+    private static Policy policy(String id, String pattern, PolicyStatus status) {
+        return new Policy(id, "Policy " + id, "CONFIDENTIAL", 10, Collections.singletonList(pattern), status);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.sdkclientmock.config;
+
+import com.example.sdk.metrics.Metrics;
+import com.example.sdk.metrics.RuleMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Installs the SDK's in-memory metrics recorder so that rule evaluations and
+ * ruleset refreshes are exported by the metrics endpoint.
+ */
+@Configuration
+public class MetricsConfiguration {
+
+    @Bean
+    public RuleMetrics ruleMetrics() {
+        RuleMetrics metrics = new RuleMetrics();
+        Metrics.install(metrics);
+        return metrics;
+    }
+}
@@ -4,6 +4,7 @@ import com.example.sdk.ClassificationMode;
 import com.example.sdk.ClassificationSdk;
 import com.example.sdk.DetectionResult;
 import com.example.sdk.model.Rule;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -13,6 +14,8 @@ import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
 
+// The metrics recorder is installed before the SDK loads its first ruleset
+@DependsOn("ruleMetrics")
 @RestController
 @RequestMapping("/api/classify")
 public class ClassificationController {
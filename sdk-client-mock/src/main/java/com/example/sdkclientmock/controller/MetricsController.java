@@ -0,0 +1,28 @@
+package com.example.sdkclientmock.controller;
+
+import com.example.sdk.metrics.RuleMetrics;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Exposes the SDK metrics in the Prometheus text exposition format.
+ */
+@RestController
+public class MetricsController {
+
+    private static final MediaType PROMETHEUS_TEXT =
+            MediaType.parseMediaType("text/plain; version=0.0.4; charset=utf-8");
+
+    private final RuleMetrics metrics;
+
+    public MetricsController(RuleMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @GetMapping("/metrics")
+    public ResponseEntity<String> metrics() {
+        return ResponseEntity.ok().contentType(PROMETHEUS_TEXT).body(metrics.toPrometheusText());
+    }
+}